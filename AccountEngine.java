@@ -0,0 +1,223 @@
+import logging.Log;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * AccountEngine - Bank accounts that many payment threads can use at once
+ *
+ * Money is stored as whole paise in a long (fixed point, 2 decimals), so
+ * sums are exact and a balance update is one integer add. Accounts are
+ * guarded by striped locks: account i uses lock i % STRIPES, so unrelated
+ * accounts almost never wait for each other.
+ *
+ * transfer() locks both stripes in index order (lower first). Every thread
+ * takes locks in the same order, so two opposite transfers can never
+ * deadlock.
+ */
+public class AccountEngine {
+
+    private static final int STRIPES = 1024;   // Power of two; more stripes = fewer false collisions
+
+    private final Object[] locks = new Object[STRIPES];
+    private final long[] balances;             // Paise, guarded by locks[index & (STRIPES - 1)]
+    private final int[] accountNumbers;
+    private final String[] holderNames;
+    private final ConcurrentHashMap<Integer, Integer> indexByNumber = new ConcurrentHashMap<>();
+    private volatile int accountCount = 0;     // Written under this, read without it
+
+    /**
+     * Constructor
+     * @param capacity - Most accounts this engine will hold
+     */
+    public AccountEngine(int capacity) {
+        balances = new long[capacity];
+        accountNumbers = new int[capacity];
+        holderNames = new String[capacity];
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * openAccount() - Adds an account
+     * @param accountNumber - Unique account number
+     * @param holderName - Name of the account holder
+     * @param openingBalance - Starting balance in paise
+     */
+    public synchronized void openAccount(int accountNumber, String holderName, long openingBalance) {
+        if (openingBalance < 0) {
+            throw new IllegalArgumentException("Opening balance cannot be negative");
+        }
+        if (accountCount == balances.length) {
+            throw new IllegalStateException("AccountEngine is full (" + balances.length + " accounts)");
+        }
+        if (indexByNumber.containsKey(accountNumber)) {
+            throw new IllegalArgumentException("Account " + accountNumber + " already exists");
+        }
+
+        int index = accountCount;
+        synchronized (lockFor(index)) {
+            accountNumbers[index] = accountNumber;
+            holderNames[index] = holderName;
+            balances[index] = openingBalance;
+        }
+        accountCount++;
+        indexByNumber.put(accountNumber, index);   // Published last: the account is ready once it can be found
+    }
+
+    /**
+     * deposit() - Adds money to an account
+     * @param accountNumber - Account to credit
+     * @param amount - Paise to add (must be positive)
+     * @return New balance in paise
+     */
+    public long deposit(int accountNumber, long amount) {
+        checkAmount(amount);
+        int index = indexOf(accountNumber);
+        synchronized (lockFor(index)) {
+            balances[index] = Math.addExact(balances[index], amount);
+            return balances[index];
+        }
+    }
+
+    /**
+     * withdraw() - Takes money from an account if the balance covers it
+     * @param accountNumber - Account to debit
+     * @param amount - Paise to take (must be positive)
+     * @return true if withdrawn, false if the balance was too low
+     */
+    public boolean withdraw(int accountNumber, long amount) {
+        checkAmount(amount);
+        int index = indexOf(accountNumber);
+        synchronized (lockFor(index)) {
+            if (balances[index] < amount) {
+                return false;
+            }
+            balances[index] -= amount;
+            return true;
+        }
+    }
+
+    /**
+     * transfer() - Moves money between two accounts in one step
+     * Nobody can see the money missing from one account and not yet in the other.
+     * @param fromAccount - Account to debit
+     * @param toAccount - Account to credit
+     * @param amount - Paise to move (must be positive)
+     * @return true if moved, false if fromAccount's balance was too low
+     */
+    public boolean transfer(int fromAccount, int toAccount, long amount) {
+        checkAmount(amount);
+        int from = indexOf(fromAccount);
+        int to = indexOf(toAccount);
+        if (from == to) {
+            throw new IllegalArgumentException("Cannot transfer to the same account");
+        }
+
+        // Always lock the lower stripe first - this is what makes transfers deadlock-free
+        int fromStripe = from & (STRIPES - 1);
+        int toStripe = to & (STRIPES - 1);
+        Object first = locks[Math.min(fromStripe, toStripe)];
+        Object second = locks[Math.max(fromStripe, toStripe)];
+
+        synchronized (first) {
+            synchronized (second) {   // Same object when both accounts share a stripe (re-entrant)
+                if (balances[from] < amount) {
+                    return false;
+                }
+                balances[to] = Math.addExact(balances[to], amount);
+                balances[from] -= amount;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * getBalance() - Current balance of one account
+     * @return Balance in paise
+     */
+    public long getBalance(int accountNumber) {
+        int index = indexOf(accountNumber);
+        synchronized (lockFor(index)) {
+            return balances[index];
+        }
+    }
+
+    public String getHolderName(int accountNumber) {
+        return holderNames[indexOf(accountNumber)];
+    }
+
+    public int getAccountCount() {
+        return accountCount;
+    }
+
+    /**
+     * getTotalBalance() - Sum of every balance, as of one instant
+     * Holds all stripe locks while adding up, so no transfer is half-counted.
+     * Slow (stops all writers briefly) - meant for audits and tests.
+     * @return Total in paise
+     */
+    public long getTotalBalance() {
+        return sumWithAllLocks(0);
+    }
+
+    // Takes locks[stripe], locks[stripe + 1], ... in order, then adds up
+    private long sumWithAllLocks(int stripe) {
+        if (stripe == STRIPES) {
+            // Volatile read, not synchronized: taking this while holding the stripes
+            // would deadlock against openAccount(), which takes this and then a stripe
+            long total = 0;
+            int count = accountCount;
+            for (int i = 0; i < count; i++) {
+                total += balances[i];
+            }
+            return total;
+        }
+        synchronized (locks[stripe]) {
+            return sumWithAllLocks(stripe + 1);
+        }
+    }
+
+    /**
+     * display() - Prints one account in the same layout as BankAccount.display()
+     */
+    public void display(int accountNumber) {
+        Log.info("\n--- Account Details ---\nAccount Number: {}\nHolder Name:    {}\nCurrent Balance:{}\n"
+                + "-----------------------\n", accountNumber, getHolderName(accountNumber),
+                format(getBalance(accountNumber)));
+    }
+
+    /**
+     * toPaise() - Converts an amount like "1250.50" to paise (125050)
+     * @throws ArithmeticException if the amount has more than 2 decimals
+     */
+    public static long toPaise(String amount) {
+        return new BigDecimal(amount).movePointRight(2).longValueExact();
+    }
+
+    /**
+     * format() - Converts paise back to "1250.50"
+     */
+    public static String format(long paise) {
+        return BigDecimal.valueOf(paise, 2).setScale(2, RoundingMode.UNNECESSARY).toPlainString();
+    }
+
+    private Object lockFor(int index) {
+        return locks[index & (STRIPES - 1)];
+    }
+
+    private int indexOf(int accountNumber) {
+        Integer index = indexByNumber.get(accountNumber);
+        if (index == null) {
+            throw new IllegalArgumentException("Unknown account " + accountNumber);
+        }
+        return index;
+    }
+
+    private static void checkAmount(long amount) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Amount must be positive: " + amount);
+        }
+    }
+}
@@ -1,3 +1,5 @@
+import logging.Log;
+
 class BankAccount {
     
     int accountNumber;
@@ -22,29 +24,25 @@ class BankAccount {
     void deposit(double amount) {
         if (amount > 0) {
             this.balance += amount;
-            System.out.println("Deposited: " + amount);
-            System.out.println("Avl Balance: " + this.balance);
+            Log.info("Deposited: {} | Avl Balance: {}", amount, this.balance);
         } else {
-            System.out.println("Invalid deposit amount.");
+            Log.warn("Invalid deposit amount: {}", amount);
         }
     }
 
     void withdraw(double amount) {
         if (amount <= balance) {
             this.balance -= amount;
-            System.out.println("Withdrawn: " + amount);
-            System.out.println("Avl Balance: " + this.balance);
+            Log.info("Withdrawn: {} | Avl Balance: {}", amount, this.balance);
         } else {
-            System.out.println("Insufficient balance" + this.balance);
+            Log.warn("Insufficient balance {} for withdrawal of {}", this.balance, amount);
         }
     }
 
     void display() {
-        System.out.println("\n--- Account Details ---");
-        System.out.println("Account Number: " + this.accountNumber);
-        System.out.println("Holder Name:    " + this.holderName);
-        System.out.println("Current Balance:" + this.balance);
-        System.out.println("-----------------------\n");
+        // One message, so the lines of one account are never mixed with another thread's output
+        Log.info("\n--- Account Details ---\nAccount Number: {}\nHolder Name:    {}\nCurrent Balance:{}\n"
+                + "-----------------------\n", this.accountNumber, this.holderName, this.balance);
     }
 }
 
@@ -0,0 +1,86 @@
+/**
+ * BankStress - Hammers AccountEngine with random transfers from many threads
+ *
+ * For 1, 8 and 64 threads it runs two workloads:
+ *   cold - transfers between random pairs out of many accounts (little contention)
+ *   hot  - every thread moves money between the same 2 accounts (maximum contention)
+ *
+ * After each run it checks that no money was created or lost and that no
+ * balance went negative, and prints the transfers per second. If a run does
+ * not finish in time it reports a possible deadlock and exits with status 1.
+ *
+ *   java BankStress [secondsPerRun]
+ */
+public class BankStress {
+
+    private static final int COLD_ACCOUNTS = 100_000;
+    private static final int HOT_ACCOUNTS = 2;
+    private static final long OPENING_BALANCE = 1_000_000;   // Paise (10,000.00) per account
+    private static final int[] THREAD_COUNTS = {1, 8, 64};
+
+    // MixedLoad counters
+    private static final int TRANSFERS = 0;
+    private static final int DECLINED = 1;
+
+    public static void main(String[] args) throws InterruptedException {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 2;
+
+        System.out.println("AccountEngine stress test (" + seconds + " s per run, "
+                + Runtime.getRuntime().availableProcessors() + " CPU(s))");
+        System.out.printf("%-6s %8s %15s %15s%n", "Mode", "Threads", "Transfers/s", "Declined");
+
+        boolean allPassed = true;
+        for (int threads : THREAD_COUNTS) {
+            allPassed &= run("cold", COLD_ACCOUNTS, threads, seconds);
+            allPassed &= run("hot", HOT_ACCOUNTS, threads, seconds);
+        }
+
+        System.out.println(allPassed ? "✓ Money conserved in every run" : "✗ Some runs failed");
+        if (!allPassed) {
+            System.exit(1);
+        }
+    }
+
+    // One run: threads do random transfers for the given time, then the totals are checked
+    private static boolean run(String mode, int accountCount, int threads, int seconds)
+            throws InterruptedException {
+        AccountEngine engine = new AccountEngine(accountCount);
+        for (int i = 0; i < accountCount; i++) {
+            engine.openAccount(i + 1, "Holder " + (i + 1), OPENING_BALANCE);
+        }
+        long expectedTotal = OPENING_BALANCE * accountCount;
+
+        MixedLoad.Result result = MixedLoad.run("stress-" + mode, threads, seconds, 2, t -> (random, counts) -> {
+            int from = random.nextInt(accountCount) + 1;
+            int to = random.nextInt(accountCount - 1) + 1;
+            if (to >= from) {
+                to++;   // Never the same account
+            }
+            counts[engine.transfer(from, to, random.nextLong(1, 101)) ? TRANSFERS : DECLINED]++;
+        });
+        if (!result.isFinished()) {
+            System.out.println("✗ " + mode + " run with " + threads + " threads did not finish - possible deadlock");
+            System.exit(1);
+        }
+
+        long total = engine.getTotalBalance();
+        boolean negative = false;
+        for (int i = 1; i <= accountCount; i++) {
+            negative |= engine.getBalance(i) < 0;
+        }
+
+        System.out.printf("%-6s %8d %,15.0f %,15d%n", mode, threads,
+                result.getPerSecond(TRANSFERS) + result.getPerSecond(DECLINED), result.getCount(DECLINED));
+
+        if (total != expectedTotal) {
+            System.out.println("✗ Total is " + AccountEngine.format(total) + ", expected "
+                    + AccountEngine.format(expectedTotal));
+            return false;
+        }
+        if (negative) {
+            System.out.println("✗ A balance went negative");
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,185 @@
+package database;
+
+import models.Car;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * AsyncCarDAO class - Non-blocking version of CarDAO for servers
+ * Every call returns a CompletableFuture right away. The JDBC work runs on a
+ * virtual thread, so thousands of pending lookups cost almost nothing, while
+ * a semaphore keeps the number of queries running at once within the
+ * connection pool size. Calls that take longer than the timeout fail with a
+ * TimeoutException, and cancelling a future stops the call if it has not
+ * started yet. A call that is already running is never interrupted: a JDBC
+ * write cut off half way leaves its commit unknown and a broken connection in
+ * the pool. It finishes in the background, and a caller that gave up on it
+ * gets an OutcomeUnknownException instead of a plain failure.
+ */
+public class AsyncCarDAO implements AutoCloseable {
+
+    /**
+     * OutcomeUnknownException - The call timed out while it was running
+     * It may still have taken effect (a car may be rented): read the car's
+     * state again before retrying.
+     */
+    public static class OutcomeUnknownException extends TimeoutException {
+        public OutcomeUnknownException(String message) {
+            super(message);
+        }
+    }
+
+    private final CarDAO carDAO;
+    private final int maxConcurrency;
+    private final long timeoutMillis;
+    private final Semaphore concurrencyLimit;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Constructor - One query per pooled connection, 30 second timeout
+     */
+    public AsyncCarDAO() {
+        this(new CarDAO(), DatabaseConnection.getMaxPoolSize(), 30000);
+    }
+
+    /**
+     * Constructor - Custom limits
+     * @param carDAO - DAO that does the actual JDBC work
+     * @param maxConcurrency - Most DAO calls running at the same time
+     * @param timeoutMillis - Time after which a call fails with TimeoutException
+     */
+    public AsyncCarDAO(CarDAO carDAO, int maxConcurrency, long timeoutMillis) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency must be positive: " + maxConcurrency);
+        }
+        this.carDAO = carDAO;
+        this.maxConcurrency = maxConcurrency;
+        this.timeoutMillis = timeoutMillis;
+        this.concurrencyLimit = new Semaphore(maxConcurrency, true);
+    }
+
+    // Same methods as CarDAO - same arguments, result wrapped in a future
+    public CompletableFuture<List<Car>> getAvailableCarsByCategory(String category) {
+        return submit(() -> carDAO.getAvailableCarsByCategory(category));
+    }
+
+    public CompletableFuture<Car> getCarByPlateNo(String plateNo) {
+        return submit(() -> carDAO.getCarByPlateNo(plateNo));
+    }
+
+    public CompletableFuture<Boolean> rentCar(String plateNo) {
+        return submit(() -> carDAO.rentCar(plateNo));
+    }
+
+    public CompletableFuture<Boolean> returnCar(String plateNo) {
+        return submit(() -> carDAO.returnCar(plateNo));
+    }
+
+    public CompletableFuture<RentResult> rentCarAtomically(String plateNo) {
+        return submit(() -> carDAO.rentCarAtomically(plateNo));
+    }
+
+    public CompletableFuture<RentResult> returnCarAtomically(String plateNo) {
+        return submit(() -> carDAO.returnCarAtomically(plateNo));
+    }
+
+    public CompletableFuture<RentResult> returnCarAtomically(String plateNo, int days) {
+        return submit(() -> carDAO.returnCarAtomically(plateNo, days));
+    }
+
+    public CompletableFuture<BatchResult> rentCars(Collection<String> plateNos, BatchResult.Mode mode) {
+        return submit(() -> carDAO.rentCars(plateNos, mode));
+    }
+
+    public CompletableFuture<BatchResult> returnCars(Collection<String> plateNos, BatchResult.Mode mode) {
+        return submit(() -> carDAO.returnCars(plateNos, mode));
+    }
+
+    // Getter methods - Current load
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public int getRunningCount() {
+        return maxConcurrency - concurrencyLimit.availablePermits();
+    }
+
+    public int getWaitingCount() {
+        return concurrencyLimit.getQueueLength();
+    }
+
+    /**
+     * submit() - Runs one DAO call on a virtual thread
+     * @param call - The blocking DAO call
+     * @return Future completed with the call's result
+     */
+    private <T> CompletableFuture<T> submit(Callable<T> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        AtomicBoolean started = new AtomicBoolean();
+
+        Future<?> task = executor.submit(() -> {
+            try {
+                concurrencyLimit.acquire();
+            } catch (InterruptedException e) {
+                future.completeExceptionally(new CancellationException("Cancelled while waiting for a slot"));
+                return;
+            }
+            try {
+                // Claim the call before running it, so the timeout knows whether it began
+                if (!future.isDone() && started.compareAndSet(false, true)) {
+                    future.complete(call.call());
+                }
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            } finally {
+                concurrencyLimit.release();
+            }
+        });
+
+        // Timeout: a call that never started fails plainly, a running one has an unknown outcome
+        CompletableFuture.delayedExecutor(timeoutMillis, TimeUnit.MILLISECONDS).execute(() -> {
+            if (started.compareAndSet(false, true)) {
+                future.completeExceptionally(new TimeoutException(
+                        "Not started within " + timeoutMillis + " ms - nothing was changed"));
+            } else if (!future.isDone()) {
+                future.completeExceptionally(new OutcomeUnknownException(
+                        "Still running after " + timeoutMillis + " ms - it may yet take effect"));
+            }
+        });
+
+        // Timeout or cancel by the caller -> drop the task if it has not started (never interrupt a running one)
+        future.whenComplete((result, error) -> {
+            if (error instanceof CancellationException || error instanceof TimeoutException) {
+                task.cancel(false);
+            }
+        });
+
+        return future;
+    }
+
+    /**
+     * close() - Stops accepting calls and waits for running ones to finish
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package database;
+
+import models.Car;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * AvailabilityCache class - Remembers the list of available cars per category
+ * CarDAO asks this cache first and only goes to MySQL on a miss. Rents and
+ * returns made by this process patch the cached lists directly. Changes made
+ * outside this process (other counters, manual SQL) are picked up when an
+ * entry expires after its time-to-live.
+ */
+public class AvailabilityCache {
+
+    // Most rented cars remembered for patching lists on return
+    private static final int MAX_TRACKED_RENTALS = 10000;
+
+    private final long ttlMillis;       // How long a category list is trusted
+    private final int maxCategories;    // Most category lists kept at once
+
+    // category -> cached entry, least recently used first
+    private final LinkedHashMap<String, Entry> entries;
+
+    // Cars we have seen as rented, so a return can put them back in their list
+    private final Map<String, Car> rentedCars = new HashMap<>();
+
+    // Bumped on every change, so a slow load cannot overwrite a newer patch
+    private long version = 0;
+
+    // Statistics
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private long invalidations = 0;
+
+    /**
+     * Constructor - Creates an empty cache
+     * @param ttlMillis - Time-to-live of each category list in milliseconds
+     * @param maxCategories - Maximum number of category lists kept
+     */
+    public AvailabilityCache(long ttlMillis, int maxCategories) {
+        this.ttlMillis = ttlMillis;
+        this.maxCategories = maxCategories;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * get() - Returns the cached available cars of a category
+     * @param category - Type of car (SUV, Sedan, Hatchback)
+     * @return Copy of the cached list, or null if not cached or expired
+     */
+    public synchronized List<Car> get(String category) {
+        Entry entry = entries.get(category);
+
+        if (entry != null && System.currentTimeMillis() - entry.loadedAt > ttlMillis) {
+            // Too old - someone else may have changed the table meanwhile
+            entries.remove(category);
+            evictions++;
+            entry = null;
+        }
+
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+
+        hits++;
+        return new ArrayList<>(entry.cars);
+    }
+
+    /**
+     * getVersion() - Returns the current change counter
+     * Read this before querying the database and pass it to put().
+     * @return Current version
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * put() - Stores freshly loaded available cars of a category
+     * Ignored if a rent/return/invalidate happened while the list was loading.
+     * @param category - Type of car
+     * @param cars - Available cars as read from the database
+     * @param loadVersion - Value of getVersion() taken before the query
+     */
+    public synchronized void put(String category, List<Car> cars, long loadVersion) {
+        if (loadVersion != version) {
+            return;
+        }
+
+        entries.put(category, new Entry(new ArrayList<>(cars)));
+
+        // Drop least recently used categories beyond the size limit
+        Iterator<String> iterator = entries.keySet().iterator();
+        while (entries.size() > maxCategories && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * carRented() - Removes a just-rented car from its cached list
+     * @param plateNo - Plate number of the rented car
+     */
+    public synchronized void carRented(String plateNo) {
+        version++;
+        for (Entry entry : entries.values()) {
+            Iterator<Car> iterator = entry.cars.iterator();
+            while (iterator.hasNext()) {
+                Car car = iterator.next();
+                if (car.getPlateNo().equals(plateNo)) {
+                    iterator.remove();
+                    if (rentedCars.size() >= MAX_TRACKED_RENTALS) {
+                        rentedCars.clear();
+                    }
+                    rentedCars.put(plateNo, car);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * carReturned() - Puts a just-returned car back into its cached list
+     * If we never saw this car, its category is unknown, so all lists are dropped.
+     * @param plateNo - Plate number of the returned car
+     */
+    public synchronized void carReturned(String plateNo) {
+        version++;
+        Car car = rentedCars.remove(plateNo);
+
+        if (car == null) {
+            invalidateAll();
+            return;
+        }
+
+        Entry entry = entries.get(car.getCategory());
+        if (entry != null) {
+            entry.cars.add(car);
+        }
+    }
+
+    /**
+     * invalidate() - Forgets the cached list of one category
+     * @param category - Type of car
+     */
+    public synchronized void invalidate(String category) {
+        version++;
+        if (entries.remove(category) != null) {
+            invalidations++;
+        }
+    }
+
+    /**
+     * invalidateAll() - Forgets every cached list
+     */
+    public synchronized void invalidateAll() {
+        version++;
+        invalidations += entries.size();
+        entries.clear();
+        rentedCars.clear();
+    }
+
+    // Getter methods - Cache statistics
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    public synchronized long getInvalidationCount() {
+        return invalidations;
+    }
+
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "AvailabilityCache[size=" + entries.size() + "/" + maxCategories
+                + ", hits=" + hits
+                + ", misses=" + misses
+                + ", evictions=" + evictions
+                + ", invalidations=" + invalidations + "]";
+    }
+
+    /**
+     * Entry - One cached category list and when it was loaded
+     */
+    private static class Entry {
+        final List<Car> cars;
+        final long loadedAt;
+
+        Entry(List<Car> cars) {
+            this.cars = cars;
+            this.loadedAt = System.currentTimeMillis();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package database;
+
+/**
+ * AvailabilityChange class - One car became available or stopped being available
+ * Sent to AvailabilityFeed subscribers of the car's category.
+ */
+public class AvailabilityChange {
+
+    private final String plateNo;
+    private final String category;
+    private final boolean available;
+
+    public AvailabilityChange(String plateNo, String category, boolean available) {
+        this.plateNo = plateNo;
+        this.category = category;
+        this.available = available;
+    }
+
+    public String getPlateNo() {
+        return plateNo;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    /** True if the car can now be rented, false if it was just rented */
+    public boolean isAvailable() {
+        return available;
+    }
+
+    @Override
+    public String toString() {
+        return plateNo + (available ? " available" : " rented");
+    }
+}
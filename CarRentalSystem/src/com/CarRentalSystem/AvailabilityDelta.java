@@ -0,0 +1,43 @@
+package database;
+
+import java.util.List;
+
+/**
+ * AvailabilityDelta class - What an AvailabilityFeed subscriber receives from one poll()
+ * Holds at most one change per car: its latest state, so a car rented and
+ * returned again before the poll appears once, as available.
+ *
+ * If resync is true the subscriber fell too far behind and changes were
+ * dropped; it should read the full list again (CarDAO.getAvailableCarsByCategory)
+ * and then apply the changes from later polls on top of it.
+ */
+public class AvailabilityDelta {
+
+    private final List<AvailabilityChange> changes;
+    private final boolean resync;
+    private final long conflated;
+
+    public AvailabilityDelta(List<AvailabilityChange> changes, boolean resync, long conflated) {
+        this.changes = changes;
+        this.resync = resync;
+        this.conflated = conflated;
+    }
+
+    public List<AvailabilityChange> getChanges() {
+        return changes;
+    }
+
+    public boolean isResync() {
+        return resync;
+    }
+
+    /** Older changes left out because a newer change of the same car replaced them */
+    public long getConflated() {
+        return conflated;
+    }
+
+    @Override
+    public String toString() {
+        return "AvailabilityDelta[changes=" + changes + ", resync=" + resync + ", conflated=" + conflated + "]";
+    }
+}
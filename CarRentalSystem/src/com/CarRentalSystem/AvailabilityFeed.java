@@ -0,0 +1,480 @@
+package database;
+
+import logging.Log;
+import models.Car;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.function.LongSupplier;
+
+/**
+ * AvailabilityFeed class - Tells subscribers when cars of a category are rented or returned
+ * Instead of every dashboard re-reading getAvailableCarsByCategory() to spot
+ * a freed-up car, each one subscribes to a category and polls its
+ * Subscription, which waits until something has changed.
+ *
+ * CarDAO reports the plate of every successful rent and return here. A
+ * background dispatcher thread collects the changes of a few milliseconds,
+ * reads those cars' current state in one query and hands each car to the
+ * subscriptions of its category. So a batch of changes costs one query and
+ * one pass over the watchers of each category, however many watchers there
+ * are, and because the state is read after the commit, changes reported in
+ * the wrong order by racing threads still end with the right state.
+ *
+ * Each subscription keeps at most one pending change per car (the latest
+ * state), and at most maxPending cars. A subscriber that falls further
+ * behind loses its pending changes and is told to resync (read the full list
+ * again) on its next poll, so a slow or abandoned subscriber never holds more
+ * than maxPending entries.
+ *
+ * Changes made outside this process (the console program, other servers,
+ * manual SQL) never reach carChanged(). After followDatabase() the dispatcher
+ * also reads the cars whose updated_at moved (migration_v5_last_modified.sql)
+ * every few seconds and sends them the same way, so those changes arrive too,
+ * just later. Without it they are not seen.
+ */
+public class AvailabilityFeed {
+
+    public static final int DEFAULT_MAX_PENDING = 1024;
+    private static final int MAX_BATCH = 4096;            // Most changes fanned out in one pass
+    private static final long LINGER_MILLIS = 10;         // Wait for more changes before fanning out
+    private static final long IDLE_WAKE_NANOS = TimeUnit.SECONDS.toNanos(1);   // Dispatcher checks for followDatabase()
+    private static final long FOLLOW_OVERLAP_MILLIS = 5000;  // Re-read this far back: commits land after updated_at
+
+    /**
+     * Subscription - One subscriber's interest in a category
+     * Close it when done; an unclosed subscription keeps receiving changes.
+     */
+    public static final class Subscription implements AutoCloseable {
+        private final AvailabilityFeed feed;
+        private final String category;
+        private final int maxPending;
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition changed = lock.newCondition();
+
+        // Guarded by lock: plate -> latest availability, in order of first change
+        private LinkedHashMap<String, Boolean> pending = new LinkedHashMap<>();
+        private boolean resync = false;
+        private long conflated = 0;
+        private boolean closed = false;
+
+        private volatile long lastPolledMillis = System.currentTimeMillis();
+
+        private Subscription(AvailabilityFeed feed, String category, int maxPending) {
+            this.feed = feed;
+            this.category = category;
+            this.maxPending = maxPending;
+        }
+
+        public String getCategory() {
+            return category;
+        }
+
+        public int getMaxPending() {
+            return maxPending;
+        }
+
+        /**
+         * poll() - Waits until there are changes, then takes all of them
+         * @param timeout - Longest time to wait
+         * @param unit - Unit of timeout
+         * @return Changes since the last poll, or null if none came in time (or the subscription is closed)
+         */
+        public AvailabilityDelta poll(long timeout, TimeUnit unit) throws InterruptedException {
+            lastPolledMillis = System.currentTimeMillis();
+            long nanos = unit.toNanos(timeout);
+            lock.lock();
+            try {
+                while (pending.isEmpty() && !resync && !closed) {
+                    if (nanos <= 0) {
+                        return null;
+                    }
+                    nanos = changed.awaitNanos(nanos);
+                }
+                if (closed) {
+                    return null;
+                }
+
+                List<AvailabilityChange> changes = new ArrayList<>(pending.size());
+                for (Map.Entry<String, Boolean> entry : pending.entrySet()) {
+                    changes.add(new AvailabilityChange(entry.getKey(), category, entry.getValue()));
+                }
+                AvailabilityDelta delta = new AvailabilityDelta(changes, resync, conflated);
+                pending = new LinkedHashMap<>();
+                resync = false;
+                conflated = 0;
+                return delta;
+            } finally {
+                lock.unlock();
+                lastPolledMillis = System.currentTimeMillis();
+            }
+        }
+
+        /** Cars with a change waiting to be polled */
+        public int getPendingCount() {
+            lock.lock();
+            try {
+                return pending.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /** When poll() was last called or returned (epoch milliseconds) */
+        public long getLastPolledMillis() {
+            return lastPolledMillis;
+        }
+
+        public boolean isClosed() {
+            lock.lock();
+            try {
+                return closed;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * close() - Stops receiving changes and wakes up a waiting poll()
+         */
+        @Override
+        public void close() {
+            lock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                pending.clear();
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            feed.unsubscribe(this);
+        }
+
+        // Called by the dispatcher with this category's changes from one batch
+        private void offer(List<AvailabilityChange> changes) {
+            lock.lock();
+            try {
+                if (closed || resync) {
+                    return;   // A resync re-reads everything, so nothing needs keeping until then
+                }
+                // A rent and a later return are not dropped as a pair: the subscriber may
+                // have read its list in between, so only the latest state is safe to send
+                long merged = 0;
+                for (AvailabilityChange change : changes) {
+                    if (pending.size() >= maxPending && !pending.containsKey(change.getPlateNo())) {
+                        pending.clear();
+                        resync = true;
+                        feed.resyncs.increment();
+                        break;
+                    }
+                    if (pending.put(change.getPlateNo(), change.isAvailable()) != null) {
+                        merged++;   // The older change of this car is superseded
+                    }
+                }
+                conflated += merged;
+                feed.conflated.add(merged);
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void requestResync() {
+            lock.lock();
+            try {
+                if (closed || resync) {
+                    return;
+                }
+                pending.clear();
+                resync = true;
+                feed.resyncs.increment();
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private final Function<Collection<String>, List<Car>> carLookup;   // Reads the current state of cars
+    private final BlockingQueue<String> incoming;   // Plates of changed cars
+    private final ConcurrentHashMap<String, CopyOnWriteArrayList<Subscription>> subscriptions = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriptionCount = new AtomicInteger();
+    private final AtomicBoolean overflowed = new AtomicBoolean();   // incoming was full: changes were lost
+    private Thread dispatcher;
+    private volatile int inFlight = 0;   // Changes taken from incoming but not yet handed out
+
+    // Following the database (set once by followDatabase(); the rest is used by the dispatcher only)
+    private volatile LongSupplier databaseClock;             // Database time, -1 if the read failed
+    private volatile LongFunction<List<Car>> changedSince;   // Cars with updated_at >= time, null if the read failed
+    private volatile long followIntervalNanos;
+    private long followWatermarkMillis = -1;                 // Database time of the last successful read
+    private long nextFollowNanos;
+    private boolean followStarted = false;
+    private Map<String, String> lastFollowed = new HashMap<>();   // Plate -> status seen by the last read
+
+    // Statistics
+    private final LongAdder published = new LongAdder();
+    private final LongAdder deliveries = new LongAdder();   // One per change per subscription
+    private final LongAdder conflated = new LongAdder();
+    private final LongAdder resyncs = new LongAdder();
+
+    /**
+     * Constructor
+     * @param queueCapacity - Most changes waiting for the dispatcher; beyond that every subscriber is told to resync
+     * @param carLookup - Reads the current state of the given cars (null if the read failed)
+     */
+    public AvailabilityFeed(int queueCapacity, Function<Collection<String>, List<Car>> carLookup) {
+        this.incoming = new ArrayBlockingQueue<>(queueCapacity);
+        this.carLookup = carLookup;
+    }
+
+    /**
+     * subscribe() - Starts receiving changes of a category (at most DEFAULT_MAX_PENDING cars pending)
+     */
+    public Subscription subscribe(String category) {
+        return subscribe(category, DEFAULT_MAX_PENDING);
+    }
+
+    /**
+     * subscribe() - Starts receiving changes of a category
+     * Changes made before this call are not delivered: read the current list
+     * after subscribing and apply the deltas on top of it.
+     * @param category - Type of car (SUV, Sedan, Hatchback)
+     * @param maxPending - Most cars with undelivered changes before the subscriber must resync
+     * @return The subscription (close it when done)
+     */
+    public Subscription subscribe(String category, int maxPending) {
+        if (category == null || category.isEmpty()) {
+            throw new IllegalArgumentException("Category must not be empty");
+        }
+        if (maxPending <= 0) {
+            throw new IllegalArgumentException("maxPending must be positive: " + maxPending);
+        }
+        startDispatcher();
+        Subscription subscription = new Subscription(this, category, maxPending);
+        subscriptions.computeIfAbsent(category, c -> new CopyOnWriteArrayList<>()).add(subscription);
+        subscriptionCount.incrementAndGet();
+        return subscription;
+    }
+
+    /**
+     * followDatabase() - Also sends changes made outside this process
+     * Every intervalMillis the dispatcher reads the cars changed since its last
+     * read (a little further back, since a commit can land after its
+     * updated_at). Each car is sent once per status change, so changes made
+     * here may arrive twice, both times with the same state. Only the first
+     * call counts; later ones are ignored.
+     * @param databaseClock - Reads the database time, the clock behind updated_at (-1 if it failed)
+     * @param changedSince - Reads the cars changed at or after a database time (null if it failed)
+     * @param intervalMillis - Time between reads
+     */
+    public void followDatabase(LongSupplier databaseClock, LongFunction<List<Car>> changedSince, long intervalMillis) {
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("intervalMillis must be positive: " + intervalMillis);
+        }
+        synchronized (this) {
+            if (this.databaseClock != null) {
+                return;   // Already following (e.g. a second server in the same program)
+            }
+            this.changedSince = changedSince;
+            this.followIntervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+            this.databaseClock = databaseClock;   // Set last: the dispatcher checks it first
+        }
+        startDispatcher();
+    }
+
+    /**
+     * carChanged() - Reports that a car was rented or returned
+     * Call it after the change is committed. Subscribers are sent the car's
+     * state as read by the dispatcher, not as seen by the caller.
+     * @param plateNo - Plate number of the car
+     */
+    void carChanged(String plateNo) {
+        if (subscriptionCount.get() == 0) {
+            return;   // Nobody is listening: costs CarDAO nothing
+        }
+        published.increment();
+        if (!incoming.offer(plateNo)) {
+            overflowed.set(true);   // Never block a rent; subscribers resync instead
+        }
+    }
+
+    public int getSubscriptionCount() {
+        return subscriptionCount.get();
+    }
+
+    /** Changes waiting for the dispatcher (how far the feed is behind) */
+    public int getBacklog() {
+        return incoming.size() + inFlight;
+    }
+
+    // Getter methods - Feed statistics
+    public long getPublishedCount() {
+        return published.sum();
+    }
+
+    public long getDeliveryCount() {
+        return deliveries.sum();
+    }
+
+    public long getConflatedCount() {
+        return conflated.sum();
+    }
+
+    public long getResyncCount() {
+        return resyncs.sum();
+    }
+
+    private void unsubscribe(Subscription subscription) {
+        List<Subscription> list = subscriptions.get(subscription.category);
+        if (list != null && list.remove(subscription)) {
+            subscriptionCount.decrementAndGet();
+        }
+    }
+
+    private synchronized void startDispatcher() {
+        if (dispatcher == null) {
+            dispatcher = new Thread(this::dispatchLoop, "availability-feed");
+            dispatcher.setDaemon(true);
+            dispatcher.start();
+        }
+    }
+
+    // Background thread: takes queued changes and hands them to the subscriptions of their category
+    private void dispatchLoop() {
+        List<String> batch = new ArrayList<>();
+        Map<String, List<AvailabilityChange>> byCategory = new HashMap<>();
+        while (true) {
+            boolean following = databaseClock != null;
+            if (following && !followStarted) {
+                followStarted = true;
+                nextFollowNanos = System.nanoTime();
+            }
+            try {
+                // Not following yet: wake up now and then in case followDatabase() is called
+                long waitNanos = following ? nextFollowNanos - System.nanoTime() : IDLE_WAKE_NANOS;
+                String first = incoming.poll(Math.max(0, waitNanos), TimeUnit.NANOSECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    inFlight = 1;
+                    // Each pass costs one query and wakes every subscriber of the category,
+                    // so collect a few milliseconds of changes and handle them together
+                    Thread.sleep(LINGER_MILLIS);
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+            incoming.drainTo(batch, MAX_BATCH - batch.size());
+            if (following && System.nanoTime() - nextFollowNanos >= 0) {
+                nextFollowNanos = System.nanoTime() + followIntervalNanos;
+                try {
+                    readDatabaseChanges(batch);
+                } catch (RuntimeException e) {
+                    Log.error("✗ Could not read cars changed in the database for availability subscribers", e);
+                }
+            }
+            if (batch.isEmpty()) {
+                continue;
+            }
+            inFlight = batch.size();
+
+            // Read the cars now, after their changes were committed: whatever order the
+            // changes were reported in, the last state sent for a car is its latest one
+            Set<String> plates = new LinkedHashSet<>(batch);
+            List<Car> cars = null;
+            try {
+                cars = carLookup.apply(plates);
+            } catch (RuntimeException e) {
+                Log.error("✗ Could not read changed cars for availability subscribers", e);
+            }
+
+            boolean lost = overflowed.getAndSet(false) || cars == null || cars.size() < plates.size();
+            if (cars != null) {
+                for (Car car : cars) {
+                    AvailabilityChange change = new AvailabilityChange(car.getPlateNo(), car.getCategory(),
+                            "Available".equals(car.getStatus()));
+                    byCategory.computeIfAbsent(car.getCategory(), c -> new ArrayList<>()).add(change);
+                }
+            }
+
+            for (Map.Entry<String, List<AvailabilityChange>> entry : byCategory.entrySet()) {
+                List<Subscription> list = subscriptions.get(entry.getKey());
+                if (list == null) {
+                    continue;
+                }
+                for (Subscription subscription : list) {
+                    subscription.offer(entry.getValue());
+                    deliveries.add(entry.getValue().size());
+                }
+            }
+            if (lost) {
+                resyncAll();   // Queue overflow, failed read or deleted car: nobody can be told exactly
+            }
+            batch.clear();
+            byCategory.clear();
+            inFlight = 0;
+        }
+    }
+
+    // Adds the plates of cars changed in the database since the last read, once per status change
+    private void readDatabaseChanges(List<String> batch) {
+        long checkedAt = databaseClock.getAsLong();   // Read the clock first: later changes are caught next time
+        if (checkedAt < 0) {
+            return;
+        }
+        // The first read only learns the recent statuses: changes from before it are not sent
+        boolean first = followWatermarkMillis < 0;
+        long since = (first ? checkedAt : followWatermarkMillis) - FOLLOW_OVERLAP_MILLIS;
+        List<Car> changed = changedSince.apply(since);
+        if (changed == null) {
+            return;   // Already logged; the next read covers this one's time too
+        }
+
+        Map<String, String> seen = new HashMap<>();
+        int added = 0;
+        for (Car car : changed) {
+            seen.put(car.getPlateNo(), car.getStatus());
+            if (!first && !car.getStatus().equals(lastFollowed.get(car.getPlateNo()))) {
+                if (batch.size() < MAX_BATCH) {
+                    batch.add(car.getPlateNo());
+                    added++;
+                } else {
+                    overflowed.set(true);   // Too many at once: subscribers resync instead
+                }
+            }
+        }
+        lastFollowed = seen;
+        followWatermarkMillis = checkedAt;
+        published.add(added);
+    }
+
+    // Changes were lost: every subscriber must read its list again
+    private void resyncAll() {
+        for (List<Subscription> list : subscriptions.values()) {
+            for (Subscription subscription : list) {
+                subscription.requestResync();
+            }
+        }
+    }
+}
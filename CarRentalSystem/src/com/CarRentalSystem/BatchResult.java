@@ -0,0 +1,97 @@
+package database;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BatchResult class - Outcome of a batch rent or return (CarDAO.rentCars / returnCars)
+ * Holds a success flag for every plate number in the batch and whether the
+ * transaction was committed.
+ */
+public class BatchResult {
+
+    /**
+     * Mode - How a batch reacts when some cars cannot be updated
+     */
+    public enum Mode {
+        ALL_OR_NOTHING,   // Any failed car rolls back the whole batch
+        BEST_EFFORT       // Cars that could be updated are committed, the rest are reported
+    }
+
+    private final Mode mode;
+    private final Map<String, Boolean> results = new LinkedHashMap<>();  // plate -> updated?
+    private boolean committed = false;
+
+    public BatchResult(Mode mode) {
+        this.mode = mode;
+    }
+
+    // Called by CarDAO while building the result
+    void setResult(String plateNo, boolean success) {
+        results.put(plateNo, success);
+    }
+
+    void setCommitted(boolean committed) {
+        this.committed = committed;
+    }
+
+    // Getter methods
+    public Mode getMode() {
+        return mode;
+    }
+
+    public boolean isCommitted() {
+        return committed;
+    }
+
+    /**
+     * isSuccess() - Tells whether one plate was updated and committed
+     * @param plateNo - Plate number from the batch
+     * @return true if that car's status was changed
+     */
+    public boolean isSuccess(String plateNo) {
+        return committed && Boolean.TRUE.equals(results.get(plateNo));
+    }
+
+    /**
+     * isAllSucceeded() - Tells whether every car in the batch was updated
+     */
+    public boolean isAllSucceeded() {
+        return committed && !results.containsValue(Boolean.FALSE);
+    }
+
+    public Map<String, Boolean> getResults() {
+        return Collections.unmodifiableMap(results);
+    }
+
+    public List<String> getSucceeded() {
+        List<String> plates = new ArrayList<>();
+        for (String plateNo : results.keySet()) {
+            if (isSuccess(plateNo)) {
+                plates.add(plateNo);
+            }
+        }
+        return plates;
+    }
+
+    public List<String> getFailed() {
+        List<String> plates = new ArrayList<>();
+        for (String plateNo : results.keySet()) {
+            if (!isSuccess(plateNo)) {
+                plates.add(plateNo);
+            }
+        }
+        return plates;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResult[mode=" + mode
+                + ", committed=" + committed
+                + ", succeeded=" + getSucceeded()
+                + ", failed=" + getFailed() + "]";
+    }
+}
@@ -50,11 +50,11 @@ public class Car {
     // Display car information in a nice format
     public void displayCarInfo() {
         System.out.println("========================================");
-        System.out.println("Plate Number: " + plateNo);
-        System.out.println("Model: " + model);
-        System.out.println("Category: " + category);
-        System.out.println("Rate: ₹" + ratePerDay + " per day");
-        System.out.println("Status: " + status);
+        System.out.println("Plate Number: " + getPlateNo());
+        System.out.println("Model: " + getModel());
+        System.out.println("Category: " + getCategory());
+        System.out.println("Rate: ₹" + getRatePerDay() + " per day");
+        System.out.println("Status: " + getStatus());
         System.out.println("========================================");
     }
 }
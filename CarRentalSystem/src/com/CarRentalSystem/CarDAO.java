@@ -1,9 +1,21 @@
 package database;
 
+import logging.Log;
 import models.Car;
+import models.CompactFleet;
+import java.math.BigDecimal;
 import java.sql.*;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * CarDAO (Data Access Object) - Handles all database operations for cars
@@ -11,13 +23,66 @@ import java.util.List;
  */
 public class CarDAO {
     
+    // Availability cache settings
+    private static final long CACHE_TTL_MILLIS = 30000;   // Re-read a category after 30 seconds
+    private static final int CACHE_MAX_CATEGORIES = 64;   // Most category lists kept in memory
+    
+    // Available cars per category, shared by all CarDAO objects in this process
+    private static final AvailabilityCache availabilityCache =
+            new AvailabilityCache(CACHE_TTL_MILLIS, CACHE_MAX_CATEGORIES);
+    
+    // Most changes waiting to be handed to availability subscribers
+    private static final int FEED_QUEUE_CAPACITY = 65536;
+    
+    // Rents and returns made by this process, for anyone watching a category
+    private static final AvailabilityFeed availabilityFeed =
+            new AvailabilityFeed(FEED_QUEUE_CAPACITY, plateNos -> new CarDAO().getCarsByPlateNos(plateNos));
+    
+    // Columns read for a Car, in the order mapCar() expects them
+    // (all of them are in idx_cars_category_status, so availability lookups never touch the table rows)
+    static final String CAR_COLUMNS = "plate_no, model, category, rate_per_day, status";
+    
+    // Rows fetched per round trip by the streaming methods when the caller does not choose
+    public static final int DEFAULT_FETCH_SIZE = 500;
+    
+    // Most plate numbers in one IN (...) list
+    private static final int MAX_IN_LIST = 500;
+    
+    /**
+     * getAvailabilityCache() - Returns the cache used by getAvailableCarsByCategory()
+     * Useful for reading hit/miss/eviction statistics.
+     * @return The availability cache
+     */
+    public static AvailabilityCache getAvailabilityCache() {
+        return availabilityCache;
+    }
+    
+    /**
+     * getAvailabilityFeed() - Returns the feed that reports every rent and return made through CarDAO
+     * Subscribe to it instead of calling getAvailableCarsByCategory() over and over.
+     * @return The availability feed
+     */
+    public static AvailabilityFeed getAvailabilityFeed() {
+        return availabilityFeed;
+    }
+    
     /**
      * getAvailableCarsByCategory() - Fetch all available cars of a specific category
+     * Served from the availability cache when possible.
      * @param category - Type of car (SUV, Sedan, Hatchback)
      * @return List of available cars
      */
     public List<Car> getAvailableCarsByCategory(String category) {
-        List<Car> cars = new ArrayList<>();
+        long start = System.nanoTime();
+        List<Car> cars = availabilityCache.get(category);
+        if (cars != null) {
+            DaoMetrics.record(DaoMetrics.Operation.GET_AVAILABLE_CARS, start, cars.size());
+            return cars;
+        }
+        
+        cars = new ArrayList<>();
+        boolean loaded = false;
+        long cacheVersion = availabilityCache.getVersion();
         Connection connection = null;
         PreparedStatement statement = null;
         ResultSet resultSet = null;
@@ -27,7 +92,7 @@ public class CarDAO {
             connection = DatabaseConnection.getConnection();
             
             // SQL query to get available cars of specific category
-            String sql = "SELECT * FROM cars WHERE category = ? AND status = 'Available'";
+            String sql = "SELECT " + CAR_COLUMNS + " FROM cars WHERE category = ? AND status = 'Available'";
             statement = connection.prepareStatement(sql);
             statement.setString(1, category);  // Set the category parameter
             
@@ -36,19 +101,14 @@ public class CarDAO {
             
             // Loop through results and create Car objects
             while (resultSet.next()) {
-                Car car = new Car(
-                    resultSet.getString("plate_no"),
-                    resultSet.getString("model"),
-                    resultSet.getString("category"),
-                    resultSet.getDouble("rate_per_day"),
-                    resultSet.getString("status")
-                );
+                Car car = mapCar(resultSet);
                 cars.add(car);  // Add car to list
             }
+            loaded = true;
             
         } catch (SQLException e) {
-            System.out.println("✗ Error fetching cars from database!");
-            e.printStackTrace();
+            DaoMetrics.recordError(DaoMetrics.Operation.GET_AVAILABLE_CARS, e);
+            Log.error("✗ Error fetching cars from database!", e);
             
         } finally {
             // Close all database resources
@@ -57,19 +117,237 @@ public class CarDAO {
                 if (statement != null) statement.close();
                 if (connection != null) DatabaseConnection.closeConnection(connection);
             } catch (SQLException e) {
-                e.printStackTrace();
+                Log.error("✗ Error closing database resources!", e);
             }
+            DaoMetrics.record(DaoMetrics.Operation.GET_AVAILABLE_CARS, start, cars.size());
+        }
+        
+        // Only remember results that really came from the database
+        if (loaded) {
+            availabilityCache.put(category, cars, cacheVersion);
         }
         
         return cars;
     }
     
+    /**
+     * streamAvailableCarsByCategory() - Available cars of a category, read as they are used
+     * Same as streamAvailableCarsByCategory(category, DEFAULT_FETCH_SIZE).
+     * @param category - Type of car (SUV, Sedan, Hatchback)
+     * @return Stream of available cars (close it when done)
+     */
+    public Stream<Car> streamAvailableCarsByCategory(String category) {
+        return streamAvailableCarsByCategory(category, DEFAULT_FETCH_SIZE);
+    }
+    
+    /**
+     * streamAvailableCarsByCategory() - Available cars of a category, read as they are used
+     * Rows come from a server-side cursor fetchSize at a time, so memory use
+     * stays flat however many cars match. Bypasses the availability cache.
+     * The stream holds its own connection, opened outside the pool, until it
+     * is closed or fully read (then the connection is closed): use it in
+     * try-with-resources.
+     * @param category - Type of car (SUV, Sedan, Hatchback)
+     * @param fetchSize - Rows fetched per round trip
+     * @return Stream of available cars (empty if the query failed)
+     */
+    public Stream<Car> streamAvailableCarsByCategory(String category, int fetchSize) {
+        String sql = "SELECT " + CAR_COLUMNS + " FROM cars WHERE category = ? AND status = 'Available'";
+        return streamCars(sql, category, fetchSize);
+    }
+    
+    /**
+     * streamAllCars() - Every car in the fleet, read as it is used
+     * Meant for exports: see streamAvailableCarsByCategory() for how to use the stream.
+     * @param fetchSize - Rows fetched per round trip
+     * @return Stream of all cars (empty if the query failed)
+     */
+    public Stream<Car> streamAllCars(int fetchSize) {
+        return streamCars("SELECT " + CAR_COLUMNS + " FROM cars", null, fetchSize);
+    }
+    
+    /**
+     * loadCompactFleet() - Reads every car into a CompactFleet
+     * Rows are streamed, so only one Car object exists at a time while loading;
+     * the fleet itself keeps about 36 bytes per car instead of a Car object.
+     * The fleet is sized from countCars(), so it does not regrow while loading.
+     * @param fetchSize - Rows fetched per round trip
+     * @return Fleet of every car (empty if the query failed)
+     */
+    public CompactFleet loadCompactFleet(int fetchSize) {
+        long count = countCars();   // -1 if it failed: the fleet then starts small and grows
+        return loadCompactFleet((int) Math.max(count, 0), fetchSize);
+    }
+    
+    /**
+     * loadCompactFleet() - Reads every car into a CompactFleet sized for the given number of cars
+     * @param expectedCars - Cars the fleet is sized for (it grows if there are more)
+     * @param fetchSize - Rows fetched per round trip
+     * @return Fleet of every car (empty if the query failed)
+     */
+    public CompactFleet loadCompactFleet(int expectedCars, int fetchSize) {
+        CompactFleet fleet = new CompactFleet(expectedCars);
+        try (Stream<Car> cars = streamAllCars(fetchSize)) {
+            cars.forEach(fleet::add);
+        }
+        return fleet;
+    }
+    
+    /**
+     * streamCars() - Runs a query and returns its rows as a lazy Stream
+     * @param sql - SELECT of CAR_COLUMNS with at most one parameter
+     * @param parameter - Value for the parameter (null if the query has none)
+     * @param fetchSize - Rows fetched per round trip
+     * @return Stream backed by the open result set
+     */
+    private Stream<Car> streamCars(String sql, String parameter, int fetchSize) {
+        long start = System.nanoTime();
+        Connection connection = null;
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+        
+        try {
+            // Own connection with cursor fetch on, so the rows arrive fetchSize at a time
+            connection = DatabaseConnection.getStreamingConnection();
+            if (connection == null) {
+                return Stream.empty();   // getStreamingConnection() has logged why
+            }
+            
+            // Not taken from the statement cache: a cursor statement is used once and closed
+            statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            if (parameter != null) {
+                statement.setString(1, parameter);
+            }
+            resultSet = statement.executeQuery();
+            
+        } catch (SQLException e) {
+            DaoMetrics.recordError(DaoMetrics.Operation.STREAM_CARS, e);
+            Log.error("✗ Error fetching cars from database!", e);
+            
+            try {
+                if (statement != null) statement.close();
+                if (connection != null) DatabaseConnection.closeConnection(connection);
+            } catch (SQLException closeError) {
+                Log.error("✗ Error closing database resources!", closeError);
+            }
+            return Stream.empty();
+        }
+        
+        CarCursor cursor = new CarCursor(connection, statement, resultSet, start);
+        return StreamSupport.stream(cursor, false).onClose(cursor::close);
+    }
+    
+    /**
+     * searchCars() - Finds cars matching every filter in the criteria, one page at a time
+     * Cars are ordered by daily rate, then plate number. Later pages seek straight
+     * to the key of the previous page (no OFFSET). With the indexes from
+     * migration_v3_search_indexes.sql, any mix of category, status and rate filters
+     * reads only the rows it returns, so page 1000 costs the same as page 1.
+     * A model prefix is filtered while walking the index, so a rare model can
+     * still read many rows per page.
+     * @param criteria - Filters to apply (null filters match everything)
+     * @param after - getNextKey() of the previous page, or null for the first page
+     * @param pageSize - Most cars per page
+     * @return The page (empty, with no next key, if the query failed)
+     */
+    public CarPage searchCars(CarSearchCriteria criteria, CarPage.Key after, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be positive");
+        }
+        
+        long start = System.nanoTime();
+        List<Car> cars = new ArrayList<>();
+        CarPage.Key nextKey = null;
+        Connection connection = null;
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+        
+        // Build the WHERE clause from the filters that are set
+        StringBuilder sql = new StringBuilder("SELECT " + CAR_COLUMNS + " FROM cars WHERE 1 = 1");
+        List<Object> parameters = new ArrayList<>();
+        if (criteria.getCategory() != null) {
+            sql.append(" AND category = ?");
+            parameters.add(criteria.getCategory());
+        }
+        if (criteria.getStatus() != null) {
+            sql.append(" AND status = ?");
+            parameters.add(criteria.getStatus());
+        }
+        if (criteria.getMinRate() != null) {
+            sql.append(" AND rate_per_day >= ?");
+            parameters.add(BigDecimal.valueOf(criteria.getMinRate()));
+        }
+        if (criteria.getMaxRate() != null) {
+            sql.append(" AND rate_per_day <= ?");
+            parameters.add(BigDecimal.valueOf(criteria.getMaxRate()));
+        }
+        if (criteria.getModelPrefix() != null && !criteria.getModelPrefix().isEmpty()) {
+            sql.append(" AND model LIKE ?");
+            parameters.add(escapeLike(criteria.getModelPrefix()) + "%");
+        }
+        if (after != null) {
+            // Seek past the last car of the previous page
+            sql.append(" AND (rate_per_day > ? OR (rate_per_day = ? AND plate_no > ?))");
+            BigDecimal afterRate = BigDecimal.valueOf(after.getRatePerDay());
+            parameters.add(afterRate);
+            parameters.add(afterRate);
+            parameters.add(after.getPlateNo());
+        }
+        // One extra row tells us whether another page follows
+        sql.append(" ORDER BY rate_per_day, plate_no LIMIT ?");
+        parameters.add(pageSize + 1);
+        
+        try {
+            connection = DatabaseConnection.getConnection();
+            statement = connection.prepareStatement(sql.toString());
+            for (int i = 0; i < parameters.size(); i++) {
+                statement.setObject(i + 1, parameters.get(i));
+            }
+            
+            resultSet = statement.executeQuery();
+            while (resultSet.next()) {
+                cars.add(mapCar(resultSet));
+            }
+            
+            if (cars.size() > pageSize) {
+                cars.remove(pageSize);
+                Car last = cars.get(pageSize - 1);
+                nextKey = new CarPage.Key(last.getRatePerDay(), last.getPlateNo());
+            }
+            
+        } catch (SQLException e) {
+            DaoMetrics.recordError(DaoMetrics.Operation.SEARCH_CARS, e);
+            Log.error("✗ Error searching cars!", e);
+            cars.clear();
+            
+        } finally {
+            try {
+                if (resultSet != null) resultSet.close();
+                if (statement != null) statement.close();
+                if (connection != null) DatabaseConnection.closeConnection(connection);
+            } catch (SQLException e) {
+                Log.error("✗ Error closing database resources!", e);
+            }
+            DaoMetrics.record(DaoMetrics.Operation.SEARCH_CARS, start, cars.size());
+        }
+        
+        return new CarPage(cars, nextKey);
+    }
+    
+    // Makes %, _ and \ in user input match themselves in a LIKE pattern
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+    
     /**
      * rentCar() - Update car status from Available to Rented
      * @param plateNo - Plate number of the car to rent
      * @return true if successful, false otherwise
      */
     public boolean rentCar(String plateNo) {
+        long start = System.nanoTime();
+        int rowsAffected = 0;
         Connection connection = null;
         PreparedStatement statement = null;
         
@@ -82,19 +360,21 @@ public class CarDAO {
             statement.setString(1, plateNo);
             
             // Execute update
-            int rowsAffected = statement.executeUpdate();
+            rowsAffected = statement.executeUpdate();
             
             if (rowsAffected > 0) {
-                System.out.println("✓ Car rented successfully!");
+                availabilityCache.carRented(plateNo);
+                availabilityFeed.carChanged(plateNo);
+                Log.info("✓ Car {} rented successfully!", plateNo);
                 return true;
             } else {
-                System.out.println("✗ Car not available or doesn't exist!");
+                Log.warn("✗ Car {} not available or doesn't exist!", plateNo);
                 return false;
             }
             
         } catch (SQLException e) {
-            System.out.println("✗ Error renting car!");
-            e.printStackTrace();
+            DaoMetrics.recordError(DaoMetrics.Operation.RENT_CAR, e);
+            Log.error("✗ Error renting car!", e);
             return false;
             
         } finally {
@@ -102,8 +382,9 @@ public class CarDAO {
                 if (statement != null) statement.close();
                 if (connection != null) DatabaseConnection.closeConnection(connection);
             } catch (SQLException e) {
-                e.printStackTrace();
+                Log.error("✗ Error closing database resources!", e);
             }
+            DaoMetrics.record(DaoMetrics.Operation.RENT_CAR, start, rowsAffected);
         }
     }
     
@@ -113,6 +394,8 @@ public class CarDAO {
      * @return true if successful, false otherwise
      */
     public boolean returnCar(String plateNo) {
+        long start = System.nanoTime();
+        int rowsAffected = 0;
         Connection connection = null;
         PreparedStatement statement = null;
         
@@ -125,19 +408,21 @@ public class CarDAO {
             statement.setString(1, plateNo);
             
             // Execute update
-            int rowsAffected = statement.executeUpdate();
+            rowsAffected = statement.executeUpdate();
             
             if (rowsAffected > 0) {
-                System.out.println("✓ Car returned successfully!");
+                availabilityCache.carReturned(plateNo);
+                availabilityFeed.carChanged(plateNo);
+                Log.info("✓ Car {} returned successfully!", plateNo);
                 return true;
             } else {
-                System.out.println("✗ Car is not currently rented or doesn't exist!");
+                Log.warn("✗ Car {} is not currently rented or doesn't exist!", plateNo);
                 return false;
             }
             
         } catch (SQLException e) {
-            System.out.println("✗ Error returning car!");
-            e.printStackTrace();
+            DaoMetrics.recordError(DaoMetrics.Operation.RETURN_CAR, e);
+            Log.error("✗ Error returning car!", e);
             return false;
             
         } finally {
@@ -145,9 +430,439 @@ public class CarDAO {
                 if (statement != null) statement.close();
                 if (connection != null) DatabaseConnection.closeConnection(connection);
             } catch (SQLException e) {
-                e.printStackTrace();
+                Log.error("✗ Error closing database resources!", e);
+            }
+            DaoMetrics.record(DaoMetrics.Operation.RETURN_CAR, start, rowsAffected);
+        }
+    }
+    
+    /**
+     * rentCarAtomically() - Rent a car and get back the rented car in one step
+     * The status check and the update happen together, so two desks can
+     * never rent the same car.
+     * @param plateNo - Plate number of the car to rent
+     * @return SUCCESS with the rented car, or NOT_FOUND / ALREADY_RENTED / ERROR
+     */
+    public RentResult rentCarAtomically(String plateNo) {
+        RentResult result = changeStatusAtomically(plateNo, "Available", "Rented",
+                RentResult.Status.ALREADY_RENTED, 0, DaoMetrics.Operation.RENT_ATOMIC);
+        if (result.isSuccess()) {
+            availabilityCache.carRented(plateNo);
+            availabilityFeed.carChanged(plateNo);
+        }
+        return result;
+    }
+    
+    /**
+     * returnCarAtomically() - Return a car and get back the returned car in one step
+     * The returned car carries the daily rate needed for the bill.
+     * @param plateNo - Plate number of the car to return
+     * @return SUCCESS with the returned car, or NOT_FOUND / NOT_RENTED / ERROR
+     */
+    public RentResult returnCarAtomically(String plateNo) {
+        return returnCarAtomically(plateNo, 0);
+    }
+    
+    /**
+     * returnCarAtomically() - Return a car and save the rental to the rentals table
+     * The history row (days * rate, ending today) is written in the same
+     * transaction as the status change, so a returned car is always billed once.
+     * @param plateNo - Plate number of the car to return
+     * @param days - Days the car was rented (0 = don't save history)
+     * @return SUCCESS with the returned car, or NOT_FOUND / NOT_RENTED / ERROR
+     */
+    public RentResult returnCarAtomically(String plateNo, int days) {
+        RentResult result = changeStatusAtomically(plateNo, "Rented", "Available",
+                RentResult.Status.NOT_RENTED, days, DaoMetrics.Operation.RETURN_ATOMIC);
+        if (result.isSuccess()) {
+            availabilityCache.carReturned(plateNo);
+            availabilityFeed.carChanged(plateNo);
+        }
+        return result;
+    }
+    
+    /**
+     * changeStatusAtomically() - Conditionally updates one car and reads it back
+     * Runs on one connection in one transaction: the UPDATE locks the row, so
+     * the SELECT that follows sees exactly the car we changed.
+     * @param plateNo - Plate number of the car
+     * @param fromStatus - Status the car must have now
+     * @param toStatus - Status to set
+     * @param wrongStatus - Result status when the car exists but is not in fromStatus
+     * @param billedDays - If positive, a rentals row for this many days is added on success
+     * @param operation - Metrics bucket the call is timed under
+     * @return Outcome with the car snapshot
+     */
+    private RentResult changeStatusAtomically(String plateNo, String fromStatus, String toStatus,
+                                              RentResult.Status wrongStatus, int billedDays,
+                                              DaoMetrics.Operation operation) {
+        long start = System.nanoTime();
+        int rowsAffected = 0;
+        Connection connection = null;
+        PreparedStatement updateStatement = null;
+        PreparedStatement selectStatement = null;
+        ResultSet resultSet = null;
+        
+        try {
+            connection = DatabaseConnection.getConnection();
+            connection.setAutoCommit(false);
+            
+            // Change the status only if the car is in the expected state
+            String updateSql = "UPDATE cars SET status = ? WHERE plate_no = ? AND status = ?";
+            updateStatement = connection.prepareStatement(updateSql);
+            updateStatement.setString(1, toStatus);
+            updateStatement.setString(2, plateNo);
+            updateStatement.setString(3, fromStatus);
+            rowsAffected = updateStatement.executeUpdate();
+            
+            // Read the row back in the same transaction
+            String selectSql = "SELECT " + CAR_COLUMNS + " FROM cars WHERE plate_no = ?";
+            selectStatement = connection.prepareStatement(selectSql);
+            selectStatement.setString(1, plateNo);
+            resultSet = selectStatement.executeQuery();
+            Car car = resultSet.next() ? mapCar(resultSet) : null;
+            
+            if (rowsAffected > 0 && billedDays > 0) {
+                insertRentalHistory(connection, car, billedDays);
+            }
+            
+            connection.commit();
+            
+            if (rowsAffected > 0) {
+                return new RentResult(RentResult.Status.SUCCESS, plateNo, car);
+            } else if (car == null) {
+                return new RentResult(RentResult.Status.NOT_FOUND, plateNo, null);
+            } else {
+                return new RentResult(wrongStatus, plateNo, car);
+            }
+            
+        } catch (SQLException e) {
+            DaoMetrics.recordError(operation, e);
+            Log.error("✗ Error changing car status!", e);
+            try {
+                if (connection != null) connection.rollback();
+            } catch (SQLException rollbackError) {
+                Log.error("✗ Error rolling back transaction!", rollbackError);
+            }
+            return new RentResult(RentResult.Status.ERROR, plateNo, null);
+            
+        } finally {
+            try {
+                if (resultSet != null) resultSet.close();
+                if (selectStatement != null) selectStatement.close();
+                if (updateStatement != null) updateStatement.close();
+                if (connection != null) connection.setAutoCommit(true);
+            } catch (SQLException e) {
+                Log.error("✗ Error closing database resources!", e);
+            } finally {
+                // Always hand the connection back, or the pool slowly runs dry
+                if (connection != null) DatabaseConnection.closeConnection(connection);
+            }
+            DaoMetrics.record(operation, start, rowsAffected);
+        }
+    }
+    
+    /**
+     * insertRentalHistory() - Adds one finished rental to the rentals table
+     * Runs on the caller's connection, inside its transaction.
+     * @param connection - Connection with the open transaction
+     * @param car - The returned car (supplies category and rate)
+     * @param days - Days rented; the rental ends today
+     */
+    private void insertRentalHistory(Connection connection, Car car, int days) throws SQLException {
+        LocalDate endDate = LocalDate.now();
+        BigDecimal amount = BigDecimal.valueOf(car.getRatePerDay()).multiply(BigDecimal.valueOf(days));
+        
+        String sql = "INSERT INTO rentals (plate_no, category, start_date, end_date, days, amount) "
+                   + "VALUES (?, ?, ?, ?, ?, ?)";
+        PreparedStatement statement = connection.prepareStatement(sql);
+        try {
+            statement.setString(1, car.getPlateNo());
+            statement.setString(2, car.getCategory());
+            statement.setDate(3, Date.valueOf(endDate.minusDays(days)));
+            statement.setDate(4, Date.valueOf(endDate));
+            statement.setInt(5, days);
+            statement.setBigDecimal(6, amount);
+            statement.executeUpdate();
+        } finally {
+            statement.close();
+        }
+    }
+    
+    /**
+     * rentCars() - Rent many cars in one transaction (all or nothing)
+     * @param plateNos - Plate numbers of the cars to rent
+     * @return Per-plate outcome of the batch
+     */
+    public BatchResult rentCars(Collection<String> plateNos) {
+        return rentCars(plateNos, BatchResult.Mode.ALL_OR_NOTHING);
+    }
+    
+    /**
+     * rentCars() - Rent many cars with one JDBC batch and one commit
+     * @param plateNos - Plate numbers of the cars to rent
+     * @param mode - ALL_OR_NOTHING or BEST_EFFORT
+     * @return Per-plate outcome of the batch
+     */
+    public BatchResult rentCars(Collection<String> plateNos, BatchResult.Mode mode) {
+        String sql = "UPDATE cars SET status = 'Rented' WHERE plate_no = ? AND status = 'Available'";
+        BatchResult result = updateStatusBatch(sql, plateNos, mode, DaoMetrics.Operation.RENT_BATCH);
+        
+        for (String plateNo : result.getSucceeded()) {
+            availabilityCache.carRented(plateNo);
+            availabilityFeed.carChanged(plateNo);
+        }
+        return result;
+    }
+    
+    /**
+     * returnCars() - Return many cars in one transaction (all or nothing)
+     * @param plateNos - Plate numbers of the cars to return
+     * @return Per-plate outcome of the batch
+     */
+    public BatchResult returnCars(Collection<String> plateNos) {
+        return returnCars(plateNos, BatchResult.Mode.ALL_OR_NOTHING);
+    }
+    
+    /**
+     * returnCars() - Return many cars with one JDBC batch and one commit
+     * @param plateNos - Plate numbers of the cars to return
+     * @param mode - ALL_OR_NOTHING or BEST_EFFORT
+     * @return Per-plate outcome of the batch
+     */
+    public BatchResult returnCars(Collection<String> plateNos, BatchResult.Mode mode) {
+        String sql = "UPDATE cars SET status = 'Available' WHERE plate_no = ? AND status = 'Rented'";
+        BatchResult result = updateStatusBatch(sql, plateNos, mode, DaoMetrics.Operation.RETURN_BATCH);
+        
+        for (String plateNo : result.getSucceeded()) {
+            availabilityCache.carReturned(plateNo);
+            availabilityFeed.carChanged(plateNo);
+        }
+        return result;
+    }
+    
+    /**
+     * updateStatusBatch() - Runs one status UPDATE per plate as a single batch
+     * @param sql - UPDATE statement with the plate number as its only parameter
+     * @param plateNos - Plate numbers to update (duplicates are ignored)
+     * @param mode - ALL_OR_NOTHING or BEST_EFFORT
+     * @param operation - Metrics bucket the batch is timed under
+     * @return Per-plate outcome of the batch
+     */
+    private BatchResult updateStatusBatch(String sql, Collection<String> plateNos, BatchResult.Mode mode,
+                                          DaoMetrics.Operation operation) {
+        long start = System.nanoTime();
+        BatchResult result = new BatchResult(mode);
+        List<String> plates = new ArrayList<>(new LinkedHashSet<>(plateNos));
+        if (plates.isEmpty()) {
+            result.setCommitted(true);
+            return result;
+        }
+        
+        Connection connection = null;
+        PreparedStatement statement = null;
+        
+        try {
+            connection = DatabaseConnection.getConnection();
+            connection.setAutoCommit(false);  // One transaction for the whole batch
+            
+            statement = connection.prepareStatement(sql);
+            for (String plateNo : plates) {
+                statement.setString(1, plateNo);
+                statement.addBatch();
+            }
+            
+            // Send all updates together
+            int[] rowsAffected = statement.executeBatch();
+            
+            boolean allUpdated = true;
+            for (int i = 0; i < plates.size(); i++) {
+                // SUCCESS_NO_INFO means the driver ran it but could not count rows
+                boolean updated = rowsAffected[i] > 0 || rowsAffected[i] == Statement.SUCCESS_NO_INFO;
+                result.setResult(plates.get(i), updated);
+                allUpdated = allUpdated && updated;
+            }
+            
+            if (allUpdated || mode == BatchResult.Mode.BEST_EFFORT) {
+                connection.commit();
+                result.setCommitted(true);
+            } else {
+                connection.rollback();
+                Log.warn("✗ Batch cancelled - some cars could not be updated: {}", result.getFailed());
+            }
+            
+        } catch (SQLException e) {
+            DaoMetrics.recordError(operation, e);
+            Log.error("✗ Error running batch update!", e);
+            
+            // Nothing is committed when the batch itself fails
+            for (String plateNo : plates) {
+                result.setResult(plateNo, false);
+            }
+            try {
+                if (connection != null) connection.rollback();
+            } catch (SQLException rollbackError) {
+                Log.error("✗ Error rolling back transaction!", rollbackError);
+            }
+            
+        } finally {
+            try {
+                if (statement != null) statement.close();
+                if (connection != null) connection.setAutoCommit(true);
+            } catch (SQLException e) {
+                Log.error("✗ Error closing database resources!", e);
+            } finally {
+                // Always hand the connection back, or the pool slowly runs dry
+                if (connection != null) DatabaseConnection.closeConnection(connection);
+            }
+            DaoMetrics.record(operation, start, result.isCommitted() ? result.getSucceeded().size() : 0);
+        }
+        
+        return result;
+    }
+    
+    /**
+     * getAllCars() - Fetch every car in the fleet, whatever its status
+     * @return List of all cars (empty if the query failed)
+     */
+    public List<Car> getAllCars() {
+        long start = System.nanoTime();
+        List<Car> cars = new ArrayList<>();
+        Connection connection = null;
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+        
+        try {
+            connection = DatabaseConnection.getConnection();
+            
+            String sql = "SELECT " + CAR_COLUMNS + " FROM cars";
+            statement = connection.prepareStatement(sql);
+            resultSet = statement.executeQuery();
+            
+            while (resultSet.next()) {
+                cars.add(mapCar(resultSet));
+            }
+            
+        } catch (SQLException e) {
+            DaoMetrics.recordError(DaoMetrics.Operation.GET_ALL_CARS, e);
+            Log.error("✗ Error fetching cars from database!", e);
+            
+        } finally {
+            try {
+                if (resultSet != null) resultSet.close();
+                if (statement != null) statement.close();
+                if (connection != null) DatabaseConnection.closeConnection(connection);
+            } catch (SQLException e) {
+                Log.error("✗ Error closing database resources!", e);
             }
+            DaoMetrics.record(DaoMetrics.Operation.GET_ALL_CARS, start, cars.size());
         }
+        
+        return cars;
+    }
+    
+    /**
+     * countCars() - Number of cars in the fleet
+     * @return Car count, or -1 if the query failed
+     */
+    public long countCars() {
+        return queryLong(DaoMetrics.Operation.COUNT_CARS, "SELECT COUNT(*) FROM cars", false);
+    }
+    
+    /**
+     * getDatabaseTimeMillis() - The database server's clock, the same clock that sets updated_at
+     * @return Epoch milliseconds, or -1 if the query failed
+     */
+    public long getDatabaseTimeMillis() {
+        return queryLong(DaoMetrics.Operation.DATABASE_TIME, "SELECT CURRENT_TIMESTAMP(3)", true);
+    }
+    
+    /**
+     * getCarsModifiedSince() - Cars inserted or changed at or after a point in time
+     * Needs the updated_at column from migration_v5_last_modified.sql;
+     * reads only the changed rows through idx_cars_updated_at.
+     * @param sinceMillis - Epoch milliseconds (inclusive)
+     * @return Changed cars, or null if the query failed (an empty list means nothing changed)
+     */
+    public List<Car> getCarsModifiedSince(long sinceMillis) {
+        long start = System.nanoTime();
+        List<Car> cars = new ArrayList<>();
+        boolean loaded = false;
+        Connection connection = null;
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+        
+        try {
+            connection = DatabaseConnection.getConnection();
+            
+            String sql = "SELECT " + CAR_COLUMNS + " FROM cars WHERE updated_at >= ?";
+            statement = connection.prepareStatement(sql);
+            statement.setTimestamp(1, new Timestamp(sinceMillis));
+            resultSet = statement.executeQuery();
+            
+            while (resultSet.next()) {
+                cars.add(mapCar(resultSet));
+            }
+            loaded = true;
+            
+        } catch (SQLException e) {
+            DaoMetrics.recordError(DaoMetrics.Operation.GET_CHANGED_CARS, e);
+            Log.error("✗ Error fetching changed cars from database!", e);
+            
+        } finally {
+            try {
+                if (resultSet != null) resultSet.close();
+                if (statement != null) statement.close();
+                if (connection != null) DatabaseConnection.closeConnection(connection);
+            } catch (SQLException e) {
+                Log.error("✗ Error closing database resources!", e);
+            }
+            DaoMetrics.record(DaoMetrics.Operation.GET_CHANGED_CARS, start, cars.size());
+        }
+        
+        return loaded ? cars : null;
+    }
+    
+    /**
+     * queryLong() - Runs a query that returns one number
+     * @param timestamp - True if the value is a TIMESTAMP (returned as epoch milliseconds)
+     * @return The number (0 for NULL), or -1 if the query failed
+     */
+    private long queryLong(DaoMetrics.Operation operation, String sql, boolean timestamp) {
+        long start = System.nanoTime();
+        long value = -1;
+        Connection connection = null;
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+        
+        try {
+            connection = DatabaseConnection.getConnection();
+            statement = connection.prepareStatement(sql);
+            resultSet = statement.executeQuery();
+            resultSet.next();
+            if (timestamp) {
+                Timestamp result = resultSet.getTimestamp(1);
+                value = result == null ? 0 : result.getTime();
+            } else {
+                value = resultSet.getLong(1);
+            }
+            
+        } catch (SQLException e) {
+            DaoMetrics.recordError(operation, e);
+            Log.error("✗ Error reading fleet information from database!", e);
+            
+        } finally {
+            try {
+                if (resultSet != null) resultSet.close();
+                if (statement != null) statement.close();
+                if (connection != null) DatabaseConnection.closeConnection(connection);
+            } catch (SQLException e) {
+                Log.error("✗ Error closing database resources!", e);
+            }
+            DaoMetrics.record(operation, start, value >= 0 ? 1 : 0);
+        }
+        
+        return value;
     }
     
     /**
@@ -156,6 +871,7 @@ public class CarDAO {
      * @return Car object if found, null otherwise
      */
     public Car getCarByPlateNo(String plateNo) {
+        long start = System.nanoTime();
         Connection connection = null;
         PreparedStatement statement = null;
         ResultSet resultSet = null;
@@ -165,7 +881,7 @@ public class CarDAO {
             connection = DatabaseConnection.getConnection();
             
             // SQL query to get car by plate number
-            String sql = "SELECT * FROM cars WHERE plate_no = ?";
+            String sql = "SELECT " + CAR_COLUMNS + " FROM cars WHERE plate_no = ?";
             statement = connection.prepareStatement(sql);
             statement.setString(1, plateNo);
             
@@ -174,18 +890,12 @@ public class CarDAO {
             
             // If car found, create Car object
             if (resultSet.next()) {
-                car = new Car(
-                    resultSet.getString("plate_no"),
-                    resultSet.getString("model"),
-                    resultSet.getString("category"),
-                    resultSet.getDouble("rate_per_day"),
-                    resultSet.getString("status")
-                );
+                car = mapCar(resultSet);
             }
             
         } catch (SQLException e) {
-            System.out.println("✗ Error fetching car details!");
-            e.printStackTrace();
+            DaoMetrics.recordError(DaoMetrics.Operation.GET_CAR, e);
+            Log.error("✗ Error fetching car details!", e);
             
         } finally {
             try {
@@ -193,10 +903,133 @@ public class CarDAO {
                 if (statement != null) statement.close();
                 if (connection != null) DatabaseConnection.closeConnection(connection);
             } catch (SQLException e) {
-                e.printStackTrace();
+                Log.error("✗ Error closing database resources!", e);
             }
+            DaoMetrics.record(DaoMetrics.Operation.GET_CAR, start, car != null ? 1 : 0);
         }
         
         return car;
     }
+    
+    /**
+     * getCarsByPlateNos() - Get the details of many cars at once
+     * Reads up to MAX_IN_LIST plates per query, all on one connection.
+     * @param plateNos - Plate numbers to look up (duplicates are ignored)
+     * @return Cars that were found, or null if a query failed
+     */
+    public List<Car> getCarsByPlateNos(Collection<String> plateNos) {
+        long start = System.nanoTime();
+        List<String> plates = new ArrayList<>(new LinkedHashSet<>(plateNos));
+        List<Car> cars = new ArrayList<>();
+        boolean loaded = false;
+        Connection connection = null;
+        
+        try {
+            connection = DatabaseConnection.getConnection();
+            
+            for (int from = 0; from < plates.size(); from += MAX_IN_LIST) {
+                List<String> chunk = plates.subList(from, Math.min(from + MAX_IN_LIST, plates.size()));
+                String sql = "SELECT " + CAR_COLUMNS + " FROM cars WHERE plate_no IN ("
+                        + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+                try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        statement.setString(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        while (resultSet.next()) {
+                            cars.add(mapCar(resultSet));
+                        }
+                    }
+                }
+            }
+            loaded = true;
+            
+        } catch (SQLException e) {
+            DaoMetrics.recordError(DaoMetrics.Operation.GET_CARS, e);
+            Log.error("✗ Error fetching car details!", e);
+            
+        } finally {
+            if (connection != null) DatabaseConnection.closeConnection(connection);
+            DaoMetrics.record(DaoMetrics.Operation.GET_CARS, start, cars.size());
+        }
+        
+        return loaded ? cars : null;
+    }
+    
+    /**
+     * mapCar() - Creates a Car from the current row of a result set
+     * Columns are read by position, so the query must select CAR_COLUMNS.
+     * @param resultSet - Result set positioned on a row
+     * @return Car object for that row
+     */
+    static Car mapCar(ResultSet resultSet) throws SQLException {
+        return new Car(
+            resultSet.getString(1),   // plate_no
+            resultSet.getString(2),   // model
+            resultSet.getString(3),   // category
+            resultSet.getDouble(4),   // rate_per_day
+            resultSet.getString(5)    // status
+        );
+    }
+    
+    /**
+     * CarCursor - Walks an open result set one Car at a time for streamCars()
+     * Closes its unpooled connection as soon as the last row is read or the
+     * stream is closed, whichever comes first.
+     */
+    private static class CarCursor extends Spliterators.AbstractSpliterator<Car> {
+        private final Connection connection;
+        private final PreparedStatement statement;
+        private final ResultSet resultSet;
+        private final long startNanos;
+        private long rows = 0;
+        private boolean closed = false;
+        
+        CarCursor(Connection connection, PreparedStatement statement, ResultSet resultSet, long startNanos) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.connection = connection;
+            this.statement = statement;
+            this.resultSet = resultSet;
+            this.startNanos = startNanos;
+        }
+        
+        @Override
+        public boolean tryAdvance(Consumer<? super Car> action) {
+            if (closed) {
+                return false;
+            }
+            try {
+                if (!resultSet.next()) {
+                    close();
+                    return false;
+                }
+                rows++;
+                action.accept(mapCar(resultSet));
+                return true;
+                
+            } catch (SQLException e) {
+                DaoMetrics.recordError(DaoMetrics.Operation.STREAM_CARS, e);
+                Log.error("✗ Error reading cars from database!", e);
+                close();
+                // A half-read stream must not look like a complete one
+                throw new IllegalStateException("Car stream failed after " + rows + " row(s)", e);
+            }
+        }
+        
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                resultSet.close();
+                statement.close();
+            } catch (SQLException e) {
+                Log.error("✗ Error closing database resources!", e);
+            } finally {
+                DatabaseConnection.closeConnection(connection);
+            }
+            DaoMetrics.record(DaoMetrics.Operation.STREAM_CARS, startNanos, rows);
+        }
+    }
 }
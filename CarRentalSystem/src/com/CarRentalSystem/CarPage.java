@@ -0,0 +1,62 @@
+package database;
+
+import models.Car;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * CarPage class - One page of CarDAO.searchCars() results
+ * Cars are ordered by daily rate, then plate number. To get the next page,
+ * pass getNextKey() back to searchCars().
+ */
+public class CarPage {
+
+    /**
+     * Key - Position after the last car of a page (its rate and plate number)
+     * The next page starts right after this car, so pages stay stable even
+     * when cars are rented or returned between requests.
+     */
+    public static class Key {
+        private final double ratePerDay;
+        private final String plateNo;
+
+        public Key(double ratePerDay, String plateNo) {
+            this.ratePerDay = ratePerDay;
+            this.plateNo = plateNo;
+        }
+
+        public double getRatePerDay() {
+            return ratePerDay;
+        }
+
+        public String getPlateNo() {
+            return plateNo;
+        }
+
+        @Override
+        public String toString() {
+            return ratePerDay + "/" + plateNo;
+        }
+    }
+
+    private final List<Car> cars;
+    private final Key nextKey;   // null on the last page
+
+    public CarPage(List<Car> cars, Key nextKey) {
+        this.cars = Collections.unmodifiableList(cars);
+        this.nextKey = nextKey;
+    }
+
+    // Getter methods
+    public List<Car> getCars() {
+        return cars;
+    }
+
+    public Key getNextKey() {
+        return nextKey;
+    }
+
+    public boolean hasNextPage() {
+        return nextKey != null;
+    }
+}
@@ -2,8 +2,22 @@ package main;
 
 import models.Car;
 import database.CarDAO;
+import database.CarPage;
+import database.CarSearchCriteria;
+import database.DatabaseConnection;
+import database.RentResult;
+import database.SnapshotInventory;
+import journal.RentalEvent;
+import journal.RentalJournal;
+import logging.Log;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
 import java.util.Scanner;
+import java.util.stream.Stream;
 
 /**
  * CarRentalSystem - Main application class
@@ -17,19 +31,46 @@ public class CarRentalSystem {
     // CarDAO object to perform database operations
     private static CarDAO carDAO = new CarDAO();
     
+    // Cars shown per page by "Search Cars"
+    private static final int SEARCH_PAGE_SIZE = 5;
+    
+    // Journal of every rent and return (folder "journal" next to the program)
+    private static RentalJournal journal;
+    
+    // Fleet snapshot file from the last run, so cars can be browsed before MySQL answers
+    private static SnapshotInventory inventory;
+    
     /**
      * main() - Starting point of the program
+     * Run with "--server [port]" to start the HTTP/JSON server instead of the menu.
      */
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        
+        if (args.length > 0 && args[0].equals("--server")) {
+            RentalHttpServer.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         
         System.out.println("╔════════════════════════════════════════╗");
         System.out.println("║   WELCOME TO CAR RENTAL SYSTEM         ║");
         System.out.println("╚════════════════════════════════════════╝");
         
+        try {
+            journal = RentalJournal.open(Paths.get("journal"));
+        } catch (IOException e) {
+            System.out.println("✗ Could not open the rental journal - history will not be recorded!");
+            Log.error("✗ Could not open the rental journal", e);
+        }
+        
+        // Map last run's fleet snapshot (no database needed) and catch up with MySQL in the background
+        inventory = SnapshotInventory.open(Paths.get("fleet.snap"), carDAO);
+        inventory.startReconciling(SnapshotInventory.DEFAULT_RECONCILE_MILLIS);
+        
         boolean running = true;
         
         // Main program loop
         while (running) {
+            Log.flush();  // Show messages from the last action before the menu
             displayMainMenu();
             
             int choice = getUserChoice();
@@ -48,17 +89,26 @@ public class CarRentalSystem {
                     break;
                     
                 case 4:
+                    searchCars();
+                    break;
+                    
+                case 5:
                     System.out.println("\n✓ Thank you for using Car Rental System!");
                     System.out.println("  Goodbye! 👋");
                     running = false;
                     break;
                     
                 default:
-                    System.out.println("\n✗ Invalid choice! Please enter 1-4.");
+                    System.out.println("\n✗ Invalid choice! Please enter 1-5.");
             }
         }
         
         scanner.close();
+        if (journal != null) {
+            journal.close();
+        }
+        inventory.close();  // Saves recent changes into the snapshot for the next start
+        DatabaseConnection.shutdown();  // Close pooled database connections
     }
     
     /**
@@ -71,9 +121,10 @@ public class CarRentalSystem {
         System.out.println("1. View Available Cars (Filter by Category)");
         System.out.println("2. Rent a Car");
         System.out.println("3. Return a Car & Get Bill");
-        System.out.println("4. Exit");
+        System.out.println("4. Search Cars (Category, Rate, Model, Status)");
+        System.out.println("5. Exit");
         System.out.println("========================================");
-        System.out.print("Enter your choice (1-4): ");
+        System.out.print("Enter your choice (1-5): ");
     }
     
     /**
@@ -120,21 +171,100 @@ public class CarRentalSystem {
                 return;
         }
         
-        // Fetch available cars from database
-        System.out.println("\nFetching available " + category + " cars...\n");
-        List<Car> cars = carDAO.getAvailableCarsByCategory(category);
+        long found = 0;
+        if (inventory.size() > 0) {
+            // Shown from the fleet snapshot - no waiting for the database
+            List<Car> cars = inventory.getAvailableCarsByCategory(category);
+            System.out.println();
+            for (Car car : cars) {
+                car.displayCarInfo();
+            }
+            found = cars.size();
+            if (!inventory.isReconciled()) {
+                System.out.println("(From the fleet snapshot of " + formatTime(inventory.getSnapshotMillis())
+                        + " - still being checked against the database)");
+            }
+        } else {
+            // Stream available cars from database - each car is shown as soon as it arrives
+            System.out.println("\nFetching available " + category + " cars...\n");
+            try (Stream<Car> cars = carDAO.streamAvailableCarsByCategory(category)) {
+                for (Car car : (Iterable<Car>) cars::iterator) {
+                    car.displayCarInfo();
+                    found++;
+                }
+            }
+        }
         
-        // Display results
-        if (cars.isEmpty()) {
+        // Display summary
+        if (found == 0) {
             System.out.println("✗ Sorry! No " + category + " cars available right now.");
         } else {
-            System.out.println("✓ Found " + cars.size() + " available " + category + " car(s):\n");
-            for (Car car : cars) {
+            System.out.println("✓ Found " + found + " available " + category + " car(s).");
+        }
+    }
+    
+    /**
+     * searchCars() - Searches cars by several filters and shows them page by page
+     */
+    private static void searchCars() {
+        System.out.println("\n========================================");
+        System.out.println("          SEARCH CARS");
+        System.out.println("========================================");
+        System.out.println("(Press Enter to skip a filter)");
+        
+        CarSearchCriteria criteria = new CarSearchCriteria()
+                .setCategory(readOptional("Category (SUV/Sedan/Hatchback): "))
+                .setStatus(readOptional("Status (Available/Rented): "))
+                .setModelPrefix(readOptional("Model starts with: "));
+        try {
+            criteria.setMinRate(parseRate(readOptional("Minimum rate per day (₹): ")));
+            criteria.setMaxRate(parseRate(readOptional("Maximum rate per day (₹): ")));
+        } catch (NumberFormatException e) {
+            System.out.println("✗ Rate must be a number!");
+            return;
+        }
+        
+        CarPage.Key after = null;
+        int pageNumber = 1;
+        while (true) {
+            CarPage page = carDAO.searchCars(criteria, after, SEARCH_PAGE_SIZE);
+            
+            if (page.getCars().isEmpty()) {
+                System.out.println(pageNumber == 1 ? "✗ No cars match your search." : "✗ No more cars.");
+                return;
+            }
+            
+            System.out.println("\n--- Page " + pageNumber + " ---");
+            for (Car car : page.getCars()) {
                 car.displayCarInfo();
             }
+            
+            if (!page.hasNextPage()) {
+                System.out.println("✓ End of results.");
+                return;
+            }
+            System.out.print("\nShow next page? (yes/no): ");
+            String answer = scanner.nextLine().trim().toLowerCase();
+            if (!answer.equals("yes") && !answer.equals("y")) {
+                return;
+            }
+            after = page.getNextKey();
+            pageNumber++;
         }
     }
     
+    // Prints a prompt and returns the answer, or null if the user just pressed Enter
+    private static String readOptional(String prompt) {
+        System.out.print(prompt);
+        String answer = scanner.nextLine().trim();
+        return answer.isEmpty() ? null : answer;
+    }
+    
+    // Converts a typed rate to a number (null stays null)
+    private static Double parseRate(String text) {
+        return text == null ? null : Double.valueOf(text);
+    }
+    
     /**
      * rentCar() - Handles the car rental process
      */
@@ -167,13 +297,36 @@ public class CarRentalSystem {
         String confirm = scanner.nextLine().trim().toLowerCase();
         
         if (confirm.equals("yes") || confirm.equals("y")) {
-            // Update car status to Rented
-            boolean success = carDAO.rentCar(plateNo);
+            // Journal first, so a crash before the database update can be re-driven
+            long sequence = writeIntent(RentalEvent.Type.RENT, plateNo, 0, 0);
+            if (sequence < 0) {
+                System.out.println("✗ Car not rented. Please try again.");
+                return;
+            }
             
-            if (success) {
-                System.out.println("\n✓ SUCCESS! Car rented successfully.");
-                System.out.println("  Please remember the plate number: " + plateNo);
-                System.out.println("  Daily rate: ₹" + car.getRatePerDay());
+            // Update car status to Rented (fails safely if another desk rented it meanwhile)
+            RentResult result = carDAO.rentCarAtomically(plateNo);
+            if (result.isSuccess()) {
+                markIntentDone(sequence, plateNo);
+            } else {
+                cancelIntent(sequence, plateNo);
+            }
+            
+            switch (result.getStatus()) {
+                case SUCCESS:
+                    inventory.apply(result.getCar());
+                    System.out.println("\n✓ SUCCESS! Car rented successfully.");
+                    System.out.println("  Please remember the plate number: " + plateNo);
+                    System.out.println("  Daily rate: ₹" + result.getCar().getRatePerDay());
+                    break;
+                case ALREADY_RENTED:
+                    System.out.println("✗ Sorry! This car was just rented by someone else.");
+                    break;
+                case NOT_FOUND:
+                    System.out.println("✗ Car with plate number '" + plateNo + "' not found!");
+                    break;
+                default:
+                    System.out.println("✗ Error renting car! Please try again.");
             }
         } else {
             System.out.println("✗ Rental cancelled.");
@@ -190,19 +343,6 @@ public class CarRentalSystem {
         System.out.print("Enter plate number of car to return: ");
         String plateNo = scanner.nextLine().trim();
         
-        // Fetch car details
-        Car car = carDAO.getCarByPlateNo(plateNo);
-        
-        if (car == null) {
-            System.out.println("✗ Car with plate number '" + plateNo + "' not found!");
-            return;
-        }
-        
-        if (!car.getStatus().equals("Rented")) {
-            System.out.println("✗ This car is not currently rented!");
-            return;
-        }
-        
         // Ask for number of days
         System.out.print("How many days was the car rented? ");
         int days = 0;
@@ -220,10 +360,51 @@ public class CarRentalSystem {
             return;
         }
         
+        // Look the car up first: the bill goes into the journal before the database is changed
+        Car rentedCar = carDAO.getCarByPlateNo(plateNo);
+        if (rentedCar == null) {
+            System.out.println("✗ Car with plate number '" + plateNo + "' not found!");
+            return;
+        }
+        if (!rentedCar.getStatus().equals("Rented")) {
+            System.out.println("✗ This car is not currently rented!");
+            return;
+        }
+        long sequence = writeIntent(RentalEvent.Type.RETURN, plateNo, days, days * rentedCar.getRatePerDay());
+        if (sequence < 0) {
+            System.out.println("✗ Car not returned. Please try again.");
+            return;
+        }
+        
+        // Update car status back to Available, save the rental and get the car's details in one step
+        RentResult result = carDAO.returnCarAtomically(plateNo, days);
+        if (result.isSuccess()) {
+            markIntentDone(sequence, plateNo);
+        } else {
+            cancelIntent(sequence, plateNo);
+        }
+        
+        switch (result.getStatus()) {
+            case SUCCESS:
+                break;
+            case NOT_FOUND:
+                System.out.println("✗ Car with plate number '" + plateNo + "' not found!");
+                return;
+            case NOT_RENTED:
+                System.out.println("✗ This car is not currently rented!");
+                return;
+            default:
+                System.out.println("✗ Error returning car! Please try again.");
+                return;
+        }
+        
         // Calculate total bill
+        Car car = result.getCar();
         double ratePerDay = car.getRatePerDay();
         double totalBill = days * ratePerDay;
         
+        inventory.apply(car);
+        
         // Display bill
         System.out.println("\n========================================");
         System.out.println("          RENTAL BILL");
@@ -237,13 +418,62 @@ public class CarRentalSystem {
         System.out.println("----------------------------------------");
         System.out.println("TOTAL BILL: ₹" + totalBill);
         System.out.println("========================================");
-        
-        // Update car status back to Available
-        boolean success = carDAO.returnCar(plateNo);
-        
-        if (success) {
-            System.out.println("✓ Car returned successfully!");
-            System.out.println("  Thank you for your business! 🚗");
+        System.out.println("✓ Car returned successfully!");
+        System.out.println("  Thank you for your business! 🚗");
+    }
+    
+    // Date and time for messages, e.g. "18-10-2026 14:05"
+    private static String formatTime(long millis) {
+        return new SimpleDateFormat("dd-MM-yyyy HH:mm").format(new Date(millis));
+    }
+    
+    /**
+     * writeIntent() - Writes a rent or return to the journal before the database is changed
+     * Waits until it is on disk.
+     * @return Sequence of the event, 0 if there is no journal, or -1 if it could not be saved
+     *         (then leave the database alone)
+     */
+    private static long writeIntent(RentalEvent.Type type, String plateNo, int days, double amount) {
+        if (journal == null) {
+            return 0;
+        }
+        try {
+            return journal.append(type, plateNo, System.currentTimeMillis(), days, amount);
+        } catch (IOException e) {
+            System.out.println("✗ Could not save this rental to the journal!");
+            Log.error("✗ Could not write {} intent for car {} to the journal", type, plateNo, e);
+            return -1;
+        }
+    }
+    
+    /**
+     * cancelIntent() - Marks a journal event as not done (the database change failed)
+     * @param sequence - Value writeIntent() returned
+     */
+    private static void cancelIntent(long sequence, String plateNo) {
+        if (journal == null || sequence <= 0) {
+            return;
+        }
+        try {
+            journal.cancel(sequence, plateNo);
+        } catch (IOException e) {
+            Log.error("✗ Could not cancel journal event #{} for car {}", sequence, plateNo, e);
+        }
+    }
+    
+    /**
+     * markIntentDone() - Marks a journal event as done (the database change succeeded),
+     * so a later re-drive leaves the car alone
+     * @param sequence - Value writeIntent() returned
+     */
+    private static void markIntentDone(long sequence, String plateNo) {
+        if (journal == null || sequence <= 0) {
+            return;
+        }
+        try {
+            journal.done(sequence, plateNo);
+        } catch (IOException e) {
+            Log.error("✗ Could not mark journal event #{} for car {} as done", sequence, plateNo, e);
         }
     }
 }
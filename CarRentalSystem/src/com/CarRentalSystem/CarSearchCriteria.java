@@ -0,0 +1,69 @@
+package database;
+
+/**
+ * CarSearchCriteria class - Filters for CarDAO.searchCars()
+ * Every filter is optional: leave it null to match any value.
+ * Setters return this, so criteria can be built in one line:
+ *   new CarSearchCriteria().setCategory("SUV").setMaxRate(3000)
+ */
+public class CarSearchCriteria {
+
+    private String category;      // SUV, Sedan, Hatchback
+    private String status;        // Available or Rented
+    private Double minRate;       // Lowest daily rate, inclusive
+    private Double maxRate;       // Highest daily rate, inclusive
+    private String modelPrefix;   // Start of the model name, e.g. "Maruti"
+
+    // Setter methods
+    public CarSearchCriteria setCategory(String category) {
+        this.category = category;
+        return this;
+    }
+
+    public CarSearchCriteria setStatus(String status) {
+        this.status = status;
+        return this;
+    }
+
+    public CarSearchCriteria setMinRate(Double minRate) {
+        this.minRate = minRate;
+        return this;
+    }
+
+    public CarSearchCriteria setMaxRate(Double maxRate) {
+        this.maxRate = maxRate;
+        return this;
+    }
+
+    public CarSearchCriteria setModelPrefix(String modelPrefix) {
+        this.modelPrefix = modelPrefix;
+        return this;
+    }
+
+    // Getter methods
+    public String getCategory() {
+        return category;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public Double getMinRate() {
+        return minRate;
+    }
+
+    public Double getMaxRate() {
+        return maxRate;
+    }
+
+    public String getModelPrefix() {
+        return modelPrefix;
+    }
+
+    @Override
+    public String toString() {
+        return "CarSearchCriteria[category=" + category + ", status=" + status + ", rate=" + minRate
+                + ".." + maxRate + ", modelPrefix=" + modelPrefix + "]";
+    }
+}
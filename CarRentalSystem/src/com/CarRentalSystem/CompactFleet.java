@@ -0,0 +1,432 @@
+package models;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * CompactFleet - A large fleet stored in a few flat arrays instead of Car objects
+ *
+ * A Car object holds five fields, and with the Strings behind them costs a
+ * couple of hundred bytes of heap per car, most of it repeated
+ * ("Available", "SUV", the same model names again and again). Here each car is
+ * one slot in parallel arrays:
+ *
+ *   plate      PLATE_BYTES bytes, ASCII, zero padded  (plate_no VARCHAR(20))
+ *   model      2 byte id into a table of distinct model names
+ *   category   1 byte code (SUV, Sedan, Hatchback)
+ *   status     1 byte code (Available, Rented)
+ *   rate       4 byte int, paise
+ *
+ * plus an open-addressing index from plate number to slot. That is about 36
+ * bytes per car, and the GC sees a handful of arrays instead of millions of
+ * objects.
+ *
+ * Code that expects Car objects gets CarView flyweights: small Car
+ * subclasses that read and write the arrays of one slot. forEachAvailable()
+ * reuses a single view for a whole scan, so it allocates nothing per car.
+ *
+ * Not thread-safe: load it from one thread, or guard it externally.
+ */
+public class CompactFleet {
+
+    // The plate layout, codes and plate hash are also FleetSnapshot's file format - it uses the methods below
+    public static final int PLATE_BYTES = 20;
+    private static final String[] CATEGORIES = { "SUV", "Sedan", "Hatchback" };
+    private static final String[] STATUSES = { "Available", "Rented" };
+    public static final byte AVAILABLE = 0;
+    private static final int MAX_MODELS = 1 << 16;   // Model ids are stored as char
+
+    private byte[] plates;
+    private ByteBuffer plateBuffer;   // Wraps plates, for plateEquals()
+    private char[] modelIds;
+    private byte[] categories;
+    private byte[] statuses;
+    private int[] ratesPaise;
+    private int[] index;          // slot + 1 per bucket, 0 = empty; never more than half full
+    private int count = 0;
+
+    private final List<String> models = new ArrayList<>();
+    private final Map<String, Integer> modelIdByName = new HashMap<>();
+
+    /**
+     * CarView - A Car whose data lives in a CompactFleet slot
+     * The fields inherited from Car are unused; every getter reads the fleet.
+     */
+    public static final class CarView extends Car {
+        private final CompactFleet fleet;
+        private int slot;
+
+        private CarView(CompactFleet fleet, int slot) {
+            super(null, null, null, 0, null);
+            this.fleet = fleet;
+            this.slot = slot;
+        }
+
+        /**
+         * moveTo() - Points this view at another car (for reusing one view in a loop)
+         */
+        public CarView moveTo(int newSlot) {
+            fleet.checkSlot(newSlot);
+            this.slot = newSlot;
+            return this;
+        }
+
+        public int getSlot() {
+            return slot;
+        }
+
+        @Override
+        public String getPlateNo() {
+            return fleet.plateAt(slot);
+        }
+
+        @Override
+        public String getModel() {
+            return fleet.models.get(fleet.modelIds[slot]);
+        }
+
+        @Override
+        public String getCategory() {
+            return CATEGORIES[fleet.categories[slot]];
+        }
+
+        @Override
+        public double getRatePerDay() {
+            return fleet.ratesPaise[slot] / 100.0;
+        }
+
+        @Override
+        public String getStatus() {
+            return STATUSES[fleet.statuses[slot]];
+        }
+
+        @Override
+        public void setStatus(String status) {
+            fleet.statuses[slot] = code(STATUSES, status, "status");
+        }
+    }
+
+    /**
+     * Constructor
+     * @param capacity - Expected number of cars (the arrays grow if more are added)
+     */
+    public CompactFleet(int capacity) {
+        capacity = Math.max(capacity, 16);
+        plates = new byte[capacity * PLATE_BYTES];
+        plateBuffer = ByteBuffer.wrap(plates);
+        modelIds = new char[capacity];
+        categories = new byte[capacity];
+        statuses = new byte[capacity];
+        ratesPaise = new int[capacity];
+        index = new int[Integer.highestOneBit(capacity * 2 - 1) << 1];
+    }
+
+    /**
+     * add() - Adds a car
+     * @return Slot of the new car
+     */
+    public int add(String plateNo, String model, String category, double ratePerDay, String status) {
+        if (plateNo.length() > PLATE_BYTES || !isAscii(plateNo)) {
+            throw new IllegalArgumentException("Plate number must be at most " + PLATE_BYTES + " ASCII characters: "
+                    + plateNo);
+        }
+        long paise = Math.round(ratePerDay * 100);
+        if (paise < 0 || paise > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Rate out of range: " + ratePerDay);
+        }
+        byte categoryCode = code(CATEGORIES, category, "category");
+        byte statusCode = code(STATUSES, status, "status");
+        if (find(plateNo) >= 0) {
+            throw new IllegalArgumentException("Car " + plateNo + " is already in the fleet");
+        }
+
+        if (count == statuses.length) {
+            grow();
+        }
+        int slot = count;
+        for (int i = 0; i < plateNo.length(); i++) {
+            plates[slot * PLATE_BYTES + i] = (byte) plateNo.charAt(i);
+        }
+        modelIds[slot] = (char) modelId(model);
+        categories[slot] = categoryCode;
+        statuses[slot] = statusCode;
+        ratesPaise[slot] = (int) paise;
+        count++;
+        insertIntoIndex(slot);
+        return slot;
+    }
+
+    /**
+     * add() - Copies a Car into the fleet
+     */
+    public int add(Car car) {
+        return add(car.getPlateNo(), car.getModel(), car.getCategory(), car.getRatePerDay(), car.getStatus());
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int getDistinctModelCount() {
+        return models.size();
+    }
+
+    /**
+     * find() - Slot of a car, or -1 if it is not in the fleet
+     */
+    public int find(String plateNo) {
+        if (plateNo.length() > PLATE_BYTES) {
+            return -1;
+        }
+        int mask = index.length - 1;
+        int bucket = plateHash(plateNo) & mask;
+        int entry;
+        while ((entry = index[bucket]) != 0) {
+            if (plateEquals(entry - 1, plateNo)) {
+                return entry - 1;
+            }
+            bucket = (bucket + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * getCar() - A view of one car, or null if it is not in the fleet
+     */
+    public CarView getCar(String plateNo) {
+        int slot = find(plateNo);
+        return slot < 0 ? null : new CarView(this, slot);
+    }
+
+    /**
+     * view() - A view of the car in a slot (0 .. size() - 1)
+     */
+    public CarView view(int slot) {
+        checkSlot(slot);
+        return new CarView(this, slot);
+    }
+
+    public boolean isAvailable(int slot) {
+        checkSlot(slot);
+        return statuses[slot] == AVAILABLE;
+    }
+
+    /**
+     * forEachAvailable() - Calls action for every available car of a category
+     * The same CarView is passed every time, moved to the next car; copy what
+     * you need from it instead of keeping it.
+     */
+    public void forEachAvailable(String category, Consumer<? super CarView> action) {
+        byte categoryCode = code(CATEGORIES, category, "category");
+        CarView view = null;
+        for (int slot = 0; slot < count; slot++) {
+            if (categories[slot] == categoryCode && statuses[slot] == AVAILABLE) {
+                if (view == null) {
+                    view = new CarView(this, slot);
+                } else {
+                    view.slot = slot;
+                }
+                action.accept(view);
+            }
+        }
+    }
+
+    /**
+     * getAvailableCars() - Available cars of a category, one view each (same as CarDAO's method)
+     */
+    public List<Car> getAvailableCars(String category) {
+        List<Car> available = new ArrayList<>();
+        byte categoryCode = code(CATEGORIES, category, "category");
+        for (int slot = 0; slot < count; slot++) {
+            if (categories[slot] == categoryCode && statuses[slot] == AVAILABLE) {
+                available.add(new CarView(this, slot));
+            }
+        }
+        return available;
+    }
+
+    /**
+     * countAvailable() - Number of available cars of a category, without creating any objects
+     */
+    public int countAvailable(String category) {
+        byte categoryCode = code(CATEGORIES, category, "category");
+        int available = 0;
+        for (int slot = 0; slot < count; slot++) {
+            if (categories[slot] == categoryCode && statuses[slot] == AVAILABLE) {
+                available++;
+            }
+        }
+        return available;
+    }
+
+    private String plateAt(int slot) {
+        int start = slot * PLATE_BYTES;
+        int length = 0;
+        while (length < PLATE_BYTES && plates[start + length] != 0) {
+            length++;
+        }
+        return new String(plates, start, length, StandardCharsets.US_ASCII);
+    }
+
+    private boolean plateEquals(int slot, String plateNo) {
+        return plateEquals(plateBuffer, slot * PLATE_BYTES, plateNo);
+    }
+
+    /**
+     * plateEquals() - True if the PLATE_BYTES stored at start hold this plate (zero padded)
+     * @param plates - Buffer of plates; only absolute reads, so it may be shared between threads
+     * @param start - Position of the first plate byte
+     * @param plateNo - Plate to compare with (at most PLATE_BYTES characters)
+     */
+    public static boolean plateEquals(ByteBuffer plates, int start, String plateNo) {
+        for (int i = 0; i < PLATE_BYTES; i++) {
+            int expected = i < plateNo.length() ? plateNo.charAt(i) : 0;
+            if (plates.get(start + i) != expected) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Same value as plateHash() for the plate stored in a slot
+    private int hashAt(int slot) {
+        int start = slot * PLATE_BYTES;
+        int h = 0;
+        for (int i = 0; i < PLATE_BYTES && plates[start + i] != 0; i++) {
+            h = 31 * h + plates[start + i];
+        }
+        return mix(h);
+    }
+
+    /**
+     * plateHash() - Hash of a plate number, spread so similar plates scatter over an index
+     */
+    public static int plateHash(String plateNo) {
+        int h = 0;
+        for (int i = 0; i < plateNo.length(); i++) {
+            h = 31 * h + plateNo.charAt(i);
+        }
+        return mix(h);
+    }
+
+    // Spreads similar plates (BM00000001, BM00000002, ...) over the table
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h;
+    }
+
+    private void insertIntoIndex(int slot) {
+        if (count * 2 > index.length) {
+            index = new int[index.length * 2];
+            for (int s = 0; s < count; s++) {
+                if (s != slot) {
+                    place(s);
+                }
+            }
+        }
+        place(slot);
+    }
+
+    private void place(int slot) {
+        int mask = index.length - 1;
+        int bucket = hashAt(slot) & mask;
+        while (index[bucket] != 0) {
+            bucket = (bucket + 1) & mask;
+        }
+        index[bucket] = slot + 1;
+    }
+
+    private void grow() {
+        int capacity = statuses.length * 2;
+        plates = Arrays.copyOf(plates, capacity * PLATE_BYTES);
+        plateBuffer = ByteBuffer.wrap(plates);
+        modelIds = Arrays.copyOf(modelIds, capacity);
+        categories = Arrays.copyOf(categories, capacity);
+        statuses = Arrays.copyOf(statuses, capacity);
+        ratesPaise = Arrays.copyOf(ratesPaise, capacity);
+    }
+
+    private int modelId(String model) {
+        Integer id = modelIdByName.get(model);
+        if (id == null) {
+            if (models.size() == MAX_MODELS) {
+                throw new IllegalStateException("More than " + MAX_MODELS + " different models");
+            }
+            id = models.size();
+            models.add(model);
+            modelIdByName.put(model, id);
+        }
+        return id;
+    }
+
+    private void checkSlot(int slot) {
+        if (slot < 0 || slot >= count) {
+            throw new IndexOutOfBoundsException("Slot " + slot + " of " + count);
+        }
+    }
+
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == 0 || text.charAt(i) > 127) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * categoryCode() - Byte code of a category
+     * @throws IllegalArgumentException if there is no such category
+     */
+    public static byte categoryCode(String category) {
+        return code(CATEGORIES, category, "category");
+    }
+
+    /**
+     * findCategoryCode() - Byte code of a category, or -1 if there is no such category
+     */
+    public static int findCategoryCode(String category) {
+        return indexOf(CATEGORIES, category);
+    }
+
+    public static String categoryName(byte code) {
+        return CATEGORIES[code];
+    }
+
+    /**
+     * statusCode() - Byte code of a status
+     * @throws IllegalArgumentException if there is no such status
+     */
+    public static byte statusCode(String status) {
+        return code(STATUSES, status, "status");
+    }
+
+    public static String statusName(byte code) {
+        return STATUSES[code];
+    }
+
+    private static byte code(String[] names, String value, String what) {
+        int code = indexOf(names, value);
+        if (code < 0) {
+            throw new IllegalArgumentException("Unknown " + what + ": " + value);
+        }
+        return (byte) code;
+    }
+
+    private static int indexOf(String[] names, String value) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,257 @@
+package database;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ConnectionPool class - Keeps a bounded set of open MySQL connections
+ * Instead of connecting to the database for every query, connections are
+ * borrowed from the pool and given back when the query is done.
+ */
+public class ConnectionPool {
+
+    // Connection details
+    private final String url;
+    private final String username;
+    private final String password;
+
+    // Pool limits
+    private final int minSize;                 // Connections kept open even when idle
+    private final int maxSize;                 // Hard upper limit of open connections
+    private final long borrowTimeoutMillis;    // How long a caller waits for a free connection
+    private final long idleTimeoutMillis;      // Idle connections older than this are closed
+    private final int validationTimeoutSeconds;
+    private final int statementCacheSize;      // Prepared statements cached per connection
+
+    // Idle connections, most recently used first (keeps hot connections warm)
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+
+    // One permit per connection that may be leased at the same time
+    private final Semaphore permits;
+
+    // Counters
+    private final AtomicInteger totalCount = new AtomicInteger();
+    private final AtomicInteger activeCount = new AtomicInteger();
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
+
+    private final ScheduledExecutorService evictor;
+    private volatile boolean shutdown = false;
+
+    /**
+     * Constructor - Creates the pool and opens the minimum number of connections
+     */
+    public ConnectionPool(String url, String username, String password,
+                          int minSize, int maxSize,
+                          long borrowTimeoutMillis, long idleTimeoutMillis,
+                          int validationTimeoutSeconds, int statementCacheSize) {
+        if (minSize < 0 || maxSize <= 0 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+
+        fillToMinimum();
+
+        // Background thread that closes connections which sat idle for too long
+        this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1000, idleTimeoutMillis / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * borrow() - Leases a connection from the pool
+     * Waits up to the borrow timeout when all connections are in use.
+     * @return Connection that goes back to the pool when closed
+     * @throws SQLException if no connection could be leased in time
+     */
+    public Connection borrow() throws SQLException {
+        if (shutdown) {
+            throw new SQLException("Connection pool is shut down");
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeoutCount.increment();
+                throw new SQLException("Timed out after " + borrowTimeoutMillis
+                        + " ms waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        } finally {
+            waitNanos.add(System.nanoTime() - start);
+        }
+
+        try {
+            PooledConnection pooled = takeValidIdle();
+            if (pooled == null) {
+                pooled = openConnection();
+            }
+            activeCount.incrementAndGet();
+            borrowCount.increment();
+            return pooled.lease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * release() - Gives a leased connection back to the pool
+     * Called by the connection itself when close() is invoked.
+     */
+    void release(PooledConnection pooled) {
+        activeCount.decrementAndGet();
+        try {
+            if (shutdown || !pooled.reset()) {
+                discard(pooled);
+            } else {
+                pooled.touch();
+                idle.offerFirst(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * shutdown() - Closes every idle connection and stops accepting borrows
+     * Connections still leased are closed when they are returned.
+     */
+    public void shutdown() {
+        shutdown = true;
+        evictor.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            discard(pooled);
+        }
+    }
+
+    // Takes idle connections until one passes validation (or none are left)
+    private PooledConnection takeValidIdle() {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (pooled.isValid(validationTimeoutSeconds)) {
+                return pooled;
+            }
+            discard(pooled);
+        }
+        return null;
+    }
+
+    // Opens a brand new physical connection
+    private PooledConnection openConnection() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, username, password);
+        totalCount.incrementAndGet();
+        return new PooledConnection(this, physical, statementCacheSize);
+    }
+
+    // Closes a physical connection and forgets about it
+    private void discard(PooledConnection pooled) {
+        totalCount.decrementAndGet();
+        pooled.closePhysical();
+    }
+
+    // Opens connections until the pool holds at least minSize of them
+    private void fillToMinimum() {
+        while (!shutdown && totalCount.get() < minSize) {
+            try {
+                PooledConnection pooled = openConnection();
+                idle.offerLast(pooled);
+            } catch (SQLException e) {
+                // Database is unreachable right now; the next borrow will report it
+                return;
+            }
+        }
+    }
+
+    // Runs on the evictor thread
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        Iterator<PooledConnection> iterator = idle.descendingIterator();  // oldest first
+        while (iterator.hasNext() && totalCount.get() > minSize) {
+            PooledConnection pooled = iterator.next();
+            if (now - pooled.getLastUsed() > idleTimeoutMillis && idle.removeFirstOccurrence(pooled)) {
+                discard(pooled);
+            }
+        }
+        fillToMinimum();
+    }
+
+    // Getter methods - Pool counters
+    public int getMinSize() {
+        return minSize;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getTotalCount() {
+        return totalCount.get();
+    }
+
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public int getWaitingCount() {
+        return permits.getQueueLength();
+    }
+
+    public long getBorrowCount() {
+        return borrowCount.sum();
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount.sum();
+    }
+
+    public long getTotalWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(waitNanos.sum());
+    }
+
+    public double getAverageWaitMillis() {
+        long borrows = borrowCount.sum() + timeoutCount.sum();
+        return borrows == 0 ? 0.0 : waitNanos.sum() / 1_000_000.0 / borrows;
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionPool[active=" + getActiveCount()
+                + ", idle=" + getIdleCount()
+                + ", total=" + getTotalCount() + "/" + maxSize
+                + ", waiting=" + getWaitingCount()
+                + ", borrows=" + getBorrowCount()
+                + ", timeouts=" + getTimeoutCount()
+                + ", avgWaitMs=" + String.format("%.3f", getAverageWaitMillis()) + "]";
+    }
+}
@@ -0,0 +1,158 @@
+package database;
+
+import metrics.LatencyHistogram;
+import metrics.OperationMetrics;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * DaoMetrics class - Latency and error numbers for every database operation
+ * CarDAO and DatabaseConnection record into it; the numbers can be read
+ * through JMX (jconsole, domain "CarRentalSystem") or as plain text from
+ * scrape(), which the HTTP server serves on GET /metrics.
+ */
+public class DaoMetrics {
+
+    private static final String JMX_DOMAIN = "CarRentalSystem";
+
+    /**
+     * Operation - Every timed database operation
+     */
+    public enum Operation {
+        CONNECTION_ACQUIRE("connectionAcquire"),
+        GET_AVAILABLE_CARS("getAvailableCarsByCategory"),
+        GET_CAR("getCarByPlateNo"),
+        GET_CARS("getCarsByPlateNos"),
+        GET_ALL_CARS("getAllCars"),
+        SEARCH_CARS("searchCars"),
+        STREAM_CARS("streamCars"),          // Timed from the query until the stream is closed
+        RENT_CAR("rentCar"),
+        RETURN_CAR("returnCar"),
+        RENT_ATOMIC("rentCarAtomically"),
+        RETURN_ATOMIC("returnCarAtomically"),
+        RENT_BATCH("rentCars"),
+        RETURN_BATCH("returnCars"),
+        COUNT_CARS("countCars"),
+        DATABASE_TIME("getDatabaseTimeMillis"),
+        GET_CHANGED_CARS("getCarsModifiedSince");
+
+        private final String metricName;
+
+        Operation(String metricName) {
+            this.metricName = metricName;
+        }
+
+        public String getMetricName() {
+            return metricName;
+        }
+    }
+
+    // One metrics object per operation, indexed by ordinal
+    private static final OperationMetrics[] METRICS = new OperationMetrics[Operation.values().length];
+
+    static {
+        for (Operation operation : Operation.values()) {
+            OperationMetrics metrics = new OperationMetrics(operation.getMetricName());
+            metrics.registerMBean(JMX_DOMAIN);
+            METRICS[operation.ordinal()] = metrics;
+        }
+    }
+
+    private DaoMetrics() {
+    }
+
+    /**
+     * record() - Adds one finished call of an operation
+     * @param operation - Which operation ran
+     * @param startNanos - System.nanoTime() taken when the call started
+     * @param rowCount - Rows returned or changed
+     */
+    public static void record(Operation operation, long startNanos, long rowCount) {
+        METRICS[operation.ordinal()].record(startNanos, rowCount);
+    }
+
+    /**
+     * recordError() - Counts one failed call of an operation
+     * @param operation - Which operation failed
+     * @param e - The exception it failed with
+     */
+    public static void recordError(Operation operation, SQLException e) {
+        METRICS[operation.ordinal()].recordError(e);
+    }
+
+    public static OperationMetrics get(Operation operation) {
+        return METRICS[operation.ordinal()];
+    }
+
+    /**
+     * scrape() - All metrics in Prometheus text format
+     * Latencies are in microseconds.
+     * @return Text with one metric per line
+     */
+    public static String scrape() {
+        StringBuilder out = new StringBuilder();
+
+        out.append("# TYPE dao_calls_total counter\n");
+        for (OperationMetrics metrics : METRICS) {
+            line(out, "dao_calls_total", metrics.getName(), null, metrics.getCallCount());
+        }
+
+        out.append("# TYPE dao_rows_total counter\n");
+        for (OperationMetrics metrics : METRICS) {
+            line(out, "dao_rows_total", metrics.getName(), null, metrics.getRowCount());
+        }
+
+        out.append("# TYPE dao_errors_total counter\n");
+        for (OperationMetrics metrics : METRICS) {
+            for (Map.Entry<String, Long> entry : metrics.getErrorsBySqlState().entrySet()) {
+                line(out, "dao_errors_total", metrics.getName(), "sqlstate=\"" + entry.getKey() + "\"",
+                        entry.getValue());
+            }
+        }
+
+        // One snapshot per operation, so its quantiles and its max agree with each other
+        LatencyHistogram.Snapshot[] snapshots = new LatencyHistogram.Snapshot[METRICS.length];
+        for (int i = 0; i < METRICS.length; i++) {
+            snapshots[i] = METRICS[i].getLatencySnapshot();
+        }
+        out.append("# TYPE dao_latency_micros summary\n");
+        for (int i = 0; i < METRICS.length; i++) {
+            String operation = METRICS[i].getName();
+            line(out, "dao_latency_micros", operation, "quantile=\"0.5\"", snapshots[i].percentile(50) / 1000);
+            line(out, "dao_latency_micros", operation, "quantile=\"0.99\"", snapshots[i].percentile(99) / 1000);
+            line(out, "dao_latency_micros", operation, "quantile=\"0.999\"", snapshots[i].percentile(99.9) / 1000);
+        }
+        // Its own family: a summary may only hold quantiles, _sum and _count
+        out.append("# TYPE dao_latency_micros_max gauge\n");
+        for (int i = 0; i < METRICS.length; i++) {
+            line(out, "dao_latency_micros_max", METRICS[i].getName(), null, snapshots[i].getMax() / 1000);
+        }
+
+        AvailabilityCache cache = CarDAO.getAvailabilityCache();
+        out.append("# TYPE availability_cache_hits_total counter\n");
+        out.append("availability_cache_hits_total ").append(cache.getHitCount()).append('\n');
+        out.append("# TYPE availability_cache_misses_total counter\n");
+        out.append("availability_cache_misses_total ").append(cache.getMissCount()).append('\n');
+
+        ConnectionPool pool = DatabaseConnection.getPoolIfStarted();
+        if (pool != null) {
+            out.append("# TYPE pool_connections gauge\n");
+            out.append("pool_connections{state=\"active\"} ").append(pool.getActiveCount()).append('\n');
+            out.append("pool_connections{state=\"idle\"} ").append(pool.getIdleCount()).append('\n');
+            out.append("pool_connections{state=\"waiting\"} ").append(pool.getWaitingCount()).append('\n');
+            out.append("# TYPE pool_borrow_timeouts_total counter\n");
+            out.append("pool_borrow_timeouts_total ").append(pool.getTimeoutCount()).append('\n');
+        }
+
+        return out.toString();
+    }
+
+    // Writes "name{op="...",extra} value"
+    private static void line(StringBuilder out, String metric, String operation, String extraLabel, long value) {
+        out.append(metric).append("{op=\"").append(operation).append('"');
+        if (extraLabel != null) {
+            out.append(',').append(extraLabel);
+        }
+        out.append("} ").append(value).append('\n');
+    }
+}
@@ -1,63 +1,174 @@
 package database;
 
+import logging.Log;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.Properties;
 
 /**
  * DatabaseConnection class - Handles connection to MySQL database
- * This class helps us connect to the database where car information is stored
+ * This class helps us connect to the database where car information is stored.
+ * Connections come from a shared ConnectionPool, so opening and closing them
+ * is cheap: getConnection() borrows one and closeConnection() gives it back.
  */
 public class DatabaseConnection {
-    
+
     // Database connection details - CHANGE THESE according to your setup
-    private static final String URL = "jdbc:mysql://localhost:3306/car_rental_db";
+    // (rewriteBatchedStatements lets a JDBC batch go to MySQL in one round trip)
+    private static final String URL =
+            "jdbc:mysql://localhost:3306/car_rental_db?rewriteBatchedStatements=true";
     private static final String USERNAME = "root";  // Change to your MySQL username
     private static final String PASSWORD = "";      // Change to your MySQL password
-    
+
+    // -Ddb.url=... / -Ddb.user=... / -Ddb.password=... override the values above
+    // (used by the benchmarks to run against an in-memory database)
+    private static final String URL_PROPERTY = "db.url";
+    private static final String USERNAME_PROPERTY = "db.user";
+    private static final String PASSWORD_PROPERTY = "db.password";
+
+    // Connection pool settings - tune these for your counter load
+    private static final int POOL_MIN_SIZE = 2;                 // Connections kept open at all times
+    private static final int POOL_MAX_SIZE = 10;                // Most connections open at once
+    private static final long BORROW_TIMEOUT_MILLIS = 5000;     // Wait this long for a free connection
+    private static final long IDLE_TIMEOUT_MILLIS = 300000;     // Close connections idle for 5 minutes
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;    // Check a connection is alive before use
+    private static final int STATEMENT_CACHE_SIZE = 32;         // Prepared statements kept per connection
+
+    // The shared pool - created on first use
+    private static volatile ConnectionPool pool;
+
     /**
-     * getConnection() - Creates and returns a connection to the database
-     * @return Connection object to interact with database
+     * getConnection() - Borrows a connection to the database from the pool
+     * @return Connection object to interact with database (null if it failed)
      */
     public static Connection getConnection() {
-        Connection connection = null;
-        
+        long start = System.nanoTime();
         try {
-            // Load MySQL JDBC driver
-            Class.forName("com.mysql.cj.jdbc.Driver");
-            
-            // Create connection to database
-            connection = DriverManager.getConnection(URL, USERNAME, PASSWORD);
-            
-            System.out.println("✓ Database connected successfully!");
-            
+            Connection connection = getPool().borrow();
+            DaoMetrics.record(DaoMetrics.Operation.CONNECTION_ACQUIRE, start, 0);
+            return connection;
+
         } catch (ClassNotFoundException e) {
-            System.out.println("✗ Error: MySQL JDBC Driver not found!");
-            System.out.println("Make sure you have added mysql-connector-java to your project.");
-            e.printStackTrace();
-            
+            Log.error("✗ Error: MySQL JDBC Driver not found! "
+                    + "Make sure you have added mysql-connector-java to your project.", e);
+
         } catch (SQLException e) {
-            System.out.println("✗ Error: Could not connect to database!");
-            System.out.println("Check your database URL, username, and password.");
-            e.printStackTrace();
+            DaoMetrics.recordError(DaoMetrics.Operation.CONNECTION_ACQUIRE, e);
+            Log.error("✗ Error: Could not connect to database! "
+                    + "Check your database URL, username, and password.", e);
         }
-        
-        return connection;
+
+        return null;
     }
-    
+
+    /**
+     * getStreamingConnection() - Opens a dedicated connection for reading large results
+     * MySQL only reads a result in setFetchSize() pieces when useCursorFetch is on,
+     * and that also turns every statement into a server-side prepared statement.
+     * So it is switched on here only, not on the pooled connections.
+     * The connection is not from the pool - closeConnection() really closes it.
+     * @return Connection object to stream rows with (null if it failed)
+     */
+    public static Connection getStreamingConnection() {
+        long start = System.nanoTime();
+        try {
+            getPool();  // Loads the driver
+
+            String url = System.getProperty(URL_PROPERTY, URL);
+            Properties properties = new Properties();
+            properties.setProperty("user", System.getProperty(USERNAME_PROPERTY, USERNAME));
+            properties.setProperty("password", System.getProperty(PASSWORD_PROPERTY, PASSWORD));
+            if (url.startsWith("jdbc:mysql:")) {
+                properties.setProperty("useCursorFetch", "true");
+            }
+
+            Connection connection = DriverManager.getConnection(url, properties);
+            DaoMetrics.record(DaoMetrics.Operation.CONNECTION_ACQUIRE, start, 0);
+            return connection;
+
+        } catch (ClassNotFoundException e) {
+            Log.error("✗ Error: MySQL JDBC Driver not found! "
+                    + "Make sure you have added mysql-connector-java to your project.", e);
+
+        } catch (SQLException e) {
+            DaoMetrics.recordError(DaoMetrics.Operation.CONNECTION_ACQUIRE, e);
+            Log.error("✗ Error: Could not connect to database! "
+                    + "Check your database URL, username, and password.", e);
+        }
+
+        return null;
+    }
+
     /**
-     * closeConnection() - Safely closes the database connection
+     * closeConnection() - Gives the connection back to the pool
      * @param connection - The connection to close
      */
     public static void closeConnection(Connection connection) {
         if (connection != null) {
             try {
                 connection.close();
-                System.out.println("✓ Database connection closed.");
             } catch (SQLException e) {
-                System.out.println("✗ Error closing connection.");
-                e.printStackTrace();
+                Log.error("✗ Error closing connection.", e);
+            }
+        }
+    }
+
+    /**
+     * getPool() - Returns the shared connection pool, creating it on first call
+     * Useful for reading active/idle/wait-time counters.
+     * @return The connection pool
+     * @throws ClassNotFoundException if the MySQL JDBC driver is missing
+     */
+    public static ConnectionPool getPool() throws ClassNotFoundException {
+        ConnectionPool current = pool;
+        if (current == null) {
+            synchronized (DatabaseConnection.class) {
+                current = pool;
+                if (current == null) {
+                    // Load MySQL JDBC driver (only once)
+                    Class.forName("com.mysql.cj.jdbc.Driver");
+
+                    current = new ConnectionPool(
+                            System.getProperty(URL_PROPERTY, URL),
+                            System.getProperty(USERNAME_PROPERTY, USERNAME),
+                            System.getProperty(PASSWORD_PROPERTY, PASSWORD),
+                            POOL_MIN_SIZE, POOL_MAX_SIZE,
+                            BORROW_TIMEOUT_MILLIS, IDLE_TIMEOUT_MILLIS,
+                            VALIDATION_TIMEOUT_SECONDS, STATEMENT_CACHE_SIZE);
+                    pool = current;
+                    Log.info("✓ Database connection pool ready! ({} - {} connections)", POOL_MIN_SIZE, POOL_MAX_SIZE);
+                }
             }
         }
+        return current;
+    }
+
+    /**
+     * getPoolIfStarted() - Returns the shared pool without creating it
+     * @return The connection pool, or null if no connection was asked for yet
+     */
+    public static ConnectionPool getPoolIfStarted() {
+        return pool;
+    }
+
+    /**
+     * getMaxPoolSize() - Most connections the pool will open at once
+     * Code that runs queries in parallel can use this as its concurrency limit.
+     * @return Maximum pool size
+     */
+    public static int getMaxPoolSize() {
+        return POOL_MAX_SIZE;
+    }
+    
+    /**
+     * shutdown() - Closes all pooled connections (call when the program exits)
+     */
+    public static void shutdown() {
+        ConnectionPool current = pool;
+        if (current != null) {
+            current.shutdown();
+            pool = null;
+        }
     }
 }
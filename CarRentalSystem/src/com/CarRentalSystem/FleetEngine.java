@@ -0,0 +1,429 @@
+package database;
+
+import logging.Log;
+import models.Car;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * FleetEngine class - Keeps the whole fleet in memory for fast rent/return
+ * The cars table is loaded once at startup. After that, availability is
+ * decided in memory: rent() and returnCar() flip a car's status with a single
+ * compare-and-set, so they never lock and never wait for MySQL.
+ *
+ * Changes are written to MySQL later by a background thread ("write-behind")
+ * through CarDAO's batch methods. A car that changes several times before the
+ * writer gets to it is written only once with its latest status. If the
+ * writer falls behind, rent()/returnCar() wait for room in the queue
+ * (back-pressure). close() writes everything still pending before returning.
+ *
+ * Not used by the console or the HTTP server yet: both still rent and return
+ * through CarDAO, because returns there also record the rental history and
+ * the bill, which this engine does not do.
+ */
+public class FleetEngine implements AutoCloseable {
+
+    // Status codes kept in the status array
+    private static final int AVAILABLE = 0;
+    private static final int RENTED = 1;
+
+    // Write-behind retry settings
+    private static final long RETRY_DELAY_MILLIS = 1000;
+    private static final int MAX_CLOSE_RETRIES = 3;
+
+    private final CarDAO carDAO;
+    private final int maxBatchSize;
+
+    // Cars by slot number (fixed after loading)
+    private final Car[] cars;
+    private final Map<String, Integer> slotByPlate = new HashMap<>();
+    private final AtomicIntegerArray status;         // AVAILABLE or RENTED per slot
+
+    // Per-category availability bitsets
+    private final Map<String, CategoryIndex> categories = new HashMap<>();
+    private final CategoryIndex[] categoryOfSlot;
+    private final int[] positionOfSlot;              // Bit number of the slot in its category
+
+    // Write-behind state
+    private final AtomicIntegerArray dirty;          // 1 = slot is waiting in the queue
+    private final BlockingQueue<Integer> pendingWrites;
+    private final Thread writer;
+    private volatile boolean closing = false;
+    // Read lock: a rent/return that is queueing its write; write lock: close() setting closing
+    private final ReentrantReadWriteLock lifecycle = new ReentrantReadWriteLock();
+
+    // Statistics
+    private final LongAdder rents = new LongAdder();
+    private final LongAdder returns = new LongAdder();
+    private final LongAdder carsWritten = new LongAdder();
+    private final LongAdder batchesWritten = new LongAdder();
+    private final LongAdder writeFailures = new LongAdder();
+
+    /**
+     * load() - Reads every car from the database and starts the engine
+     * @param carDAO - DAO used to load and to write changes back
+     * @param queueCapacity - Most cars waiting to be written before rent/return wait
+     * @param maxBatchSize - Most cars written in one batch
+     * @return Running fleet engine
+     */
+    public static FleetEngine load(CarDAO carDAO, int queueCapacity, int maxBatchSize) {
+        return new FleetEngine(carDAO, carDAO.getAllCars(), queueCapacity, maxBatchSize);
+    }
+
+    private FleetEngine(CarDAO carDAO, List<Car> fleet, int queueCapacity, int maxBatchSize) {
+        this.carDAO = carDAO;
+        this.maxBatchSize = maxBatchSize;
+
+        int size = fleet.size();
+        this.cars = new Car[size];
+        this.status = new AtomicIntegerArray(size);
+        this.categoryOfSlot = new CategoryIndex[size];
+        this.positionOfSlot = new int[size];
+        this.dirty = new AtomicIntegerArray(size);
+        this.pendingWrites = new ArrayBlockingQueue<>(queueCapacity);
+
+        // First pass: count cars per category so each bitset gets the right size
+        Map<String, Integer> categorySizes = new HashMap<>();
+        for (Car car : fleet) {
+            categorySizes.merge(car.getCategory(), 1, Integer::sum);
+        }
+        for (Map.Entry<String, Integer> entry : categorySizes.entrySet()) {
+            categories.put(entry.getKey(), new CategoryIndex(entry.getValue()));
+        }
+
+        // Second pass: fill slots and bitsets
+        for (int slot = 0; slot < size; slot++) {
+            Car car = fleet.get(slot);
+            cars[slot] = car;
+            slotByPlate.put(car.getPlateNo(), slot);
+
+            CategoryIndex category = categories.get(car.getCategory());
+            int position = category.count++;
+            category.slots[position] = slot;
+            categoryOfSlot[slot] = category;
+            positionOfSlot[slot] = position;
+
+            if ("Available".equals(car.getStatus())) {
+                category.setAvailable(position);
+            } else {
+                status.set(slot, RENTED);
+            }
+        }
+
+        writer = new Thread(this::writeLoop, "fleet-write-behind");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * rent() - Rents a car in memory (lock-free)
+     * @param plateNo - Plate number of the car to rent
+     * @return SUCCESS with the rented car, or NOT_FOUND / ALREADY_RENTED
+     */
+    public RentResult rent(String plateNo) {
+        return changeStatus(plateNo, AVAILABLE, RENTED, RentResult.Status.ALREADY_RENTED);
+    }
+
+    /**
+     * returnCar() - Returns a car in memory (lock-free)
+     * @param plateNo - Plate number of the car to return
+     * @return SUCCESS with the returned car, or NOT_FOUND / NOT_RENTED
+     */
+    public RentResult returnCar(String plateNo) {
+        return changeStatus(plateNo, RENTED, AVAILABLE, RentResult.Status.NOT_RENTED);
+    }
+
+    /**
+     * getCar() - Current state of one car
+     * @param plateNo - Plate number to look up
+     * @return Car object, or null if not in the fleet
+     */
+    public Car getCar(String plateNo) {
+        Integer slot = slotByPlate.get(plateNo);
+        return slot == null ? null : snapshot(slot);
+    }
+
+    /**
+     * getAvailableCars() - Available cars of one category, read from the bitset
+     * @param category - Type of car (SUV, Sedan, Hatchback)
+     * @return List of available cars (empty if the category is unknown)
+     */
+    public List<Car> getAvailableCars(String category) {
+        List<Car> available = new ArrayList<>();
+        CategoryIndex index = categories.get(category);
+        if (index == null) {
+            return available;
+        }
+
+        for (int word = 0; word < index.bits.length(); word++) {
+            long bits = index.bits.get(word);
+            while (bits != 0) {
+                int slot = index.slots[word * 64 + Long.numberOfTrailingZeros(bits)];
+                if (status.get(slot) == AVAILABLE) {
+                    available.add(snapshot(slot));
+                }
+                bits &= bits - 1;  // Clear lowest set bit
+            }
+        }
+        return available;
+    }
+
+    /**
+     * getAvailableCount() - Number of available cars in a category
+     */
+    public int getAvailableCount(String category) {
+        CategoryIndex index = categories.get(category);
+        if (index == null) {
+            return 0;
+        }
+        int count = 0;
+        for (int word = 0; word < index.bits.length(); word++) {
+            count += Long.bitCount(index.bits.get(word));
+        }
+        return count;
+    }
+
+    // Getter methods - Statistics
+    public int getFleetSize() {
+        return cars.length;
+    }
+
+    public int getPendingWriteCount() {
+        return pendingWrites.size();
+    }
+
+    public long getRentCount() {
+        return rents.sum();
+    }
+
+    public long getReturnCount() {
+        return returns.sum();
+    }
+
+    public long getCarsWrittenCount() {
+        return carsWritten.sum();
+    }
+
+    public long getBatchesWrittenCount() {
+        return batchesWritten.sum();
+    }
+
+    public long getWriteFailureCount() {
+        return writeFailures.sum();
+    }
+
+    /**
+     * close() - Stops the writer after all pending changes are in MySQL
+     */
+    @Override
+    public void close() {
+        // Waits for rents/returns that already passed the closing check to queue their write
+        lifecycle.writeLock().lock();
+        try {
+            if (closing) {
+                return;
+            }
+            closing = true;
+        } finally {
+            lifecycle.writeLock().unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Anything the writer left behind (interrupted or gave up) gets one last try here
+        List<Integer> batch = new ArrayList<>();
+        pendingWrites.drainTo(batch);
+        if (!batch.isEmpty() && !writeBatch(batch)) {
+            writeFailures.increment();
+            Log.error("✗ Could not save {} car status change(s) to the database!", batch.size());
+        }
+    }
+
+    // Flips one car's status with compare-and-set and schedules the write
+    private RentResult changeStatus(String plateNo, int from, int to, RentResult.Status wrongStatus) {
+        lifecycle.readLock().lock();
+        try {
+            if (closing) {
+                throw new IllegalStateException("Fleet engine is closed");
+            }
+            return changeStatusOpen(plateNo, from, to, wrongStatus);
+        } finally {
+            lifecycle.readLock().unlock();
+        }
+    }
+
+    // changeStatus() while the engine is known to stay open
+    private RentResult changeStatusOpen(String plateNo, int from, int to, RentResult.Status wrongStatus) {
+
+        Integer slot = slotByPlate.get(plateNo);
+        if (slot == null) {
+            return new RentResult(RentResult.Status.NOT_FOUND, plateNo, null);
+        }
+
+        if (!status.compareAndSet(slot, from, to)) {
+            return new RentResult(wrongStatus, plateNo, snapshot(slot));
+        }
+
+        refreshAvailableBit(slot);
+        if (to == AVAILABLE) {
+            returns.increment();
+        } else {
+            rents.increment();
+        }
+
+        scheduleWrite(slot);
+        return new RentResult(RentResult.Status.SUCCESS, plateNo, snapshot(slot));
+    }
+
+    // Makes the category bit match the slot's status
+    // A rent and a return of the same car can race here; re-checking the status
+    // after writing the bit guarantees the last one to finish leaves it right.
+    private void refreshAvailableBit(int slot) {
+        CategoryIndex category = categoryOfSlot[slot];
+        int position = positionOfSlot[slot];
+        boolean available;
+        do {
+            available = status.get(slot) == AVAILABLE;
+            if (available) {
+                category.setAvailable(position);
+            } else {
+                category.clearAvailable(position);
+            }
+        } while (available != (status.get(slot) == AVAILABLE));
+    }
+
+    // Queues a slot for writing unless it is already waiting (coalescing)
+    private void scheduleWrite(int slot) {
+        if (!dirty.compareAndSet(slot, 0, 1)) {
+            return;  // Writer will pick up the latest status anyway
+        }
+        try {
+            pendingWrites.put(slot);  // Waits here when the writer is behind
+        } catch (InterruptedException e) {
+            dirty.set(slot, 0);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the write-behind queue", e);
+        }
+    }
+
+    // Builds a Car object with the slot's current status
+    private Car snapshot(int slot) {
+        Car car = cars[slot];
+        return new Car(car.getPlateNo(), car.getModel(), car.getCategory(), car.getRatePerDay(),
+                status.get(slot) == AVAILABLE ? "Available" : "Rented");
+    }
+
+    // Background writer: takes batches of changed cars and writes them to MySQL
+    private void writeLoop() {
+        List<Integer> batch = new ArrayList<>(maxBatchSize);
+
+        while (true) {
+            batch.clear();
+            try {
+                Integer first = pendingWrites.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    if (closing) {
+                        return;  // Nothing left to write
+                    }
+                    continue;
+                }
+                batch.add(first);
+            } catch (InterruptedException e) {
+                if (pendingWrites.isEmpty()) {
+                    return;
+                }
+            }
+            pendingWrites.drainTo(batch, maxBatchSize - batch.size());
+
+            // Keep retrying a failed batch; when closing, give up after a few tries
+            int attempts = 0;
+            while (!writeBatch(batch)) {
+                writeFailures.increment();
+                attempts++;
+                if (closing && attempts >= MAX_CLOSE_RETRIES) {
+                    Log.error("✗ Could not save {} car status change(s) to the database!", batch.size());
+                    break;
+                }
+                try {
+                    Thread.sleep(RETRY_DELAY_MILLIS);
+                } catch (InterruptedException e) {
+                    closing = true;
+                }
+            }
+        }
+    }
+
+    // Writes the latest status of each slot, split into rents and returns
+    // Returns false if the database rejected the batch
+    private boolean writeBatch(List<Integer> batch) {
+        List<String> rentedPlates = new ArrayList<>();
+        List<String> availablePlates = new ArrayList<>();
+
+        for (int slot : batch) {
+            dirty.set(slot, 0);  // Changes after this point queue the slot again
+            if (status.get(slot) == RENTED) {
+                rentedPlates.add(cars[slot].getPlateNo());
+            } else {
+                availablePlates.add(cars[slot].getPlateNo());
+            }
+        }
+
+        // BEST_EFFORT: a car already in the right state in MySQL is simply skipped
+        if (!rentedPlates.isEmpty()
+                && !carDAO.rentCars(rentedPlates, BatchResult.Mode.BEST_EFFORT).isCommitted()) {
+            return false;
+        }
+        if (!availablePlates.isEmpty()
+                && !carDAO.returnCars(availablePlates, BatchResult.Mode.BEST_EFFORT).isCommitted()) {
+            return false;
+        }
+
+        carsWritten.add(batch.size());
+        batchesWritten.increment();
+        return true;
+    }
+
+    /**
+     * CategoryIndex - Cars of one category and a lock-free availability bitset
+     */
+    private static class CategoryIndex {
+        final int[] slots;              // Bit position -> fleet slot
+        final AtomicLongArray bits;     // Bit set = car available
+        int count = 0;                  // Used only while loading
+
+        CategoryIndex(int size) {
+            this.slots = new int[size];
+            this.bits = new AtomicLongArray((size + 63) / 64);
+        }
+
+        void setAvailable(int position) {
+            int word = position >>> 6;
+            long mask = 1L << position;
+            long current;
+            do {
+                current = bits.get(word);
+            } while (!bits.compareAndSet(word, current, current | mask));
+        }
+
+        void clearAvailable(int position) {
+            int word = position >>> 6;
+            long mask = 1L << position;
+            long current;
+            do {
+                current = bits.get(word);
+            } while (!bits.compareAndSet(word, current, current & ~mask));
+        }
+    }
+}
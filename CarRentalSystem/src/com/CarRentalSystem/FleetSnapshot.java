@@ -0,0 +1,381 @@
+package database;
+
+import logging.Log;
+import models.Car;
+import models.CompactFleet;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * FleetSnapshot class - The cars table saved in one binary file, read through a memory map
+ * Opening a snapshot maps the file and reads the model names; cars are read
+ * straight from the mapped pages when asked for. Nothing has to be loaded or
+ * indexed first, so a million-car fleet can be browsed a few milliseconds
+ * after the program starts, before MySQL has even been contacted.
+ *
+ * File layout (version 1, big-endian):
+ *   header   64 bytes   magic, version, car count, model count, index buckets,
+ *                       watermark, creation time, index and model offsets,
+ *                       CRC32 of the whole file except the CRC itself
+ *   cars     28 bytes each: plate (20 bytes ASCII, zero padded), model id (2),
+ *                       category (1), status (1), rate in paise (4)
+ *   index    int per bucket: car number + 1 (0 = empty), open addressing by plate
+ * (category/status codes and the plate hash are CompactFleet's, so the two never disagree)
+ *   models   the distinct model names, each as a 2 byte length + UTF-8 bytes
+ *
+ * The watermark is the database time the snapshot is known to be complete up
+ * to, compared with updated_at (migration_v5_last_modified.sql); see SnapshotInventory.
+ *
+ * A snapshot never changes once written. Each new one gets the next
+ * generation number ("fleet.snap.1", "fleet.snap.2", ...) instead of being
+ * renamed over the file still mapped by readers, which Windows refuses.
+ * deleteOlder() removes the generations before it once they are no longer
+ * served; a file that is still mapped is left for a later call.
+ */
+public class FleetSnapshot {
+
+    // File format
+    private static final int MAGIC = 0x46534E50;            // "FSNP"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int RECORD_SIZE = 28;
+    private static final int PLATE_BYTES = CompactFleet.PLATE_BYTES;
+    private static final int MODEL_OFFSET = 20;
+    private static final int CATEGORY_OFFSET = 22;
+    private static final int STATUS_OFFSET = 23;
+    private static final int RATE_OFFSET = 24;
+    private static final int CHECKSUM_OFFSET = 56;          // CRC32 of everything else
+
+    private final Path path;
+    private final MappedByteBuffer buffer;     // Only absolute reads: safe for any number of threads
+    private final int count;
+    private final int indexBuckets;
+    private final long indexOffset;
+    private final long watermarkMillis;
+    private final long createdMillis;
+    private final String[] models;
+
+    private FleetSnapshot(Path path, MappedByteBuffer buffer) throws IOException {
+        this.path = path;
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException(path + " is not a fleet snapshot");
+        }
+        if (buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IOException(path + " has snapshot format " + buffer.getInt(4) + ", expected " + FORMAT_VERSION);
+        }
+        this.count = buffer.getInt(8);
+        int modelCount = buffer.getInt(12);
+        this.indexBuckets = buffer.getInt(16);
+        this.watermarkMillis = buffer.getLong(24);
+        this.createdMillis = buffer.getLong(32);
+        this.indexOffset = buffer.getLong(40);
+        long modelsOffset = buffer.getLong(48);
+
+        if (count < 0 || indexOffset != HEADER_SIZE + (long) count * RECORD_SIZE
+                || Integer.bitCount(indexBuckets) != 1 || indexBuckets < count
+                || modelsOffset != indexOffset + 4L * indexBuckets || modelsOffset > buffer.capacity()) {
+            throw new IOException(path + " has an inconsistent header");
+        }
+        if (buffer.getLong(CHECKSUM_OFFSET) != checksum(buffer)) {
+            throw new IOException(path + " is damaged (checksum mismatch)");
+        }
+
+        this.models = new String[modelCount];
+        ByteBuffer modelBytes = buffer.duplicate().position((int) modelsOffset);
+        for (int i = 0; i < modelCount; i++) {
+            byte[] name = new byte[modelBytes.getShort() & 0xFFFF];
+            modelBytes.get(name);
+            models[i] = new String(name, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * open() - Maps an existing snapshot file and checks it is complete
+     * @param path - Snapshot file
+     * @return The snapshot
+     * @throws IOException if the file is missing, of another version or damaged
+     */
+    public static FleetSnapshot open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(path + " is too large for a fleet snapshot");
+            }
+            // The mapping stays valid after the channel is closed
+            return new FleetSnapshot(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * latestPath() - Newest generation of a snapshot
+     * @param base - Snapshot name without generation, e.g. fleet.snap
+     * @return Its newest file, the base file itself if only that exists
+     *         (written before generations were used), or null if there is none
+     */
+    public static Path latestPath(Path base) throws IOException {
+        List<Path> generations = listGenerations(base);
+        if (!generations.isEmpty()) {
+            return generations.get(generations.size() - 1);
+        }
+        return Files.exists(base) ? base : null;
+    }
+
+    /**
+     * nextPath() - File name for the next snapshot (one generation after the newest)
+     * @param base - Snapshot name without generation, e.g. fleet.snap
+     */
+    public static Path nextPath(Path base) throws IOException {
+        Path latest = latestPath(base);
+        long generation = latest == null || latest.equals(base) ? 1 : generationOf(base, latest) + 1;
+        return base.resolveSibling(base.getFileName() + "." + generation);
+    }
+
+    /**
+     * deleteOlder() - Deletes the generations before current (and an old ungenerationed file)
+     * Call it once current is the one being served. Windows cannot delete a
+     * file that is still mapped: such files are skipped and go next time.
+     * @param base - Snapshot name without generation
+     * @param current - Generation being served
+     */
+    public static void deleteOlder(Path base, Path current) throws IOException {
+        List<Path> old = new ArrayList<>(listGenerations(base));
+        old.add(base);
+        for (Path path : old) {
+            if (path.equals(current) || generationOf(base, path) > generationOf(base, current)) {
+                continue;
+            }
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                Log.debug("Old fleet snapshot {} is still in use - deleted later", path);
+            }
+        }
+    }
+
+    // Generations of a snapshot, oldest first
+    private static List<Path> listGenerations(Path base) throws IOException {
+        Path directory = base.toAbsolutePath().getParent();
+        String prefix = base.getFileName() + ".";
+        List<Path> generations = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "*")) {
+            for (Path path : stream) {
+                String suffix = path.getFileName().toString().substring(prefix.length());
+                if (!suffix.isEmpty() && suffix.chars().allMatch(Character::isDigit)) {
+                    generations.add(base.resolveSibling(path.getFileName()));
+                }
+            }
+        }
+        generations.sort(Comparator.comparingLong(path -> generationOf(base, path)));
+        return generations;
+    }
+
+    private static long generationOf(Path base, Path path) {
+        if (path.equals(base)) {
+            return 0;
+        }
+        return Long.parseLong(path.getFileName().toString().substring(base.getFileName().toString().length() + 1));
+    }
+
+    /**
+     * write() - Saves a fleet as a new snapshot file
+     * The file is built in memory, written under a temporary name, forced to
+     * disk and renamed to its final name, and then the directory is forced,
+     * so readers and a crash only ever see a whole file.
+     * @param path - Snapshot file to create (must not exist yet; see nextPath())
+     * @param fleet - Cars to save
+     * @param watermarkMillis - Database time the fleet is complete up to
+     */
+    public static void write(Path path, CompactFleet fleet, long watermarkMillis) throws IOException {
+        int count = fleet.size();
+
+        // Model dictionary and the size of the model table
+        Map<String, Integer> modelIds = new HashMap<>();
+        List<byte[]> modelNames = new ArrayList<>();
+        long modelBytes = 0;
+        char[] modelOfCar = new char[count];
+        for (int slot = 0; slot < count; slot++) {
+            String model = fleet.view(slot).getModel();
+            Integer id = modelIds.get(model);
+            if (id == null) {
+                byte[] name = model.getBytes(StandardCharsets.UTF_8);
+                if (name.length > 0xFFFF) {
+                    throw new IllegalArgumentException("Model name too long: " + model);
+                }
+                id = modelNames.size();
+                modelIds.put(model, id);
+                modelNames.add(name);
+                modelBytes += 2 + name.length;
+            }
+            modelOfCar[slot] = (char) (int) id;
+        }
+
+        int buckets = Integer.highestOneBit(Math.max(count, 8) * 2 - 1) << 1;
+        long indexOffset = HEADER_SIZE + (long) count * RECORD_SIZE;
+        long modelsOffset = indexOffset + 4L * buckets;
+        long fileSize = modelsOffset + modelBytes;
+        if (fileSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Fleet of " + count + " cars is too large for one snapshot file");
+        }
+
+        // Built on the heap, not in a mapping of the temp file: a mapped file cannot be renamed on Windows
+        ByteBuffer out = ByteBuffer.allocate((int) fileSize);
+        out.putInt(0, MAGIC);
+        out.putInt(4, FORMAT_VERSION);
+        out.putInt(8, count);
+        out.putInt(12, modelNames.size());
+        out.putInt(16, buckets);
+        out.putLong(24, watermarkMillis);
+        out.putLong(32, System.currentTimeMillis());
+        out.putLong(40, indexOffset);
+        out.putLong(48, modelsOffset);
+
+        byte[] plate = new byte[PLATE_BYTES];
+        for (int slot = 0; slot < count; slot++) {
+            Car car = fleet.view(slot);
+            int record = HEADER_SIZE + slot * RECORD_SIZE;
+            String plateNo = car.getPlateNo();
+            for (int i = 0; i < PLATE_BYTES; i++) {
+                plate[i] = i < plateNo.length() ? (byte) plateNo.charAt(i) : 0;
+            }
+            out.put(record, plate);
+            out.putChar(record + MODEL_OFFSET, modelOfCar[slot]);
+            out.put(record + CATEGORY_OFFSET, CompactFleet.categoryCode(car.getCategory()));
+            out.put(record + STATUS_OFFSET, CompactFleet.statusCode(car.getStatus()));
+            out.putInt(record + RATE_OFFSET, (int) Math.round(car.getRatePerDay() * 100));
+
+            int mask = buckets - 1;
+            int bucket = CompactFleet.plateHash(plateNo) & mask;
+            while (out.getInt((int) indexOffset + 4 * bucket) != 0) {
+                bucket = (bucket + 1) & mask;
+            }
+            out.putInt((int) indexOffset + 4 * bucket, slot + 1);
+        }
+
+        int position = (int) modelsOffset;
+        for (byte[] name : modelNames) {
+            out.putShort(position, (short) name.length);
+            out.put(position + 2, name);
+            position += 2 + name.length;
+        }
+
+        out.putLong(CHECKSUM_OFFSET, checksum(out));
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+        FileSync.syncDirectory(path.toAbsolutePath().getParent());
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /** Database time the snapshot is complete up to (epoch milliseconds) */
+    public long getWatermarkMillis() {
+        return watermarkMillis;
+    }
+
+    /** When the snapshot was written (epoch milliseconds) */
+    public long getCreatedMillis() {
+        return createdMillis;
+    }
+
+    /**
+     * find() - Car number of a plate in this snapshot, or -1 if it is not in it
+     */
+    public int find(String plateNo) {
+        if (plateNo.length() > PLATE_BYTES) {
+            return -1;
+        }
+        int mask = indexBuckets - 1;
+        int bucket = CompactFleet.plateHash(plateNo) & mask;
+        int entry;
+        while ((entry = buffer.getInt((int) indexOffset + 4 * bucket)) != 0) {
+            if (CompactFleet.plateEquals(buffer, HEADER_SIZE + (entry - 1) * RECORD_SIZE, plateNo)) {
+                return entry - 1;
+            }
+            bucket = (bucket + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * getCar() - A new Car object for car number slot (0 .. size() - 1)
+     */
+    public Car getCar(int slot) {
+        checkSlot(slot);
+        int record = HEADER_SIZE + slot * RECORD_SIZE;
+        return new Car(getPlateNo(slot),
+                models[buffer.getChar(record + MODEL_OFFSET)],
+                CompactFleet.categoryName(buffer.get(record + CATEGORY_OFFSET)),
+                buffer.getInt(record + RATE_OFFSET) / 100.0,
+                CompactFleet.statusName(buffer.get(record + STATUS_OFFSET)));
+    }
+
+    public String getPlateNo(int slot) {
+        checkSlot(slot);
+        int record = HEADER_SIZE + slot * RECORD_SIZE;
+        byte[] plate = new byte[PLATE_BYTES];
+        buffer.get(record, plate);
+        int length = 0;
+        while (length < PLATE_BYTES && plate[length] != 0) {
+            length++;
+        }
+        return new String(plate, 0, length, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * categoryCode() - Code of a category in the file, or -1 if there is no such category
+     */
+    static int categoryCode(String category) {
+        return CompactFleet.findCategoryCode(category);
+    }
+
+    /**
+     * isAvailable() - True if car number slot is available and of the category with this code
+     * Reads two bytes; no objects are created.
+     */
+    boolean isAvailable(int slot, int categoryCode) {
+        int record = HEADER_SIZE + slot * RECORD_SIZE;
+        return buffer.get(record + CATEGORY_OFFSET) == categoryCode
+                && buffer.get(record + STATUS_OFFSET) == CompactFleet.AVAILABLE;
+    }
+
+    private void checkSlot(int slot) {
+        if (slot < 0 || slot >= count) {
+            throw new IndexOutOfBoundsException("Car " + slot + " of " + count);
+        }
+    }
+
+    // CRC32 of the whole file except the checksum field
+    private static long checksum(ByteBuffer file) {
+        CRC32 crc = new CRC32();
+        crc.update(file.duplicate().position(0).limit(CHECKSUM_OFFSET));
+        crc.update(file.duplicate().position(CHECKSUM_OFFSET + 8).limit(file.capacity()));
+        return crc.getValue();
+    }
+}
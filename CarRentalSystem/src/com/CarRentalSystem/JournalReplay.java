@@ -0,0 +1,184 @@
+package journal;
+
+import database.CarDAO;
+import database.DatabaseConnection;
+import database.RentResult;
+import models.Car;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * JournalReplay - Rebuilds fleet state from the rental journal after a crash
+ *
+ * Usage: java journal.JournalReplay [journalDir] [--redrive] [--compact]
+ *   (no flags)  print every car's last known status and the total billed
+ *   --redrive   also apply to MySQL every last event of a car that has no
+ *               DONE (the program stopped before or during the update)
+ *               and that MySQL does not reflect yet (safe to run more than once)
+ *   --compact   shrink old journal segments to the latest event per car
+ * Events undone by a CANCEL are ignored. A car whose last event has a DONE
+ * is left as MySQL has it: it may have changed since through a path that
+ * does not use the journal (batch rent/return, FleetEngine, plain SQL).
+ * Journals from before DONE existed have none, so their last events are all
+ * checked against MySQL as before. --redrive and --compact lock the
+ * journal, so they refuse to run while the rental program is using it.
+ */
+public class JournalReplay {
+
+    private static final String DEFAULT_DIRECTORY = "journal";
+
+    /**
+     * main() - Starting point of the replay tool
+     */
+    public static void main(String[] args) throws IOException {
+        Path directory = Paths.get(DEFAULT_DIRECTORY);
+        boolean redrive = false;
+        boolean compact = false;
+
+        for (String arg : args) {
+            if (arg.equals("--redrive")) {
+                redrive = true;
+            } else if (arg.equals("--compact")) {
+                compact = true;
+            } else {
+                directory = Paths.get(arg);
+            }
+        }
+
+        // Holding the journal open keeps the rental programs from appending meanwhile
+        RentalJournal journal = redrive || compact ? RentalJournal.open(directory) : null;
+        try {
+            Map<String, RentalEvent> lastEvents = replay(directory);
+            printState(lastEvents);
+
+            Set<Long> cancelled = RentalJournal.readCancelledSequences(directory);
+            double[] totalBilled = new double[1];
+            RentalJournal.readAll(directory, event -> {
+                if (!cancelled.contains(event.getSequence())) {
+                    totalBilled[0] += event.getAmount();
+                }
+            });
+            System.out.println("Total billed in journal: ₹" + totalBilled[0]);
+
+            if (redrive) {
+                redriveDatabase(journal, lastEvents, RentalJournal.readDoneSequences(directory));
+            }
+            if (compact) {
+                System.out.println("✓ Compaction removed " + journal.compact() + " segment file(s).");
+            }
+        } finally {
+            if (journal != null) {
+                journal.close();
+            }
+        }
+    }
+
+    /**
+     * replay() - Reads the journal and keeps the latest rent or return of every car
+     * CANCEL and DONE events and the events CANCEL undid are skipped.
+     * @param directory - Journal folder
+     * @return plate number -> last event for that car, in journal order
+     */
+    public static Map<String, RentalEvent> replay(Path directory) throws IOException {
+        Set<Long> cancelled = RentalJournal.readCancelledSequences(directory);
+        Map<String, RentalEvent> lastEvents = new LinkedHashMap<>();
+        RentalJournal.readAll(directory, event -> {
+            if (event.getType() != RentalEvent.Type.CANCEL && event.getType() != RentalEvent.Type.DONE
+                    && !cancelled.contains(event.getSequence())) {
+                lastEvents.put(event.getPlateNo(), event);
+            }
+        });
+        return lastEvents;
+    }
+
+    // Shows what the journal says about every car
+    private static void printState(Map<String, RentalEvent> lastEvents) {
+        int rented = 0;
+        System.out.println("========================================");
+        System.out.println("   FLEET STATE FROM RENTAL JOURNAL");
+        System.out.println("========================================");
+        for (RentalEvent event : lastEvents.values()) {
+            String status = event.getType() == RentalEvent.Type.RENT ? "Rented" : "Available";
+            if (event.getType() == RentalEvent.Type.RENT) {
+                rented++;
+            }
+            System.out.println(event.getPlateNo() + " -> " + status + "   (last event " + event + ")");
+        }
+        System.out.println("----------------------------------------");
+        System.out.println("Cars in journal: " + lastEvents.size() + ", currently rented: " + rented);
+        System.out.println("========================================");
+    }
+
+    // Applies every unfinished event (no DONE) whose car is not yet in that state in MySQL
+    // (the program stopped between writing the journal and updating the database)
+    private static void redriveDatabase(RentalJournal journal, Map<String, RentalEvent> lastEvents,
+                                        Set<Long> done) {
+        Map<String, RentalEvent> unfinished = new LinkedHashMap<>();
+        for (RentalEvent event : lastEvents.values()) {
+            if (!done.contains(event.getSequence())) {
+                unfinished.put(event.getPlateNo(), event);
+            }
+        }
+        if (unfinished.isEmpty()) {
+            System.out.println("✓ Every journal event reached the database - nothing to re-drive.");
+            return;
+        }
+
+        CarDAO carDAO = new CarDAO();
+        List<Car> cars = carDAO.getCarsByPlateNos(unfinished.keySet());
+        if (cars == null) {
+            System.out.println("✗ Could not read the cars from the database - nothing re-driven.");
+            DatabaseConnection.shutdown();
+            return;
+        }
+        Map<String, String> statusByPlate = new HashMap<>();
+        for (Car car : cars) {
+            statusByPlate.put(car.getPlateNo(), car.getStatus());
+        }
+
+        int rented = 0;
+        int returned = 0;
+        int failed = 0;
+        for (RentalEvent event : unfinished.values()) {
+            String status = statusByPlate.get(event.getPlateNo());
+            if (status == null) {
+                System.out.println("✗ " + event.getPlateNo() + " is not in the database - skipped.");
+                continue;
+            }
+            boolean journalRented = event.getType() == RentalEvent.Type.RENT;
+            if (journalRented == "Rented".equals(status)) {
+                continue;  // Database already reflects this event
+            }
+
+            // A re-driven return also saves the rental history, as the original return would have
+            RentResult result = journalRented
+                    ? carDAO.rentCarAtomically(event.getPlateNo())
+                    : carDAO.returnCarAtomically(event.getPlateNo(), event.getDays());
+            if (!result.isSuccess()) {
+                failed++;
+                System.out.println("✗ Could not re-drive " + event + ": " + result.getStatus());
+                continue;
+            }
+            if (journalRented) {
+                rented++;
+            } else {
+                returned++;
+            }
+            try {
+                journal.done(event.getSequence(), event.getPlateNo());
+            } catch (IOException e) {
+                System.out.println("✗ Could not mark " + event + " as done: " + e.getMessage());
+            }
+        }
+        DatabaseConnection.shutdown();
+
+        System.out.println("✓ Database re-driven: " + rented + " car(s) rented, " + returned
+                + " car(s) returned" + (failed > 0 ? ", " + failed + " failed." : "."));
+    }
+}
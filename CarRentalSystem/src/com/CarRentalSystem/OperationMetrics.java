@@ -0,0 +1,125 @@
+package metrics;
+
+import logging.Log;
+import java.lang.management.ManagementFactory;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * OperationMetrics class - Counters and latency histogram for one operation
+ * Recording a call touches only atomics and never allocates. Errors are
+ * counted per SQLState (a new state allocates its counter once).
+ */
+public class OperationMetrics implements OperationMetricsMBean {
+
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final ConcurrentHashMap<String, LongAdder> errorsBySqlState = new ConcurrentHashMap<>();
+
+    public OperationMetrics(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * record() - Adds one finished call
+     * @param startNanos - System.nanoTime() taken when the call started
+     * @param rowCount - Rows returned or changed by the call
+     */
+    public void record(long startNanos, long rowCount) {
+        latency.record(System.nanoTime() - startNanos);
+        calls.increment();
+        if (rowCount > 0) {
+            rows.add(rowCount);
+        }
+    }
+
+    /**
+     * recordError() - Counts one failed call under its SQLState
+     * @param e - The exception the call failed with
+     */
+    public void recordError(SQLException e) {
+        errors.increment();
+        String sqlState = e.getSQLState() != null ? e.getSQLState() : "unknown";
+        LongAdder counter = errorsBySqlState.get(sqlState);
+        if (counter == null) {
+            counter = errorsBySqlState.computeIfAbsent(sqlState, state -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    /**
+     * registerMBean() - Publishes these metrics through JMX
+     * @param domain - JMX domain, e.g. "CarRentalSystem"
+     */
+    public void registerMBean(String domain) {
+        try {
+            ObjectName objectName = new ObjectName(domain + ":type=Operation,name=" + name);
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(objectName)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            }
+        } catch (JMException e) {
+            Log.warn("✗ Could not register JMX metrics for {}", name, e);
+        }
+    }
+
+    public LatencyHistogram.Snapshot getLatencySnapshot() {
+        return latency.snapshot();
+    }
+
+    // MBean getters
+    @Override
+    public long getCallCount() {
+        return calls.sum();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    @Override
+    public Map<String, Long> getErrorsBySqlState() {
+        Map<String, Long> copy = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> entry : errorsBySqlState.entrySet()) {
+            copy.put(entry.getKey(), entry.getValue().sum());
+        }
+        return copy;
+    }
+
+    @Override
+    public long getRowCount() {
+        return rows.sum();
+    }
+
+    @Override
+    public double getP50Micros() {
+        return latency.snapshot().percentile(50) / 1000.0;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return latency.snapshot().percentile(99) / 1000.0;
+    }
+
+    @Override
+    public double getP999Micros() {
+        return latency.snapshot().percentile(99.9) / 1000.0;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return latency.snapshot().getMax() / 1000.0;
+    }
+}
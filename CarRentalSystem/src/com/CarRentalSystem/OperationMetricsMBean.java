@@ -0,0 +1,25 @@
+package metrics;
+
+import java.util.Map;
+
+/**
+ * OperationMetricsMBean - What JMX tools (jconsole, VisualVM) show for one operation
+ */
+public interface OperationMetricsMBean {
+
+    long getCallCount();
+
+    long getErrorCount();
+
+    Map<String, Long> getErrorsBySqlState();
+
+    long getRowCount();
+
+    double getP50Micros();
+
+    double getP99Micros();
+
+    double getP999Micros();
+
+    double getMaxMicros();
+}
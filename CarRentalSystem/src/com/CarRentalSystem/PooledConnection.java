@@ -0,0 +1,245 @@
+package database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * PooledConnection class - One physical MySQL connection owned by the ConnectionPool
+ * Callers never see this class directly. They get a Connection "lease" whose
+ * close() hands the connection back to the pool instead of disconnecting, and
+ * whose prepareStatement(sql) reuses statements cached on this connection.
+ */
+class PooledConnection {
+
+    private final ConnectionPool pool;
+    private final Connection physical;
+    private final int statementCacheSize;
+
+    // SQL text -> cached statement, least recently used first
+    private final LinkedHashMap<String, CachedStatement> statementCache;
+
+    private volatile long lastUsed = System.currentTimeMillis();
+
+    PooledConnection(ConnectionPool pool, Connection physical, int statementCacheSize) {
+        this.pool = pool;
+        this.physical = physical;
+        this.statementCacheSize = statementCacheSize;
+        this.statementCache = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * lease() - Creates the Connection handed out to one borrower
+     * Each lease gets its own handle so a stale reference cannot touch
+     * the connection after it went back to the pool.
+     */
+    Connection lease() {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                new LeaseHandler());
+    }
+
+    /**
+     * reset() - Puts the connection back into a clean state before reuse
+     * @return false if the connection is broken and should be thrown away
+     */
+    boolean reset() {
+        try {
+            if (physical.isClosed()) {
+                return false;
+            }
+            if (!physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+            physical.clearWarnings();
+
+            // Free statements the borrower forgot to close
+            synchronized (statementCache) {
+                for (CachedStatement cached : statementCache.values()) {
+                    cached.inUse = false;
+                }
+            }
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    boolean isValid(int timeoutSeconds) {
+        try {
+            return physical.isValid(timeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    void touch() {
+        lastUsed = System.currentTimeMillis();
+    }
+
+    long getLastUsed() {
+        return lastUsed;
+    }
+
+    void closePhysical() {
+        synchronized (statementCache) {
+            for (CachedStatement cached : statementCache.values()) {
+                cached.closeQuietly();
+            }
+            statementCache.clear();
+        }
+        try {
+            physical.close();
+        } catch (SQLException e) {
+            // Connection is being thrown away anyway
+        }
+    }
+
+    // Returns a cached statement for this SQL, preparing it on first use
+    private PreparedStatement prepareCached(String sql) throws SQLException {
+        if (statementCacheSize <= 0) {
+            return physical.prepareStatement(sql);
+        }
+
+        synchronized (statementCache) {
+            CachedStatement cached = statementCache.get(sql);
+            if (cached != null) {
+                if (cached.inUse) {
+                    // Same SQL already open in this lease - hand out a plain statement
+                    return physical.prepareStatement(sql);
+                }
+                cached.inUse = true;
+                return cached.handle;
+            }
+
+            cached = new CachedStatement(physical.prepareStatement(sql));
+            statementCache.put(sql, cached);
+            evictStatements();
+            return cached.handle;
+        }
+    }
+
+    // Drops least recently used statements that are not currently open
+    private void evictStatements() {
+        Iterator<Map.Entry<String, CachedStatement>> iterator = statementCache.entrySet().iterator();
+        while (statementCache.size() > statementCacheSize && iterator.hasNext()) {
+            CachedStatement cached = iterator.next().getValue();
+            if (!cached.inUse) {
+                iterator.remove();
+                cached.closeQuietly();
+            }
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * LeaseHandler - Behaviour of the Connection handed to one borrower
+     */
+    private class LeaseHandler implements InvocationHandler {
+        private boolean closed = false;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+
+            switch (name) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        pool.release(PooledConnection.this);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + physical + "]";
+                default:
+                    break;
+            }
+
+            if (closed) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            if (name.equals("prepareStatement") && args != null && args.length == 1) {
+                return prepareCached((String) args[0]);
+            }
+            return PooledConnection.invoke(physical, method, args);
+        }
+    }
+
+    /**
+     * CachedStatement - A prepared statement kept open between leases
+     * close() on the handle only clears parameters and marks it free again.
+     */
+    private class CachedStatement implements InvocationHandler {
+        private final PreparedStatement statement;
+        private final PreparedStatement handle;
+        private boolean inUse = true;
+
+        CachedStatement(PreparedStatement statement) {
+            this.statement = statement;
+            this.handle = (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[] { PreparedStatement.class },
+                    this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    release();
+                    return null;
+                case "isClosed":
+                    return !inUse;
+                case "getConnection":
+                    throw new SQLException("getConnection() is not supported on cached statements");
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return PooledConnection.invoke(statement, method, args);
+            }
+        }
+
+        private void release() throws SQLException {
+            synchronized (statementCache) {
+                if (!inUse) {
+                    return;
+                }
+                inUse = false;
+            }
+            statement.clearParameters();
+            statement.clearBatch();
+        }
+
+        void closeQuietly() {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                // Statement is being thrown away anyway
+            }
+        }
+    }
+}
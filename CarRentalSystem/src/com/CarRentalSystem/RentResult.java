@@ -0,0 +1,54 @@
+package database;
+
+import models.Car;
+
+/**
+ * RentResult class - Outcome of an atomic rent or return (CarDAO.rentCarAtomically / returnCarAtomically)
+ * On success it carries the Car exactly as it was rented or returned, so the
+ * caller does not need a second query to show details or compute a bill.
+ */
+public class RentResult {
+
+    /**
+     * Status - What happened to the requested car
+     */
+    public enum Status {
+        SUCCESS,          // Status was changed
+        NOT_FOUND,        // No car with this plate number
+        ALREADY_RENTED,   // Rent asked, but the car is already rented
+        NOT_RENTED,       // Return asked, but the car is not rented
+        ERROR             // Database error - nothing was changed
+    }
+
+    private final Status status;
+    private final String plateNo;
+    private final Car car;   // Car after the change (or as found), null if not found / error
+
+    public RentResult(Status status, String plateNo, Car car) {
+        this.status = status;
+        this.plateNo = plateNo;
+        this.car = car;
+    }
+
+    // Getter methods
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getPlateNo() {
+        return plateNo;
+    }
+
+    public Car getCar() {
+        return car;
+    }
+
+    public boolean isSuccess() {
+        return status == Status.SUCCESS;
+    }
+
+    @Override
+    public String toString() {
+        return "RentResult[" + status + ", plateNo=" + plateNo + "]";
+    }
+}
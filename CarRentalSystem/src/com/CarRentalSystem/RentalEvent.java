@@ -0,0 +1,98 @@
+package journal;
+
+/**
+ * RentalEvent class - One rent or return written to the RentalJournal
+ * RENT and RETURN are written before the database is changed. If the change
+ * then does not happen (car already rented, database error) a CANCEL naming
+ * that event's sequence follows, so replay knows to ignore it. Once it has
+ * happened a DONE naming it follows, so a re-drive leaves that car alone.
+ */
+public class RentalEvent {
+
+    /**
+     * Type - What happened to the car
+     */
+    public enum Type {
+        RENT,
+        RETURN,
+        CANCEL,    // The RENT/RETURN with sequence getTargetSequence() did not happen
+        DONE       // The RENT/RETURN with sequence getTargetSequence() is in the database
+    }
+
+    private final long sequence;     // Position in the journal (1, 2, 3, ...)
+    private final Type type;
+    private final String plateNo;
+    private final long timestamp;    // Milliseconds since 1970 (System.currentTimeMillis)
+    private final int days;          // Rental days (0 for RENT)
+    private final double amount;     // Bill in Rupees (0 for RENT)
+    private final long targetSequence;      // Only for CANCEL and DONE (0 otherwise)
+
+    public RentalEvent(long sequence, Type type, String plateNo, long timestamp, int days, double amount) {
+        this(sequence, type, plateNo, timestamp, days, amount, 0);
+    }
+
+    private RentalEvent(long sequence, Type type, String plateNo, long timestamp, int days, double amount,
+                        long targetSequence) {
+        this.sequence = sequence;
+        this.type = type;
+        this.plateNo = plateNo;
+        this.timestamp = timestamp;
+        this.days = days;
+        this.amount = amount;
+        this.targetSequence = targetSequence;
+    }
+
+    /**
+     * cancel() - Creates a CANCEL event
+     * @param sequence - Position of the CANCEL itself in the journal
+     * @param cancelledSequence - Sequence of the RENT/RETURN that did not happen
+     */
+    public static RentalEvent cancel(long sequence, String plateNo, long timestamp, long cancelledSequence) {
+        return new RentalEvent(sequence, Type.CANCEL, plateNo, timestamp, 0, 0, cancelledSequence);
+    }
+
+    /**
+     * done() - Creates a DONE event
+     * @param sequence - Position of the DONE itself in the journal
+     * @param doneSequence - Sequence of the RENT/RETURN that reached the database
+     */
+    public static RentalEvent done(long sequence, String plateNo, long timestamp, long doneSequence) {
+        return new RentalEvent(sequence, Type.DONE, plateNo, timestamp, 0, 0, doneSequence);
+    }
+
+    // Getter methods
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getPlateNo() {
+        return plateNo;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public int getDays() {
+        return days;
+    }
+
+    public double getAmount() {
+        return amount;
+    }
+
+    public long getTargetSequence() {
+        return targetSequence;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + sequence + " " + type + " " + plateNo + " at " + timestamp
+                + (type == Type.RETURN ? " (" + days + " days, ₹" + amount + ")" : "")
+                + (type == Type.CANCEL || type == Type.DONE ? " (of #" + targetSequence + ")" : "");
+    }
+}
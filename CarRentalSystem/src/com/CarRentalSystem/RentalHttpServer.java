@@ -0,0 +1,531 @@
+package main;
+
+import models.Car;
+import database.AvailabilityChange;
+import database.AvailabilityDelta;
+import database.AvailabilityFeed;
+import database.CarDAO;
+import database.DaoMetrics;
+import database.DatabaseConnection;
+import database.RentResult;
+import journal.RentalEvent;
+import journal.RentalJournal;
+import logging.Log;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RentalHttpServer - HTTP/JSON front-end for the car rental system
+ * Lets many branch counters use one running program at the same time.
+ * Every request is handled on its own virtual thread.
+ *
+ * Endpoints:
+ *   GET  /cars?category=SUV           - available cars of a category
+ *   GET  /cars/{plateNo}              - one car
+ *   POST /cars/{plateNo}/rent         - rent a car
+ *   POST /cars/{plateNo}/return?days=N - return a car and get the bill
+ *   GET  /metrics                     - database latency/error metrics (Prometheus text)
+ *
+ * Availability subscriptions (for dashboards, instead of polling /cars):
+ *   POST   /subscriptions?category=SUV[&maxPending=N] - subscribe, returns an id
+ *   GET    /subscriptions/{id}?wait=S  - waits up to S seconds (default 25) for changes
+ *   DELETE /subscriptions/{id}         - unsubscribe
+ * A subscription not polled for SUBSCRIPTION_IDLE_MILLIS is closed (checked
+ * every SUBSCRIPTION_SWEEP_MILLIS). Rents and returns made through this
+ * server arrive within milliseconds; changes made by other programs (the
+ * console, manual SQL) are read from updated_at every DATABASE_FOLLOW_MILLIS,
+ * so they arrive within a few seconds (needs migration_v5_last_modified.sql).
+ */
+public class RentalHttpServer {
+
+    private static final int DEFAULT_PORT = 8080;
+    private static final int SHUTDOWN_DELAY_SECONDS = 5;   // Time given to running requests on stop
+    private static final int DEFAULT_WAIT_SECONDS = 25;    // Long-poll time when the client does not choose
+    private static final int MAX_WAIT_SECONDS = 60;
+    private static final long SUBSCRIPTION_IDLE_MILLIS = 120000;
+    private static final long SUBSCRIPTION_SWEEP_MILLIS = 30000;
+    private static final long DATABASE_FOLLOW_MILLIS = 2000;
+
+    private final CarDAO carDAO = new CarDAO();
+    private final RentalJournal journal;   // Every rent/return, shared by all request threads
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, AvailabilityFeed.Subscription> subscriptions = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "subscription-sweeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Constructor - Creates the server (call start() to begin serving)
+     * @param port - TCP port to listen on
+     */
+    public RentalHttpServer(int port) throws IOException {
+        journal = RentalJournal.open(Paths.get("journal"));
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/cars", this::handleCars);
+        server.createContext("/subscriptions", this::handleSubscriptions);
+        server.createContext("/metrics", this::handleMetrics);
+        server.setExecutor(executor);
+    }
+
+    /**
+     * main() - Starts the server: java main.RentalHttpServer [port]
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        RentalHttpServer httpServer = new RentalHttpServer(port);
+
+        // Ctrl+C finishes running requests before exiting
+        Runtime.getRuntime().addShutdownHook(new Thread(httpServer::stop, "http-shutdown"));
+
+        httpServer.start();
+        Log.info("✓ Car Rental HTTP server running on port {}", port);
+    }
+
+    public void start() {
+        // Changes from the console and other programs only reach subscribers through updated_at
+        CarDAO.getAvailabilityFeed().followDatabase(carDAO::getDatabaseTimeMillis, carDAO::getCarsModifiedSince,
+                DATABASE_FOLLOW_MILLIS);
+        sweeper.scheduleAtFixedRate(this::closeIdleSubscriptions,
+                SUBSCRIPTION_SWEEP_MILLIS, SUBSCRIPTION_SWEEP_MILLIS, TimeUnit.MILLISECONDS);
+        server.start();
+    }
+
+    /**
+     * stop() - Stops accepting connections, lets running requests finish,
+     * then closes the database pool
+     */
+    public void stop() {
+        sweeper.shutdownNow();
+        for (AvailabilityFeed.Subscription subscription : subscriptions.values()) {
+            subscription.close();   // Wakes up waiting long-polls
+        }
+        server.stop(SHUTDOWN_DELAY_SECONDS);
+        executor.shutdown();
+        try {
+            journal.close();
+        } catch (IOException e) {
+            Log.error("✗ Error closing the rental journal!", e);
+        }
+        DatabaseConnection.shutdown();
+        Log.info("✓ Car Rental HTTP server stopped.");
+    }
+
+    /**
+     * handleCars() - Routes every request under /cars
+     */
+    private void handleCars(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            String[] parts = exchange.getRequestURI().getPath().split("/");  // "", "cars", plate, action
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+
+            if (parts.length == 2 && method.equals("GET")) {
+                listAvailableCars(exchange, query.get("category"));
+            } else if (parts.length == 3 && method.equals("GET")) {
+                getCar(exchange, parts[2]);
+            } else if (parts.length == 4 && parts[3].equals("rent") && method.equals("POST")) {
+                rentCar(exchange, parts[2]);
+            } else if (parts.length == 4 && parts[3].equals("return") && method.equals("POST")) {
+                returnCar(exchange, parts[2], query.get("days"));
+            } else {
+                sendError(exchange, 404, "Unknown endpoint");
+            }
+        } catch (RuntimeException e) {
+            Log.error("✗ Error handling {}", exchange.getRequestURI(), e);
+            sendError(exchange, 500, "Internal error");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * handleSubscriptions() - Routes every request under /subscriptions
+     */
+    private void handleSubscriptions(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            String[] parts = exchange.getRequestURI().getPath().split("/");  // "", "subscriptions", id
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+
+            if (parts.length == 2 && method.equals("POST")) {
+                subscribe(exchange, query.get("category"), query.get("maxPending"));
+            } else if (parts.length == 3 && method.equals("GET")) {
+                pollSubscription(exchange, parts[2], query.get("wait"));
+            } else if (parts.length == 3 && method.equals("DELETE")) {
+                unsubscribe(exchange, parts[2]);
+            } else {
+                sendError(exchange, 404, "Unknown endpoint");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            sendError(exchange, 503, "Server is stopping");
+        } catch (RuntimeException e) {
+            Log.error("✗ Error handling {}", exchange.getRequestURI(), e);
+            sendError(exchange, 500, "Internal error");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * handleMetrics() - GET /metrics, for Prometheus or a quick curl
+     */
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                sendError(exchange, 405, "Use GET");
+                return;
+            }
+            byte[] body = DaoMetrics.scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // GET /cars?category=SUV
+    private void listAvailableCars(HttpExchange exchange, String category) throws IOException {
+        if (category == null || category.isEmpty()) {
+            sendError(exchange, 400, "Missing 'category' parameter");
+            return;
+        }
+
+        List<Car> cars = carDAO.getAvailableCarsByCategory(category);
+
+        // Length 0 = chunked, so cars are written out one by one instead of building one big string
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(200, 0);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8));
+        writer.write('[');
+        for (int i = 0; i < cars.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writeCar(writer, cars.get(i));
+        }
+        writer.write(']');
+        writer.flush();
+    }
+
+    // GET /cars/{plateNo}
+    private void getCar(HttpExchange exchange, String plateNo) throws IOException {
+        Car car = carDAO.getCarByPlateNo(plateNo);
+        if (car == null) {
+            sendError(exchange, 404, "Car '" + plateNo + "' not found");
+            return;
+        }
+
+        StringBuilder json = new StringBuilder();
+        writeCar(json, car);
+        sendJson(exchange, 200, json.toString());
+    }
+
+    // POST /cars/{plateNo}/rent
+    private void rentCar(HttpExchange exchange, String plateNo) throws IOException {
+        // Journal first, so a crash before the database update can be re-driven
+        long sequence = writeIntent(exchange, RentalEvent.Type.RENT, plateNo, 0, 0);
+        if (sequence < 0) {
+            return;
+        }
+        RentResult result = carDAO.rentCarAtomically(plateNo);
+        if (result.isSuccess()) {
+            markIntentDone(sequence, plateNo);
+        } else {
+            cancelIntent(sequence, plateNo);
+        }
+        StringBuilder json = new StringBuilder();
+        json.append("{\"status\":\"").append(result.getStatus()).append('"');
+        if (result.getCar() != null) {
+            json.append(",\"car\":");
+            writeCar(json, result.getCar());
+        }
+        json.append('}');
+        sendJson(exchange, statusCodeFor(result), json.toString());
+    }
+
+    // POST /cars/{plateNo}/return?days=N
+    private void returnCar(HttpExchange exchange, String plateNo, String daysParam) throws IOException {
+        int days;
+        try {
+            days = Integer.parseInt(daysParam);
+        } catch (NumberFormatException e) {
+            sendError(exchange, 400, "'days' must be a whole number");
+            return;
+        }
+        if (days <= 0) {
+            sendError(exchange, 400, "'days' must be positive");
+            return;
+        }
+
+        // Look the car up first: the bill goes into the journal before the database is changed
+        RentResult result;
+        Car rentedCar = carDAO.getCarByPlateNo(plateNo);
+        if (rentedCar == null) {
+            result = new RentResult(RentResult.Status.NOT_FOUND, plateNo, null);
+        } else if (!rentedCar.getStatus().equals("Rented")) {
+            result = new RentResult(RentResult.Status.NOT_RENTED, plateNo, rentedCar);
+        } else {
+            long sequence = writeIntent(exchange, RentalEvent.Type.RETURN, plateNo, days,
+                    days * rentedCar.getRatePerDay());
+            if (sequence < 0) {
+                return;
+            }
+            result = carDAO.returnCarAtomically(plateNo, days);
+            if (result.isSuccess()) {
+                markIntentDone(sequence, plateNo);
+            } else {
+                cancelIntent(sequence, plateNo);
+            }
+        }
+        StringBuilder json = new StringBuilder();
+        json.append("{\"status\":\"").append(result.getStatus()).append('"');
+        if (result.getCar() != null) {
+            json.append(",\"car\":");
+            writeCar(json, result.getCar());
+        }
+        if (result.isSuccess()) {
+            double totalBill = days * result.getCar().getRatePerDay();
+            json.append(",\"days\":").append(days);
+            json.append(",\"totalBill\":").append(totalBill);
+        }
+        json.append('}');
+        sendJson(exchange, statusCodeFor(result), json.toString());
+    }
+
+    // Writes a rent/return to the journal before the database is changed (waits until it is on disk)
+    // Returns its sequence, or -1 after answering 500 if it could not be saved (leave the car alone)
+    private long writeIntent(HttpExchange exchange, RentalEvent.Type type, String plateNo, int days, double amount)
+            throws IOException {
+        try {
+            return journal.append(type, plateNo, System.currentTimeMillis(), days, amount);
+        } catch (IOException e) {
+            Log.error("✗ Could not write {} of car {} to the rental journal", type, plateNo, e);
+            sendError(exchange, 500, "Could not record the " + type.name().toLowerCase()
+                    + " in the journal - the car was not changed");
+            return -1;
+        }
+    }
+
+    // Marks a journal event as not done because the database change failed
+    private void cancelIntent(long sequence, String plateNo) {
+        try {
+            journal.cancel(sequence, plateNo);
+        } catch (IOException e) {
+            Log.error("✗ Could not cancel journal event #{} for car {}", sequence, plateNo, e);
+        }
+    }
+
+    // Marks a journal event as done because the database change succeeded (a re-drive then skips it)
+    private void markIntentDone(long sequence, String plateNo) {
+        try {
+            journal.done(sequence, plateNo);
+        } catch (IOException e) {
+            Log.error("✗ Could not mark journal event #{} for car {} as done", sequence, plateNo, e);
+        }
+    }
+
+    // POST /subscriptions?category=SUV[&maxPending=N]
+    private void subscribe(HttpExchange exchange, String category, String maxPendingParam) throws IOException {
+        if (category == null || category.isEmpty()) {
+            sendError(exchange, 400, "Missing 'category' parameter");
+            return;
+        }
+        int maxPending = AvailabilityFeed.DEFAULT_MAX_PENDING;
+        if (maxPendingParam != null) {
+            try {
+                maxPending = Integer.parseInt(maxPendingParam);
+            } catch (NumberFormatException e) {
+                maxPending = 0;
+            }
+            if (maxPending <= 0 || maxPending > AvailabilityFeed.DEFAULT_MAX_PENDING) {
+                sendError(exchange, 400, "'maxPending' must be 1.." + AvailabilityFeed.DEFAULT_MAX_PENDING);
+                return;
+            }
+        }
+        String id = UUID.randomUUID().toString();
+        subscriptions.put(id, CarDAO.getAvailabilityFeed().subscribe(category, maxPending));
+        StringBuilder json = new StringBuilder("{\"id\":");
+        writeString(json, id);
+        json.append(",\"category\":");
+        writeString(json, category);
+        json.append(",\"maxPending\":").append(maxPending).append('}');
+        sendJson(exchange, 201, json.toString());
+    }
+
+    // GET /subscriptions/{id}?wait=S - long-poll for changes
+    private void pollSubscription(HttpExchange exchange, String id, String waitParam)
+            throws IOException, InterruptedException {
+        AvailabilityFeed.Subscription subscription = subscriptions.get(id);
+        if (subscription == null) {
+            sendError(exchange, 404, "Subscription '" + id + "' not found (it may have expired)");
+            return;
+        }
+        int waitSeconds;
+        try {
+            waitSeconds = waitParam == null ? DEFAULT_WAIT_SECONDS : Integer.parseInt(waitParam);
+        } catch (NumberFormatException e) {
+            sendError(exchange, 400, "'wait' must be a whole number of seconds");
+            return;
+        }
+        waitSeconds = Math.max(0, Math.min(waitSeconds, MAX_WAIT_SECONDS));
+
+        AvailabilityDelta delta = subscription.poll(waitSeconds, TimeUnit.SECONDS);
+        StringBuilder json = new StringBuilder();
+        json.append("{\"resync\":").append(delta != null && delta.isResync());
+        json.append(",\"conflated\":").append(delta == null ? 0 : delta.getConflated());
+        json.append(",\"changes\":[");
+        if (delta != null) {
+            List<AvailabilityChange> changes = delta.getChanges();
+            for (int i = 0; i < changes.size(); i++) {
+                if (i > 0) {
+                    json.append(',');
+                }
+                json.append("{\"plateNo\":");
+                writeString(json, changes.get(i).getPlateNo());
+                json.append(",\"available\":").append(changes.get(i).isAvailable()).append('}');
+            }
+        }
+        json.append("]}");
+        sendJson(exchange, 200, json.toString());
+    }
+
+    // DELETE /subscriptions/{id}
+    private void unsubscribe(HttpExchange exchange, String id) throws IOException {
+        AvailabilityFeed.Subscription subscription = subscriptions.remove(id);
+        if (subscription == null) {
+            sendError(exchange, 404, "Subscription '" + id + "' not found (it may have expired)");
+            return;
+        }
+        subscription.close();
+        sendJson(exchange, 200, "{\"status\":\"closed\"}");
+    }
+
+    // Closes subscriptions whose dashboard stopped polling (closed tab, crashed client); runs on the sweeper
+    private void closeIdleSubscriptions() {
+        long now = System.currentTimeMillis();
+        subscriptions.entrySet().removeIf(entry -> {
+            if (now - entry.getValue().getLastPolledMillis() < SUBSCRIPTION_IDLE_MILLIS) {
+                return false;
+            }
+            entry.getValue().close();
+            return true;
+        });
+    }
+
+    // Maps a rent/return outcome to an HTTP status code
+    private static int statusCodeFor(RentResult result) {
+        switch (result.getStatus()) {
+            case SUCCESS:
+                return 200;
+            case NOT_FOUND:
+                return 404;
+            case ALREADY_RENTED:
+            case NOT_RENTED:
+                return 409;
+            default:
+                return 500;
+        }
+    }
+
+    // Writes one Car as a JSON object
+    private static void writeCar(Appendable out, Car car) throws IOException {
+        out.append("{\"plateNo\":");
+        writeString(out, car.getPlateNo());
+        out.append(",\"model\":");
+        writeString(out, car.getModel());
+        out.append(",\"category\":");
+        writeString(out, car.getCategory());
+        out.append(",\"ratePerDay\":").append(String.valueOf(car.getRatePerDay()));
+        out.append(",\"status\":");
+        writeString(out, car.getStatus());
+        out.append('}');
+    }
+
+    // Writes a JSON string with the necessary escapes
+    private static void writeString(Appendable out, String value) throws IOException {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+
+    private static void sendJson(HttpExchange exchange, int statusCode, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(statusCode, body.length);  // Known length keeps the connection alive
+        exchange.getResponseBody().write(body);
+    }
+
+    private static void sendError(HttpExchange exchange, int statusCode, String message) throws IOException {
+        StringBuilder json = new StringBuilder("{\"error\":");
+        writeString(json, message);
+        json.append('}');
+        sendJson(exchange, statusCode, json.toString());
+    }
+
+    // Splits "a=1&b=2" into a map
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                           URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+}
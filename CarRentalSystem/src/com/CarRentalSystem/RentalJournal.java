@@ -0,0 +1,600 @@
+package journal;
+
+import database.FileSync;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * RentalJournal class - Append-only history of rents and returns on disk
+ * Events are written into memory-mapped segment files, so an append is just a
+ * copy into memory. Durability uses group commit: append() waits until a
+ * background thread has forced the file to disk, and one force covers every
+ * event appended since the previous one, so many counters share one fsync.
+ *
+ * The journal is written ahead of the database: append a RENT or RETURN, and
+ * only once it returns change the car in MySQL. If the change then does not
+ * happen, call cancel() with the sequence append() returned; once it has
+ * happened, call done() with it. After a crash, JournalReplay --redrive
+ * applies the events that have neither, and trusts the database for the rest.
+ *
+ * Files: journal-00000000000000000001.log, journal-00000000000000065537.log, ...
+ * Each segment starts with a 16 byte header (magic, version, first sequence)
+ * followed by fixed 64 byte records. Version 1 segments (no CANCEL records)
+ * and version 2 segments (no DONE records) are still read. A new segment is
+ * started when one is full, and the directory is forced to disk before any
+ * event is written into it.
+ *
+ * Only one program at a time may have a journal directory open: open() locks
+ * the file "journal.lock" in it until close(), and fails if it is already locked.
+ */
+public class RentalJournal implements AutoCloseable {
+
+    // File format
+    private static final int MAGIC = 0x524A524E;          // "RJRN"
+    private static final int FORMAT_VERSION = 3;            // 2 added CANCEL records, 3 added DONE
+    private static final int OLDEST_FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 64;
+    private static final int MAX_PLATE_BYTES = 20;          // Same as plate_no VARCHAR(20)
+    private static final int CHECKSUM_OFFSET = 52;          // CRC32 of bytes 0..51
+    private static final String FILE_PREFIX = "journal-";
+    private static final String FILE_SUFFIX = ".log";
+    private static final String LOCK_FILE = "journal.lock";
+
+    public static final int DEFAULT_RECORDS_PER_SEGMENT = 65536;   // 4 MB segments
+
+    private final Path directory;
+    private final int recordsPerSegment;
+    private final FileChannel lockChannel;
+    private final FileLock directoryLock;     // Held until close()
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushNeeded = lock.newCondition();
+    private final Condition flushDone = lock.newCondition();
+
+    // Guarded by lock
+    private Segment active;
+    private long nextSequence;
+    private long writtenSequence;     // Last sequence copied into the mapped file
+    private long durableSequence;     // Last sequence forced to disk
+    private IOException flushError;
+    private boolean closed = false;
+
+    private final Thread flusher;
+
+    /**
+     * open() - Opens (or creates) the journal in a directory
+     * Appends continue after the last valid record found on disk.
+     * @param directory - Folder holding the segment files
+     * @return Open journal
+     */
+    public static RentalJournal open(Path directory) throws IOException {
+        return new RentalJournal(directory, DEFAULT_RECORDS_PER_SEGMENT);
+    }
+
+    public RentalJournal(Path directory, int recordsPerSegment) throws IOException {
+        this.directory = directory;
+        this.recordsPerSegment = recordsPerSegment;
+        Files.createDirectories(directory);
+
+        // Two programs appending to the same mapped segment would overwrite each other's records
+        lockChannel = FileChannel.open(directory.resolve(LOCK_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock fileLock;
+        try {
+            fileLock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            fileLock = null;   // Already open in this program
+        }
+        if (fileLock == null) {
+            lockChannel.close();
+            throw new IOException("Rental journal " + directory + " is already in use by another program");
+        }
+        directoryLock = fileLock;
+
+        try {
+            List<Path> segments = listSegments(directory);
+            if (segments.isEmpty()) {
+                active = Segment.create(segmentPath(1), 1, recordsPerSegment);
+            } else {
+                active = Segment.openForAppend(segments.get(segments.size() - 1), recordsPerSegment);
+                if (active.version < FORMAT_VERSION) {
+                    // Never write new record types into an older segment
+                    if (active.count == 0) {
+                        active.buffer.putInt(4, FORMAT_VERSION);
+                        active.version = FORMAT_VERSION;
+                    } else {
+                        active.force();
+                        active.close();
+                        active = Segment.create(segmentPath(active.lastSequence + 1), active.lastSequence + 1,
+                                recordsPerSegment);
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            directoryLock.release();
+            lockChannel.close();
+            throw e;
+        }
+        nextSequence = active.lastSequence + 1;
+        writtenSequence = active.lastSequence;
+        durableSequence = active.lastSequence;
+
+        flusher = new Thread(this::flushLoop, "rental-journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * append() - Writes one event and waits until it is safely on disk
+     * Call it before changing the database, and cancel() the event if the
+     * change does not happen.
+     * @param type - RENT or RETURN
+     * @param plateNo - Plate number of the car
+     * @param timestamp - When it happened (System.currentTimeMillis)
+     * @param days - Rental days (0 for RENT)
+     * @param amount - Bill in Rupees (0 for RENT)
+     * @return Sequence number of the event
+     */
+    public long append(RentalEvent.Type type, String plateNo, long timestamp, int days, double amount)
+            throws IOException {
+        if (type == RentalEvent.Type.CANCEL || type == RentalEvent.Type.DONE) {
+            throw new IllegalArgumentException("Use cancel() or done() to write a " + type + " event");
+        }
+        return write(type, plateNo, timestamp, days, Math.round(amount * 100), true);
+    }
+
+    /**
+     * cancel() - Records that an appended RENT/RETURN did not happen, and waits until it is on disk
+     * @param sequence - Value append() returned for that event
+     * @param plateNo - Plate number of the car
+     * @return Sequence number of the CANCEL event
+     */
+    public long cancel(long sequence, String plateNo) throws IOException {
+        return write(RentalEvent.Type.CANCEL, plateNo, System.currentTimeMillis(), 0, sequence, true);
+    }
+
+    /**
+     * done() - Records that an appended RENT/RETURN is in the database
+     * Does not wait for the disk: the next group commit saves it. If a crash
+     * loses it, --redrive still finds the car already in that state and leaves it.
+     * @param sequence - Value append() returned for that event
+     * @param plateNo - Plate number of the car
+     * @return Sequence number of the DONE event
+     */
+    public long done(long sequence, String plateNo) throws IOException {
+        return write(RentalEvent.Type.DONE, plateNo, System.currentTimeMillis(), 0, sequence, false);
+    }
+
+    // Appends one record and, if asked, waits for group commit
+    // payload - Bill in paise, or the referenced sequence for CANCEL and DONE
+    private long write(RentalEvent.Type type, String plateNo, long timestamp, int days, long payload,
+                       boolean waitForDisk) throws IOException {
+        byte[] plate = plateNo.getBytes(StandardCharsets.UTF_8);
+        if (plate.length > MAX_PLATE_BYTES) {
+            throw new IllegalArgumentException("Plate number too long for the journal: " + plateNo);
+        }
+
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IOException("Rental journal is closed");
+            }
+            if (active.isFull()) {
+                rollSegment();
+            }
+
+            long sequence = nextSequence++;
+            active.write(sequence, type, plate, timestamp, days, payload);
+            writtenSequence = sequence;
+            flushNeeded.signal();
+
+            // Group commit: wait for the flusher to cover this sequence
+            while (waitForDisk && durableSequence < sequence) {
+                if (flushError != null) {
+                    throw new IOException("Rental journal could not be written to disk", flushError);
+                }
+                flushDone.awaitUninterruptibly();
+            }
+            return sequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * compact() - Shrinks old segments to the latest event of each car
+     * Only full (sealed) segments are compacted; the segment being written is
+     * left alone. Use this once the rental history has been saved elsewhere.
+     * @return Number of segment files removed
+     */
+    public int compact() throws IOException {
+        List<Path> sealed;
+        lock.lock();
+        try {
+            sealed = new ArrayList<>(listSegments(directory));
+            sealed.remove(active.path);
+        } finally {
+            lock.unlock();
+        }
+        if (sealed.size() < 2) {
+            return 0;
+        }
+
+        // Latest event per car that really happened, in sequence order
+        // (a CANCEL or DONE can be in a later segment than the event it names)
+        Set<Long> cancelled = readCancelledSequences(directory);
+        Map<String, RentalEvent> latest = new LinkedHashMap<>();
+        Map<Long, RentalEvent> doneMarkers = new HashMap<>();
+        for (Path path : sealed) {
+            readSegment(path, event -> {
+                if (event.getType() == RentalEvent.Type.DONE) {
+                    doneMarkers.put(event.getTargetSequence(), event);
+                } else if (event.getType() != RentalEvent.Type.CANCEL && !cancelled.contains(event.getSequence())) {
+                    latest.remove(event.getPlateNo());
+                    latest.put(event.getPlateNo(), event);
+                }
+            });
+        }
+
+        // Write them, each followed by its DONE if that was sealed too, into one
+        // new segment that takes the place of the oldest one
+        List<RentalEvent> kept = new ArrayList<>();
+        for (RentalEvent event : latest.values()) {
+            kept.add(event);
+            RentalEvent done = doneMarkers.get(event.getSequence());
+            if (done != null) {
+                kept.add(done);
+            }
+        }
+        Path target = sealed.get(0);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        long firstSequence = parseFirstSequence(target);
+        int capacity = Math.max(kept.size(), 1);
+        Segment compacted = Segment.create(temp, firstSequence, capacity);
+        for (RentalEvent event : kept) {
+            long payload = event.getType() == RentalEvent.Type.DONE
+                    ? event.getTargetSequence() : Math.round(event.getAmount() * 100);
+            compacted.write(event.getSequence(), event.getType(),
+                    event.getPlateNo().getBytes(StandardCharsets.UTF_8),
+                    event.getTimestamp(), event.getDays(), payload);
+        }
+        compacted.force();
+        compacted.close();
+
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        FileSync.syncDirectory(directory);   // Rename saved before the segments it replaces are deleted
+        for (int i = 1; i < sealed.size(); i++) {
+            Files.delete(sealed.get(i));
+        }
+        FileSync.syncDirectory(directory);
+        return sealed.size() - 1;
+    }
+
+    /**
+     * close() - Forces remaining events to disk and stops the flusher
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            flushNeeded.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            active.force();
+            active.close();
+        } finally {
+            directoryLock.release();
+            lockChannel.close();
+        }
+    }
+
+    /**
+     * readCancelledSequences() - Sequences of every RENT/RETURN that a CANCEL event undid
+     * @param directory - Folder holding the segment files
+     */
+    public static Set<Long> readCancelledSequences(Path directory) throws IOException {
+        Set<Long> cancelled = new HashSet<>();
+        readAll(directory, event -> {
+            if (event.getType() == RentalEvent.Type.CANCEL) {
+                cancelled.add(event.getTargetSequence());
+            }
+        });
+        return cancelled;
+    }
+
+    /**
+     * readDoneSequences() - Sequences of every RENT/RETURN that a DONE event confirmed
+     * @param directory - Folder holding the segment files
+     */
+    public static Set<Long> readDoneSequences(Path directory) throws IOException {
+        Set<Long> done = new HashSet<>();
+        readAll(directory, event -> {
+            if (event.getType() == RentalEvent.Type.DONE) {
+                done.add(event.getTargetSequence());
+            }
+        });
+        return done;
+    }
+
+    /**
+     * readAll() - Reads every valid event in a journal directory, oldest first
+     * @param directory - Folder holding the segment files
+     * @param consumer - Called once per event
+     */
+    public static void readAll(Path directory, Consumer<RentalEvent> consumer) throws IOException {
+        for (Path path : listSegments(directory)) {
+            readSegment(path, consumer);
+        }
+    }
+
+    // Seals the full segment and starts a new one (called with the lock held)
+    private void rollSegment() throws IOException {
+        active.force();
+        durableSequence = writtenSequence;
+        flushDone.signalAll();
+        active.close();
+        active = Segment.create(segmentPath(nextSequence), nextSequence, recordsPerSegment);
+    }
+
+    // Background thread: one force() for every group of appended events
+    private void flushLoop() {
+        while (true) {
+            Segment segment;
+            long target;
+
+            lock.lock();
+            try {
+                while (writtenSequence == durableSequence && !closed) {
+                    flushNeeded.awaitUninterruptibly();
+                }
+                if (writtenSequence == durableSequence) {
+                    return;  // Closed and nothing left to flush
+                }
+                segment = active;
+                target = writtenSequence;
+            } finally {
+                lock.unlock();
+            }
+
+            IOException error = null;
+            try {
+                segment.force();
+            } catch (IOException | RuntimeException e) {
+                error = e instanceof IOException ? (IOException) e : new IOException(e);
+            }
+
+            lock.lock();
+            try {
+                if (error != null) {
+                    flushError = error;
+                } else if (target > durableSequence) {
+                    durableSequence = target;
+                }
+                flushDone.signalAll();
+                if (error != null) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private Path segmentPath(long firstSequence) {
+        return directory.resolve(String.format("%s%020d%s", FILE_PREFIX, firstSequence, FILE_SUFFIX));
+    }
+
+    private static long parseFirstSequence(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+    }
+
+    // Segment files sorted by first sequence
+    static List<Path> listSegments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+            for (Path path : stream) {
+                segments.add(path);
+            }
+        }
+        Collections.sort(segments, Comparator.comparingLong(RentalJournal::parseFirstSequence));
+        return segments;
+    }
+
+    // Reads records until the first empty or damaged one (end of the written part)
+    private static void readSegment(Path path, Consumer<RentalEvent> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            checkHeader(buffer, path);
+            for (int offset = HEADER_SIZE; offset + RECORD_SIZE <= buffer.limit(); offset += RECORD_SIZE) {
+                RentalEvent event = readRecord(buffer, offset);
+                if (event == null) {
+                    break;
+                }
+                consumer.accept(event);
+            }
+        }
+    }
+
+    private static void checkHeader(ByteBuffer buffer, Path path) throws IOException {
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a rental journal segment: " + path);
+        }
+        if (buffer.getInt(4) < OLDEST_FORMAT_VERSION || buffer.getInt(4) > FORMAT_VERSION) {
+            throw new IOException("Unsupported journal version " + buffer.getInt(4) + " in " + path);
+        }
+    }
+
+    // Decodes one record, or returns null if it is empty or fails its checksum
+    private static RentalEvent readRecord(ByteBuffer buffer, int offset) {
+        byte typeCode = buffer.get(offset);
+        if (typeCode < 1 || typeCode > 4) {
+            return null;
+        }
+        if (checksum(buffer, offset) != buffer.getInt(offset + CHECKSUM_OFFSET)) {
+            return null;  // Torn write from a crash - nothing after this is trusted
+        }
+
+        int plateLength = buffer.get(offset + 1);
+        byte[] plate = new byte[plateLength];
+        for (int i = 0; i < plateLength; i++) {
+            plate[i] = buffer.get(offset + 2 + i);
+        }
+        if (typeCode == 3) {
+            return RentalEvent.cancel(buffer.getLong(offset + 24), new String(plate, StandardCharsets.UTF_8),
+                    buffer.getLong(offset + 32), buffer.getLong(offset + 44));
+        }
+        if (typeCode == 4) {
+            return RentalEvent.done(buffer.getLong(offset + 24), new String(plate, StandardCharsets.UTF_8),
+                    buffer.getLong(offset + 32), buffer.getLong(offset + 44));
+        }
+        return new RentalEvent(
+                buffer.getLong(offset + 24),
+                typeCode == 1 ? RentalEvent.Type.RENT : RentalEvent.Type.RETURN,
+                new String(plate, StandardCharsets.UTF_8),
+                buffer.getLong(offset + 32),
+                buffer.getInt(offset + 40),
+                buffer.getLong(offset + 44) / 100.0);
+    }
+
+    private static int checksum(ByteBuffer buffer, int offset) {
+        CRC32 crc = new CRC32();
+        ByteBuffer record = buffer.duplicate();
+        record.position(offset).limit(offset + CHECKSUM_OFFSET);
+        crc.update(record);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Segment - One memory-mapped journal file
+     */
+    private static class Segment {
+        final Path path;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        final int capacity;             // Records that fit in this file
+        int version;                    // FORMAT_VERSION the file was created with
+        int count;                      // Records written so far
+        long lastSequence;              // Sequence of the last record (firstSequence - 1 if empty)
+
+        private Segment(Path path, FileChannel channel, MappedByteBuffer buffer, int capacity,
+                        int count, long lastSequence) {
+            this.version = buffer.getInt(4);
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+            this.capacity = capacity;
+            this.count = count;
+            this.lastSequence = lastSequence;
+        }
+
+        static Segment create(Path path, long firstSequence, int capacity) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long size = HEADER_SIZE + (long) capacity * RECORD_SIZE;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, FORMAT_VERSION);
+            buffer.putLong(8, firstSequence);
+            try {
+                FileSync.syncDirectory(path.getParent());   // The new file survives a crash before its first force
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+            return new Segment(path, channel, buffer, capacity, 0, firstSequence - 1);
+        }
+
+        static Segment openForAppend(Path path, int defaultCapacity) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long size = channel.size();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            checkHeader(buffer, path);
+
+            int capacity = (int) ((size - HEADER_SIZE) / RECORD_SIZE);
+            long lastSequence = buffer.getLong(8) - 1;
+            int count = 0;
+            while (count < capacity) {
+                RentalEvent event = readRecord(buffer, HEADER_SIZE + count * RECORD_SIZE);
+                if (event == null) {
+                    break;
+                }
+                lastSequence = event.getSequence();
+                count++;
+            }
+
+            // Wipe a torn record so it can be overwritten cleanly
+            if (count < capacity) {
+                buffer.put(HEADER_SIZE + count * RECORD_SIZE, (byte) 0);
+            }
+            return new Segment(path, channel, buffer, capacity, count, lastSequence);
+        }
+
+        boolean isFull() {
+            return count >= capacity;
+        }
+
+        // payload - Bill in paise, or the referenced sequence for CANCEL and DONE
+        void write(long sequence, RentalEvent.Type type, byte[] plate, long timestamp, int days, long payload) {
+            int offset = HEADER_SIZE + count * RECORD_SIZE;
+            buffer.put(offset + 1, (byte) plate.length);
+            for (int i = 0; i < MAX_PLATE_BYTES; i++) {
+                buffer.put(offset + 2 + i, i < plate.length ? plate[i] : 0);
+            }
+            buffer.putLong(offset + 24, sequence);
+            buffer.putLong(offset + 32, timestamp);
+            buffer.putInt(offset + 40, days);
+            buffer.putLong(offset + 44, payload);
+            buffer.put(offset, (byte) (type.ordinal() + 1));   // RENT=1, RETURN=2, CANCEL=3, DONE=4
+            buffer.putInt(offset + CHECKSUM_OFFSET, checksum(buffer, offset));
+            count++;
+            lastSequence = sequence;
+        }
+
+        void force() throws IOException {
+            buffer.force();
+        }
+
+        void close() throws IOException {
+            channel.close();
+        }
+    }
+}
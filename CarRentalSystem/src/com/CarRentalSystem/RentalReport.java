@@ -0,0 +1,173 @@
+package reports;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * RentalReport class - Revenue and utilization for a date range
+ * Built by RentalReportEngine. Revenue counts rentals returned inside the
+ * range; utilization counts rented days inside the range, so a rental that
+ * crosses the start or end of the range is only partly counted.
+ */
+public class RentalReport {
+
+    /**
+     * CarUsage - Numbers for one car
+     */
+    public static class CarUsage {
+        private final String plateNo;
+        private final String category;
+        private final long rentals;
+        private final double revenue;
+        private final long rentedDays;
+        private final double utilization;   // rentedDays / days in range (0.0 - 1.0)
+
+        public CarUsage(String plateNo, String category, long rentals, double revenue, long rentedDays,
+                        double utilization) {
+            this.plateNo = plateNo;
+            this.category = category;
+            this.rentals = rentals;
+            this.revenue = revenue;
+            this.rentedDays = rentedDays;
+            this.utilization = utilization;
+        }
+
+        // Getter methods
+        public String getPlateNo() {
+            return plateNo;
+        }
+
+        public String getCategory() {
+            return category;
+        }
+
+        public long getRentals() {
+            return rentals;
+        }
+
+        public double getRevenue() {
+            return revenue;
+        }
+
+        public long getRentedDays() {
+            return rentedDays;
+        }
+
+        public double getUtilization() {
+            return utilization;
+        }
+    }
+
+    /**
+     * CategoryUsage - Numbers for one category (SUV, Sedan, Hatchback)
+     */
+    public static class CategoryUsage {
+        private final String category;
+        private final int fleetSize;        // Cars of this category in the fleet today
+        private final long rentals;
+        private final double revenue;
+        private final long rentedDays;
+        private final double utilization;   // rentedDays / (fleetSize * days in range)
+
+        public CategoryUsage(String category, int fleetSize, long rentals, double revenue, long rentedDays,
+                             double utilization) {
+            this.category = category;
+            this.fleetSize = fleetSize;
+            this.rentals = rentals;
+            this.revenue = revenue;
+            this.rentedDays = rentedDays;
+            this.utilization = utilization;
+        }
+
+        // Getter methods
+        public String getCategory() {
+            return category;
+        }
+
+        public int getFleetSize() {
+            return fleetSize;
+        }
+
+        public long getRentals() {
+            return rentals;
+        }
+
+        public double getRevenue() {
+            return revenue;
+        }
+
+        public long getRentedDays() {
+            return rentedDays;
+        }
+
+        public double getUtilization() {
+            return utilization;
+        }
+    }
+
+    private final LocalDate from;
+    private final LocalDate to;
+    private final List<CategoryUsage> categories;   // By category name
+    private final List<CarUsage> cars;              // Highest revenue first
+
+    public RentalReport(LocalDate from, LocalDate to, List<CategoryUsage> categories, List<CarUsage> cars) {
+        this.from = from;
+        this.to = to;
+        this.categories = Collections.unmodifiableList(categories);
+        this.cars = Collections.unmodifiableList(cars);
+    }
+
+    // Getter methods
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    public LocalDate getTo() {
+        return to;
+    }
+
+    /**
+     * getPeriodDays() - Days in the range, both ends included
+     */
+    public long getPeriodDays() {
+        return to.toEpochDay() - from.toEpochDay() + 1;
+    }
+
+    public List<CategoryUsage> getCategories() {
+        return categories;
+    }
+
+    public List<CarUsage> getCars() {
+        return cars;
+    }
+
+    public double getTotalRevenue() {
+        double total = 0;
+        for (CategoryUsage category : categories) {
+            total += category.getRevenue();
+        }
+        return total;
+    }
+
+    public long getTotalRentals() {
+        long total = 0;
+        for (CategoryUsage category : categories) {
+            total += category.getRentals();
+        }
+        return total;
+    }
+
+    /**
+     * getFleetUtilization() - Share of all car-days in the range that were rented
+     */
+    public double getFleetUtilization() {
+        long rentedDays = 0;
+        long fleetSize = 0;
+        for (CategoryUsage category : categories) {
+            rentedDays += category.getRentedDays();
+            fleetSize += category.getFleetSize();
+        }
+        return fleetSize == 0 ? 0 : (double) rentedDays / (fleetSize * getPeriodDays());
+    }
+}
@@ -0,0 +1,437 @@
+package reports;
+
+import database.DatabaseConnection;
+import logging.Log;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * RentalReportEngine - Revenue and utilization reports from the rentals table
+ *
+ * Two ways to build the same report:
+ *   report()        - MySQL groups the rentals per car; only one row per car
+ *                     comes back. Use this normally.
+ *   reportByScan()  - Streams the raw rentals through a cursor and adds them
+ *                     up on all CPU cores with fork-join. Use it when the
+ *                     database should do as little work as possible (e.g. a
+ *                     busy primary) or to cross-check report().
+ *
+ * Usage: java reports.RentalReportEngine 2026-09-01 2026-09-30 [--scan]
+ */
+public class RentalReportEngine {
+
+    private static final int SCAN_FETCH_SIZE = 5000;       // Rentals fetched per round trip
+    private static final int CHUNK_ROWS = 16384;           // Rentals handed to fork-join at a time
+    private static final int SPLIT_THRESHOLD = 2048;       // Rentals one fork-join task adds up alone
+    private static final int TOP_CARS_SHOWN = 10;
+
+    private final ForkJoinPool pool;
+
+    public RentalReportEngine() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public RentalReportEngine(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * main() - Prints a report for a date range
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Usage: java reports.RentalReportEngine <from yyyy-mm-dd> <to yyyy-mm-dd> [--scan]");
+            return;
+        }
+
+        LocalDate from;
+        LocalDate to;
+        try {
+            from = LocalDate.parse(args[0]);
+            to = LocalDate.parse(args[1]);
+        } catch (DateTimeParseException e) {
+            System.out.println("✗ Dates must look like 2026-09-01");
+            return;
+        }
+        boolean scan = args.length > 2 && args[2].equals("--scan");
+
+        long started = System.currentTimeMillis();
+        RentalReportEngine engine = new RentalReportEngine();
+        RentalReport report = scan ? engine.reportByScan(from, to) : engine.report(from, to);
+        long elapsed = System.currentTimeMillis() - started;
+        DatabaseConnection.shutdown();
+        Log.flush();   // Errors first, then the report
+
+        if (report != null) {
+            printReport(report);
+            System.out.println("(built in " + elapsed + " ms" + (scan ? " by parallel scan)" : " by MySQL)"));
+        }
+    }
+
+    /**
+     * report() - Builds the report with the adding-up done by MySQL
+     * @param from - First day of the range
+     * @param to - Last day of the range (included)
+     * @return The report, or null if the database could not be read
+     */
+    public RentalReport report(LocalDate from, LocalDate to) {
+        checkRange(from, to);
+        LocalDate toExclusive = to.plusDays(1);
+
+        // Rentals returned inside the range earn revenue; every rental overlapping
+        // the range adds the overlapping days: [max(start, from), min(end, to + 1))
+        String sql = "SELECT plate_no, category, "
+                   + "SUM(CASE WHEN end_date < ? THEN 1 ELSE 0 END), "
+                   + "SUM(CASE WHEN end_date < ? THEN amount ELSE 0 END), "
+                   + "SUM(TIMESTAMPDIFF(DAY, GREATEST(start_date, ?), LEAST(end_date, ?))) "
+                   + "FROM rentals "
+                   + "WHERE end_date >= ? AND end_date < ? AND start_date < ? "
+                   + "GROUP BY plate_no, category";
+
+        Connection connection = null;
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+        Accumulator totals = new Accumulator();
+
+        try {
+            connection = DatabaseConnection.getConnection();
+            LocalDate scanEnd = toExclusive.plusDays(getLongestRentalDays(connection));
+
+            statement = connection.prepareStatement(sql);
+            statement.setDate(1, Date.valueOf(toExclusive));
+            statement.setDate(2, Date.valueOf(toExclusive));
+            statement.setDate(3, Date.valueOf(from));
+            statement.setDate(4, Date.valueOf(toExclusive));
+            statement.setDate(5, Date.valueOf(from));
+            statement.setDate(6, Date.valueOf(scanEnd));
+            statement.setDate(7, Date.valueOf(toExclusive));
+            resultSet = statement.executeQuery();
+
+            while (resultSet.next()) {
+                totals.addTotals(resultSet.getString(1), resultSet.getString(2),
+                        resultSet.getLong(3), resultSet.getDouble(4), resultSet.getLong(5));
+            }
+
+            return buildReport(from, to, totals, getFleetSizes(connection));
+
+        } catch (SQLException e) {
+            Log.error("✗ Error building rental report!", e);
+            return null;
+
+        } finally {
+            try {
+                if (resultSet != null) resultSet.close();
+                if (statement != null) statement.close();
+                if (connection != null) DatabaseConnection.closeConnection(connection);
+            } catch (SQLException e) {
+                Log.error("✗ Error closing database resources!", e);
+            }
+        }
+    }
+
+    /**
+     * reportByScan() - Builds the report by streaming rentals and adding them up in parallel
+     * Rows come through a cursor on a connection of its own (not from the pool).
+     * The reader keeps fetching while earlier chunks are being added up, and
+     * only a few chunks are held at once, so memory stays flat for any range.
+     * @param from - First day of the range
+     * @param to - Last day of the range (included)
+     * @return The report, or null if the database could not be read
+     */
+    public RentalReport reportByScan(LocalDate from, LocalDate to) {
+        checkRange(from, to);
+        long fromDay = from.toEpochDay();
+        long toExclusiveDay = to.toEpochDay() + 1;
+        LocalDate toExclusive = to.plusDays(1);
+
+        String sql = "SELECT plate_no, category, start_date, end_date, amount FROM rentals "
+                   + "WHERE end_date >= ? AND end_date < ? AND start_date < ?";
+
+        Connection connection = null;
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+        Accumulator totals = new Accumulator();
+        ArrayDeque<ForkJoinTask<Accumulator>> pending = new ArrayDeque<>();
+        int maxPending = pool.getParallelism() * 2;   // Enough to keep every core busy
+
+        try {
+            // Own connection with cursor fetch on, so the rows arrive SCAN_FETCH_SIZE at a time
+            connection = DatabaseConnection.getStreamingConnection();
+            if (connection == null) {
+                return null;   // getStreamingConnection() has logged why
+            }
+            LocalDate scanEnd = toExclusive.plusDays(getLongestRentalDays(connection));
+
+            // Not the cached statement: this one streams through a cursor
+            statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(SCAN_FETCH_SIZE);
+            statement.setDate(1, Date.valueOf(from));
+            statement.setDate(2, Date.valueOf(scanEnd));
+            statement.setDate(3, Date.valueOf(toExclusive));
+            resultSet = statement.executeQuery();
+
+            Chunk chunk = new Chunk();
+            while (resultSet.next()) {
+                chunk.add(resultSet.getString(1), resultSet.getString(2),
+                        resultSet.getDate(3).toLocalDate().toEpochDay(),
+                        resultSet.getDate(4).toLocalDate().toEpochDay(),
+                        resultSet.getDouble(5));
+
+                if (chunk.size == CHUNK_ROWS) {
+                    pending.addLast(pool.submit(new ChunkTask(chunk, 0, chunk.size, fromDay, toExclusiveDay)));
+                    chunk = new Chunk();
+
+                    // Too far ahead of the adders: wait for the oldest chunk
+                    if (pending.size() > maxPending) {
+                        totals.merge(pending.removeFirst().join());
+                    }
+                }
+            }
+            if (chunk.size > 0) {
+                pending.addLast(pool.submit(new ChunkTask(chunk, 0, chunk.size, fromDay, toExclusiveDay)));
+            }
+            while (!pending.isEmpty()) {
+                totals.merge(pending.removeFirst().join());
+            }
+
+            return buildReport(from, to, totals, getFleetSizes(connection));
+
+        } catch (SQLException e) {
+            Log.error("✗ Error scanning rental history!", e);
+            for (ForkJoinTask<Accumulator> task : pending) {
+                task.cancel(false);
+            }
+            return null;
+
+        } finally {
+            try {
+                if (resultSet != null) resultSet.close();
+                if (statement != null) statement.close();
+                if (connection != null) DatabaseConnection.closeConnection(connection);
+            } catch (SQLException e) {
+                Log.error("✗ Error closing database resources!", e);
+            }
+        }
+    }
+
+    private static void checkRange(LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("Report range ends (" + to + ") before it starts (" + from + ")");
+        }
+    }
+
+    // Longest rental on record: a rental ending later than (range end + this) cannot overlap the range
+    private static long getLongestRentalDays(Connection connection) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement("SELECT COALESCE(MAX(days), 0) FROM rentals");
+        try (ResultSet resultSet = statement.executeQuery()) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        } finally {
+            statement.close();
+        }
+    }
+
+    // Number of cars per category in the fleet today
+    private static Map<String, Integer> getFleetSizes(Connection connection) throws SQLException {
+        Map<String, Integer> fleetSizes = new HashMap<>();
+        PreparedStatement statement = connection.prepareStatement(
+                "SELECT category, COUNT(*) FROM cars GROUP BY category");
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                fleetSizes.put(resultSet.getString(1), resultSet.getInt(2));
+            }
+        } finally {
+            statement.close();
+        }
+        return fleetSizes;
+    }
+
+    // Turns per-car totals into the finished report
+    private static RentalReport buildReport(LocalDate from, LocalDate to, Accumulator totals,
+                                            Map<String, Integer> fleetSizes) {
+        long periodDays = to.toEpochDay() - from.toEpochDay() + 1;
+
+        List<RentalReport.CarUsage> cars = new ArrayList<>(totals.cars.size());
+        Map<String, CarTotals> byCategory = new TreeMap<>();
+        for (String category : fleetSizes.keySet()) {
+            byCategory.put(category, new CarTotals(category));
+        }
+
+        for (Map.Entry<String, CarTotals> entry : totals.cars.entrySet()) {
+            CarTotals car = entry.getValue();
+            cars.add(new RentalReport.CarUsage(entry.getKey(), car.category, car.rentals, car.revenue,
+                    car.rentedDays, (double) car.rentedDays / periodDays));
+            byCategory.computeIfAbsent(car.category, CarTotals::new).add(car);
+        }
+        cars.sort(Comparator.comparingDouble(RentalReport.CarUsage::getRevenue).reversed());
+
+        List<RentalReport.CategoryUsage> categories = new ArrayList<>();
+        for (CarTotals category : byCategory.values()) {
+            int fleetSize = fleetSizes.getOrDefault(category.category, 0);
+            double utilization = fleetSize == 0 ? 0 : (double) category.rentedDays / (fleetSize * periodDays);
+            categories.add(new RentalReport.CategoryUsage(category.category, fleetSize, category.rentals,
+                    category.revenue, category.rentedDays, utilization));
+        }
+
+        return new RentalReport(from, to, categories, cars);
+    }
+
+    // Prints a report in the same style as the console screens
+    private static void printReport(RentalReport report) {
+        System.out.println("========================================");
+        System.out.println("   RENTAL REPORT " + report.getFrom() + " to " + report.getTo());
+        System.out.println("========================================");
+        for (RentalReport.CategoryUsage category : report.getCategories()) {
+            System.out.printf("%-10s cars: %5d  rentals: %7d  revenue: ₹%,.2f  utilization: %.1f%%%n",
+                    category.getCategory(), category.getFleetSize(), category.getRentals(),
+                    category.getRevenue(), category.getUtilization() * 100);
+        }
+        System.out.println("----------------------------------------");
+        System.out.printf("Total rentals: %d%n", report.getTotalRentals());
+        System.out.printf("Total revenue: ₹%,.2f%n", report.getTotalRevenue());
+        System.out.printf("Fleet utilization: %.1f%%%n", report.getFleetUtilization() * 100);
+        System.out.println("----------------------------------------");
+        System.out.println("Top cars by revenue:");
+        List<RentalReport.CarUsage> cars = report.getCars();
+        for (int i = 0; i < Math.min(TOP_CARS_SHOWN, cars.size()); i++) {
+            RentalReport.CarUsage car = cars.get(i);
+            System.out.printf("  %-12s %-10s ₹%,.2f  (%d days, %.1f%%)%n", car.getPlateNo(), car.getCategory(),
+                    car.getRevenue(), car.getRentedDays(), car.getUtilization() * 100);
+        }
+        System.out.println("========================================");
+    }
+
+    /**
+     * CarTotals - Running totals for one car (or one category)
+     */
+    private static class CarTotals {
+        final String category;
+        long rentals;
+        double revenue;
+        long rentedDays;
+
+        CarTotals(String category) {
+            this.category = category;
+        }
+
+        void add(CarTotals other) {
+            rentals += other.rentals;
+            revenue += other.revenue;
+            rentedDays += other.rentedDays;
+        }
+    }
+
+    /**
+     * Accumulator - Per-car totals for part (or all) of the rentals
+     */
+    private static class Accumulator {
+        final Map<String, CarTotals> cars = new HashMap<>();
+
+        // Adds one rental: revenue if returned in range, plus its days inside the range
+        void addRental(String plateNo, String category, long startDay, long endDay, double amount,
+                       long fromDay, long toExclusiveDay) {
+            CarTotals car = cars.computeIfAbsent(plateNo, plate -> new CarTotals(category));
+            if (endDay < toExclusiveDay) {
+                car.rentals++;
+                car.revenue += amount;
+            }
+            long overlap = Math.min(endDay, toExclusiveDay) - Math.max(startDay, fromDay);
+            if (overlap > 0) {
+                car.rentedDays += overlap;
+            }
+        }
+
+        // Adds totals MySQL already grouped for one car
+        void addTotals(String plateNo, String category, long rentals, double revenue, long rentedDays) {
+            CarTotals car = cars.computeIfAbsent(plateNo, plate -> new CarTotals(category));
+            car.rentals += rentals;
+            car.revenue += revenue;
+            car.rentedDays += rentedDays;
+        }
+
+        void merge(Accumulator other) {
+            for (Map.Entry<String, CarTotals> entry : other.cars.entrySet()) {
+                CarTotals car = cars.get(entry.getKey());
+                if (car == null) {
+                    cars.put(entry.getKey(), entry.getValue());
+                } else {
+                    car.add(entry.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Chunk - A batch of rentals read from the cursor, column by column
+     */
+    private static class Chunk {
+        final String[] plateNos = new String[CHUNK_ROWS];
+        final String[] categories = new String[CHUNK_ROWS];
+        final long[] startDays = new long[CHUNK_ROWS];
+        final long[] endDays = new long[CHUNK_ROWS];
+        final double[] amounts = new double[CHUNK_ROWS];
+        int size = 0;
+
+        void add(String plateNo, String category, long startDay, long endDay, double amount) {
+            plateNos[size] = plateNo;
+            categories[size] = category;
+            startDays[size] = startDay;
+            endDays[size] = endDay;
+            amounts[size] = amount;
+            size++;
+        }
+    }
+
+    /**
+     * ChunkTask - Adds up rows [from, to) of a chunk, splitting big ranges in half
+     */
+    private static class ChunkTask extends RecursiveTask<Accumulator> {
+        private final Chunk chunk;
+        private final int from;
+        private final int to;
+        private final long fromDay;
+        private final long toExclusiveDay;
+
+        ChunkTask(Chunk chunk, int from, int to, long fromDay, long toExclusiveDay) {
+            this.chunk = chunk;
+            this.from = from;
+            this.to = to;
+            this.fromDay = fromDay;
+            this.toExclusiveDay = toExclusiveDay;
+        }
+
+        @Override
+        protected Accumulator compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                Accumulator totals = new Accumulator();
+                for (int i = from; i < to; i++) {
+                    totals.addRental(chunk.plateNos[i], chunk.categories[i], chunk.startDays[i],
+                            chunk.endDays[i], chunk.amounts[i], fromDay, toExclusiveDay);
+                }
+                return totals;
+            }
+
+            int middle = (from + to) >>> 1;
+            ChunkTask left = new ChunkTask(chunk, from, middle, fromDay, toExclusiveDay);
+            left.fork();
+            Accumulator totals = new ChunkTask(chunk, middle, to, fromDay, toExclusiveDay).compute();
+            totals.merge(left.join());
+            return totals;
+        }
+    }
+}
@@ -0,0 +1,406 @@
+package database;
+
+import logging.Log;
+import models.Car;
+import models.CompactFleet;
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * SnapshotInventory class - Browsable fleet at startup, kept in step with MySQL in the background
+ * open() maps the FleetSnapshot file from the last run and is ready at once,
+ * without touching the database. A background thread then reconciles it:
+ *   - reads the cars whose updated_at (migration_v5_last_modified.sql) is at or
+ *     after the watermark (the database time of the previous check), and lays
+ *     them over the snapshot
+ *   - compares the car count; if it differs (a car was deleted), or there is no
+ *     snapshot yet, or FULL_REBUILD_MILLIS have passed, reads the whole table
+ *     and writes a fresh snapshot instead
+ *   - rewrites the snapshot file once REWRITE_AFTER_CHANGES changes have piled
+ *     up, and on close(), so the next start has little to catch up on
+ *
+ * updated_at is set when a statement runs, not when its transaction commits,
+ * so each check reads RECONCILE_OVERLAP_MILLIS further back than strictly
+ * needed. A transaction left open for longer than that is picked up by the
+ * next full rebuild.
+ *
+ * The database is read outside writeLock, so apply() calls made meanwhile
+ * are recorded and laid over the rows read, which may be older than them.
+ *
+ * Readers never wait: they read the current snapshot and its overlay through
+ * one volatile reference. Changes and snapshot swaps take turns on writeLock.
+ * Every new snapshot is written as a new generation of the file (see
+ * FleetSnapshot); the previous one is deleted after the swap.
+ */
+public class SnapshotInventory implements AutoCloseable {
+
+    public static final long DEFAULT_RECONCILE_MILLIS = 30000;      // Check MySQL every 30 seconds
+    private static final long RECONCILE_OVERLAP_MILLIS = 5000;
+    private static final long FULL_REBUILD_MILLIS = 6 * 60 * 60 * 1000L;
+    private static final int REWRITE_AFTER_CHANGES = 1000;
+
+    /**
+     * State - A snapshot plus the changes made since it was written
+     */
+    private static final class State {
+        final FleetSnapshot snapshot;                       // null until the first snapshot exists
+        final AtomicReferenceArray<Car> replaced;           // Newer version of a snapshot car, by car number
+        final ConcurrentHashMap<String, Car> added = new ConcurrentHashMap<>();   // Cars not in the snapshot
+
+        State(FleetSnapshot snapshot) {
+            this.snapshot = snapshot;
+            this.replaced = new AtomicReferenceArray<>(snapshot == null ? 0 : snapshot.size());
+        }
+    }
+
+    private final Path file;                  // Snapshot name without generation
+    private final CarDAO carDAO;
+    private final Object writeLock = new Object();
+    private final Object reconcileLock = new Object();   // One reconcile at a time
+    private volatile State state;
+
+    // Guarded by writeLock
+    private long watermarkMillis;             // Changes at or after this may still be missing
+    private int changesSinceWrite = 0;
+    private long lastFullRebuildMillis;
+    private List<Car> appliedDuringRead;      // apply() calls while reconcile() reads MySQL (null otherwise)
+
+    private volatile long lastReconciledMillis = 0;   // 0 = not checked against MySQL yet
+    private ScheduledExecutorService reconciler;
+
+    private SnapshotInventory(Path file, CarDAO carDAO, FleetSnapshot snapshot) {
+        this.file = file;
+        this.carDAO = carDAO;
+        this.state = new State(snapshot);
+        this.watermarkMillis = snapshot == null ? 0 : snapshot.getWatermarkMillis();
+        this.lastFullRebuildMillis = snapshot == null ? 0 : snapshot.getCreatedMillis();
+    }
+
+    /**
+     * open() - Maps the snapshot file if there is a usable one (never contacts the database)
+     * A missing or damaged file gives an empty inventory; the first reconcile()
+     * then reads the whole table and writes the file.
+     * @param file - Snapshot name; its newest generation is opened (created by reconcile())
+     * @param carDAO - DAO used to reconcile
+     * @return The inventory
+     */
+    public static SnapshotInventory open(Path file, CarDAO carDAO) {
+        FleetSnapshot snapshot = null;
+        try {
+            Path latest = FleetSnapshot.latestPath(file);
+            if (latest == null) {
+                throw new NoSuchFileException(file.toString());
+            }
+            snapshot = FleetSnapshot.open(latest);
+            FleetSnapshot.deleteOlder(file, latest);   // Left over if they were still mapped last time
+            Log.info("✓ Fleet snapshot loaded: {} cars", snapshot.size());
+        } catch (NoSuchFileException e) {
+            Log.info("No fleet snapshot yet - it will be created from the database");
+        } catch (IOException e) {
+            Log.warn("✗ Fleet snapshot {} cannot be used - it will be rebuilt from the database", file, e);
+        }
+        return new SnapshotInventory(file, carDAO, snapshot);
+    }
+
+    /**
+     * startReconciling() - Checks against MySQL now, then every periodMillis, on a background thread
+     */
+    public synchronized void startReconciling(long periodMillis) {
+        if (reconciler != null) {
+            return;
+        }
+        reconciler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "fleet-snapshot-reconcile");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reconciler.scheduleWithFixedDelay(this::reconcileQuietly, 0, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * reconcile() - Brings the inventory up to date with MySQL
+     * @return True if it is now in step, false if the database could not be read
+     */
+    public boolean reconcile() throws IOException {
+        synchronized (reconcileLock) {
+            long now = System.currentTimeMillis();
+            boolean fullRebuild;
+            long since;
+            synchronized (writeLock) {
+                fullRebuild = state.snapshot == null || now - lastFullRebuildMillis >= FULL_REBUILD_MILLIS;
+                since = watermarkMillis - RECONCILE_OVERLAP_MILLIS;
+            }
+            if (fullRebuild) {
+                return rebuild();
+            }
+
+            boolean rewrite;
+            startRecordingApplies();
+            try {
+                // Read the clock first: anything changed after it is caught next time
+                long checkedAt = carDAO.getDatabaseTimeMillis();
+                List<Car> changed = checkedAt < 0 ? null : carDAO.getCarsModifiedSince(since);
+                long count = changed == null ? -1 : carDAO.countCars();
+                if (count < 0) {
+                    return false;
+                }
+
+                synchronized (writeLock) {
+                    for (Car car : changed) {
+                        applyLocked(car);
+                    }
+                    reapplyRecordedLocked();
+                    watermarkMillis = Math.max(watermarkMillis, checkedAt);
+                    fullRebuild = count != size();
+                    rewrite = changesSinceWrite >= REWRITE_AFTER_CHANGES;
+                }
+            } finally {
+                stopRecordingApplies();
+            }
+            if (fullRebuild) {
+                Log.info("Fleet size changed in the database - rebuilding the snapshot");
+                return rebuild();
+            }
+            if (rewrite) {
+                rewrite();
+            }
+            lastReconciledMillis = System.currentTimeMillis();
+            return true;
+        }
+    }
+
+    /**
+     * apply() - Records a change this program has just made in MySQL (e.g. a rent)
+     * so it shows up at once instead of at the next reconcile
+     * @param car - The car as it is now in the database
+     */
+    public void apply(Car car) {
+        synchronized (writeLock) {
+            applyLocked(car);
+            if (appliedDuringRead != null) {
+                appliedDuringRead.add(copy(car));
+            }
+        }
+    }
+
+    /**
+     * getAvailableCarsByCategory() - Available cars of a category, as far as the inventory knows
+     * @param category - Type of car (SUV, Sedan, Hatchback)
+     * @return New list of new Car objects
+     */
+    public List<Car> getAvailableCarsByCategory(String category) {
+        State current = state;
+        List<Car> cars = new ArrayList<>();
+        FleetSnapshot snapshot = current.snapshot;
+        int categoryCode = FleetSnapshot.categoryCode(category);
+        if (snapshot != null && categoryCode >= 0) {
+            for (int slot = 0; slot < snapshot.size(); slot++) {
+                Car newer = current.replaced.get(slot);
+                if (newer != null) {
+                    if (isAvailable(newer, category)) {
+                        cars.add(copy(newer));
+                    }
+                } else if (snapshot.isAvailable(slot, categoryCode)) {
+                    cars.add(snapshot.getCar(slot));
+                }
+            }
+        }
+        for (Car car : current.added.values()) {
+            if (isAvailable(car, category)) {
+                cars.add(copy(car));
+            }
+        }
+        return cars;
+    }
+
+    /**
+     * getCarByPlateNo() - One car as far as the inventory knows
+     * @return New Car object, or null if the car is not known
+     */
+    public Car getCarByPlateNo(String plateNo) {
+        State current = state;
+        Car added = current.added.get(plateNo);
+        if (added != null) {
+            return copy(added);
+        }
+        int slot = current.snapshot == null ? -1 : current.snapshot.find(plateNo);
+        if (slot < 0) {
+            return null;
+        }
+        Car newer = current.replaced.get(slot);
+        return newer != null ? copy(newer) : current.snapshot.getCar(slot);
+    }
+
+    /**
+     * size() - Number of cars known
+     */
+    public int size() {
+        State current = state;
+        return (current.snapshot == null ? 0 : current.snapshot.size()) + current.added.size();
+    }
+
+    /**
+     * isReconciled() - True once the inventory has been checked against MySQL
+     * Before that it shows the fleet as it was when the snapshot was written.
+     */
+    public boolean isReconciled() {
+        return lastReconciledMillis > 0;
+    }
+
+    /** When the inventory was last checked against MySQL (epoch milliseconds, 0 = never) */
+    public long getLastReconciledMillis() {
+        return lastReconciledMillis;
+    }
+
+    /** When the snapshot being served was written (epoch milliseconds, 0 = no snapshot) */
+    public long getSnapshotMillis() {
+        FleetSnapshot snapshot = state.snapshot;
+        return snapshot == null ? 0 : snapshot.getCreatedMillis();
+    }
+
+    /**
+     * close() - Stops reconciling and saves any changes into the snapshot file
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (reconciler != null) {
+                reconciler.shutdownNow();
+                try {
+                    reconciler.awaitTermination(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                reconciler = null;
+            }
+        }
+        try {
+            synchronized (writeLock) {
+                if (changesSinceWrite > 0 && state.snapshot != null) {
+                    rewrite();
+                }
+            }
+        } catch (IOException e) {
+            Log.error("✗ Could not save the fleet snapshot!", e);
+        }
+    }
+
+    // Reads the whole table and replaces the snapshot with it
+    private boolean rebuild() throws IOException {
+        long started = System.currentTimeMillis();
+        CompactFleet fleet;
+        startRecordingApplies();
+        try {
+            long checkedAt = carDAO.getDatabaseTimeMillis();
+            long count = checkedAt < 0 ? -1 : carDAO.countCars();
+            if (count < 0) {
+                return false;
+            }
+            try {
+                fleet = carDAO.loadCompactFleet((int) count, CarDAO.DEFAULT_FETCH_SIZE);
+            } catch (IllegalStateException e) {
+                return false;   // Stream failed part way; already logged by CarDAO
+            }
+            if (fleet.size() == 0 && count > 0) {
+                return false;   // The query failed (CarDAO returns an empty fleet)
+            }
+
+            synchronized (writeLock) {
+                swapSnapshotLocked(fleet, checkedAt);
+                watermarkMillis = checkedAt;
+                lastFullRebuildMillis = started;
+                reapplyRecordedLocked();
+            }
+        } finally {
+            stopRecordingApplies();
+        }
+        lastReconciledMillis = System.currentTimeMillis();
+        Log.info("✓ Fleet snapshot rebuilt from the database: {} cars in {} ms",
+                fleet.size(), lastReconciledMillis - started);
+        return true;
+    }
+
+    // Writes the snapshot with its overlay folded in, and serves the new file
+    private void rewrite() throws IOException {
+        synchronized (writeLock) {
+            State current = state;
+            CompactFleet fleet = new CompactFleet(size());
+            for (int slot = 0; slot < current.snapshot.size(); slot++) {
+                Car newer = current.replaced.get(slot);
+                fleet.add(newer != null ? newer : current.snapshot.getCar(slot));
+            }
+            for (Car car : current.added.values()) {
+                fleet.add(car);
+            }
+            swapSnapshotLocked(fleet, watermarkMillis);
+        }
+    }
+
+    // Writes the fleet as the next generation, serves it, then deletes the one it replaces
+    private void swapSnapshotLocked(CompactFleet fleet, long watermark) throws IOException {
+        Path next = FleetSnapshot.nextPath(file);
+        FleetSnapshot.write(next, fleet, watermark);
+        state = new State(FleetSnapshot.open(next));
+        changesSinceWrite = 0;
+        // Readers may still be on the old state: Linux keeps its pages until they let go,
+        // Windows refuses the delete and deleteOlder() tries again next time
+        FleetSnapshot.deleteOlder(file, next);
+    }
+
+    private void startRecordingApplies() {
+        synchronized (writeLock) {
+            appliedDuringRead = new ArrayList<>();
+        }
+    }
+
+    private void stopRecordingApplies() {
+        synchronized (writeLock) {
+            appliedDuringRead = null;
+        }
+    }
+
+    // Lays this program's own changes over rows read from MySQL before them
+    private void reapplyRecordedLocked() {
+        for (Car car : appliedDuringRead) {
+            applyLocked(car);
+        }
+    }
+
+    private void applyLocked(Car car) {
+        State current = state;
+        Car stored = copy(car);   // Car objects can be changed by their owner; keep our own
+        int slot = current.snapshot == null ? -1 : current.snapshot.find(car.getPlateNo());
+        if (slot >= 0) {
+            current.replaced.set(slot, stored);
+        } else {
+            current.added.put(car.getPlateNo(), stored);
+        }
+        changesSinceWrite++;
+    }
+
+    private void reconcileQuietly() {
+        try {
+            if (!reconcile()) {
+                Log.warn("✗ Could not reconcile the fleet snapshot with the database - will retry");
+            }
+        } catch (IOException | RuntimeException e) {
+            Log.error("✗ Error reconciling the fleet snapshot!", e);
+        }
+    }
+
+    private static boolean isAvailable(Car car, String category) {
+        return "Available".equals(car.getStatus()) && category.equals(car.getCategory());
+    }
+
+    private static Car copy(Car car) {
+        return new Car(car.getPlateNo(), car.getModel(), car.getCategory(), car.getRatePerDay(), car.getStatus());
+    }
+}
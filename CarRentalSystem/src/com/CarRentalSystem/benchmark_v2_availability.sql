@@ -0,0 +1,66 @@
+-- ========================================
+-- CAR RENTAL SYSTEM - BENCHMARK FOR MIGRATION V2
+-- Availability query before/after, on a generated 1,000,000 car fleet
+-- ========================================
+-- Uses its own database (car_rental_bench) so real data is never touched.
+-- Needs MySQL 8.0.18+ for EXPLAIN ANALYZE. Run from the mysql command line:
+--   mysql -u root -p < benchmark_v2_availability.sql
+-- Compare the "actual time" and "rows" of the BEFORE and AFTER plans, and the
+-- table/index sizes printed at each stage.
+
+DROP DATABASE IF EXISTS car_rental_bench;
+CREATE DATABASE car_rental_bench;
+USE car_rental_bench;
+
+-- Step 1: Same table as database_setup.sql (version 1)
+CREATE TABLE cars (
+    plate_no VARCHAR(20) PRIMARY KEY,
+    model VARCHAR(50) NOT NULL,
+    category VARCHAR(20) NOT NULL,
+    rate_per_day DOUBLE NOT NULL,
+    status VARCHAR(20) DEFAULT 'Available'
+);
+
+-- Step 2: Generate 1M cars (10^6 rows from six digit tables)
+--   categories spread evenly, ~20% of the fleet rented
+CREATE TABLE digits (d INT PRIMARY KEY);
+INSERT INTO digits VALUES (0), (1), (2), (3), (4), (5), (6), (7), (8), (9);
+
+INSERT INTO cars (plate_no, model, category, rate_per_day, status)
+SELECT CONCAT('BM', LPAD(n, 8, '0')),
+       CONCAT('Model ', n % 500),
+       ELT(1 + n % 3, 'SUV', 'Sedan', 'Hatchback'),
+       1000 + (n % 41) * 50,
+       IF(n % 5 = 0, 'Rented', 'Available')
+FROM (SELECT a.d + 10 * b.d + 100 * c.d + 1000 * e.d + 10000 * f.d + 100000 * g.d AS n
+      FROM digits a, digits b, digits c, digits e, digits f, digits g) numbers;
+
+ANALYZE TABLE cars;
+
+-- Step 3: BEFORE - free-text columns, no secondary index
+SELECT 'BEFORE' AS stage, data_length / 1024 / 1024 AS data_mb, index_length / 1024 / 1024 AS index_mb
+FROM information_schema.tables WHERE table_schema = 'car_rental_bench' AND table_name = 'cars';
+
+EXPLAIN ANALYZE
+SELECT plate_no, model, category, rate_per_day, status
+FROM cars WHERE category = 'SUV' AND status = 'Available';
+
+-- Step 4: Apply the same changes as migration_v2_compact_cars.sql
+ALTER TABLE cars
+    MODIFY category ENUM('SUV', 'Sedan', 'Hatchback') NOT NULL,
+    MODIFY rate_per_day DECIMAL(10,2) NOT NULL,
+    MODIFY status ENUM('Available', 'Rented') NOT NULL DEFAULT 'Available',
+    ADD INDEX idx_cars_category_status (category, status, rate_per_day, model);
+
+ANALYZE TABLE cars;
+
+-- Step 5: AFTER - compact types, covering index
+SELECT 'AFTER' AS stage, data_length / 1024 / 1024 AS data_mb, index_length / 1024 / 1024 AS index_mb
+FROM information_schema.tables WHERE table_schema = 'car_rental_bench' AND table_name = 'cars';
+
+EXPLAIN ANALYZE
+SELECT plate_no, model, category, rate_per_day, status
+FROM cars WHERE category = 'SUV' AND status = 'Available';
+
+-- Step 6: Clean up
+DROP DATABASE car_rental_bench;
@@ -19,7 +19,16 @@ CREATE TABLE IF NOT EXISTS cars (
     status VARCHAR(20) DEFAULT 'Available'       -- Available or Rented
 );
 
--- Step 4: Insert sample data (you can add more cars)
+-- Step 4: Record the schema version
+-- Later changes live in migration_vN_*.sql files - run them in order after this file
+CREATE TABLE IF NOT EXISTS schema_version (
+    version INT PRIMARY KEY,                     -- Migration number
+    description VARCHAR(100) NOT NULL,           -- What the migration did
+    applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+INSERT IGNORE INTO schema_version (version, description) VALUES (1, 'Initial cars table');
+
+-- Step 5: Insert sample data (you can add more cars)
 INSERT INTO cars (plate_no, model, category, rate_per_day, status) VALUES
 ('MH01AB1234', 'Maruti Suzuki Brezza', 'SUV', 2500.00, 'Available'),
 ('MH02CD5678', 'Hyundai Creta', 'SUV', 3000.00, 'Available'),
@@ -32,7 +41,7 @@ INSERT INTO cars (plate_no, model, category, rate_per_day, status) VALUES
 ('MP09QR4567', 'Hyundai Verna', 'Sedan', 2200.00, 'Available'),
 ('WB10ST8901', 'Tata Altroz', 'Hatchback', 1600.00, 'Available');
 
--- Step 5: Verify the data
+-- Step 6: Verify the data
 SELECT * FROM cars;
 
 -- ========================================
@@ -0,0 +1,68 @@
+-- ========================================
+-- CAR RENTAL SYSTEM - MIGRATION V2
+-- Compact cars schema + covering index
+-- ========================================
+-- Run this once on a database created with database_setup.sql (version 1).
+-- It is safe to re-run: it stops if version 2 is already recorded.
+--
+-- What it changes:
+--   category      VARCHAR(20) -> ENUM   (1 byte instead of up to 21)
+--   status        VARCHAR(20) -> ENUM   (1 byte instead of up to 21)
+--   rate_per_day  DOUBLE      -> DECIMAL(10,2)   (exact Rupees and paise)
+--   new index     idx_cars_category_status (category, status, rate_per_day, model)
+--
+-- The index contains every column CarDAO reads (plate_no is the primary key,
+-- which InnoDB stores in every secondary index), so the availability query
+--   SELECT plate_no, model, category, rate_per_day, status
+--   FROM cars WHERE category = ? AND status = 'Available'
+-- is answered from the index alone instead of scanning the whole table.
+
+USE car_rental_db;
+
+-- Step 1: Make sure the version table exists (older setups don't have it)
+CREATE TABLE IF NOT EXISTS schema_version (
+    version INT PRIMARY KEY,                     -- Migration number
+    description VARCHAR(100) NOT NULL,           -- What the migration did
+    applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+INSERT IGNORE INTO schema_version (version, description) VALUES (1, 'Initial cars table');
+
+-- Step 2: Apply the migration only if it has not been applied yet
+DROP PROCEDURE IF EXISTS migrate_v2;
+
+DELIMITER //
+CREATE PROCEDURE migrate_v2()
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM schema_version WHERE version = 2) THEN
+
+        -- Fail early if a row holds a value the new types cannot store
+        IF EXISTS (SELECT 1 FROM cars
+                   WHERE category NOT IN ('SUV', 'Sedan', 'Hatchback')
+                      OR status IS NULL
+                      OR status NOT IN ('Available', 'Rented')) THEN
+            SIGNAL SQLSTATE '45000'
+                SET MESSAGE_TEXT = 'cars has unknown category/status values - fix them before migrating';
+        END IF;
+
+        -- One ALTER so the table is rebuilt only once
+        ALTER TABLE cars
+            MODIFY category ENUM('SUV', 'Sedan', 'Hatchback') NOT NULL,
+            MODIFY rate_per_day DECIMAL(10,2) NOT NULL,
+            MODIFY status ENUM('Available', 'Rented') NOT NULL DEFAULT 'Available',
+            ADD INDEX idx_cars_category_status (category, status, rate_per_day, model);
+
+        INSERT INTO schema_version (version, description)
+        VALUES (2, 'Compact category/status/rate types and covering index on (category, status)');
+    END IF;
+END //
+DELIMITER ;
+
+CALL migrate_v2();
+DROP PROCEDURE migrate_v2;
+
+-- Step 3: Verify
+SHOW CREATE TABLE cars;
+SELECT * FROM schema_version ORDER BY version;
+EXPLAIN SELECT plate_no, model, category, rate_per_day, status
+FROM cars WHERE category = 'SUV' AND status = 'Available';
+-- Extra column should say "Using index"
@@ -0,0 +1,66 @@
+-- ========================================
+-- CAR RENTAL SYSTEM - MIGRATION V3
+-- Indexes for CarDAO.searchCars() keyset pages
+-- ========================================
+-- Run this once after migration_v2_compact_cars.sql.
+-- It is safe to re-run: it stops if version 3 is already recorded.
+--
+-- searchCars() always sorts by (rate_per_day, plate_no) and seeks past the
+-- last car of the previous page:
+--   ... WHERE category = ? AND status = ? AND (rate_per_day > ? OR (rate_per_day = ? AND plate_no > ?))
+--   ORDER BY rate_per_day, plate_no LIMIT ?
+-- Each index below ends in (rate_per_day, plate_no), so MySQL starts reading
+-- at the seek key and stops after LIMIT rows - no sort, no skipped rows.
+--
+-- What it changes:
+--   idx_cars_category_status  (category, status, rate_per_day, model)
+--     -> idx_cars_category_status_rate (category, status, rate_per_day, plate_no, model)
+--        (same prefix, so the availability query still uses it and stays "Using index")
+--   new index idx_cars_category_rate (category, rate_per_day, plate_no) - search without status
+--   new index idx_cars_status_rate   (status, rate_per_day, plate_no)   - search without category
+--   new index idx_cars_rate          (rate_per_day, plate_no)           - search with neither
+-- So every mix of category and status filters has an index to seek in.
+-- A rate range just narrows where the seek starts and stops.
+-- A model prefix is checked row by row inside whichever index is used, so a
+-- rare model can read many index entries per page - deep pages are not free there.
+
+USE car_rental_db;
+
+DROP PROCEDURE IF EXISTS migrate_v3;
+
+DELIMITER //
+CREATE PROCEDURE migrate_v3()
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM schema_version WHERE version = 2) THEN
+        SIGNAL SQLSTATE '45000'
+            SET MESSAGE_TEXT = 'Run migration_v2_compact_cars.sql first';
+    END IF;
+
+    IF NOT EXISTS (SELECT 1 FROM schema_version WHERE version = 3) THEN
+
+        -- One ALTER so the indexes are built in a single pass
+        ALTER TABLE cars
+            DROP INDEX idx_cars_category_status,
+            ADD INDEX idx_cars_category_status_rate (category, status, rate_per_day, plate_no, model),
+            ADD INDEX idx_cars_category_rate (category, rate_per_day, plate_no),
+            ADD INDEX idx_cars_status_rate (status, rate_per_day, plate_no),
+            ADD INDEX idx_cars_rate (rate_per_day, plate_no);
+
+        INSERT INTO schema_version (version, description)
+        VALUES (3, 'Keyset search indexes ending in (rate_per_day, plate_no)');
+    END IF;
+END //
+DELIMITER ;
+
+CALL migrate_v3();
+DROP PROCEDURE migrate_v3;
+
+-- Verify
+SHOW INDEX FROM cars;
+SELECT * FROM schema_version ORDER BY version;
+EXPLAIN SELECT plate_no, model, category, rate_per_day, status
+FROM cars
+WHERE category = 'SUV' AND status = 'Available'
+  AND (rate_per_day > 2500 OR (rate_per_day = 2500 AND plate_no > 'MH01AB1234'))
+ORDER BY rate_per_day, plate_no LIMIT 21;
+-- key should be idx_cars_category_status_rate, type range, and no "Using filesort"
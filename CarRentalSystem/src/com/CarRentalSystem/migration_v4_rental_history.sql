@@ -0,0 +1,61 @@
+-- ========================================
+-- CAR RENTAL SYSTEM - MIGRATION V4
+-- Rental history for finance reports
+-- ========================================
+-- Run this once after migration_v3_search_indexes.sql.
+-- It is safe to re-run: it stops if version 4 is already recorded.
+--
+-- Every returned car adds one row to rentals, in the same transaction that
+-- sets the car back to Available (CarDAO.returnCarAtomically(plateNo, days)).
+-- A rental covers the days [start_date, end_date): a 3 day rental returned
+-- on the 10th has start_date = 7th, end_date = 10th.
+--
+-- category is copied from cars so reports need no join and keep the
+-- category the car had when it was rented.
+--
+-- Indexes (used by reports.RentalReportEngine):
+--   idx_rentals_end_date  (end_date, start_date, plate_no, category, amount)
+--       every column the reports read, so a date-range report is one
+--       index range scan that never touches the table rows
+--   idx_rentals_days      (days)
+--       lets SELECT MAX(days) read one index entry; the longest rental
+--       bounds how far past the report range the scan has to look
+
+USE car_rental_db;
+
+DROP PROCEDURE IF EXISTS migrate_v4;
+
+DELIMITER //
+CREATE PROCEDURE migrate_v4()
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM schema_version WHERE version = 3) THEN
+        SIGNAL SQLSTATE '45000'
+            SET MESSAGE_TEXT = 'Run migration_v3_search_indexes.sql first';
+    END IF;
+
+    IF NOT EXISTS (SELECT 1 FROM schema_version WHERE version = 4) THEN
+
+        CREATE TABLE rentals (
+            rental_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+            plate_no VARCHAR(20) NOT NULL,
+            category ENUM('SUV', 'Sedan', 'Hatchback') NOT NULL,
+            start_date DATE NOT NULL,                 -- First rented day
+            end_date DATE NOT NULL,                   -- Return day (not counted)
+            days INT NOT NULL,                        -- Billed days
+            amount DECIMAL(12,2) NOT NULL,            -- Billed amount in Rupees
+            INDEX idx_rentals_end_date (end_date, start_date, plate_no, category, amount),
+            INDEX idx_rentals_days (days)
+        );
+
+        INSERT INTO schema_version (version, description)
+        VALUES (4, 'Rental history table for revenue/utilization reports');
+    END IF;
+END //
+DELIMITER ;
+
+CALL migrate_v4();
+DROP PROCEDURE migrate_v4;
+
+-- Verify
+SHOW CREATE TABLE rentals;
+SELECT * FROM schema_version ORDER BY version;
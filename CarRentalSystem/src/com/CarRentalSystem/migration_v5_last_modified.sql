@@ -0,0 +1,54 @@
+-- ========================================
+-- CAR RENTAL SYSTEM - MIGRATION V5
+-- Last-modified time per car for snapshot reconciling
+-- ========================================
+-- Run this once after migration_v4_rental_history.sql.
+-- It is safe to re-run: it stops if version 5 is already recorded.
+--
+-- The console starts from a fleet snapshot file on disk and catches up with
+-- MySQL in the background (database.SnapshotInventory). To catch up it only
+-- reads the cars changed since the snapshot:
+--   SELECT plate_no, model, category, rate_per_day, status
+--   FROM cars WHERE updated_at >= ?
+--
+-- What it changes:
+--   new column  updated_at TIMESTAMP(3)   set by MySQL on every insert and
+--               on every UPDATE that changes a value, so no code has to remember it
+--   new index   idx_cars_updated_at (updated_at)   the query above reads only
+--               the changed rows instead of the whole table
+-- Existing cars get the time the migration ran.
+
+USE car_rental_db;
+
+DROP PROCEDURE IF EXISTS migrate_v5;
+
+DELIMITER //
+CREATE PROCEDURE migrate_v5()
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM schema_version WHERE version = 4) THEN
+        SIGNAL SQLSTATE '45000'
+            SET MESSAGE_TEXT = 'Run migration_v4_rental_history.sql first';
+    END IF;
+
+    IF NOT EXISTS (SELECT 1 FROM schema_version WHERE version = 5) THEN
+
+        ALTER TABLE cars
+            ADD COLUMN updated_at TIMESTAMP(3) NOT NULL
+                DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
+            ADD INDEX idx_cars_updated_at (updated_at);
+
+        INSERT INTO schema_version (version, description)
+        VALUES (5, 'Last-modified column for fleet snapshot reconciling');
+    END IF;
+END //
+DELIMITER ;
+
+CALL migrate_v5();
+DROP PROCEDURE migrate_v5;
+
+-- Verify
+SHOW CREATE TABLE cars;
+SELECT * FROM schema_version ORDER BY version;
+EXPLAIN SELECT plate_no, model, category, rate_per_day, status
+FROM cars WHERE updated_at >= NOW() - INTERVAL 1 MINUTE;
+-- key should be idx_cars_updated_at, type range
@@ -0,0 +1,207 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * CatalogCheck - Checks ProductCatalog against brute force
+ *
+ * Adds PRODUCTS products, then applies UPDATES random setPrice()/discount()
+ * calls while a reader thread keeps querying. The reader checks that every
+ * version it sees holds all the products and returns them in price order.
+ * Afterwards every query is compared with the same answer worked out from a
+ * plain sorted array of keys, and an out-of-range price must be rejected
+ * without changing the product or the index.
+ *
+ *   java CatalogCheck [products] [updates]
+ */
+public class CatalogCheck {
+
+    private static final int PRODUCTS = 1_000_000;
+    private static final int UPDATES = 500_000;
+    private static final int QUERIES = 10_000;
+    private static final int MAX_PRICE_CENTS = 1_000_000;   // Prices stay between 0.01 and 10,000.00
+
+    public static void main(String[] args) throws InterruptedException {
+        int productCount = args.length > 0 ? Integer.parseInt(args[0]) : PRODUCTS;
+        int updates = args.length > 1 ? Integer.parseInt(args[1]) : UPDATES;
+        SplittableRandom random = new SplittableRandom(42);
+
+        System.out.println("ProductCatalog check: " + productCount + " products, " + updates + " updates");
+
+        ProductCatalog catalog = new ProductCatalog();
+        Product[] products = new Product[productCount];
+        long start = System.nanoTime();
+        for (int i = 0; i < productCount; i++) {
+            products[i] = new Product("Item " + i, randomPrice(random));
+            catalog.add(products[i]);   // Catalog ids are handed out in order, so product i has id i
+        }
+        System.out.printf("  Added in %d ms%n", (System.nanoTime() - start) / 1_000_000);
+
+        long failures = updateWhileReading(catalog, products, updates, random);
+        failures += compareWithBruteForce(catalog, products, random);
+        failures += checkRejectedPrice(catalog, products[0]);
+
+        if (failures > 0) {
+            System.out.println("✗ " + failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("✓ Every query matched brute force");
+    }
+
+    // Writes on this thread while a reader checks each version it sees
+    private static long updateWhileReading(ProductCatalog catalog, Product[] products, int updates,
+                                           SplittableRandom random) throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        LongAdder reads = new LongAdder();
+        LongAdder errors = new LongAdder();
+        int productCount = products.length;
+
+        Thread reader = new Thread(() -> {
+            SplittableRandom readerRandom = new SplittableRandom(7);
+            while (running.get()) {
+                if (catalog.size() != productCount
+                        || catalog.countInPriceRange(0, MAX_PRICE_CENTS / 100.0) != productCount
+                        || catalog.nthCheapest(readerRandom.nextInt(productCount)) == null) {
+                    errors.increment();
+                }
+                // Prices may change under us, but the ids of one version always come back in key order
+                List<Product> cheapest = catalog.cheapest(100);
+                if (cheapest.size() != Math.min(100, productCount)) {
+                    errors.increment();
+                }
+                reads.increment();
+            }
+        }, "catalog-check-reader");
+        reader.setDaemon(true);
+        reader.start();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < updates; i++) {
+            Product product = products[random.nextInt(productCount)];
+            switch (random.nextInt(3)) {
+                case 0:
+                    product.setPrice(randomPrice(random));
+                    break;
+                case 1:
+                    product.discount(random.nextInt(1, 50) * 1.0);
+                    break;
+                default:
+                    if (product.getPrice() > 10) {
+                        product.discount(5);
+                    }
+                    break;
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        running.set(false);
+        reader.join();
+
+        System.out.printf("  %,d updates in %.1f s with %,d reads alongside%n", updates, seconds, reads.sum());
+        if (errors.sum() > 0) {
+            System.out.println("✗ Reader saw " + errors.sum() + " inconsistent version(s)");
+        }
+        return errors.sum();
+    }
+
+    // Every query answered again from a sorted array of (cents << 32 | id) keys
+    private static long compareWithBruteForce(ProductCatalog catalog, Product[] products, SplittableRandom random) {
+        int productCount = products.length;
+        long[] sorted = new long[productCount];
+        for (int i = 0; i < productCount; i++) {
+            sorted[i] = centsOf(products[i].getPrice()) << 32 | i;
+        }
+        Arrays.sort(sorted);
+
+        long failures = 0;
+        if (catalog.size() != productCount) {
+            System.out.println("✗ size() is " + catalog.size() + ", expected " + productCount);
+            failures++;
+        }
+
+        List<Product> cheapest = catalog.cheapest(1000);
+        for (int i = 0; i < cheapest.size(); i++) {
+            if (cheapest.get(i) != products[(int) sorted[i]]) {
+                System.out.println("✗ cheapest() differs at position " + i);
+                failures++;
+                break;
+            }
+        }
+
+        for (int q = 0; q < QUERIES; q++) {
+            int rank = random.nextInt(productCount);
+            if (catalog.nthCheapest(rank) != products[(int) sorted[rank]]) {
+                System.out.println("✗ nthCheapest(" + rank + ") differs");
+                failures++;
+            }
+
+            Product product = products[random.nextInt(productCount)];
+            int expectedRank = lowerBound(sorted, centsOf(product.getPrice()) << 32);
+            if (catalog.rankOf(product) != expectedRank) {
+                System.out.println("✗ rankOf(" + product.getProductName() + ") is " + catalog.rankOf(product)
+                        + ", expected " + expectedRank);
+                failures++;
+            }
+
+            long low = random.nextInt(1, MAX_PRICE_CENTS + 1);
+            long high = Math.min(MAX_PRICE_CENTS, low + random.nextInt(5000));
+            double minPrice = low / 100.0;
+            double maxPrice = high / 100.0;
+            int from = lowerBound(sorted, low << 32);
+            int to = lowerBound(sorted, (high + 1) << 32);
+            if (catalog.countInPriceRange(minPrice, maxPrice) != to - from) {
+                System.out.println("✗ countInPriceRange(" + minPrice + ", " + maxPrice + ") differs");
+                failures++;
+            }
+            List<Product> inRange = catalog.inPriceRange(minPrice, maxPrice, 20);
+            if (inRange.size() != Math.min(20, to - from)) {
+                System.out.println("✗ inPriceRange(" + minPrice + ", " + maxPrice + ") returned "
+                        + inRange.size() + " products");
+                failures++;
+            } else {
+                for (int i = 0; i < inRange.size(); i++) {
+                    if (inRange.get(i) != products[(int) sorted[from + i]]) {
+                        System.out.println("✗ inPriceRange(" + minPrice + ", " + maxPrice + ") differs at " + i);
+                        failures++;
+                        break;
+                    }
+                }
+            }
+        }
+        System.out.printf("  Compared %,d random queries of each kind%n", QUERIES);
+        return failures;
+    }
+
+    // A price the catalog cannot index must leave the product and the index as they were
+    private static long checkRejectedPrice(ProductCatalog catalog, Product product) {
+        double before = product.getPrice();
+        int rankBefore = catalog.rankOf(product);
+        try {
+            product.setPrice(1e12);
+            System.out.println("✗ setPrice(1e12) was accepted");
+            return 1;
+        } catch (IllegalArgumentException expected) {
+            // Rejected, as it should be
+        }
+        if (product.getPrice() != before || catalog.rankOf(product) != rankBefore) {
+            System.out.println("✗ A rejected price still changed " + product.getProductName());
+            return 1;
+        }
+        return 0;
+    }
+
+    // First index whose key is >= key
+    private static int lowerBound(long[] sorted, long key) {
+        int index = Arrays.binarySearch(sorted, key);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private static long centsOf(double price) {
+        return Math.round(price * 100);
+    }
+
+    private static double randomPrice(SplittableRandom random) {
+        return random.nextInt(1, MAX_PRICE_CENTS + 1) / 100.0;
+    }
+}
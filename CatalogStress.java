@@ -0,0 +1,96 @@
+/**
+ * CatalogStress - Mixed read/write load on a MultiStoreCatalog
+ *
+ * STORES stores of PRODUCTS_PER_STORE products each. For 1, 8 and 64 threads,
+ * every thread picks a random store and then either reads (READ_PERCENT of
+ * the time) or writes:
+ *   read  - takes a snapshot and reads a few prices from it
+ *   write - reprices "Item 0" and "Item 1" of that store together, in one version
+ *           (one write in STOREWIDE_EVERY is a storewide discount instead)
+ *
+ * Readers check that the two items always have the same price in any
+ * snapshot (a half-applied write would break this) and that versions never
+ * go backwards. Prints reads and writes per second.
+ *
+ *   java CatalogStress [secondsPerRun]
+ */
+public class CatalogStress {
+
+    private static final int STORES = 16;
+    private static final int PRODUCTS_PER_STORE = 100_000;
+    private static final int READ_PERCENT = 90;
+    private static final int READS_PER_SNAPSHOT = 4;
+    private static final int STOREWIDE_EVERY = 1000;
+    private static final int[] THREAD_COUNTS = {1, 8, 64};
+
+    // MixedLoad counters
+    private static final int READS = 0;
+    private static final int WRITES = 1;
+    private static final int ERRORS = 2;
+    private static final int STOREWIDE = 3;
+
+    public static void main(String[] args) throws InterruptedException {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 2;
+
+        MultiStoreCatalog catalog = new MultiStoreCatalog();
+        StoreCatalog[] stores = new StoreCatalog[STORES];
+        for (int s = 0; s < STORES; s++) {
+            stores[s] = catalog.openStore("Store " + s);
+            for (int p = 0; p < PRODUCTS_PER_STORE; p++) {
+                stores[s].addProduct("Item " + p, 100);
+            }
+        }
+
+        System.out.println("Catalog stress test: " + STORES + " stores x " + PRODUCTS_PER_STORE + " products, "
+                + READ_PERCENT + "% reads (" + seconds + " s per run, "
+                + Runtime.getRuntime().availableProcessors() + " CPU(s))");
+        System.out.printf("%8s %15s %15s %12s%n", "Threads", "Reads/s", "Writes/s", "Storewide");
+
+        for (int threads : THREAD_COUNTS) {
+            if (!run(stores, threads, seconds)) {
+                System.exit(1);
+            }
+        }
+        System.out.println("✓ Every snapshot was consistent");
+    }
+
+    private static boolean run(StoreCatalog[] stores, int threads, int seconds) throws InterruptedException {
+        int[] pair = {0, 1};
+        MixedLoad.Result result = MixedLoad.run("catalog-stress", threads, seconds, 4, t -> {
+            long[] lastVersion = new long[stores.length];   // Per thread: versions seen must never go backwards
+            return (random, counts) -> {
+                int s = random.nextInt(stores.length);
+                if (random.nextInt(100) < READ_PERCENT) {
+                    StoreCatalog.Snapshot snapshot = stores[s].snapshot();
+                    if (snapshot.getVersion() < lastVersion[s] || snapshot.getPrice(0) != snapshot.getPrice(1)) {
+                        counts[ERRORS]++;
+                    }
+                    lastVersion[s] = snapshot.getVersion();
+                    for (int r = 2; r < READS_PER_SNAPSHOT; r++) {
+                        snapshot.getPrice(random.nextInt(snapshot.size()));
+                    }
+                    counts[READS]++;
+                } else if (random.nextInt(STOREWIDE_EVERY) == 0) {
+                    stores[s].discountAll(1);   // Both items get the same discount, so they stay equal
+                    counts[STOREWIDE]++;
+                } else {
+                    double price = 50 + random.nextInt(10000) / 100.0;
+                    stores[s].setPrices(pair, new double[] {price, price});
+                    counts[WRITES]++;
+                }
+            };
+        });
+
+        System.out.printf("%8d %,15.0f %,15.0f %,12d%n", threads, result.getPerSecond(READS),
+                result.getPerSecond(WRITES), result.getCount(STOREWIDE));
+        if (!result.isFinished()) {
+            System.out.println("✗ Run with " + threads + " threads did not finish");
+            return false;
+        }
+        if (result.getCount(ERRORS) > 0) {
+            System.out.println("✗ " + result.getCount(ERRORS) + " inconsistent snapshot(s) seen");
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,414 @@
+import logging.Log;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * EndOfDayBatch - Nightly interest, fees and statements for every account
+ *
+ * Works on an OffHeapAccountStore. The slots are cut into chunks of
+ * CHUNK_ACCOUNTS and fork-join workers process whole chunks, so no two
+ * threads ever touch the same account and no locks are needed. For each
+ * account:
+ *   interest = balance x annual rate / 365 (rounded down to the paisa)
+ *   fee      = the monthly fee if the balance stays under the minimum
+ *              (never more than the balance) - once a month, on the last
+ *              business date (Monday to Friday; holidays are not known)
+ *
+ * The last month whose fee is settled is kept in a small file next to the store. If
+ * the batch did not run on a month's last business date, the next run
+ * charges that month's fee instead (one fee per run, however many months
+ * were missed). Each run writes down whether it charges a fee before its
+ * first chunk, so a resumed run charges exactly what it started with.
+ *
+ * Each chunk is done in this order, which makes a crashed run safe to resume:
+ *   1. compute and write statement-NNNNNN.csv (temp file, rename, then
+ *      force the directory so the rename itself survives a crash)
+ *   2. set the closing balances from it and force them to disk
+ *   3. mark the chunk done in the checkpoint file
+ * Running the same date again skips done chunks; a chunk whose statement
+ * exists but is not marked done has its closing balances applied again
+ * from the statement (setting, not adding, so nothing is posted twice).
+ *
+ * The totals logged at the end cover the chunks this run posted or applied
+ * again, not chunks an earlier, interrupted run had already marked done.
+ *
+ * Usage: java EndOfDayBatch <storeFile> <yyyy-MM-dd> [threads]
+ * Output goes to "<storeFile>.eod-<date>/", the last fee month to "<storeFile>.last-fee".
+ */
+public class EndOfDayBatch {
+
+    public static final int CHUNK_ACCOUNTS = 65536;
+    public static final int DEFAULT_INTEREST_BASIS_POINTS = 350;   // 3.50% a year
+    public static final long DEFAULT_MINIMUM_BALANCE = 100_000;     // 1,000.00
+    public static final long DEFAULT_MONTHLY_FEE = 5_000;           // 50.00, charged on the last business date of the month
+    private static final long PLANNING_ACCOUNTS = 50_000_000;       // Size the maintenance window is planned for
+    private static final int PROGRESS_SECONDS = 5;
+
+    private final OffHeapAccountStore store;
+    private final Path runDirectory;
+    private final Path lastFeeFile;
+    private final LocalDate businessDate;
+    private final int interestBasisPoints;
+    private final long minimumBalance;
+    private final long monthlyFee;
+    private long fee;                          // Set by run(): monthlyFee if this run charges it, else 0
+
+    private final LongAdder accountsDone = new LongAdder();
+    private final LongAdder interestPosted = new LongAdder();
+    private final LongAdder feesPosted = new LongAdder();
+
+    /**
+     * Constructor
+     * @param store - Accounts to process (must stay open and unchanged while the batch runs)
+     * @param runDirectory - Where statements and the checkpoint for this business date go
+     * @param lastFeeFile - Remembers the last month whose fee is settled (created by the first run)
+     * @param businessDate - Date being closed; the monthly fee is charged on the last business date of a
+     *                       month, or on the first run after it if that date was missed
+     * @param interestBasisPoints - Annual interest rate in 1/100 of a percent
+     * @param minimumBalance - Balances below this (paise) pay the monthly fee
+     * @param monthlyFee - Monthly fee in paise
+     */
+    public EndOfDayBatch(OffHeapAccountStore store, Path runDirectory, Path lastFeeFile, LocalDate businessDate,
+                         int interestBasisPoints, long minimumBalance, long monthlyFee) {
+        this.store = store;
+        this.runDirectory = runDirectory;
+        this.lastFeeFile = lastFeeFile;
+        this.businessDate = businessDate;
+        this.interestBasisPoints = interestBasisPoints;
+        this.minimumBalance = minimumBalance;
+        this.monthlyFee = monthlyFee;
+    }
+
+    /**
+     * lastBusinessDate() - Last Monday-to-Friday date of a month
+     */
+    public static LocalDate lastBusinessDate(YearMonth month) {
+        LocalDate date = month.atEndOfMonth();
+        while (date.getDayOfWeek() == DayOfWeek.SATURDAY || date.getDayOfWeek() == DayOfWeek.SUNDAY) {
+            date = date.minusDays(1);
+        }
+        return date;
+    }
+
+    // Month whose fee this run charges, or null. Decided once per run and written to the run
+    // directory first, so a resumed run does not decide again after lastFeeFile has moved on
+    private YearMonth decideFeeMonth() throws IOException {
+        Path decision = runDirectory.resolve("fee-month");
+        if (Files.exists(decision)) {
+            String month = Files.readString(decision).trim();
+            return month.equals("none") ? null : YearMonth.parse(month);
+        }
+
+        YearMonth current = YearMonth.from(businessDate);
+        YearMonth due = businessDate.isBefore(lastBusinessDate(current)) ? current.minusMonths(1) : current;
+        boolean firstRun = !Files.exists(lastFeeFile);
+        YearMonth feeMonth;
+        if (firstRun) {
+            feeMonth = due.equals(current) ? due : null;   // Earlier months are not known: count them as settled
+        } else {
+            YearMonth last = YearMonth.parse(Files.readString(lastFeeFile).trim());
+            feeMonth = last.isBefore(due) ? due : null;
+        }
+
+        writeAtomically(decision, feeMonth == null ? "none" : feeMonth.toString());
+        if (firstRun || feeMonth != null) {
+            writeAtomically(lastFeeFile, due.toString());
+        }
+        return feeMonth;
+    }
+
+    // Temp file, force, rename, force the directory
+    private static void writeAtomically(Path path, String text) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.writeString(temp, text + "\n");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        FileSync.syncDirectory(path.toAbsolutePath().getParent());
+    }
+
+    /**
+     * run() - Processes every chunk not done yet
+     * @param threads - Fork-join parallelism
+     * @return Number of accounts processed in this run (0 if the date was already complete)
+     */
+    public long run(int threads) throws IOException {
+        Files.createDirectories(runDirectory);
+        int accountCount = store.size();
+        int chunkCount = (accountCount + CHUNK_ACCOUNTS - 1) / CHUNK_ACCOUNTS;
+
+        try (Checkpoint checkpoint = Checkpoint.open(runDirectory.resolve("checkpoint"), accountCount, chunkCount)) {
+            int remaining = chunkCount - checkpoint.countDone();
+            if (remaining == 0) {
+                Log.info("✓ End of day already complete for {} accounts", accountCount);
+                return 0;
+            }
+            if (remaining < chunkCount) {
+                Log.info("Resuming: {} of {} chunks left", remaining, chunkCount);
+            }
+            YearMonth feeMonth = decideFeeMonth();
+            fee = feeMonth == null ? 0 : monthlyFee;
+            if (feeMonth != null) {
+                Log.info("Charging the monthly fee for {}", feeMonth);
+            }
+
+            long start = System.nanoTime();
+            ScheduledExecutorService progress = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "eod-progress");
+                thread.setDaemon(true);
+                return thread;
+            });
+            progress.scheduleAtFixedRate(() -> reportProgress(start, accountCount),
+                    PROGRESS_SECONDS, PROGRESS_SECONDS, TimeUnit.SECONDS);
+
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                pool.invoke(new ChunkRange(checkpoint, 0, chunkCount));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                pool.shutdown();
+                progress.shutdownNow();
+            }
+
+            double seconds = Math.max(1, System.nanoTime() - start) / 1e9;
+            long done = accountsDone.sum();
+            double perSecond = done / seconds;
+            Log.info("✓ End of day: {} accounts in {} s ({} accounts/s), interest {} fees {}",
+                    done, String.format("%.1f", seconds), String.format("%.0f", perSecond),
+                    AccountEngine.format(interestPosted.sum()), AccountEngine.format(feesPosted.sum()));
+            Log.info("  At this rate {} accounts take about {} minutes", PLANNING_ACCOUNTS,
+                    String.format("%.1f", PLANNING_ACCOUNTS / perSecond / 60));
+            return done;
+        }
+    }
+
+    private void reportProgress(long start, int accountCount) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long done = accountsDone.sum();
+        Log.info("  {} / {} accounts, {} accounts/s", done, accountCount, String.format("%.0f", done / seconds));
+    }
+
+    /**
+     * ChunkRange - Fork-join task over chunks lo .. hi - 1, split until one chunk each
+     */
+    private final class ChunkRange extends RecursiveAction {
+        private final Checkpoint checkpoint;
+        private final int lo;
+        private final int hi;
+
+        ChunkRange(Checkpoint checkpoint, int lo, int hi) {
+            this.checkpoint = checkpoint;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > 1) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new ChunkRange(checkpoint, lo, mid), new ChunkRange(checkpoint, mid, hi));
+                return;
+            }
+            if (checkpoint.isDone(lo)) {
+                return;
+            }
+            try {
+                processChunk(lo);
+                checkpoint.markDone(lo);
+            } catch (IOException e) {
+                throw new UncheckedIOException("End of day failed in chunk " + lo, e);
+            }
+        }
+    }
+
+    // Steps 1 and 2 for one chunk (see the class comment)
+    private void processChunk(int chunk) throws IOException {
+        int from = chunk * CHUNK_ACCOUNTS;
+        int to = Math.min(from + CHUNK_ACCOUNTS, store.size());
+        Path statement = runDirectory.resolve(String.format("statement-%06d.csv", chunk));
+
+        if (Files.exists(statement)) {
+            reapply(statement, from, to);
+        } else {
+            long[] closing = new long[to - from];
+            Path temp = statement.resolveSibling(statement.getFileName() + ".tmp");
+            StringBuilder line = new StringBuilder(128);
+            long chunkInterest = 0;
+            long chunkFees = 0;
+
+            try (BufferedWriter out = Files.newBufferedWriter(temp)) {
+                for (int slot = from; slot < to; slot++) {
+                    long opening = store.getBalanceAt(slot);
+                    long interest = opening * interestBasisPoints / (10_000L * 365);
+                    long afterInterest = opening + interest;
+                    long charged = afterInterest < minimumBalance ? Math.min(fee, afterInterest) : 0;
+                    closing[slot - from] = afterInterest - charged;
+                    chunkInterest += interest;
+                    chunkFees += charged;
+
+                    // account,opening,interest,fee,closing,holder (holder last: it may contain commas)
+                    line.setLength(0);
+                    line.append(store.getAccountNumberAt(slot)).append(',');
+                    OffHeapAccountStore.appendPaise(opening, line);
+                    line.append(',');
+                    OffHeapAccountStore.appendPaise(interest, line);
+                    line.append(',');
+                    OffHeapAccountStore.appendPaise(charged, line);
+                    line.append(',');
+                    OffHeapAccountStore.appendPaise(closing[slot - from], line);
+                    line.append(',').append(store.getHolderNameAt(slot)).append('\n');
+                    out.append(line);
+                }
+            }
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(temp, statement, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            // Until the directory is on disk the rename may be lost in a crash, and the
+            // balances below would then be posted again from a fresh statement
+            FileSync.syncDirectory(runDirectory);
+
+            for (int slot = from; slot < to; slot++) {
+                store.setBalanceAt(slot, closing[slot - from]);
+            }
+            interestPosted.add(chunkInterest);
+            feesPosted.add(chunkFees);
+        }
+
+        store.forceBalances(from, to);
+        accountsDone.add(to - from);
+    }
+
+    // Sets the closing balances recorded in a statement from an interrupted run,
+    // and counts its interest and fees into this run's totals
+    private void reapply(Path statement, int from, int to) throws IOException {
+        long chunkInterest = 0;
+        long chunkFees = 0;
+        try (BufferedReader in = Files.newBufferedReader(statement)) {
+            for (int slot = from; slot < to; slot++) {
+                String line = in.readLine();
+                if (line == null) {
+                    throw new IOException(statement + " ends before slot " + slot);
+                }
+                String[] fields = line.split(",", 6);
+                if (Integer.parseInt(fields[0]) != store.getAccountNumberAt(slot)) {
+                    throw new IOException(statement + " does not match the store at slot " + slot);
+                }
+                store.setBalanceAt(slot, AccountEngine.toPaise(fields[4]));
+                chunkInterest += AccountEngine.toPaise(fields[2]);
+                chunkFees += AccountEngine.toPaise(fields[3]);
+            }
+        }
+        interestPosted.add(chunkInterest);
+        feesPosted.add(chunkFees);
+    }
+
+    /**
+     * Checkpoint - One byte per chunk (1 = done), forced to disk as each chunk finishes
+     * Chunks are marked from many threads; positional writes do not share a file position.
+     */
+    private static final class Checkpoint implements AutoCloseable {
+        private static final int MAGIC = 0x454F4443;   // "EODC"
+        private static final int HEADER_SIZE = 16;
+
+        private final FileChannel channel;
+        private final byte[] done;
+
+        private Checkpoint(FileChannel channel, byte[] done) {
+            this.channel = channel;
+            this.done = done;
+        }
+
+        static Checkpoint open(Path path, int accountCount, int chunkCount) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            byte[] done = new byte[chunkCount];
+
+            if (channel.size() == 0) {
+                header.putInt(MAGIC).putInt(accountCount).putInt(CHUNK_ACCOUNTS).putInt(chunkCount).flip();
+                channel.write(header, 0);
+                channel.write(ByteBuffer.wrap(done), HEADER_SIZE);
+                channel.force(true);
+            } else {
+                channel.read(header, 0);
+                header.flip();
+                if (header.getInt() != MAGIC || header.getInt() != accountCount
+                        || header.getInt() != CHUNK_ACCOUNTS || header.getInt() != chunkCount) {
+                    channel.close();
+                    throw new IOException(path + " belongs to a different run (account count or chunk size changed)");
+                }
+                channel.read(ByteBuffer.wrap(done), HEADER_SIZE);
+            }
+            return new Checkpoint(channel, done);
+        }
+
+        int countDone() {
+            int count = 0;
+            for (byte flag : done) {
+                count += flag;
+            }
+            return count;
+        }
+
+        boolean isDone(int chunk) {
+            return done[chunk] == 1;
+        }
+
+        void markDone(int chunk) throws IOException {
+            channel.write(ByteBuffer.wrap(new byte[] {1}), HEADER_SIZE + chunk);
+            channel.force(false);
+            done[chunk] = 1;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * main() - Runs (or resumes) end of day for one business date
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: java EndOfDayBatch <storeFile> <yyyy-MM-dd> [threads]");
+            return;
+        }
+        Path file = Paths.get(args[0]);
+        LocalDate date = LocalDate.parse(args[1]);
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        if (!Files.exists(file)) {
+            System.out.println("✗ No account store at " + file);
+            return;
+        }
+
+        try (OffHeapAccountStore store = OffHeapAccountStore.open(file, 1)) {
+            Path runDirectory = Paths.get(file + ".eod-" + date);
+            Path lastFeeFile = Paths.get(file + ".last-fee");
+            new EndOfDayBatch(store, runDirectory, lastFeeFile, date, DEFAULT_INTEREST_BASIS_POINTS,
+                    DEFAULT_MINIMUM_BALANCE, DEFAULT_MONTHLY_FEE).run(threads);
+        }
+    }
+}
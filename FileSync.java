@@ -0,0 +1,34 @@
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * FileSync - Forces a directory to disk after files in it were created, renamed or deleted
+ * A file's own force() does not save its directory entry, so without this a
+ * crash can lose a newly created or renamed file even though its data was
+ * forced. Shared by Ledger, LedgerLog and EndOfDayBatch.
+ */
+final class FileSync {
+
+    private static final boolean WINDOWS = System.getProperty("os.name", "").startsWith("Windows");
+
+    private FileSync() {
+    }
+
+    /**
+     * syncDirectory() - Forces the entries of a directory to disk
+     * Windows cannot open a directory as a file, so there the error is ignored
+     * (as Lucene's IOUtils.fsync does); the forced file carries its entry.
+     * @param directory - Folder whose entries changed
+     */
+    static void syncDirectory(Path directory) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            if (!WINDOWS) {
+                throw e;
+            }
+        }
+    }
+}
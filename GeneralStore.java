@@ -1,9 +1,15 @@
+import logging.Log;
+
 class Product {
 
 
     private String productName;
     private double price;
 
+    // Set by ProductCatalog.add(); the catalog re-indexes the product whenever its price changes
+    ProductCatalog catalog;
+    int catalogId = -1;
+
 
     static String storeName = "General Store";
 
@@ -36,17 +42,29 @@ class Product {
     }
 
     public void setPrice(double price) {
-        this.price = price;
+        changePrice(price);
     }
 
 
     void discount(double percentage) {
-        price = (price - (price * percentage / 100));
+        changePrice(price - (price * percentage / 100));
     }
 
 
     void discount(int flatAmount) {
-        price = price - flatAmount;
+        changePrice(price - flatAmount);
+    }
+
+
+    // Checks the new price with the catalog first, so a price it rejects changes nothing
+    private void changePrice(double newPrice) {
+        if (catalog != null) {
+            ProductCatalog.checkPrice(newPrice);
+        }
+        price = newPrice;
+        if (catalog != null) {
+            catalog.priceChanged(this);
+        }
     }
 
 
@@ -56,10 +74,8 @@ class Product {
 
 
     void display() {
-        System.out.println("Store Name: " + storeName);
-        System.out.println("Product: " + productName);
-        System.out.println("Price: $" + price);
-        System.out.println("--------------------------");
+        Log.info("Store Name: {}\nProduct: {}\nPrice: ${}\n--------------------------",
+                storeName, productName, price);
     }
 }
 
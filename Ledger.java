@@ -0,0 +1,545 @@
+import logging.Log;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Ledger - Bank accounts whose balances survive a restart
+ *
+ * Every change is first written to the LedgerLog (write-ahead log) and a call
+ * returns only once its posting is on disk. Many threads posting at the same
+ * time share one fsync (group commit), so throughput grows with the number of
+ * postings per fsync instead of being capped at one fsync per operation.
+ *
+ * Every snapshotEvery postings the balances are written to a compact snapshot
+ * file in the background, and log segments it covers are deleted. Opening a
+ * ledger loads the newest snapshot and replays only the log after it, so
+ * start-up time depends on the snapshot interval, not on the whole history.
+ *
+ * Files in the ledger directory:
+ *   snapshot-<sequence>.snap   balances as of that posting
+ *   ledger-<sequence>.log      log segments (see LedgerLog)
+ *
+ * Amounts are in paise, like AccountEngine.
+ */
+public class Ledger implements AutoCloseable {
+
+    public static final int DEFAULT_SNAPSHOT_EVERY = 1_000_000;
+
+    private static final int SNAPSHOT_MAGIC = 0x4C534E50;   // "LSNP"
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+
+    private final Path directory;
+    private final int snapshotEvery;
+    private final LedgerLog log;
+
+    // Guarded by lock: balances change in the same order as postings enter the log
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Integer, Account> accounts = new HashMap<>();
+    private long snapshotRequestedAt;   // Sequence at which the last snapshot was started
+
+    private final ExecutorService snapshotter = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "ledger-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Filled in by recovery
+    private final long recoveredSnapshotSequence;
+    private long replayedPostings = 0;
+    private final long recoveryMillis;
+
+    private static final class Account {
+        final String holderName;
+        long balance;
+
+        Account(String holderName, long balance) {
+            this.holderName = holderName;
+            this.balance = balance;
+        }
+    }
+
+    /**
+     * open() - Opens (or creates) a ledger and recovers its balances
+     * @param directory - Folder holding snapshots and log segments
+     */
+    public static Ledger open(Path directory) throws IOException {
+        return new Ledger(directory, DEFAULT_SNAPSHOT_EVERY);
+    }
+
+    /**
+     * Constructor
+     * @param directory - Folder holding snapshots and log segments
+     * @param snapshotEvery - Postings between automatic snapshots
+     */
+    public Ledger(Path directory, int snapshotEvery) throws IOException {
+        if (snapshotEvery < 1) {
+            throw new IllegalArgumentException("snapshotEvery must be positive: " + snapshotEvery);
+        }
+        long start = System.nanoTime();
+        this.directory = directory;
+        this.snapshotEvery = snapshotEvery;
+        Files.createDirectories(directory);
+
+        recoveredSnapshotSequence = loadNewestSnapshot();
+        log = LedgerLog.open(directory, recoveredSnapshotSequence, this::replay);
+        snapshotRequestedAt = recoveredSnapshotSequence;
+        recoveryMillis = (System.nanoTime() - start) / 1_000_000;
+    }
+
+    /**
+     * openAccount() - Adds an account
+     * @param accountNumber - Unique account number
+     * @param holderName - Name of the account holder (at most 24 bytes of UTF-8)
+     * @param openingBalance - Starting balance in paise
+     */
+    public void openAccount(int accountNumber, String holderName, long openingBalance) throws IOException {
+        byte[] name = holderName.getBytes(StandardCharsets.UTF_8);
+        if (name.length > LedgerLog.MAX_NAME_BYTES) {
+            throw new IllegalArgumentException("Holder name too long for the ledger: " + holderName);
+        }
+        if (openingBalance < 0) {
+            throw new IllegalArgumentException("Opening balance cannot be negative");
+        }
+
+        long sequence;
+        lock.lock();
+        try {
+            if (accounts.containsKey(accountNumber)) {
+                throw new IllegalArgumentException("Account " + accountNumber + " already exists");
+            }
+            sequence = log.append(LedgerLog.OPEN, accountNumber, 0, openingBalance, name);
+            accounts.put(accountNumber, new Account(holderName, openingBalance));
+        } finally {
+            lock.unlock();
+        }
+        commit(sequence);
+    }
+
+    /**
+     * deposit() - Adds money to an account
+     * @param amount - Paise to add (must be positive)
+     * @return New balance in paise
+     */
+    public long deposit(int accountNumber, long amount) throws IOException {
+        checkAmount(amount);
+        long sequence;
+        long balance;
+        lock.lock();
+        try {
+            Account account = accountOf(accountNumber);
+            balance = Math.addExact(account.balance, amount);
+            sequence = log.append(LedgerLog.DEPOSIT, accountNumber, 0, amount, null);
+            account.balance = balance;
+        } finally {
+            lock.unlock();
+        }
+        commit(sequence);
+        return balance;
+    }
+
+    /**
+     * withdraw() - Takes money from an account if the balance covers it
+     * @param amount - Paise to take (must be positive)
+     * @return true if withdrawn, false if the balance was too low (nothing is logged)
+     */
+    public boolean withdraw(int accountNumber, long amount) throws IOException {
+        checkAmount(amount);
+        long sequence;
+        lock.lock();
+        try {
+            Account account = accountOf(accountNumber);
+            if (account.balance < amount) {
+                return false;
+            }
+            sequence = log.append(LedgerLog.WITHDRAW, accountNumber, 0, amount, null);
+            account.balance -= amount;
+        } finally {
+            lock.unlock();
+        }
+        commit(sequence);
+        return true;
+    }
+
+    /**
+     * transfer() - Moves money between two accounts as one posting
+     * @return true if moved, false if fromAccount's balance was too low (nothing is logged)
+     */
+    public boolean transfer(int fromAccount, int toAccount, long amount) throws IOException {
+        checkAmount(amount);
+        if (fromAccount == toAccount) {
+            throw new IllegalArgumentException("Cannot transfer to the same account");
+        }
+        long sequence;
+        lock.lock();
+        try {
+            Account from = accountOf(fromAccount);
+            Account to = accountOf(toAccount);
+            if (from.balance < amount) {
+                return false;
+            }
+            long toBalance = Math.addExact(to.balance, amount);
+            sequence = log.append(LedgerLog.TRANSFER, fromAccount, toAccount, amount, null);
+            from.balance -= amount;
+            to.balance = toBalance;
+        } finally {
+            lock.unlock();
+        }
+        commit(sequence);
+        return true;
+    }
+
+    public long getBalance(int accountNumber) {
+        lock.lock();
+        try {
+            return accountOf(accountNumber).balance;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public String getHolderName(int accountNumber) {
+        lock.lock();
+        try {
+            return accountOf(accountNumber).holderName;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getAccountCount() {
+        lock.lock();
+        try {
+            return accounts.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * display() - Logs one account in the same layout as BankAccount.display()
+     */
+    public void display(int accountNumber) {
+        Log.info("\n--- Account Details ---\nAccount Number: {}\nHolder Name:    {}\nCurrent Balance:{}\n"
+                + "-----------------------\n", accountNumber, getHolderName(accountNumber),
+                AccountEngine.format(getBalance(accountNumber)));
+    }
+
+    /**
+     * snapshot() - Writes a snapshot now and deletes the log it makes unnecessary
+     * @return Sequence of the last posting in the snapshot
+     */
+    public long snapshot() throws IOException {
+        long sequence;
+        int[] numbers;
+        String[] names;
+        long[] balances;
+
+        // Copy under the lock (fast), write outside it (slow)
+        lock.lock();
+        try {
+            sequence = log.getLastSequence();
+            snapshotRequestedAt = sequence;
+            numbers = new int[accounts.size()];
+            names = new String[accounts.size()];
+            balances = new long[accounts.size()];
+            int i = 0;
+            for (Map.Entry<Integer, Account> entry : accounts.entrySet()) {
+                numbers[i] = entry.getKey();
+                names[i] = entry.getValue().holderName;
+                balances[i] = entry.getValue().balance;
+                i++;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        // A snapshot must never contain postings the log could still lose
+        log.awaitDurable(sequence);
+        writeSnapshot(sequence, numbers, names, balances);
+        log.deleteUpTo(sequence);
+        deleteSnapshotsBefore(sequence);
+        return sequence;
+    }
+
+    public long getRecoveredSnapshotSequence() {
+        return recoveredSnapshotSequence;
+    }
+
+    public long getReplayedPostings() {
+        return replayedPostings;
+    }
+
+    public long getRecoveryMillis() {
+        return recoveryMillis;
+    }
+
+    /**
+     * getFsyncCount() - Times the log was forced to disk since opening
+     * Postings divided by this is the average group commit batch size.
+     */
+    public long getFsyncCount() {
+        return log.getForceCount();
+    }
+
+    /**
+     * close() - Waits for a running snapshot, writes a final one and closes the log
+     * The final snapshot makes the next start-up replay nothing.
+     */
+    @Override
+    public void close() throws IOException {
+        snapshotter.shutdown();
+        try {
+            snapshotter.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lock.lock();
+        boolean changed;
+        try {
+            changed = log.getLastSequence() > snapshotRequestedAt;
+        } finally {
+            lock.unlock();
+        }
+        if (changed) {
+            snapshot();
+        }
+        log.close();
+    }
+
+    // Waits for the posting to be durable, and starts a background snapshot when one is due
+    private void commit(long sequence) throws IOException {
+        log.awaitDurable(sequence);
+
+        boolean due;
+        lock.lock();
+        try {
+            due = sequence - snapshotRequestedAt >= snapshotEvery;
+            if (due) {
+                snapshotRequestedAt = sequence;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (due && !snapshotter.isShutdown()) {
+            snapshotter.execute(() -> {
+                try {
+                    snapshot();
+                } catch (IOException | RuntimeException e) {
+                    Log.error("✗ Ledger snapshot failed - the log keeps growing until one succeeds", e);
+                }
+            });
+        }
+    }
+
+    // Applies one posting from the log during recovery (no checks: it was checked when first made)
+    private void replay(long sequence, byte type, int account, int otherAccount, long amount, String holderName) {
+        switch (type) {
+            case LedgerLog.OPEN:
+                accounts.put(account, new Account(holderName, amount));
+                break;
+            case LedgerLog.DEPOSIT:
+                accounts.get(account).balance += amount;
+                break;
+            case LedgerLog.WITHDRAW:
+                accounts.get(account).balance -= amount;
+                break;
+            default:
+                accounts.get(account).balance -= amount;
+                accounts.get(otherAccount).balance += amount;
+                break;
+        }
+        replayedPostings++;
+    }
+
+    private Account accountOf(int accountNumber) {
+        Account account = accounts.get(accountNumber);
+        if (account == null) {
+            throw new IllegalArgumentException("Unknown account " + accountNumber);
+        }
+        return account;
+    }
+
+    private static void checkAmount(long amount) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Amount must be positive: " + amount);
+        }
+    }
+
+    // Snapshot file: magic, version, sequence, count, then (number, balance, name) per account, then CRC32
+    private void writeSnapshot(long sequence, int[] numbers, String[] names, long[] balances) throws IOException {
+        Path target = snapshotPath(sequence);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (OutputStream file = Files.newOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(
+                     new BufferedOutputStream(new CheckedOutputStream(file, crc), 65536))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeLong(sequence);
+            out.writeInt(numbers.length);
+            for (int i = 0; i < numbers.length; i++) {
+                out.writeInt(numbers[i]);
+                out.writeLong(balances[i]);
+                out.writeUTF(names[i]);
+            }
+            out.flush();
+            new DataOutputStream(file).writeLong(crc.getValue());
+        }
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        // The rename only survives a crash once the directory is on disk too -
+        // without this the log could be trimmed while the snapshot is still missing
+        FileSync.syncDirectory(directory);
+    }
+
+    // Loads the newest snapshot that reads back cleanly; returns its sequence (0 if there is none)
+    private long loadNewestSnapshot() throws IOException {
+        List<Path> snapshots = listSnapshots();
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            Path path = snapshots.get(i);
+            try {
+                return readSnapshot(path);
+            } catch (IOException e) {
+                Log.warn("✗ Skipping damaged ledger snapshot {}", path, e);
+                accounts.clear();
+            }
+        }
+        return 0;
+    }
+
+    private long readSnapshot(Path path) throws IOException {
+        CRC32 crc = new CRC32();
+        try (InputStream file = Files.newInputStream(path);
+             CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(file, 65536), crc);
+             DataInputStream in = new DataInputStream(checked)) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException("Not a ledger snapshot: " + path);
+            }
+            long sequence = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                int number = in.readInt();
+                long balance = in.readLong();
+                accounts.put(number, new Account(in.readUTF(), balance));
+            }
+            long expected = crc.getValue();
+            if (in.readLong() != expected) {
+                throw new IOException("Checksum mismatch in " + path);
+            }
+            return sequence;
+        } catch (EOFException e) {
+            throw new IOException("Truncated ledger snapshot: " + path, e);
+        }
+    }
+
+    private void deleteSnapshotsBefore(long sequence) throws IOException {
+        for (Path path : listSnapshots()) {
+            if (parseSnapshotSequence(path) < sequence) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private Path snapshotPath(long sequence) {
+        return directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, sequence, SNAPSHOT_SUFFIX));
+    }
+
+    private static long parseSnapshotSequence(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length()));
+    }
+
+    // Snapshot files sorted oldest first
+    private List<Path> listSnapshots() throws IOException {
+        List<Path> snapshots = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SNAPSHOT_PREFIX + "*" + SNAPSHOT_SUFFIX)) {
+            for (Path path : stream) {
+                snapshots.add(path);
+            }
+        }
+        snapshots.sort((a, b) -> Long.compare(parseSnapshotSequence(a), parseSnapshotSequence(b)));
+        return snapshots;
+    }
+
+    /**
+     * main() - Recovers a ledger, then measures postings per second with many threads
+     *   java Ledger <dir> [threads] [seconds] [accounts]
+     */
+    public static void main(String[] args) throws Exception {
+        Path directory = Paths.get(args.length > 0 ? args[0] : "ledger");
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        int accountCount = args.length > 3 ? Integer.parseInt(args[3]) : 10_000;
+
+        try (Ledger ledger = Ledger.open(directory)) {
+            Log.info("Recovered {} accounts in {} ms (snapshot at posting {}, {} postings replayed)",
+                    ledger.getAccountCount(), ledger.getRecoveryMillis(),
+                    ledger.getRecoveredSnapshotSequence(), ledger.getReplayedPostings());
+
+            for (int i = ledger.getAccountCount() + 1; i <= accountCount; i++) {
+                ledger.openAccount(i, "Holder " + i, 1_000_000);
+            }
+
+            long fsyncsBefore = ledger.getFsyncCount();
+            LongAdder postings = new LongAdder();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Thread worker = new Thread(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    try {
+                        while (System.nanoTime() < deadline) {
+                            int from = random.nextInt(accountCount) + 1;
+                            int to = from % accountCount + 1;
+                            ledger.transfer(from, to, random.nextLong(1, 101));
+                            postings.increment();
+                        }
+                    } catch (IOException e) {
+                        Log.error("✗ Posting failed", e);
+                    }
+                }, "poster-" + t);
+                workers.add(worker);
+                worker.start();
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+
+            long fsyncs = Math.max(1, ledger.getFsyncCount() - fsyncsBefore);
+            Log.info("{} threads: {} postings/s, {} fsyncs, {} postings per fsync",
+                    threads, postings.sum() / seconds, fsyncs, postings.sum() / fsyncs);
+        }
+    }
+}
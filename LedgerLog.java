@@ -0,0 +1,442 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * LedgerLog - Write-ahead log of ledger postings, with group commit
+ * Postings are copied into memory-mapped segment files. A background thread
+ * forces the file to disk, and one force covers every posting appended since
+ * the previous one, so the number of fsyncs depends on how often the disk can
+ * keep up rather than on how many postings there are.
+ *
+ * Files: ledger-00000000000000000001.log, ...  The directory is forced to
+ * disk as soon as a segment is created, before anything is written into it.
+ * Each segment has a 16 byte header (magic, version, first sequence)
+ * followed by fixed 64 byte records:
+ *
+ *   0 type | 1 name length | 4 account | 8 other account | 12 amount (paise)
+ *   20 sequence | 28..51 holder name (OPEN only) | 52 CRC32 of bytes 0..51
+ */
+final class LedgerLog implements AutoCloseable {
+
+    static final byte OPEN = 1;
+    static final byte DEPOSIT = 2;
+    static final byte WITHDRAW = 3;
+    static final byte TRANSFER = 4;
+
+    static final int MAX_NAME_BYTES = 24;
+
+    private static final int MAGIC = 0x4C444752;            // "LDGR"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_SIZE = 64;
+    private static final int NAME_OFFSET = 28;
+    private static final int CHECKSUM_OFFSET = 52;
+    private static final String FILE_PREFIX = "ledger-";
+    private static final String FILE_SUFFIX = ".log";
+
+    static final int DEFAULT_RECORDS_PER_SEGMENT = 65536;   // 4 MB segments
+
+    /**
+     * Visitor - Receives postings during recovery
+     */
+    interface Visitor {
+        void posting(long sequence, byte type, int account, int otherAccount, long amount, String holderName);
+    }
+
+    private final Path directory;
+    private final int recordsPerSegment;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushNeeded = lock.newCondition();
+    private final Condition flushDone = lock.newCondition();
+
+    // Guarded by lock
+    private Segment active;
+    private long nextSequence;
+    private long writtenSequence;     // Last sequence copied into the mapped file
+    private long durableSequence;     // Last sequence forced to disk
+    private long forceCount = 0;
+    private IOException flushError;
+    private boolean closed = false;
+
+    private final Thread flusher;
+
+    /**
+     * open() - Replays the log after a snapshot, then opens it for appending
+     * Replay stops at the first missing, empty or damaged record; that is where
+     * the last run stopped writing.
+     * @param directory - Folder holding the segment files
+     * @param afterSequence - Sequence already covered by the snapshot (0 if none)
+     * @param visitor - Called once per posting after afterSequence, oldest first
+     */
+    static LedgerLog open(Path directory, long afterSequence, Visitor visitor) throws IOException {
+        return new LedgerLog(directory, DEFAULT_RECORDS_PER_SEGMENT, afterSequence, visitor);
+    }
+
+    LedgerLog(Path directory, int recordsPerSegment, long afterSequence, Visitor visitor) throws IOException {
+        this.directory = directory;
+        this.recordsPerSegment = recordsPerSegment;
+        Files.createDirectories(directory);
+
+        long lastSequence = afterSequence;
+        List<Path> segments = listSegments(directory);
+        for (Path path : segments) {
+            lastSequence = readSegment(path, lastSequence, visitor);
+        }
+
+        Path last = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (last != null && parseFirstSequence(last) > lastSequence + 1) {
+            throw new IOException("Ledger log is missing postings " + (lastSequence + 1) + " to "
+                    + (parseFirstSequence(last) - 1) + " before " + last);
+        }
+        if (last != null && lastSequence + 1 - parseFirstSequence(last) <= recordsPerSegment) {
+            active = Segment.openForAppend(last, lastSequence);
+        } else {
+            // New ledger, or the snapshot is newer than every segment (deleteUpTo() removes them later)
+            active = Segment.create(segmentPath(lastSequence + 1), lastSequence + 1, recordsPerSegment);
+        }
+        nextSequence = lastSequence + 1;
+        writtenSequence = lastSequence;
+        durableSequence = lastSequence;
+
+        flusher = new Thread(this::flushLoop, "ledger-log-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * append() - Copies one posting into the log without waiting for the disk
+     * Call awaitDurable() with the returned sequence before acknowledging it.
+     * @return Sequence number of the posting
+     */
+    long append(byte type, int account, int otherAccount, long amount, byte[] holderName) throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IOException("Ledger log is closed");
+            }
+            if (flushError != null) {
+                throw new IOException("Ledger log could not be written to disk", flushError);
+            }
+            if (active.isFull()) {
+                rollSegment();
+            }
+
+            long sequence = nextSequence++;
+            active.write(sequence, type, account, otherAccount, amount, holderName);
+            writtenSequence = sequence;
+            flushNeeded.signal();
+            return sequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * awaitDurable() - Waits until a posting (and everything before it) is on disk
+     */
+    void awaitDurable(long sequence) throws IOException {
+        lock.lock();
+        try {
+            while (durableSequence < sequence) {
+                if (flushError != null) {
+                    throw new IOException("Ledger log could not be written to disk", flushError);
+                }
+                flushDone.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * deleteUpTo() - Removes segments whose postings are all covered by a snapshot
+     * @param snapshotSequence - Last sequence included in the snapshot
+     * @return Number of segment files removed
+     */
+    int deleteUpTo(long snapshotSequence) throws IOException {
+        lock.lock();
+        try {
+            List<Path> segments = listSegments(directory);
+            int removed = 0;
+            for (int i = 0; i + 1 < segments.size(); i++) {
+                Path path = segments.get(i);
+                // Every posting in this segment comes before the next segment's first sequence
+                if (path.equals(active.path) || parseFirstSequence(segments.get(i + 1)) > snapshotSequence + 1) {
+                    break;
+                }
+                Files.delete(path);
+                removed++;
+            }
+            return removed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long getForceCount() {
+        lock.lock();
+        try {
+            return forceCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long getLastSequence() {
+        lock.lock();
+        try {
+            return writtenSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * close() - Forces remaining postings to disk and stops the flusher
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            flushNeeded.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        active.force();
+        active.close();
+    }
+
+    // Seals the full segment and starts a new one (called with the lock held)
+    private void rollSegment() throws IOException {
+        active.force();
+        forceCount++;
+        durableSequence = writtenSequence;
+        flushDone.signalAll();
+        active.close();
+        active = Segment.create(segmentPath(nextSequence), nextSequence, recordsPerSegment);
+    }
+
+    // Background thread: one force() for every group of appended postings
+    private void flushLoop() {
+        while (true) {
+            Segment segment;
+            long target;
+
+            lock.lock();
+            try {
+                while (writtenSequence == durableSequence && !closed) {
+                    flushNeeded.awaitUninterruptibly();
+                }
+                if (writtenSequence == durableSequence) {
+                    return;  // Closed and nothing left to flush
+                }
+                segment = active;
+                target = writtenSequence;
+            } finally {
+                lock.unlock();
+            }
+
+            IOException error = null;
+            try {
+                segment.force();
+            } catch (IOException | RuntimeException e) {
+                error = e instanceof IOException ? (IOException) e : new IOException(e);
+            }
+
+            lock.lock();
+            try {
+                if (error != null) {
+                    flushError = error;
+                } else {
+                    forceCount++;
+                    if (target > durableSequence) {
+                        durableSequence = target;
+                    }
+                }
+                flushDone.signalAll();
+                if (error != null) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private Path segmentPath(long firstSequence) {
+        return directory.resolve(String.format("%s%020d%s", FILE_PREFIX, firstSequence, FILE_SUFFIX));
+    }
+
+    private static long parseFirstSequence(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+    }
+
+    // Segment files sorted by first sequence
+    private static List<Path> listSegments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+            for (Path path : stream) {
+                segments.add(path);
+            }
+        }
+        Collections.sort(segments, Comparator.comparingLong(LedgerLog::parseFirstSequence));
+        return segments;
+    }
+
+    // Passes on postings after lastSequence while they follow on without a gap; returns the new last sequence
+    private static long readSegment(Path path, long lastSequence, Visitor visitor) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            checkHeader(buffer, path);
+            for (int offset = HEADER_SIZE; offset + RECORD_SIZE <= buffer.limit(); offset += RECORD_SIZE) {
+                if (!isValid(buffer, offset)) {
+                    break;
+                }
+                long sequence = buffer.getLong(offset + 20);
+                if (sequence <= lastSequence) {
+                    continue;   // Already in the snapshot
+                }
+                if (sequence != lastSequence + 1) {
+                    break;
+                }
+                String name = null;
+                if (buffer.get(offset) == OPEN) {
+                    byte[] bytes = new byte[buffer.get(offset + 1)];
+                    buffer.get(offset + NAME_OFFSET, bytes);
+                    name = new String(bytes, StandardCharsets.UTF_8);
+                }
+                visitor.posting(sequence, buffer.get(offset), buffer.getInt(offset + 4),
+                        buffer.getInt(offset + 8), buffer.getLong(offset + 12), name);
+                lastSequence = sequence;
+            }
+        }
+        return lastSequence;
+    }
+
+    private static void checkHeader(ByteBuffer buffer, Path path) throws IOException {
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a ledger log segment: " + path);
+        }
+        if (buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("Unsupported ledger log version " + buffer.getInt(4) + " in " + path);
+        }
+    }
+
+    // False for an empty record or a torn write from a crash
+    private static boolean isValid(ByteBuffer buffer, int offset) {
+        byte type = buffer.get(offset);
+        return type >= OPEN && type <= TRANSFER
+                && checksum(buffer, offset) == buffer.getInt(offset + CHECKSUM_OFFSET);
+    }
+
+    private static int checksum(ByteBuffer buffer, int offset) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(offset, CHECKSUM_OFFSET));
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Segment - One memory-mapped log file
+     */
+    private static class Segment {
+        final Path path;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        final int capacity;             // Records that fit in this file
+        int count;                      // Records written so far
+
+        private Segment(Path path, FileChannel channel, MappedByteBuffer buffer, int capacity, int count) {
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+            this.capacity = capacity;
+            this.count = count;
+        }
+
+        static Segment create(Path path, long firstSequence, int capacity) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long size = HEADER_SIZE + (long) capacity * RECORD_SIZE;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, FORMAT_VERSION);
+            buffer.putLong(8, firstSequence);
+            try {
+                // Before any posting in it is acknowledged: a forced file whose entry is lost is no help
+                FileSync.syncDirectory(path.getParent());
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+            return new Segment(path, channel, buffer, capacity, 0);
+        }
+
+        // Appends go right after lastSequence; anything written after it is wiped
+        static Segment openForAppend(Path path, long lastSequence) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long size = channel.size();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            checkHeader(buffer, path);
+
+            int capacity = (int) ((size - HEADER_SIZE) / RECORD_SIZE);
+            int count = (int) (lastSequence + 1 - buffer.getLong(8));
+            for (int i = count; i < capacity && buffer.get(HEADER_SIZE + i * RECORD_SIZE) != 0; i++) {
+                buffer.put(HEADER_SIZE + i * RECORD_SIZE, (byte) 0);
+            }
+            return new Segment(path, channel, buffer, capacity, count);
+        }
+
+        boolean isFull() {
+            return count >= capacity;
+        }
+
+        void write(long sequence, byte type, int account, int otherAccount, long amount, byte[] holderName) {
+            int offset = HEADER_SIZE + count * RECORD_SIZE;
+            int nameLength = holderName == null ? 0 : holderName.length;
+            buffer.put(offset + 1, (byte) nameLength);
+            buffer.putInt(offset + 4, account);
+            buffer.putInt(offset + 8, otherAccount);
+            buffer.putLong(offset + 12, amount);
+            buffer.putLong(offset + 20, sequence);
+            for (int i = 0; i < MAX_NAME_BYTES; i++) {
+                buffer.put(offset + NAME_OFFSET + i, i < nameLength ? holderName[i] : 0);
+            }
+            buffer.put(offset, type);
+            buffer.putInt(offset + CHECKSUM_OFFSET, checksum(buffer, offset));
+            count++;
+        }
+
+        void force() throws IOException {
+            buffer.force();
+        }
+
+        void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+/**
+ * MixedLoad - Runs the same step on many threads for a fixed time and counts what happened
+ *
+ * Shared by BankStress and CatalogStress. Every thread gets its own Worker
+ * (so it can keep per-thread state), waits for a common start signal, then
+ * calls step() until the time is up, checking the clock every 256 steps so
+ * timing does not dominate. Each worker counts into its own long[] and the
+ * totals are added up once at the end, so counting costs no contention.
+ */
+public final class MixedLoad {
+
+    private static final int STEPS_PER_CLOCK_CHECK = 256;
+    private static final long GRACE_SECONDS = 30;   // Longer than this past the deadline counts as stuck
+
+    /**
+     * Worker - One thread's share of the load
+     */
+    public interface Worker {
+        /**
+         * step() - Does one operation and counts it
+         * @param random - This thread's random numbers
+         * @param counts - This thread's counters (counts[i] += ... for whatever i means to the caller)
+         */
+        void step(ThreadLocalRandom random, long[] counts);
+    }
+
+    /**
+     * Result - Totals of one run
+     */
+    public static final class Result {
+        private final boolean finished;
+        private final double seconds;
+        private final long[] counts;
+
+        private Result(boolean finished, double seconds, long[] counts) {
+            this.finished = finished;
+            this.seconds = seconds;
+            this.counts = counts;
+        }
+
+        /** false if some thread was still running long after the deadline (possible deadlock) */
+        public boolean isFinished() {
+            return finished;
+        }
+
+        public double getSeconds() {
+            return seconds;
+        }
+
+        public long getCount(int counter) {
+            return counts[counter];
+        }
+
+        public double getPerSecond(int counter) {
+            return counts[counter] / seconds;
+        }
+    }
+
+    private MixedLoad() {
+    }
+
+    /**
+     * run() - Runs workers on the given number of threads for the given time
+     * @param name - Thread name prefix
+     * @param threads - Number of threads
+     * @param seconds - How long to run
+     * @param counters - Number of counters each worker fills in
+     * @param workers - Makes the worker for thread t
+     * @return Totals of every counter
+     */
+    public static Result run(String name, int threads, int seconds, int counters, IntFunction<Worker> workers)
+            throws InterruptedException {
+        LongAdder[] totals = new LongAdder[counters];
+        for (int i = 0; i < counters; i++) {
+            totals[i] = new LongAdder();
+        }
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        long runNanos = TimeUnit.SECONDS.toNanos(seconds);
+
+        for (int t = 0; t < threads; t++) {
+            Worker worker = workers.apply(t);
+            Thread thread = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long[] counts = new long[counters];
+                try {
+                    start.await();
+                    long deadline = System.nanoTime() + runNanos;
+                    do {
+                        for (int i = 0; i < STEPS_PER_CLOCK_CHECK; i++) {
+                            worker.step(random, counts);
+                        }
+                    } while (System.nanoTime() < deadline);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    for (int i = 0; i < counters; i++) {
+                        totals[i].add(counts[i]);
+                    }
+                    done.countDown();
+                }
+            }, name + "-" + t);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        long began = System.nanoTime();
+        start.countDown();
+        boolean finished = done.await(seconds + GRACE_SECONDS, TimeUnit.SECONDS);
+        double elapsed = (System.nanoTime() - began) / 1e9;
+
+        long[] counts = new long[counters];
+        for (int i = 0; i < counters; i++) {
+            counts[i] = totals[i].sum();
+        }
+        return new Result(finished, elapsed, counts);
+    }
+}
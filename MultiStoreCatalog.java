@@ -0,0 +1,46 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * MultiStoreCatalog - Many stores in one JVM, each owning its own StoreCatalog
+ * Stores are independent shards: a price change in one store never touches
+ * (or waits for) another store's data.
+ */
+public class MultiStoreCatalog {
+
+    private final ConcurrentHashMap<String, StoreCatalog> stores = new ConcurrentHashMap<>();
+
+    /**
+     * openStore() - The catalog of a store, created empty the first time it is asked for
+     */
+    public StoreCatalog openStore(String storeName) {
+        return stores.computeIfAbsent(storeName, StoreCatalog::new);
+    }
+
+    /**
+     * store() - The catalog of an existing store
+     */
+    public StoreCatalog store(String storeName) {
+        StoreCatalog store = stores.get(storeName);
+        if (store == null) {
+            throw new IllegalArgumentException("Unknown store " + storeName);
+        }
+        return store;
+    }
+
+    public boolean removeStore(String storeName) {
+        return stores.remove(storeName) != null;
+    }
+
+    public List<String> getStoreNames() {
+        List<String> names = new ArrayList<>(stores.keySet());
+        Collections.sort(names);
+        return names;
+    }
+
+    public int getStoreCount() {
+        return stores.size();
+    }
+}
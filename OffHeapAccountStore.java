@@ -0,0 +1,444 @@
+import logging.Log;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * OffHeapAccountStore - Millions of bank accounts kept in a memory-mapped file
+ *
+ * A BankAccount object costs a header, a boxed map key and a String per
+ * account, and the GC has to walk all of them. Here every account is just
+ * a slot number into three columns that live outside the Java heap:
+ *
+ *   file:  [header 64 B][account numbers int[]][name ids int[]][balances long[]][index int[]]
+ *
+ * The index is an open-addressing hash table (linear probing) from account
+ * number to slot + 1 (0 = empty), stored in the same file, so reopening the
+ * store maps the file and is ready - nothing is rebuilt. Holder names are
+ * interned: each distinct name is stored once in "<file>.names" and accounts
+ * keep only its id.
+ *
+ * deposit(), withdraw(), getBalance() and display(int, StringBuilder) do not
+ * allocate. Balances are in paise, like AccountEngine.
+ *
+ * Not thread-safe: use it from one thread (AccountEngine is the concurrent,
+ * heap-based version). The one exception is the slot methods (getBalanceAt()
+ * etc.): batch jobs may run them from several threads as long as each
+ * thread works on its own range of slots and no accounts are being opened.
+ */
+public class OffHeapAccountStore implements AutoCloseable {
+
+    private static final long MAGIC = 0x4143435453544F52L;   // "ACCTSTOR"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int MAX_CAPACITY = 1 << 27;          // Keeps every column under 2 GB (one mapping each)
+
+    // Header offsets
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 8;
+    private static final int H_CAPACITY = 12;
+    private static final int H_COUNT = 16;
+    private static final int H_INDEX_CAPACITY = 20;
+    private static final int H_NAME_COUNT = 24;
+
+    private final Path namesFile;
+    private final int capacity;
+    private final int indexMask;
+    private final MappedByteBuffer header;
+    private final MappedByteBuffer numbers;    // int per slot
+    private final MappedByteBuffer nameIds;    // int per slot
+    private final MappedByteBuffer balances;   // long per slot, paise
+    private final MappedByteBuffer index;      // int per bucket: slot + 1, or 0 if empty
+    private int count;                         // Live count; the header only gets it in force()
+
+    // Interned holder names (distinct names only, so these stay small)
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Integer> nameIdByName = new HashMap<>();
+    private DataOutputStream namesOut;
+
+    /**
+     * open() - Opens the store in a file, creating it if it does not exist
+     * @param file - Data file; holder names go next to it in "<file>.names"
+     * @param capacity - Most accounts the store can hold (only used when creating)
+     */
+    public static OffHeapAccountStore open(Path file, int capacity) throws IOException {
+        return new OffHeapAccountStore(file, capacity);
+    }
+
+    private OffHeapAccountStore(Path file, int requestedCapacity) throws IOException {
+        this.namesFile = Paths.get(file + ".names");
+        boolean exists = Files.exists(file) && Files.size(file) >= HEADER_BYTES;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            header = map(channel, 0, HEADER_BYTES);
+
+            if (exists) {
+                if (header.getLong(H_MAGIC) != MAGIC || header.getInt(H_VERSION) != VERSION) {
+                    throw new IOException(file + " is not an account store (version " + VERSION + ")");
+                }
+                capacity = header.getInt(H_CAPACITY);
+                count = header.getInt(H_COUNT);
+            } else {
+                if (requestedCapacity < 1 || requestedCapacity > MAX_CAPACITY) {
+                    throw new IllegalArgumentException("capacity must be 1.." + MAX_CAPACITY + ": " + requestedCapacity);
+                }
+                capacity = requestedCapacity;
+                count = 0;
+            }
+
+            // Index at most half full keeps probe sequences short
+            int indexCapacity = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) << 1;
+            indexMask = indexCapacity - 1;
+
+            long offset = HEADER_BYTES;
+            numbers = map(channel, offset, (long) capacity * Integer.BYTES);
+            offset += (long) capacity * Integer.BYTES;
+            nameIds = map(channel, offset, (long) capacity * Integer.BYTES);
+            offset += (long) capacity * Integer.BYTES;
+            balances = map(channel, offset, (long) capacity * Long.BYTES);
+            offset += (long) capacity * Long.BYTES;
+            index = map(channel, offset, (long) indexCapacity * Integer.BYTES);
+
+            if (exists) {
+                if (header.getInt(H_INDEX_CAPACITY) != indexCapacity) {
+                    throw new IOException(file + " has a damaged header");
+                }
+                loadNames(header.getInt(H_NAME_COUNT));
+            } else {
+                Files.deleteIfExists(namesFile);
+                header.putLong(H_MAGIC, MAGIC);
+                header.putInt(H_VERSION, VERSION);
+                header.putInt(H_CAPACITY, capacity);
+                header.putInt(H_COUNT, 0);
+                header.putInt(H_INDEX_CAPACITY, indexCapacity);
+                header.putInt(H_NAME_COUNT, 0);
+            }
+        }
+        namesOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(namesFile,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)));
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long offset, long size) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, offset, size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    // Reads the first nameCount names; anything after them was never recorded in the header
+    private void loadNames(int nameCount) throws IOException {
+        if (nameCount == 0) {
+            Files.deleteIfExists(namesFile);
+            return;
+        }
+        try (InputStream in = Files.newInputStream(namesFile);
+             DataInputStream data = new DataInputStream(new BufferedInputStream(in))) {
+            for (int i = 0; i < nameCount; i++) {
+                String name = data.readUTF();
+                nameIdByName.put(name, names.size());
+                names.add(name);
+            }
+        }
+        // Cut off names written after the last force(), so new ones are appended in the right place
+        long validBytes = 0;
+        for (String name : names) {
+            validBytes += 2 + modifiedUtf8Length(name);
+        }
+        try (FileChannel channel = FileChannel.open(namesFile, StandardOpenOption.WRITE)) {
+            channel.truncate(validBytes);
+        }
+    }
+
+    private static int modifiedUtf8Length(String s) {
+        int length = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            length += (c >= 0x0001 && c <= 0x007F) ? 1 : (c <= 0x07FF ? 2 : 3);
+        }
+        return length;
+    }
+
+    /**
+     * openAccount() - Adds an account
+     * @param accountNumber - Unique account number
+     * @param holderName - Name of the account holder (stored once however many accounts share it)
+     * @param openingBalance - Starting balance in paise
+     */
+    public void openAccount(int accountNumber, String holderName, long openingBalance) throws IOException {
+        if (openingBalance < 0) {
+            throw new IllegalArgumentException("Opening balance cannot be negative");
+        }
+        if (count == capacity) {
+            throw new IllegalStateException("OffHeapAccountStore is full (" + capacity + " accounts)");
+        }
+
+        int bucket = bucketOf(accountNumber);
+        int entry;
+        while ((entry = liveEntry(bucket)) != 0) {
+            if (numbers.getInt((entry - 1) << 2) == accountNumber) {
+                throw new IllegalArgumentException("Account " + accountNumber + " already exists");
+            }
+            bucket = (bucket + 1) & indexMask;
+        }
+
+        int slot = count;
+        numbers.putInt(slot << 2, accountNumber);
+        nameIds.putInt(slot << 2, intern(holderName));
+        balances.putLong(balancePosition(slot), openingBalance);
+        index.putInt(bucket << 2, slot + 1);
+        count++;
+    }
+
+    /**
+     * deposit() - Adds money to an account
+     * @param amount - Paise to add (must be positive)
+     * @return New balance in paise
+     */
+    public long deposit(int accountNumber, long amount) {
+        checkAmount(amount);
+        int position = balancePosition(slotOf(accountNumber));
+        long balance = Math.addExact(balances.getLong(position), amount);
+        balances.putLong(position, balance);
+        return balance;
+    }
+
+    /**
+     * withdraw() - Takes money from an account if the balance covers it
+     * @param amount - Paise to take (must be positive)
+     * @return true if withdrawn, false if the balance was too low
+     */
+    public boolean withdraw(int accountNumber, long amount) {
+        checkAmount(amount);
+        int position = balancePosition(slotOf(accountNumber));
+        long balance = balances.getLong(position);
+        if (balance < amount) {
+            return false;
+        }
+        balances.putLong(position, balance - amount);
+        return true;
+    }
+
+    public long getBalance(int accountNumber) {
+        return balances.getLong(balancePosition(slotOf(accountNumber)));
+    }
+
+    public String getHolderName(int accountNumber) {
+        return names.get(nameIds.getInt(slotOf(accountNumber) << 2));
+    }
+
+    public boolean contains(int accountNumber) {
+        return findSlot(accountNumber) >= 0;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getDistinctNameCount() {
+        return names.size();
+    }
+
+    // Slot access for batch jobs that walk every account (slots run 0 .. size() - 1)
+
+    public int getAccountNumberAt(int slot) {
+        return numbers.getInt(checkSlot(slot) << 2);
+    }
+
+    public String getHolderNameAt(int slot) {
+        return names.get(nameIds.getInt(checkSlot(slot) << 2));
+    }
+
+    public long getBalanceAt(int slot) {
+        return balances.getLong(balancePosition(checkSlot(slot)));
+    }
+
+    public void setBalanceAt(int slot, long balance) {
+        balances.putLong(balancePosition(checkSlot(slot)), balance);
+    }
+
+    /**
+     * forceBalances() - Writes the balances of slots fromSlot .. toSlot - 1 to disk
+     */
+    public void forceBalances(int fromSlot, int toSlot) {
+        balances.force(balancePosition(fromSlot), balancePosition(toSlot - fromSlot));
+    }
+
+    /**
+     * display() - Appends one account to out, in the same layout as BankAccount.display()
+     * Nothing is allocated as long as out has room, so a caller can reuse one StringBuilder.
+     */
+    public void display(int accountNumber, StringBuilder out) {
+        int slot = slotOf(accountNumber);
+        out.append("\n--- Account Details ---\nAccount Number: ").append(accountNumber)
+                .append("\nHolder Name:    ").append(names.get(nameIds.getInt(slot << 2)))
+                .append("\nCurrent Balance:");
+        appendPaise(balances.getLong(balancePosition(slot)), out);
+        out.append("\n-----------------------\n");
+    }
+
+    /**
+     * display() - Logs one account
+     */
+    public void display(int accountNumber) {
+        StringBuilder out = new StringBuilder(128);
+        display(accountNumber, out);
+        Log.info(out.toString());
+    }
+
+    // 125050 -> "1250.50" without going through BigDecimal or String.format
+    static void appendPaise(long paise, StringBuilder out) {
+        if (paise < 0) {
+            out.append('-');
+            paise = -paise;
+        }
+        long fraction = paise % 100;
+        out.append(paise / 100).append('.');
+        if (fraction < 10) {
+            out.append('0');
+        }
+        out.append(fraction);
+    }
+
+    /**
+     * force() - Writes everything to disk
+     * Names go first, then the header that says how many of them are valid,
+     * so a crash in between never leaves an account pointing at a missing name.
+     * The header counts are only updated here, so after a crash the store
+     * reopens as of the last force() - accounts opened since then are gone.
+     */
+    public void force() throws IOException {
+        namesOut.flush();
+        numbers.force();
+        nameIds.force();
+        balances.force();
+        index.force();
+        header.putInt(H_NAME_COUNT, names.size());
+        header.putInt(H_COUNT, count);
+        header.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        namesOut.close();
+    }
+
+    // Returns the id of holderName, adding it to the names table the first time it is seen
+    private int intern(String holderName) throws IOException {
+        Integer id = nameIdByName.get(holderName);
+        if (id != null) {
+            return id;
+        }
+        int newId = names.size();
+        namesOut.writeUTF(holderName);
+        namesOut.flush();   // New names are rare; on disk before any account can point at it
+        names.add(holderName);
+        nameIdByName.put(holderName, newId);
+        return newId;
+    }
+
+    private int slotOf(int accountNumber) {
+        int slot = findSlot(accountNumber);
+        if (slot < 0) {
+            throw new IllegalArgumentException("Unknown account " + accountNumber);
+        }
+        return slot;
+    }
+
+    private int findSlot(int accountNumber) {
+        int bucket = bucketOf(accountNumber);
+        int entry;
+        while ((entry = liveEntry(bucket)) != 0) {
+            if (numbers.getInt((entry - 1) << 2) == accountNumber) {
+                return entry - 1;
+            }
+            bucket = (bucket + 1) & indexMask;
+        }
+        return -1;
+    }
+
+    // Index entry in bucket, or 0 if empty. An entry for a slot at or past count was
+    // written after the last force() and then lost in a crash, so it counts as empty
+    // (it was added after every live entry, so it never sits inside a live probe chain)
+    private int liveEntry(int bucket) {
+        int entry = index.getInt(bucket << 2);
+        return entry > count ? 0 : entry;
+    }
+
+    // Spreads sequential account numbers over the table (murmur3 finalizer)
+    private int bucketOf(int accountNumber) {
+        int h = accountNumber;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h & indexMask;
+    }
+
+    private int checkSlot(int slot) {
+        if (slot < 0 || slot >= count) {
+            throw new IndexOutOfBoundsException("Slot " + slot + " of " + count);
+        }
+        return slot;
+    }
+
+    private static int balancePosition(int slot) {
+        return slot << 3;
+    }
+
+    private static void checkAmount(long amount) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Amount must be positive: " + amount);
+        }
+    }
+
+    /**
+     * main() - Fills a store, closes it, and times how long reopening takes
+     *   java OffHeapAccountStore <file> [accounts]
+     */
+    public static void main(String[] args) throws IOException {
+        Path file = Paths.get(args.length > 0 ? args[0] : "accounts.store");
+        int accounts = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        String[] sampleNames = {"Mohit", "Asha", "Ravi", "Priya", "Karan", "Neha"};
+
+        if (!Files.exists(file)) {
+            long start = System.nanoTime();
+            try (OffHeapAccountStore store = open(file, accounts)) {
+                for (int i = 0; i < accounts; i++) {
+                    store.openAccount(i + 1, sampleNames[i % sampleNames.length], 1_000_000);
+                }
+            }
+            Log.info("Created {} accounts in {} ms", accounts, (System.nanoTime() - start) / 1_000_000);
+        }
+
+        long start = System.nanoTime();
+        try (OffHeapAccountStore store = open(file, accounts)) {
+            Log.info("Reopened {} accounts ({} distinct names) in {} ms", store.size(),
+                    store.getDistinctNameCount(), (System.nanoTime() - start) / 1_000_000);
+
+            int accountNumber = store.size();
+            store.deposit(accountNumber, 2_000_000);
+            store.withdraw(accountNumber, 1_500_000);
+            store.display(accountNumber);
+        }
+    }
+}
@@ -0,0 +1,308 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * ProductCatalog - Products sorted by price, for cheapest-N, range and rank queries
+ *
+ * The price index is a treap (a balanced binary search tree) keyed by one
+ * long per product:
+ *
+ *   key = price in cents (high 32 bits) | catalog id (low 32 bits)
+ *
+ * so equal prices still get distinct keys and nothing is boxed. Every node
+ * knows the size of its subtree, which turns rank and "k-th cheapest" into a
+ * single walk from the root: all queries are O(log n), plus O(k) for the
+ * products they return.
+ *
+ * Nodes are never changed once built. An update copies the O(log n) nodes on
+ * its path and then publishes the new root, so readers never wait: each query
+ * reads the root once and sees one consistent version of the catalog, even
+ * while setPrice()/discount() calls are being applied. Writers take turns.
+ *
+ * Prices are indexed to the cent and must be within +/- 21,474,836.47.
+ */
+public class ProductCatalog {
+
+    /**
+     * Node - One product in the price index (immutable)
+     */
+    private static final class Node {
+        final long key;
+        final long priority;   // Heap order; derived from the key so the tree shape is deterministic
+        final int size;        // Nodes in this subtree
+        final Node left;
+        final Node right;
+
+        Node(long key, Node left, Node right) {
+            this(key, mix(key), left, right);
+        }
+
+        private Node(long key, long priority, Node left, Node right) {
+            this.key = key;
+            this.priority = priority;
+            this.left = left;
+            this.right = right;
+            this.size = 1 + sizeOf(left) + sizeOf(right);
+        }
+
+        Node withChildren(Node newLeft, Node newRight) {
+            return new Node(key, priority, newLeft, newRight);
+        }
+    }
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile Node root;
+    private volatile Product[] products = new Product[1024];   // Indexed by catalog id
+    private long[] keys = new long[1024];                       // Current key of each id (writers only)
+    private int nextId = 0;                                     // Guarded by writeLock
+
+    /**
+     * add() - Puts a product in the catalog; its price changes are tracked from now on
+     */
+    public void add(Product product) {
+        writeLock.lock();
+        try {
+            if (product.catalog != null) {
+                throw new IllegalArgumentException(product.getProductName() + " is already in a catalog");
+            }
+            int id = nextId;
+            long key = keyOf(product.getPrice(), id);   // Throws before anything changes
+            nextId++;
+            if (id == products.length) {
+                products = Arrays.copyOf(products, id * 2);
+                keys = Arrays.copyOf(keys, id * 2);
+            }
+            products[id] = product;   // Published before the root that refers to it
+            keys[id] = key;
+            product.catalogId = id;
+            product.catalog = this;
+            root = insert(root, key);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * remove() - Takes a product out of the catalog
+     */
+    public void remove(Product product) {
+        writeLock.lock();
+        try {
+            checkOwned(product);
+            root = delete(root, keys[product.catalogId]);
+            // products[id] stays set: readers still on an older root may look it up (ids are never reused)
+            product.catalog = null;
+            product.catalogId = -1;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * checkPrice() - Throws if the catalog cannot index a price
+     * Product calls this before changing its price, so a rejected price leaves
+     * the product and the index exactly as they were.
+     */
+    static void checkPrice(double price) {
+        lowestKey(price);
+    }
+
+    // Called by Product after setPrice() or discount()
+    void priceChanged(Product product) {
+        writeLock.lock();
+        try {
+            checkOwned(product);
+            int id = product.catalogId;
+            long newKey = keyOf(product.getPrice(), id);
+            if (newKey != keys[id]) {
+                root = insert(delete(root, keys[id]), newKey);
+                keys[id] = newKey;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public int size() {
+        return sizeOf(root);
+    }
+
+    /**
+     * cheapest() - The n cheapest products, cheapest first
+     */
+    public List<Product> cheapest(int n) {
+        return collect(root, Long.MIN_VALUE, Long.MAX_VALUE, n);
+    }
+
+    /**
+     * inPriceRange() - Products priced from minPrice to maxPrice (both included), cheapest first
+     * @param limit - Most products to return
+     */
+    public List<Product> inPriceRange(double minPrice, double maxPrice, int limit) {
+        return collect(root, lowestKey(minPrice), lowestKey(maxPrice) + (1L << 32), limit);
+    }
+
+    /**
+     * countInPriceRange() - How many products are priced from minPrice to maxPrice, in O(log n)
+     */
+    public int countInPriceRange(double minPrice, double maxPrice) {
+        Node snapshot = root;
+        return countBelow(snapshot, lowestKey(maxPrice) + (1L << 32)) - countBelow(snapshot, lowestKey(minPrice));
+    }
+
+    /**
+     * rankOf() - How many products in the catalog are strictly cheaper than this one
+     */
+    public int rankOf(Product product) {
+        return countBelow(root, lowestKey(product.getPrice()));
+    }
+
+    /**
+     * countCheaperThan() - How many products cost less than a price
+     */
+    public int countCheaperThan(double price) {
+        return countBelow(root, lowestKey(price));
+    }
+
+    /**
+     * nthCheapest() - The product at position rank in price order (0 = cheapest)
+     */
+    public Product nthCheapest(int rank) {
+        Node node = root;
+        if (rank < 0 || rank >= sizeOf(node)) {
+            throw new IndexOutOfBoundsException("Rank " + rank + " of " + sizeOf(node));
+        }
+        while (true) {
+            int leftSize = sizeOf(node.left);
+            if (rank < leftSize) {
+                node = node.left;
+            } else if (rank == leftSize) {
+                return productOf(node.key);
+            } else {
+                rank -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    // Keys in [fromKey, toKeyExclusive), in order, at most limit of them
+    private List<Product> collect(Node snapshot, long fromKey, long toKeyExclusive, int limit) {
+        List<Product> result = new ArrayList<>(Math.min(Math.max(limit, 0), 1024));
+        ArrayDeque<Node> path = new ArrayDeque<>();
+        Node node = snapshot;
+        while (node != null) {
+            if (node.key >= fromKey) {
+                path.push(node);
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+        while (!path.isEmpty() && result.size() < limit) {
+            node = path.pop();
+            if (node.key >= toKeyExclusive) {
+                break;
+            }
+            result.add(productOf(node.key));
+            for (node = node.right; node != null; node = node.left) {
+                path.push(node);
+            }
+        }
+        return result;
+    }
+
+    private static int countBelow(Node node, long key) {
+        int count = 0;
+        while (node != null) {
+            if (node.key < key) {
+                count += sizeOf(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return count;
+    }
+
+    private Product productOf(long key) {
+        return products[(int) key];
+    }
+
+    private void checkOwned(Product product) {
+        if (product.catalog != this) {
+            throw new IllegalArgumentException(product.getProductName() + " is not in this catalog");
+        }
+    }
+
+    // Treap updates: split and merge copy only the nodes on the path they walk
+
+    private static Node insert(Node tree, long key) {
+        Node[] parts = split(tree, key);
+        return merge(merge(parts[0], new Node(key, null, null)), parts[1]);
+    }
+
+    private static Node delete(Node tree, long key) {
+        Node[] parts = split(tree, key);
+        Node[] rest = split(parts[1], key + 1);
+        return merge(parts[0], rest[1]);
+    }
+
+    // Splits into keys below key and keys from key upwards
+    private static Node[] split(Node node, long key) {
+        if (node == null) {
+            return new Node[2];
+        }
+        if (node.key < key) {
+            Node[] parts = split(node.right, key);
+            parts[0] = node.withChildren(node.left, parts[0]);
+            return parts;
+        }
+        Node[] parts = split(node.left, key);
+        parts[1] = node.withChildren(parts[1], node.right);
+        return parts;
+    }
+
+    // Every key in a is below every key in b
+    private static Node merge(Node a, Node b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        if (a.priority > b.priority) {
+            return a.withChildren(a.left, merge(a.right, b));
+        }
+        return b.withChildren(merge(a, b.left), b.right);
+    }
+
+    private static int sizeOf(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static long keyOf(double price, int id) {
+        return lowestKey(price) | id;
+    }
+
+    // Smallest key with this price (id 0)
+    private static long lowestKey(double price) {
+        long cents = Math.round(price * 100);
+        if (cents < Integer.MIN_VALUE || cents > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Price out of range for the catalog: " + price);
+        }
+        return cents << 32;
+    }
+
+    // Spreads the bits of a key (murmur3 finalizer); used as the treap priority
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+}
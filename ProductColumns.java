@@ -0,0 +1,209 @@
+import logging.Log;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ProductColumns - Products stored column by column for storewide repricing
+ *
+ * Instead of one Product object per SKU, prices sit in one double[] and
+ * names are dictionary-encoded (an int per SKU pointing into a table of
+ * distinct names). A storewide sale is then one pass over a flat array,
+ * which the CPU can do several prices at a time.
+ *
+ * The bulk discounts use the JDK Vector API (jdk.incubator.vector) when the
+ * JVM is started with "--add-modules jdk.incubator.vector", and a plain loop
+ * otherwise. Both give exactly the same prices as Product.discount(), because
+ * they do the same arithmetic in the same order.
+ *
+ *   -Dproducts.vector=false   always use the plain loop
+ */
+public class ProductColumns {
+
+    /**
+     * PriceKernel - The bulk loops, in a scalar and a vector version
+     */
+    interface PriceKernel {
+        void discountPercent(double[] prices, int count, double percentage);
+
+        void discountFlat(double[] prices, int count, int flatAmount);
+
+        /** Discounts only prices from minPrice to maxPrice (both included); returns how many */
+        int discountPercentInRange(double[] prices, int count, double percentage, double minPrice, double maxPrice);
+    }
+
+    private static final PriceKernel DEFAULT_KERNEL = chooseKernel();
+
+    private final PriceKernel kernel;
+    private double[] prices;
+    private int[] nameIds;
+    private int count = 0;
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Integer> nameIdByName = new HashMap<>();
+
+    /**
+     * Constructor
+     * @param capacity - Starting number of SKUs (grows as needed)
+     */
+    public ProductColumns(int capacity) {
+        this(capacity, DEFAULT_KERNEL);
+    }
+
+    // Lets benchmarks compare the two kernels in one JVM
+    ProductColumns(int capacity, boolean vectorized) {
+        this(capacity, vectorized ? DEFAULT_KERNEL : new ScalarPriceKernel());
+    }
+
+    private ProductColumns(int capacity, PriceKernel kernel) {
+        this.kernel = kernel;
+        this.prices = new double[Math.max(capacity, 16)];
+        this.nameIds = new int[prices.length];
+    }
+
+    /**
+     * add() - Adds a SKU
+     * @return Its index
+     */
+    public int add(String productName, double price) {
+        if (count == prices.length) {
+            prices = Arrays.copyOf(prices, count * 2);
+            nameIds = Arrays.copyOf(nameIds, count * 2);
+        }
+        Integer id = nameIdByName.get(productName);
+        if (id == null) {
+            id = names.size();
+            names.add(productName);
+            nameIdByName.put(productName, id);
+        }
+        prices[count] = price;
+        nameIds[count] = id;
+        return count++;
+    }
+
+    /**
+     * add() - Copies a Product into the store
+     */
+    public int add(Product product) {
+        return add(product.getProductName(), product.getPrice());
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public double getPrice(int index) {
+        return prices[checkIndex(index)];
+    }
+
+    public void setPrice(int index, double price) {
+        prices[checkIndex(index)] = price;
+    }
+
+    /**
+     * setPrices() - Replaces every price at once, e.g. from a nightly price feed
+     * @param newPrices - One price per SKU, in index order
+     */
+    public void setPrices(double[] newPrices) {
+        if (newPrices.length != count) {
+            throw new IllegalArgumentException("Expected " + count + " prices, got " + newPrices.length);
+        }
+        System.arraycopy(newPrices, 0, prices, 0, count);
+    }
+
+    public String getProductName(int index) {
+        return names.get(nameIds[checkIndex(index)]);
+    }
+
+    public int getDistinctNameCount() {
+        return names.size();
+    }
+
+    public boolean isVectorized() {
+        return !(kernel instanceof ScalarPriceKernel);
+    }
+
+    /**
+     * discount() - Takes a percentage off every price (same as Product.discount(double))
+     */
+    public void discount(double percentage) {
+        kernel.discountPercent(prices, count, percentage);
+    }
+
+    /**
+     * discount() - Takes a flat amount off every price (same as Product.discount(int))
+     */
+    public void discount(int flatAmount) {
+        kernel.discountFlat(prices, count, flatAmount);
+    }
+
+    /**
+     * discountInPriceRange() - Takes a percentage off prices from minPrice to maxPrice only
+     * @return Number of SKUs discounted
+     */
+    public int discountInPriceRange(double percentage, double minPrice, double maxPrice) {
+        return kernel.discountPercentInRange(prices, count, percentage, minPrice, maxPrice);
+    }
+
+    /**
+     * toProduct() - Builds a Product object for one SKU (for display and old code)
+     */
+    public Product toProduct(int index) {
+        return new Product(getProductName(index), getPrice(index));
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Index " + index + " of " + count);
+        }
+        return index;
+    }
+
+    // Vector kernel if it was compiled (-Pvector), the module is there and it is not switched off,
+    // plain loops otherwise. Loaded by name, so this class compiles without it.
+    private static PriceKernel chooseKernel() {
+        if (Boolean.parseBoolean(System.getProperty("products.vector", "true"))) {
+            try {
+                return (PriceKernel) Class.forName("VectorPriceKernel").getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                Log.debug("Vector price kernel not available - using scalar price loops");
+            }
+        }
+        return new ScalarPriceKernel();
+    }
+
+    /**
+     * ScalarPriceKernel - Plain loops (the JIT may still unroll and vectorize the simple ones)
+     */
+    static final class ScalarPriceKernel implements PriceKernel {
+
+        @Override
+        public void discountPercent(double[] prices, int count, double percentage) {
+            for (int i = 0; i < count; i++) {
+                prices[i] = prices[i] - (prices[i] * percentage / 100);
+            }
+        }
+
+        @Override
+        public void discountFlat(double[] prices, int count, int flatAmount) {
+            for (int i = 0; i < count; i++) {
+                prices[i] = prices[i] - flatAmount;
+            }
+        }
+
+        @Override
+        public int discountPercentInRange(double[] prices, int count, double percentage,
+                                          double minPrice, double maxPrice) {
+            int changed = 0;
+            for (int i = 0; i < count; i++) {
+                double price = prices[i];
+                if (price >= minPrice && price <= maxPrice) {
+                    prices[i] = price - (price * percentage / 100);
+                    changed++;
+                }
+            }
+            return changed;
+        }
+    }
+}
@@ -0,0 +1,282 @@
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * StoreCatalog - One store's products, updated by publishing new versions
+ *
+ * All prices and names of a store live in an immutable Snapshot. A price
+ * change builds the next Snapshot and swaps it in with a compare-and-set
+ * (retrying if another writer got there first), so:
+ *   - readers never block and always see one consistent version
+ *   - writers never lock; only writers of the same store can make each other retry
+ *
+ * A storewide change (discountAll) copies every page, so under steady price
+ * traffic its compare-and-set could keep losing. After STOREWIDE_TRIES lost
+ * races it takes the store's storewide lock and flags it; other writers see
+ * the flag before their next attempt and wait for it, so it wins soon after.
+ *
+ * To keep a price change cheap even for a million products, the prices are
+ * split into pages of PAGE_SIZE. A new version copies the small page table
+ * and only the pages that changed; the other pages are shared with the
+ * previous version.
+ *
+ * Each StoreCatalog has its own storeName, unlike Product.storeName which is
+ * shared by every Product in the JVM. See MultiStoreCatalog.
+ */
+public class StoreCatalog {
+
+    static final int PAGE_BITS = 10;
+    static final int PAGE_SIZE = 1 << PAGE_BITS;   // 1024 products per page
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final int STOREWIDE_TRIES = 4;  // Lock-free attempts before discountAll() holds other writers off
+
+    /**
+     * Snapshot - One immutable version of a store's catalog
+     */
+    public static final class Snapshot {
+        private final StoreCatalog catalog;
+        private final long version;
+        private final int size;
+        private final double[][] pricePages;
+        private final String[][] namePages;
+
+        private Snapshot(StoreCatalog catalog, long version, int size, double[][] pricePages, String[][] namePages) {
+            this.catalog = catalog;
+            this.version = version;
+            this.size = size;
+            this.pricePages = pricePages;
+            this.namePages = namePages;
+        }
+
+        public String getStoreName() {
+            return catalog.storeName;
+        }
+
+        /** Goes up by one with every published change */
+        public long getVersion() {
+            return version;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public double getPrice(int slot) {
+            checkSlot(slot);
+            return pricePages[slot >>> PAGE_BITS][slot & PAGE_MASK];
+        }
+
+        public String getProductName(int slot) {
+            checkSlot(slot);
+            return namePages[slot >>> PAGE_BITS][slot & PAGE_MASK];
+        }
+
+        /**
+         * indexOf() - Slot of a product in this version, or -1 if it is not in it
+         */
+        public int indexOf(String productName) {
+            Integer slot = catalog.slotByName.get(productName);
+            return slot == null || slot >= size ? -1 : slot;
+        }
+
+        public double getPrice(String productName) {
+            int slot = indexOf(productName);
+            if (slot < 0) {
+                throw new IllegalArgumentException("No product " + productName + " in " + catalog.storeName);
+            }
+            return getPrice(slot);
+        }
+
+        private void checkSlot(int slot) {
+            if (slot < 0 || slot >= size) {
+                throw new IndexOutOfBoundsException("Slot " + slot + " of " + size);
+            }
+        }
+
+        // Next version with the given slots repriced; only their pages are copied
+        private Snapshot withPrices(int[] slots, double[] prices) {
+            double[][] pages = pricePages.clone();
+            boolean[] copied = new boolean[pages.length];
+            for (int i = 0; i < slots.length; i++) {
+                checkSlot(slots[i]);
+                int page = slots[i] >>> PAGE_BITS;
+                if (!copied[page]) {
+                    pages[page] = pages[page].clone();
+                    copied[page] = true;
+                }
+                pages[page][slots[i] & PAGE_MASK] = prices[i];
+            }
+            return new Snapshot(catalog, version + 1, size, pages, namePages);
+        }
+
+        // Next version with every price discounted (every page is copied)
+        private Snapshot withDiscount(double percentage) {
+            double[][] pages = new double[pricePages.length][];
+            for (int p = 0; p < pages.length; p++) {
+                pages[p] = pricePages[p].clone();
+                int inPage = Math.min(PAGE_SIZE, size - (p << PAGE_BITS));
+                for (int i = 0; i < inPage; i++) {
+                    pages[p][i] = pages[p][i] - (pages[p][i] * percentage / 100);
+                }
+            }
+            return new Snapshot(catalog, version + 1, size, pages, namePages);
+        }
+
+        // Next version with one product added at slot size
+        private Snapshot withProduct(String productName, double price) {
+            int page = size >>> PAGE_BITS;
+            double[][] prices = Arrays.copyOf(pricePages, page + 1);
+            String[][] names = Arrays.copyOf(namePages, page + 1);
+            if (page == pricePages.length) {
+                prices[page] = new double[PAGE_SIZE];
+                names[page] = new String[PAGE_SIZE];
+            } else {
+                prices[page] = prices[page].clone();
+                names[page] = names[page].clone();
+            }
+            prices[page][size & PAGE_MASK] = price;
+            names[page][size & PAGE_MASK] = productName;
+            return new Snapshot(catalog, version + 1, size + 1, prices, names);
+        }
+    }
+
+    private final String storeName;
+    private final AtomicReference<Snapshot> current;
+    // Shared by all versions; a slot only counts in versions whose size covers it
+    private final ConcurrentHashMap<String, Integer> slotByName = new ConcurrentHashMap<>();
+    private final Object addLock = new Object();
+    private final Object storewideLock = new Object();
+    private volatile boolean storewideWaiting;     // Set while a storewide change holds storewideLock
+
+    public StoreCatalog(String storeName) {
+        this.storeName = storeName;
+        this.current = new AtomicReference<>(new Snapshot(this, 0, 0, new double[0][], new String[0][]));
+    }
+
+    public String getStoreName() {
+        return storeName;
+    }
+
+    /**
+     * snapshot() - The current version; it never changes, so read as much of it as needed
+     */
+    public Snapshot snapshot() {
+        return current.get();
+    }
+
+    /**
+     * addProduct() - Adds a product to this store
+     * @return Its slot
+     */
+    public int addProduct(String productName, double price) {
+        synchronized (addLock) {   // Adds take turns so each gets the next slot; price writers are not held up
+            if (slotByName.containsKey(productName)) {
+                throw new IllegalArgumentException(productName + " is already in " + storeName);
+            }
+            Snapshot published;
+            Snapshot next;
+            do {
+                awaitStorewide();
+                published = current.get();
+                next = published.withProduct(productName, price);
+            } while (!current.compareAndSet(published, next));
+            int slot = published.size;
+            slotByName.put(productName, slot);
+            return slot;
+        }
+    }
+
+    /**
+     * setPrice() - Changes one price
+     * @return Version that contains the change
+     */
+    public long setPrice(String productName, double price) {
+        return setPrices(new int[] {slotOf(productName)}, new double[] {price});
+    }
+
+    /**
+     * setPrices() - Changes several prices in one version (readers see all or none of them)
+     * @return Version that contains the change
+     */
+    public long setPrices(int[] slots, double[] prices) {
+        if (slots.length != prices.length) {
+            throw new IllegalArgumentException("slots and prices differ in length");
+        }
+        Snapshot published;
+        Snapshot next;
+        do {
+            awaitStorewide();
+            published = current.get();
+            next = published.withPrices(slots, prices);
+        } while (!current.compareAndSet(published, next));
+        return next.version;
+    }
+
+    /**
+     * discount() - Takes a percentage off one product (same arithmetic as Product.discount)
+     * @return Version that contains the change
+     */
+    public long discount(String productName, double percentage) {
+        int[] slot = {slotOf(productName)};
+        double[] price = new double[1];
+        Snapshot published;
+        Snapshot next;
+        do {
+            awaitStorewide();
+            published = current.get();
+            double old = published.getPrice(slot[0]);
+            price[0] = old - (old * percentage / 100);
+            next = published.withPrices(slot, price);
+        } while (!current.compareAndSet(published, next));
+        return next.version;
+    }
+
+    /**
+     * discountAll() - Storewide sale: a percentage off every product, as one version
+     * Tries lock-free first; if other writers keep winning, holds them off (see the class comment).
+     * @return Version that contains the change
+     */
+    public long discountAll(double percentage) {
+        Snapshot published;
+        Snapshot next;
+        for (int attempt = 0; attempt < STOREWIDE_TRIES; attempt++) {
+            published = current.get();
+            next = published.withDiscount(percentage);
+            if (current.compareAndSet(published, next)) {
+                return next.version;
+            }
+        }
+
+        synchronized (storewideLock) {
+            storewideWaiting = true;
+            try {
+                // Only writers already past awaitStorewide() can still win, once each
+                do {
+                    published = current.get();
+                    next = published.withDiscount(percentage);
+                } while (!current.compareAndSet(published, next));
+                return next.version;
+            } finally {
+                storewideWaiting = false;
+            }
+        }
+    }
+
+    // Blocks while a storewide change is holding writers off
+    private void awaitStorewide() {
+        if (storewideWaiting) {
+            synchronized (storewideLock) {
+                // Nothing to do: getting the lock means the storewide change is published
+            }
+        }
+    }
+
+    private int slotOf(String productName) {
+        Integer slot = slotByName.get(productName);
+        if (slot == null) {
+            throw new IllegalArgumentException("No product " + productName + " in " + storeName);
+        }
+        return slot;
+    }
+}
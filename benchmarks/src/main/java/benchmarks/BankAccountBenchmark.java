@@ -0,0 +1,82 @@
+package benchmarks;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * BankAccountBenchmark - BankAccount.deposit/withdraw from Bank.java
+ * BankAccount lives in the default package, which JMH benchmarks cannot
+ * import, so it is reached through static final MethodHandles (the JIT
+ * inlines these like direct calls). Console output goes to a null stream:
+ * the string building is measured, the terminal is not.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BankAccountBenchmark {
+
+    private static final MethodHandle NEW_ACCOUNT;
+    private static final MethodHandle DEPOSIT;
+    private static final MethodHandle WITHDRAW;
+
+    static {
+        try {
+            Class<?> type = Class.forName("BankAccount");
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+            NEW_ACCOUNT = lookup.findConstructor(type, MethodType.methodType(void.class, int.class, String.class, double.class))
+                    .asType(MethodType.methodType(Object.class, int.class, String.class, double.class));
+            DEPOSIT = lookup.findVirtual(type, "deposit", MethodType.methodType(void.class, double.class))
+                    .asType(MethodType.methodType(void.class, Object.class, double.class));
+            WITHDRAW = lookup.findVirtual(type, "withdraw", MethodType.methodType(void.class, double.class))
+                    .asType(MethodType.methodType(void.class, Object.class, double.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Object account;
+    private PrintStream console;
+
+    @Setup
+    public void setUp() throws Throwable {
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        account = (Object) NEW_ACCOUNT.invokeExact(5, "Mohit", 400000000.0);
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(console);
+    }
+
+    @Benchmark
+    public Object deposit() throws Throwable {
+        DEPOSIT.invokeExact(account, 100.0);
+        return account;
+    }
+
+    @Benchmark
+    public Object depositThenWithdraw() throws Throwable {
+        DEPOSIT.invokeExact(account, 100.0);
+        WITHDRAW.invokeExact(account, 100.0);
+        return account;
+    }
+}
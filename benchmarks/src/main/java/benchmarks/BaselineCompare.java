@@ -0,0 +1,125 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BaselineCompare - Compares a JMH CSV result file against the stored baseline
+ *
+ * Usage: java -cp benchmarks/target/benchmarks.jar benchmarks.BaselineCompare
+ *            benchmarks/baseline/baseline.csv results.csv [thresholdPercent]
+ *
+ * Prints the change of every score found in both files and exits with code 1
+ * if any of them got worse by more than the threshold (default 10%).
+ * Throughput scores should go up; times and bytes allocated per operation
+ * (-prof gc "gc.alloc.rate.norm") should go down.
+ */
+public class BaselineCompare {
+
+    private static final double DEFAULT_THRESHOLD_PERCENT = 10.0;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: BaselineCompare <baseline.csv> <results.csv> [thresholdPercent]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD_PERCENT;
+
+        Map<String, Score> baseline = read(Paths.get(args[0]));
+        Map<String, Score> current = read(Paths.get(args[1]));
+
+        int regressions = 0;
+        for (Map.Entry<String, Score> entry : current.entrySet()) {
+            Score before = baseline.get(entry.getKey());
+            if (before == null || before.value == 0) {
+                continue;
+            }
+            Score after = entry.getValue();
+            double changePercent = (after.value - before.value) / before.value * 100;
+            boolean worse = after.higherIsBetter ? -changePercent > threshold : changePercent > threshold;
+            if (worse) {
+                regressions++;
+            }
+            System.out.printf("%s %-70s %14.3f -> %14.3f %-10s %+7.1f%%%n",
+                    worse ? "✗" : "✓", entry.getKey(), before.value, after.value, after.unit, changePercent);
+        }
+
+        System.out.println(regressions == 0
+                ? "✓ No regressions beyond " + threshold + "%"
+                : "✗ " + regressions + " regression(s) beyond " + threshold + "%");
+        System.exit(regressions == 0 ? 0 : 1);
+    }
+
+    // Reads a JMH "-rf csv" file: benchmark name + parameters -> score
+    private static Map<String, Score> read(Path file) throws IOException {
+        Map<String, Score> scores = new LinkedHashMap<>();
+        List<String> lines = Files.readAllLines(file);
+        if (lines.isEmpty()) {
+            return scores;
+        }
+
+        List<String> header = splitCsv(lines.get(0));
+        int benchmarkColumn = header.indexOf("Benchmark");
+        int modeColumn = header.indexOf("Mode");
+        int scoreColumn = header.indexOf("Score");
+        int unitColumn = header.indexOf("Unit");
+
+        for (String line : lines.subList(1, lines.size())) {
+            List<String> cells = splitCsv(line);
+            if (cells.size() < header.size()) {
+                continue;
+            }
+            StringBuilder key = new StringBuilder(cells.get(benchmarkColumn));
+            for (int i = unitColumn + 1; i < header.size(); i++) {
+                if (!cells.get(i).isEmpty()) {
+                    key.append(' ').append(header.get(i).replace("Param: ", "")).append('=').append(cells.get(i));
+                }
+            }
+            String unit = cells.get(unitColumn);
+            boolean secondary = cells.get(benchmarkColumn).contains(":");   // e.g. ":gc.alloc.rate.norm"
+            if (secondary && !cells.get(benchmarkColumn).endsWith(":gc.alloc.rate.norm")) {
+                continue;   // gc.count, gc.time and alloc.rate are too noisy to compare
+            }
+            boolean higherIsBetter = !secondary && cells.get(modeColumn).equals("thrpt");
+            scores.put(key.toString(), new Score(Double.parseDouble(cells.get(scoreColumn)), unit, higherIsBetter));
+        }
+        return scores;
+    }
+
+    // Splits one CSV line, honouring double quotes
+    private static List<String> splitCsv(String line) {
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+        for (char c : line.toCharArray()) {
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ',' && !quoted) {
+                cells.add(cell.toString());
+                cell.setLength(0);
+            } else {
+                cell.append(c);
+            }
+        }
+        cells.add(cell.toString());
+        return cells;
+    }
+
+    private static class Score {
+        final double value;
+        final String unit;
+        final boolean higherIsBetter;
+
+        Score(double value, String unit, boolean higherIsBetter) {
+            this.value = value;
+            this.unit = unit;
+            this.higherIsBetter = higherIsBetter;
+        }
+    }
+}
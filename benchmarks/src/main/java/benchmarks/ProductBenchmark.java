@@ -0,0 +1,104 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ProductBenchmark - Product.discount and isCheaperThan over large catalogs
+ * Like BankAccountBenchmark, Product (default package) is reached through
+ * static final MethodHandles. Each pass resets the price first, otherwise
+ * repeated discounts would drive prices towards zero.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ProductBenchmark {
+
+    private static final MethodHandle NEW_PRODUCT;
+    private static final MethodHandle SET_PRICE;
+    private static final MethodHandle DISCOUNT_PERCENT;
+    private static final MethodHandle DISCOUNT_FLAT;
+    private static final MethodHandle IS_CHEAPER_THAN;
+
+    static {
+        try {
+            Class<?> type = Class.forName("Product");
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+            NEW_PRODUCT = lookup.findConstructor(type, MethodType.methodType(void.class, String.class, double.class))
+                    .asType(MethodType.methodType(Object.class, String.class, double.class));
+            SET_PRICE = lookup.findVirtual(type, "setPrice", MethodType.methodType(void.class, double.class))
+                    .asType(MethodType.methodType(void.class, Object.class, double.class));
+            DISCOUNT_PERCENT = lookup.findVirtual(type, "discount", MethodType.methodType(void.class, double.class))
+                    .asType(MethodType.methodType(void.class, Object.class, double.class));
+            DISCOUNT_FLAT = lookup.findVirtual(type, "discount", MethodType.methodType(void.class, int.class))
+                    .asType(MethodType.methodType(void.class, Object.class, int.class));
+            IS_CHEAPER_THAN = lookup.findVirtual(type, "isCheaperThan", MethodType.methodType(boolean.class, type))
+                    .asType(MethodType.methodType(boolean.class, Object.class, Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @Param({ "10000", "1000000" })
+    public int catalogSize;
+
+    private Object[] products;
+    private double[] basePrices;
+
+    @Setup
+    public void setUp() throws Throwable {
+        Random random = new Random(42);
+        products = new Object[catalogSize];
+        basePrices = new double[catalogSize];
+        for (int i = 0; i < catalogSize; i++) {
+            basePrices[i] = 10 + random.nextInt(100000) / 100.0;
+            products[i] = (Object) NEW_PRODUCT.invokeExact("Product " + i, basePrices[i]);
+        }
+    }
+
+    @Benchmark
+    public Object[] discountPercentage() throws Throwable {
+        for (int i = 0; i < catalogSize; i++) {
+            SET_PRICE.invokeExact(products[i], basePrices[i]);
+            DISCOUNT_PERCENT.invokeExact(products[i], 10.0);
+        }
+        return products;
+    }
+
+    @Benchmark
+    public Object[] discountFlat() throws Throwable {
+        for (int i = 0; i < catalogSize; i++) {
+            SET_PRICE.invokeExact(products[i], basePrices[i]);
+            DISCOUNT_FLAT.invokeExact(products[i], 5);
+        }
+        return products;
+    }
+
+    @Benchmark
+    public int countCheaperThanNext() throws Throwable {
+        int cheaper = 0;
+        for (int i = 0; i + 1 < catalogSize; i++) {
+            if ((boolean) IS_CHEAPER_THAN.invokeExact(products[i], products[i + 1])) {
+                cheaper++;
+            }
+        }
+        return cheaper;
+    }
+}
@@ -0,0 +1,183 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ProductColumnsBenchmark - Storewide discounts: Product objects vs ProductColumns
+ * Three ways to do the same sale:
+ *   objects*  - loop over Product objects (what GeneralStore does today)
+ *   scalar*   - ProductColumns with plain loops
+ *   vector*   - ProductColumns with the Vector API (the fork adds jdk.incubator.vector)
+ * Every pass first resets all prices, like ProductBenchmark, so repeated
+ * discounts do not drive prices towards zero.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class ProductColumnsBenchmark {
+
+    private static final double MIN_PRICE = 100;
+    private static final double MAX_PRICE = 500;
+
+    private static final MethodHandle NEW_PRODUCT;
+    private static final MethodHandle GET_PRICE;
+    private static final MethodHandle SET_PRICE;
+    private static final MethodHandle DISCOUNT_PERCENT;
+    private static final MethodHandle DISCOUNT_FLAT;
+
+    private static final MethodHandle NEW_COLUMNS;
+    private static final MethodHandle COLUMNS_ADD;
+    private static final MethodHandle COLUMNS_SET_PRICES;
+    private static final MethodHandle COLUMNS_DISCOUNT_PERCENT;
+    private static final MethodHandle COLUMNS_DISCOUNT_FLAT;
+    private static final MethodHandle COLUMNS_DISCOUNT_IN_RANGE;
+
+    static {
+        try {
+            Class<?> product = Class.forName("Product");
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(product, MethodHandles.lookup());
+            NEW_PRODUCT = lookup.findConstructor(product, MethodType.methodType(void.class, String.class, double.class))
+                    .asType(MethodType.methodType(Object.class, String.class, double.class));
+            GET_PRICE = lookup.findVirtual(product, "getPrice", MethodType.methodType(double.class))
+                    .asType(MethodType.methodType(double.class, Object.class));
+            SET_PRICE = lookup.findVirtual(product, "setPrice", MethodType.methodType(void.class, double.class))
+                    .asType(MethodType.methodType(void.class, Object.class, double.class));
+            DISCOUNT_PERCENT = lookup.findVirtual(product, "discount", MethodType.methodType(void.class, double.class))
+                    .asType(MethodType.methodType(void.class, Object.class, double.class));
+            DISCOUNT_FLAT = lookup.findVirtual(product, "discount", MethodType.methodType(void.class, int.class))
+                    .asType(MethodType.methodType(void.class, Object.class, int.class));
+
+            Class<?> columns = Class.forName("ProductColumns");
+            lookup = MethodHandles.privateLookupIn(columns, MethodHandles.lookup());
+            NEW_COLUMNS = lookup.findConstructor(columns, MethodType.methodType(void.class, int.class, boolean.class))
+                    .asType(MethodType.methodType(Object.class, int.class, boolean.class));
+            COLUMNS_ADD = lookup.findVirtual(columns, "add", MethodType.methodType(int.class, String.class, double.class))
+                    .asType(MethodType.methodType(int.class, Object.class, String.class, double.class));
+            COLUMNS_SET_PRICES = lookup.findVirtual(columns, "setPrices", MethodType.methodType(void.class, double[].class))
+                    .asType(MethodType.methodType(void.class, Object.class, double[].class));
+            COLUMNS_DISCOUNT_PERCENT = lookup.findVirtual(columns, "discount", MethodType.methodType(void.class, double.class))
+                    .asType(MethodType.methodType(void.class, Object.class, double.class));
+            COLUMNS_DISCOUNT_FLAT = lookup.findVirtual(columns, "discount", MethodType.methodType(void.class, int.class))
+                    .asType(MethodType.methodType(void.class, Object.class, int.class));
+            COLUMNS_DISCOUNT_IN_RANGE = lookup.findVirtual(columns, "discountInPriceRange",
+                            MethodType.methodType(int.class, double.class, double.class, double.class))
+                    .asType(MethodType.methodType(int.class, Object.class, double.class, double.class, double.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @Param({ "10000", "1000000" })
+    public int catalogSize;
+
+    private Object[] products;
+    private double[] basePrices;
+    private Object scalarColumns;
+    private Object vectorColumns;
+
+    @Setup
+    public void setUp() throws Throwable {
+        Random random = new Random(42);
+        products = new Object[catalogSize];
+        basePrices = new double[catalogSize];
+        scalarColumns = (Object) NEW_COLUMNS.invokeExact(catalogSize, false);
+        vectorColumns = (Object) NEW_COLUMNS.invokeExact(catalogSize, true);
+        for (int i = 0; i < catalogSize; i++) {
+            basePrices[i] = 10 + random.nextInt(100000) / 100.0;
+            String name = "Product " + (i % 5000);
+            products[i] = (Object) NEW_PRODUCT.invokeExact(name, basePrices[i]);
+            int ignored = (int) COLUMNS_ADD.invokeExact(scalarColumns, name, basePrices[i]);
+            ignored = (int) COLUMNS_ADD.invokeExact(vectorColumns, name, basePrices[i]);
+        }
+    }
+
+    @Benchmark
+    public Object[] objectsDiscountPercentage() throws Throwable {
+        for (int i = 0; i < catalogSize; i++) {
+            SET_PRICE.invokeExact(products[i], basePrices[i]);
+            DISCOUNT_PERCENT.invokeExact(products[i], 10.0);
+        }
+        return products;
+    }
+
+    @Benchmark
+    public Object scalarDiscountPercentage() throws Throwable {
+        COLUMNS_SET_PRICES.invokeExact(scalarColumns, basePrices);
+        COLUMNS_DISCOUNT_PERCENT.invokeExact(scalarColumns, 10.0);
+        return scalarColumns;
+    }
+
+    @Benchmark
+    public Object vectorDiscountPercentage() throws Throwable {
+        COLUMNS_SET_PRICES.invokeExact(vectorColumns, basePrices);
+        COLUMNS_DISCOUNT_PERCENT.invokeExact(vectorColumns, 10.0);
+        return vectorColumns;
+    }
+
+    @Benchmark
+    public Object[] objectsDiscountFlat() throws Throwable {
+        for (int i = 0; i < catalogSize; i++) {
+            SET_PRICE.invokeExact(products[i], basePrices[i]);
+            DISCOUNT_FLAT.invokeExact(products[i], 5);
+        }
+        return products;
+    }
+
+    @Benchmark
+    public Object scalarDiscountFlat() throws Throwable {
+        COLUMNS_SET_PRICES.invokeExact(scalarColumns, basePrices);
+        COLUMNS_DISCOUNT_FLAT.invokeExact(scalarColumns, 5);
+        return scalarColumns;
+    }
+
+    @Benchmark
+    public Object vectorDiscountFlat() throws Throwable {
+        COLUMNS_SET_PRICES.invokeExact(vectorColumns, basePrices);
+        COLUMNS_DISCOUNT_FLAT.invokeExact(vectorColumns, 5);
+        return vectorColumns;
+    }
+
+    @Benchmark
+    public int objectsDiscountInRange() throws Throwable {
+        int changed = 0;
+        for (int i = 0; i < catalogSize; i++) {
+            SET_PRICE.invokeExact(products[i], basePrices[i]);
+            double price = (double) GET_PRICE.invokeExact(products[i]);
+            if (price >= MIN_PRICE && price <= MAX_PRICE) {
+                DISCOUNT_PERCENT.invokeExact(products[i], 10.0);
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    @Benchmark
+    public int scalarDiscountInRange() throws Throwable {
+        COLUMNS_SET_PRICES.invokeExact(scalarColumns, basePrices);
+        return (int) COLUMNS_DISCOUNT_IN_RANGE.invokeExact(scalarColumns, 10.0, MIN_PRICE, MAX_PRICE);
+    }
+
+    @Benchmark
+    public int vectorDiscountInRange() throws Throwable {
+        COLUMNS_SET_PRICES.invokeExact(vectorColumns, basePrices);
+        return (int) COLUMNS_DISCOUNT_IN_RANGE.invokeExact(vectorColumns, 10.0, MIN_PRICE, MAX_PRICE);
+    }
+}
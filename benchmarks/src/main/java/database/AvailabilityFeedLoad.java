@@ -0,0 +1,242 @@
+package database;
+
+import models.Car;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * AvailabilityFeedLoad - Thousands of dashboards watching availability through AvailabilityFeed
+ *
+ * WATCHERS subscribers (spread over the three categories) each keep their own
+ * set of available plates: they read the list once, then apply every delta
+ * they poll, at most once every REFRESH_MILLIS like a dashboard repainting
+ * (changes in between are conflated by the feed). Meanwhile RENTERS threads
+ * rent and return random cars through CarDAO, CHANGES_PER_SECOND in total,
+ * for RUN_SECONDS. A few SLOW subscribers never poll, to show their pending
+ * changes stay bounded by maxPending.
+ *
+ * The numbers cover RUN_SECONDS after a WARMUP_SECONDS run of the same load.
+ * At the end every watcher's set must equal the database. Prints the rents
+ * and returns per second, changes delivered, how many were conflated, and the
+ * database queries the watchers needed, next to what polling the list every
+ * POLL_INTERVAL_MILLIS would have cost. At most LIST_READERS watchers read
+ * their list at once, so thousands of them starting together do not use up
+ * the connection pool that the renters need.
+ *
+ *   java -cp benchmarks.jar database.AvailabilityFeedLoad [watchers] [seconds]
+ */
+public class AvailabilityFeedLoad {
+
+    private static final int FLEET_SIZE = 10_000;
+    private static final int RENTERS = 4;
+    private static final int WARMUP_SECONDS = 5;
+    private static final int CHANGES_PER_SECOND = 1000;   // All renters together (a very busy network)
+    private static final int SLOW = 10;
+    private static final int SLOW_MAX_PENDING = 64;
+    private static final long POLL_INTERVAL_MILLIS = 1000;
+    private static final long REFRESH_MILLIS = 250;   // A dashboard repaints at most this often
+    private static final int LIST_READERS = 4;   // Watchers reading their list at once (the pool has 10 connections)
+
+    public static void main(String[] args) throws SQLException, InterruptedException {
+        int watcherCount = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int runSeconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        BenchmarkDatabase.create(FLEET_SIZE);
+        CarDAO carDAO = new CarDAO();
+        AvailabilityFeed feed = CarDAO.getAvailabilityFeed();
+
+        // Watchers: subscribe first, then read the list, then apply deltas
+        AtomicBoolean stop = new AtomicBoolean();
+        CountDownLatch ready = new CountDownLatch(watcherCount);
+        List<Watcher> watchers = new ArrayList<>();
+        List<Thread> watcherThreads = new ArrayList<>();
+        for (int i = 0; i < watcherCount; i++) {
+            Watcher watcher = new Watcher(carDAO, feed.subscribe(BenchmarkDatabase.CATEGORIES[i % 3]));
+            watchers.add(watcher);
+            watcherThreads.add(Thread.ofVirtual().start(() -> watcher.run(stop, ready)));
+        }
+        ready.await();
+
+        // Warm up the JIT so the measurement shows the steady state, not the first seconds
+        rentAndReturn(carDAO, WARMUP_SECONDS);
+        waitForFeed(feed);
+        long queriesBefore = DaoMetrics.get(DaoMetrics.Operation.GET_AVAILABLE_CARS).getCallCount();
+        long deliveriesBefore = feed.getDeliveryCount();
+        long conflatedBefore = feed.getConflatedCount();
+        long resyncsBefore = feed.getResyncCount();
+        List<AvailabilityFeed.Subscription> slow = new ArrayList<>();
+        for (int i = 0; i < SLOW; i++) {
+            slow.add(feed.subscribe(BenchmarkDatabase.CATEGORIES[i % 3], SLOW_MAX_PENDING));
+        }
+
+        long began = System.nanoTime();
+        long changes = rentAndReturn(carDAO, runSeconds);
+        double elapsed = (System.nanoTime() - began) / 1e9;
+
+        // Let the feed and the watchers catch up, then stop them
+        int backlog = feed.getBacklog();
+        double drainSeconds = waitForFeed(feed);
+        Thread.sleep(500);
+        stop.set(true);
+        for (Thread thread : watcherThreads) {
+            thread.join();
+        }
+        long watcherQueries = DaoMetrics.get(DaoMetrics.Operation.GET_AVAILABLE_CARS).getCallCount() - queriesBefore;
+        long deliveries = feed.getDeliveryCount() - deliveriesBefore;
+
+        // Compare every watcher with the database
+        CarDAO.getAvailabilityCache().invalidateAll();
+        int wrong = 0;
+        for (String category : BenchmarkDatabase.CATEGORIES) {
+            Set<String> truth = plates(carDAO.getAvailableCarsByCategory(category));
+            for (Watcher watcher : watchers) {
+                if (watcher.subscription.getCategory().equals(category) && !watcher.available.equals(truth)) {
+                    wrong++;
+                }
+            }
+        }
+
+        System.out.printf("%,d watchers, %d renter threads, %.1f s%n", watcherCount, RENTERS, elapsed);
+        System.out.printf("  rents + returns      %,12d  (%,.0f/s)%n", changes, changes / elapsed);
+        System.out.printf("  deliveries           %,12d  (%,.0f/s, change x watcher)%n", deliveries, deliveries / elapsed);
+        System.out.printf("  feed backlog         %,12d  (drained in %.2f s)%n", backlog, drainSeconds);
+        System.out.printf("  conflated            %,12d%n", feed.getConflatedCount() - conflatedBefore);
+        System.out.printf("  resyncs              %,12d%n", feed.getResyncCount() - resyncsBefore);
+        System.out.printf("  list queries         %,12d  (polling every %d ms: ~%,d)%n", watcherQueries,
+                POLL_INTERVAL_MILLIS, (long) (watcherCount * elapsed * 1000 / POLL_INTERVAL_MILLIS));
+        int maxSlowPending = 0;
+        for (AvailabilityFeed.Subscription subscription : slow) {
+            maxSlowPending = Math.max(maxSlowPending, subscription.getPendingCount());
+            subscription.close();
+        }
+        System.out.printf("  slow subscriber held %,12d  pending (limit %d)%n", maxSlowPending, SLOW_MAX_PENDING);
+
+        DatabaseConnection.shutdown();
+        if (wrong > 0) {
+            System.out.println("✗ " + wrong + " watcher(s) disagree with the database");
+            System.exit(1);
+        }
+        System.out.println("✓ Every watcher matches the database");
+    }
+
+    /**
+     * rentAndReturn() - RENTERS threads rent and return random cars, a quarter of them through the plain methods
+     * @return Rents and returns that changed a car
+     */
+    private static long rentAndReturn(CarDAO carDAO, int seconds) throws InterruptedException {
+        LongAdder changes = new LongAdder();
+        CountDownLatch done = new CountDownLatch(RENTERS);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        for (int t = 0; t < RENTERS; t++) {
+            Thread.ofPlatform().daemon().start(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long interval = TimeUnit.SECONDS.toNanos(1) * RENTERS / CHANGES_PER_SECOND;
+                long next = System.nanoTime();
+                try {
+                    while (System.nanoTime() < deadline) {
+                        next += interval;
+                        LockSupport.parkNanos(next - System.nanoTime());
+                        String plateNo = BenchmarkDatabase.plateNo(random.nextInt(FLEET_SIZE));
+                        boolean plain = random.nextInt(4) == 0;
+                        boolean changed = plain
+                                ? carDAO.rentCar(plateNo) || carDAO.returnCar(plateNo)
+                                : carDAO.rentCarAtomically(plateNo).isSuccess()
+                                        || carDAO.returnCarAtomically(plateNo).isSuccess();
+                        if (changed) {
+                            changes.increment();
+                        }
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        return changes.sum();
+    }
+
+    /**
+     * waitForFeed() - Waits until the dispatcher has handed out every reported change
+     * @return Seconds it took
+     */
+    private static double waitForFeed(AvailabilityFeed feed) throws InterruptedException {
+        long start = System.nanoTime();
+        while (feed.getBacklog() > 0) {
+            Thread.sleep(10);
+        }
+        return (System.nanoTime() - start) / 1e9;
+    }
+
+    /**
+     * Watcher - One dashboard: its own copy of the available plates of a category
+     */
+    private static final class Watcher {
+        final CarDAO carDAO;
+        final AvailabilityFeed.Subscription subscription;
+        final Set<String> available = new HashSet<>();
+        static final Semaphore listReaders = new Semaphore(LIST_READERS);
+
+        Watcher(CarDAO carDAO, AvailabilityFeed.Subscription subscription) {
+            this.carDAO = carDAO;
+            this.subscription = subscription;
+        }
+
+        void run(AtomicBoolean stop, CountDownLatch ready) {
+            try {
+                readList();
+                ready.countDown();
+                while (true) {
+                    AvailabilityDelta delta = subscription.poll(100, TimeUnit.MILLISECONDS);
+                    if (delta == null) {
+                        if (stop.get()) {
+                            break;   // Renters are done and nothing is left to apply
+                        }
+                        continue;
+                    }
+                    if (delta.isResync()) {
+                        readList();
+                    }
+                    for (AvailabilityChange change : delta.getChanges()) {
+                        if (change.isAvailable()) {
+                            available.add(change.getPlateNo());
+                        } else {
+                            available.remove(change.getPlateNo());
+                        }
+                    }
+                    Thread.sleep(REFRESH_MILLIS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                subscription.close();
+            }
+        }
+
+        void readList() throws InterruptedException {
+            listReaders.acquire();
+            try {
+                available.clear();
+                available.addAll(plates(carDAO.getAvailableCarsByCategory(subscription.getCategory())));
+            } finally {
+                listReaders.release();
+            }
+        }
+    }
+
+    private static Set<String> plates(List<Car> cars) {
+        Set<String> plates = new HashSet<>();
+        for (Car car : cars) {
+            plates.add(car.getPlateNo());
+        }
+        return plates;
+    }
+}
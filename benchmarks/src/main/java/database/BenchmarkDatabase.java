@@ -0,0 +1,74 @@
+package database;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * BenchmarkDatabase - In-memory H2 database (MySQL mode) filled with a generated fleet
+ * Points DatabaseConnection at it through the db.url system property, so the
+ * real CarDAO code runs unchanged.
+ */
+public class BenchmarkDatabase {
+
+    public static final String URL = "jdbc:h2:mem:car_rental_db;MODE=MySQL;DB_CLOSE_DELAY=-1";
+    public static final String[] CATEGORIES = { "SUV", "Sedan", "Hatchback" };
+
+    /**
+     * create() - Creates the cars table (schema version 2, plus updated_at from version 5) with fleetSize cars
+     * Every fifth car starts out rented.
+     */
+    public static void create(int fleetSize) throws SQLException {
+        System.setProperty("db.url", URL);
+        System.setProperty("db.user", "sa");
+        System.setProperty("db.password", "");
+
+        try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS cars");
+            statement.execute("CREATE TABLE cars ("
+                    + " plate_no VARCHAR(20) PRIMARY KEY,"
+                    + " model VARCHAR(50) NOT NULL,"
+                    + " category ENUM('SUV', 'Sedan', 'Hatchback') NOT NULL,"
+                    + " rate_per_day DECIMAL(10,2) NOT NULL,"
+                    + " status ENUM('Available', 'Rented') NOT NULL DEFAULT 'Available',"
+                    + " updated_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3))");
+            statement.execute("CREATE INDEX idx_cars_category_status ON cars (category, status, rate_per_day, model)");
+            statement.execute("CREATE INDEX idx_cars_updated_at ON cars (updated_at)");
+
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO cars (plate_no, model, category, rate_per_day, status) VALUES (?, ?, ?, ?, ?)")) {
+                for (int i = 0; i < fleetSize; i++) {
+                    insert.setString(1, plateNo(i));
+                    insert.setString(2, "Model " + (i % 500));
+                    insert.setString(3, CATEGORIES[i % CATEGORIES.length]);
+                    insert.setDouble(4, 1000 + (i % 41) * 50);
+                    insert.setString(5, i % 5 == 0 ? "Rented" : "Available");
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        }
+    }
+
+    /**
+     * plateNo() - Plate number of the i-th generated car
+     */
+    public static String plateNo(int i) {
+        return String.format("BM%08d", i);
+    }
+
+    /**
+     * silenceConsole() - Sends System.out to nowhere so console printing does not
+     * dominate the measurement; returns the original stream for restoring
+     */
+    public static PrintStream silenceConsole() {
+        PrintStream original = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        return original;
+    }
+}
@@ -0,0 +1,93 @@
+package database;
+
+import models.Car;
+import java.io.PrintStream;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * CarDAOBenchmark - CarDAO lookups and rent/return against H2 in MySQL mode
+ * Includes the connection pool and statement cache, so it measures the full
+ * path a console or HTTP request takes (minus the network to MySQL).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CarDAOBenchmark {
+
+    @Param({ "10000" })
+    public int fleetSize;
+
+    private CarDAO carDAO;
+    private PrintStream console;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        BenchmarkDatabase.create(fleetSize);
+        console = BenchmarkDatabase.silenceConsole();
+        carDAO = new CarDAO();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        DatabaseConnection.shutdown();
+        System.setOut(console);
+    }
+
+    private String randomAvailablePlate() {
+        int i = ThreadLocalRandom.current().nextInt(fleetSize);
+        if (i % 5 == 0) {
+            i = (i + 1) % fleetSize;   // Every fifth car starts out rented
+        }
+        return BenchmarkDatabase.plateNo(i);
+    }
+
+    @Benchmark
+    public Car getCarByPlateNo() {
+        return carDAO.getCarByPlateNo(randomAvailablePlate());
+    }
+
+    @Benchmark
+    public List<Car> getAvailableCarsByCategoryCached() {
+        String category = BenchmarkDatabase.CATEGORIES[ThreadLocalRandom.current().nextInt(3)];
+        return carDAO.getAvailableCarsByCategory(category);
+    }
+
+    @Benchmark
+    public List<Car> getAvailableCarsByCategoryUncached() {
+        CarDAO.getAvailabilityCache().invalidateAll();
+        String category = BenchmarkDatabase.CATEGORIES[ThreadLocalRandom.current().nextInt(3)];
+        return carDAO.getAvailableCarsByCategory(category);
+    }
+
+    @Benchmark
+    public boolean rentAndReturn() {
+        String plateNo = randomAvailablePlate();
+        return carDAO.rentCar(plateNo) & carDAO.returnCar(plateNo);
+    }
+
+    @Benchmark
+    public RentResult rentAndReturnAtomically() {
+        String plateNo = randomAvailablePlate();
+        carDAO.rentCarAtomically(plateNo);
+        return carDAO.returnCarAtomically(plateNo);
+    }
+}
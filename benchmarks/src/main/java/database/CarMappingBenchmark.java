@@ -0,0 +1,82 @@
+package database;
+
+import models.Car;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.concurrent.TimeUnit;
+import org.h2.tools.SimpleResultSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * CarMappingBenchmark - Cost of building Car objects, alone and from a ResultSet
+ * The ResultSet is H2's in-memory SimpleResultSet, so only CarDAO.mapCar()
+ * and the getter calls are measured, not any database work.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CarMappingBenchmark {
+
+    @Param({ "1000" })
+    public int rows;
+
+    private String[] plates;
+    private String[] models;
+    private String[] categories;
+    private double[] rates;
+    private SimpleResultSet resultSet;
+
+    @Setup
+    public void setUp() {
+        plates = new String[rows];
+        models = new String[rows];
+        categories = new String[rows];
+        rates = new double[rows];
+
+        resultSet = new SimpleResultSet();
+        resultSet.setAutoClose(false);
+        resultSet.addColumn("plate_no", Types.VARCHAR, 20, 0);
+        resultSet.addColumn("model", Types.VARCHAR, 50, 0);
+        resultSet.addColumn("category", Types.VARCHAR, 20, 0);
+        resultSet.addColumn("rate_per_day", Types.DECIMAL, 10, 2);
+        resultSet.addColumn("status", Types.VARCHAR, 20, 0);
+
+        for (int i = 0; i < rows; i++) {
+            plates[i] = BenchmarkDatabase.plateNo(i);
+            models[i] = "Model " + (i % 500);
+            categories[i] = BenchmarkDatabase.CATEGORIES[i % 3];
+            rates[i] = 1000 + (i % 41) * 50;
+            resultSet.addRow(plates[i], models[i], categories[i], BigDecimal.valueOf(rates[i]), "Available");
+        }
+    }
+
+    @Benchmark
+    public void constructCars(Blackhole blackhole) {
+        for (int i = 0; i < rows; i++) {
+            blackhole.consume(new Car(plates[i], models[i], categories[i], rates[i], "Available"));
+        }
+    }
+
+    @Benchmark
+    public void mapResultSet(Blackhole blackhole) throws SQLException {
+        resultSet.beforeFirst();
+        while (resultSet.next()) {
+            blackhole.consume(CarDAO.mapCar(resultSet));
+        }
+    }
+}
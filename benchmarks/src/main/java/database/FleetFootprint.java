@@ -0,0 +1,135 @@
+package database;
+
+import models.Car;
+import models.CompactFleet;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * FleetFootprint - Heap per car and GC work: List<Car> vs CompactFleet
+ *
+ * Builds the same fleet twice:
+ *   objects - one Car per row with its own Strings, as CarDAO.mapCar() makes them
+ *   compact - a CompactFleet
+ * and prints the heap each one keeps alive (used heap after a full GC, before
+ * and after building). Then runs the same "available SUVs" scan repeatedly
+ * with getAvailableCars() (one view per car) and forEachAvailable() (one view
+ * per scan), and prints the collections and GC time each caused.
+ *
+ * Also loads a small fleet through CarDAO.loadCompactFleet() from H2 and checks
+ * it matches the table.
+ *
+ *   java -cp benchmarks.jar database.FleetFootprint [fleetSize] [scans]
+ */
+public class FleetFootprint {
+
+    public static void main(String[] args) throws SQLException {
+        int fleetSize = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int scans = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        checkLoadFromDatabase(10_000);
+
+        System.out.printf("Fleet of %,d cars%n", fleetSize);
+        long before = usedHeap();
+        List<Car> objects = new ArrayList<>(fleetSize);
+        for (int i = 0; i < fleetSize; i++) {
+            objects.add(row(i));
+        }
+        long objectBytes = usedHeap() - before;
+        System.out.printf("%-10s %,15d bytes  %,8.1f bytes/car%n", "objects", objectBytes,
+                (double) objectBytes / fleetSize);
+
+        before = usedHeap();
+        CompactFleet fleet = new CompactFleet(fleetSize);
+        for (int i = 0; i < fleetSize; i++) {
+            fleet.add(row(i));
+        }
+        long compactBytes = usedHeap() - before;
+        System.out.printf("%-10s %,15d bytes  %,8.1f bytes/car  (%d models)%n", "compact", compactBytes,
+                (double) compactBytes / fleetSize, fleet.getDistinctModelCount());
+        if (objects.size() != fleet.size()) {
+            throw new IllegalStateException("Fleets differ in size");
+        }
+        objects = null;
+
+        System.out.printf("%n%d scans for available SUVs%n", scans);
+        System.out.printf("%-20s %10s %12s %12s%n", "", "ms/scan", "GC count", "GC ms");
+        scan("getAvailableCars", fleet, scans, true);
+        scan("forEachAvailable", fleet, scans, false);
+    }
+
+    private static void scan(String label, CompactFleet fleet, int scans, boolean list) {
+        long[] rateSum = new long[1];
+        for (int i = 0; i < 5; i++) {   // warm up
+            scanOnce(fleet, list, rateSum);
+        }
+        long collections = gcCount();
+        long gcMillis = gcMillis();
+        long began = System.nanoTime();
+        for (int i = 0; i < scans; i++) {
+            scanOnce(fleet, list, rateSum);
+        }
+        double millisPerScan = (System.nanoTime() - began) / 1e6 / scans;
+        System.out.printf("%-20s %10.2f %12d %12d%n", label, millisPerScan, gcCount() - collections,
+                gcMillis() - gcMillis);
+        if (rateSum[0] == 0) {
+            System.out.println("✗ No available SUVs found");
+        }
+    }
+
+    private static void scanOnce(CompactFleet fleet, boolean list, long[] rateSum) {
+        if (list) {
+            for (Car car : fleet.getAvailableCars("SUV")) {
+                rateSum[0] += (long) car.getRatePerDay();
+            }
+        } else {
+            fleet.forEachAvailable("SUV", car -> rateSum[0] += (long) car.getRatePerDay());
+        }
+    }
+
+    private static void checkLoadFromDatabase(int fleetSize) throws SQLException {
+        BenchmarkDatabase.create(fleetSize);
+        CompactFleet fleet = new CarDAO().loadCompactFleet(CarDAO.DEFAULT_FETCH_SIZE);
+        Car car = fleet.getCar(BenchmarkDatabase.plateNo(fleetSize - 1));
+        if (fleet.size() != fleetSize || car == null || !car.getModel().equals("Model " + ((fleetSize - 1) % 500))) {
+            throw new IllegalStateException("CompactFleet loaded from the database does not match the table");
+        }
+        System.out.printf("✓ Loaded %,d cars from the database into a CompactFleet%n%n", fleet.size());
+    }
+
+    // A car with its own String objects, like a row read from MySQL
+    private static Car row(int i) {
+        return new Car(new String(BenchmarkDatabase.plateNo(i)),
+                new String("Model " + (i % 500)),
+                new String(BenchmarkDatabase.CATEGORIES[i % BenchmarkDatabase.CATEGORIES.length]),
+                1000 + (i % 41) * 50,
+                new String(i % 5 == 0 ? "Rented" : "Available"));
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long gcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(gc.getCollectionCount(), 0);
+        }
+        return total;
+    }
+
+    private static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(gc.getCollectionTime(), 0);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,113 @@
+package database;
+
+import models.Car;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * SnapshotStartup - Time to the first list of available cars: MySQL vs fleet snapshot
+ *
+ * Steps, all against a generated H2 fleet (MySQL mode, in memory):
+ *   database  - first CarDAO.getAvailableCarsByCategory() of a fresh program
+ *               (starts the connection pool and runs the query)
+ *   rebuild   - SnapshotInventory with no file: reads the table, writes the snapshot
+ *   open      - SnapshotInventory.open() on that file (map + checksum)
+ *   list      - first category list from the snapshot
+ *   reconcile - rents RENTED_CARS cars in the database, then one background-style
+ *               reconcile() that reads only the changed rows
+ * Checks that the snapshot lists the same cars as the database after each step.
+ * H2 runs inside the JVM, so the database numbers leave out the network
+ * round trips a real MySQL server adds.
+ *
+ *   java -cp benchmarks.jar database.SnapshotStartup [fleetSize]
+ */
+public class SnapshotStartup {
+
+    private static final int RENTED_CARS = 100;
+
+    public static void main(String[] args) throws SQLException, IOException, InterruptedException {
+        int fleetSize = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        BenchmarkDatabase.create(fleetSize);
+        // As if the fleet was loaded long ago; otherwise every car counts as just changed
+        try (Connection connection = DriverManager.getConnection(BenchmarkDatabase.URL, "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("UPDATE cars SET updated_at = TIMESTAMP '2026-01-01 00:00:00'");
+        }
+        Path file = Files.createTempDirectory("fleet-snapshot").resolve("fleet.snap");
+        CarDAO carDAO = new CarDAO();
+        System.out.printf("Fleet of %,d cars%n", fleetSize);
+
+        long began = System.nanoTime();
+        List<Car> fromDatabase = carDAO.getAvailableCarsByCategory("SUV");
+        print("database", began, fromDatabase.size());
+
+        began = System.nanoTime();
+        try (SnapshotInventory inventory = SnapshotInventory.open(file, carDAO)) {
+            if (!inventory.reconcile()) {
+                throw new IllegalStateException("Could not build the snapshot");
+            }
+            print("rebuild", began, inventory.size());
+        }
+        System.out.printf("%-10s %,12d bytes%n", "file", Files.size(FleetSnapshot.latestPath(file)));
+
+        began = System.nanoTime();
+        SnapshotInventory inventory = SnapshotInventory.open(file, carDAO);
+        print("open", began, inventory.size());
+        long listed = System.nanoTime();
+        List<Car> fromSnapshot = inventory.getAvailableCarsByCategory("SUV");
+        print("list", listed, fromSnapshot.size());
+        print("open+list", began, fromSnapshot.size());
+        check(fromDatabase, fromSnapshot);
+
+        // Rent some SUVs behind the inventory's back, as another branch would
+        List<String> plates = new ArrayList<>();
+        for (int i = 0; i < RENTED_CARS; i++) {
+            plates.add(fromDatabase.get(i).getPlateNo());
+        }
+        Thread.sleep(5);   // Let updated_at move past the snapshot's watermark
+        carDAO.rentCars(plates);
+
+        began = System.nanoTime();
+        if (!inventory.reconcile()) {
+            throw new IllegalStateException("Could not reconcile the snapshot");
+        }
+        print("reconcile", began, RENTED_CARS);
+        CarDAO.getAvailabilityCache().invalidateAll();
+        check(carDAO.getAvailableCarsByCategory("SUV"), inventory.getAvailableCarsByCategory("SUV"));
+
+        inventory.close();
+        try (Stream<Path> snapshots = Files.list(file.getParent())) {
+            for (Path snapshot : (Iterable<Path>) snapshots::iterator) {
+                Files.delete(snapshot);
+            }
+        }
+        Files.deleteIfExists(file.getParent());
+        DatabaseConnection.shutdown();
+    }
+
+    private static void print(String step, long startNanos, int cars) {
+        System.out.printf("%-10s %,12.1f ms  (%,d cars)%n", step, (System.nanoTime() - startNanos) / 1e6, cars);
+    }
+
+    private static void check(List<Car> expected, List<Car> actual) {
+        List<String> expectedPlates = new ArrayList<>();
+        List<String> actualPlates = new ArrayList<>();
+        expected.forEach(car -> expectedPlates.add(car.getPlateNo()));
+        actual.forEach(car -> actualPlates.add(car.getPlateNo()));
+        expectedPlates.sort(null);
+        actualPlates.sort(null);
+        if (!expectedPlates.equals(actualPlates)) {
+            throw new IllegalStateException("Snapshot lists " + actual.size() + " available SUVs, database "
+                    + expected.size());
+        }
+        System.out.println("✓ Snapshot matches the database");
+    }
+}
@@ -0,0 +1,200 @@
+package logging;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * AsyncLogWriter - Background thread that formats and writes log messages
+ * Logging threads only drop references into the ring buffer; all string
+ * building and all I/O happens here, and the output is flushed once per
+ * batch instead of once per line.
+ */
+final class AsyncLogWriter implements Runnable {
+
+    private static final long IDLE_PARK_NANOS = 10_000_000;    // Writer sleeps up to 10 ms when idle
+    private static final long FULL_PARK_NANOS = 50_000;        // Logging thread waits 50 µs for room
+    private static final long FLUSH_TIMEOUT_MILLIS = 5000;     // flush() gives up after this long
+
+    private final LogRingBuffer buffer;
+    private final OverflowPolicy policy;
+    private final Writer out;
+    private final Thread thread;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final StringBuilder line = new StringBuilder(256);   // Reused for every message
+    private final LongAdder dropped = new LongAdder();
+    private long droppedReported = 0;
+
+    private volatile long writtenCount = 0;   // Messages written and flushed so far
+    private volatile boolean waiting = false; // Writer is (about to be) parked
+
+    AsyncLogWriter(PrintStream target, int capacity, OverflowPolicy policy) {
+        this.buffer = new LogRingBuffer(capacity);
+        this.policy = policy;
+        this.out = new BufferedWriter(new OutputStreamWriter(target, target.charset()), 8192);
+        this.thread = new Thread(this, "log-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * publish() - Queues one message (called by logging threads)
+     */
+    void publish(Level level, String template, int argCount, Object arg0, Object arg1, Object arg2,
+                 Object[] moreArgs, Throwable thrown) {
+        while (!buffer.tryPublish(level, template, argCount, arg0, arg1, arg2, moreArgs, thrown)) {
+            if (policy == OverflowPolicy.DROP && level.compareTo(Level.WARN) < 0) {
+                dropped.increment();
+                return;
+            }
+            LockSupport.unpark(thread);
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+        }
+        if (waiting) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * flush() - Waits until every message published before this call is written
+     */
+    void flush() {
+        long target = buffer.getClaimedCount();
+        long deadline = System.currentTimeMillis() + FLUSH_TIMEOUT_MILLIS;
+        while (writtenCount < target && thread.isAlive() && System.currentTimeMillis() < deadline) {
+            LockSupport.unpark(thread);
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+        }
+    }
+
+    long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            int written = drain();
+            if (written > 0) {
+                continue;
+            }
+
+            // Nothing to do: say so, check once more, then sleep until a logging thread wakes us
+            waiting = true;
+            if (buffer.peek() == null) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+            waiting = false;
+        }
+    }
+
+    // Writes every message that is ready, then flushes once
+    private int drain() {
+        int count = 0;
+        LogRingBuffer.Slot slot;
+        try {
+            while ((slot = buffer.peek()) != null) {
+                try {
+                    format(slot);
+                } catch (RuntimeException e) {
+                    // A broken toString() must not stop the writer
+                    line.append(" <could not format: ").append(e).append('>').append(System.lineSeparator());
+                }
+                buffer.release(slot);
+                out.append(line);
+                count++;
+            }
+
+            long droppedNow = dropped.sum();
+            if (droppedNow != droppedReported) {
+                out.write("... " + (droppedNow - droppedReported) + " log message(s) dropped (buffer full)"
+                        + System.lineSeparator());
+                droppedReported = droppedNow;
+            }
+
+            if (count > 0) {
+                out.flush();
+            }
+        } catch (IOException e) {
+            // Nowhere left to report it - keep draining so logging threads never block forever
+        }
+        writtenCount += count;
+        return count;
+    }
+
+    // Builds "HH:mm:ss.SSS LEVEL [thread] message" (plus the stack trace) into line
+    private void format(LogRingBuffer.Slot slot) {
+        line.setLength(0);
+        LocalTime time = LocalTime.ofInstant(Instant.ofEpochMilli(slot.timeMillis), zone);
+        appendPadded(time.getHour(), 2);
+        line.append(':');
+        appendPadded(time.getMinute(), 2);
+        line.append(':');
+        appendPadded(time.getSecond(), 2);
+        line.append('.');
+        appendPadded(time.getNano() / 1_000_000, 3);
+        line.append(' ').append(slot.level.name());
+        if (slot.level.name().length() < 5) {
+            line.append(' ');
+        }
+        line.append(" [").append(slot.threadName).append("] ");
+
+        appendMessage(slot);
+        line.append(System.lineSeparator());
+
+        if (slot.thrown != null) {
+            StringWriter trace = new StringWriter();
+            slot.thrown.printStackTrace(new PrintWriter(trace));
+            line.append(trace);
+        }
+    }
+
+    // Replaces each "{}" in the template with the next argument
+    private void appendMessage(LogRingBuffer.Slot slot) {
+        String template = slot.template;
+        int argCount = slot.argCount >= 0 ? slot.argCount : (slot.moreArgs == null ? 0 : slot.moreArgs.length);
+        int argIndex = 0;
+        int start = 0;
+        int placeholder;
+        while (argIndex < argCount && (placeholder = template.indexOf("{}", start)) >= 0) {
+            line.append(template, start, placeholder);
+            line.append(argument(slot, argIndex++));
+            start = placeholder + 2;
+        }
+        line.append(template, start, template.length());
+    }
+
+    private static Object argument(LogRingBuffer.Slot slot, int index) {
+        if (slot.argCount < 0) {
+            return slot.moreArgs[index];
+        }
+        switch (index) {
+            case 0:
+                return slot.arg0;
+            case 1:
+                return slot.arg1;
+            default:
+                return slot.arg2;
+        }
+    }
+
+    // Appends a 2 or 3 digit number with leading zeros
+    private void appendPadded(int value, int width) {
+        if (width == 3 && value < 100) {
+            line.append('0');
+        }
+        if (value < 10) {
+            line.append('0');
+        }
+        line.append(value);
+    }
+}
@@ -0,0 +1,12 @@
+package logging;
+
+/**
+ * Level - How important a log message is, least to most
+ */
+public enum Level {
+    DEBUG,
+    INFO,
+    WARN,
+    ERROR,
+    OFF     // Only used as a threshold: log nothing
+}
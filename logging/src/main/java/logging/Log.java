@@ -0,0 +1,172 @@
+package logging;
+
+/**
+ * Log - Asynchronous logger for code that runs on many threads
+ *
+ *   Log.info("Rented {} to desk {}", plateNo, deskId);
+ *   Log.error("Error renting car!", e);
+ *
+ * A call below the current level returns after one comparison. An enabled
+ * call stores the template and arguments in a ring buffer and returns; the
+ * "{}" placeholders are filled in later by the "log-writer" thread, which
+ * also does all the writing to System.out. Arguments must therefore not be
+ * changed after they are logged.
+ *
+ * Settings (system properties, read once at startup):
+ *   -Dlog.level=DEBUG|INFO|WARN|ERROR|OFF   (default INFO)
+ *   -Dlog.overflow=BLOCK|DROP               (default BLOCK, see OverflowPolicy)
+ *   -Dlog.bufferSize=8192                   (messages, a power of two)
+ *
+ * Everything logged is written out before the JVM exits normally.
+ */
+public final class Log {
+
+    private static final String LEVEL_PROPERTY = "log.level";
+    private static final String OVERFLOW_PROPERTY = "log.overflow";
+    private static final String BUFFER_SIZE_PROPERTY = "log.bufferSize";
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private static volatile int threshold =
+            Level.valueOf(System.getProperty(LEVEL_PROPERTY, "INFO").toUpperCase()).ordinal();
+
+    private static final AsyncLogWriter WRITER = new AsyncLogWriter(System.out,
+            Integer.getInteger(BUFFER_SIZE_PROPERTY, DEFAULT_BUFFER_SIZE),
+            OverflowPolicy.valueOf(System.getProperty(OVERFLOW_PROPERTY, "BLOCK").toUpperCase()));
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(WRITER::flush, "log-flush"));
+    }
+
+    private Log() {
+    }
+
+    /**
+     * isEnabled() - Tells whether messages of a level are written
+     * Useful to skip building expensive arguments.
+     */
+    public static boolean isEnabled(Level level) {
+        return level.ordinal() >= threshold;
+    }
+
+    /**
+     * setLevel() - Changes the lowest level that is written
+     */
+    public static void setLevel(Level level) {
+        threshold = level.ordinal();
+    }
+
+    /**
+     * flush() - Waits until everything logged so far has been written
+     * Call it before printing to System.out directly, so the output appears in order.
+     */
+    public static void flush() {
+        WRITER.flush();
+    }
+
+    /**
+     * getDroppedCount() - Messages thrown away because the buffer was full (DROP policy only)
+     */
+    public static long getDroppedCount() {
+        return WRITER.getDroppedCount();
+    }
+
+    // DEBUG
+    public static void debug(String message) {
+        log(Level.DEBUG, message, 0, null, null, null, null, null);
+    }
+
+    public static void debug(String template, Object arg) {
+        log(Level.DEBUG, template, 1, arg, null, null, null, null);
+    }
+
+    public static void debug(String template, Object arg0, Object arg1) {
+        log(Level.DEBUG, template, 2, arg0, arg1, null, null, null);
+    }
+
+    public static void debug(String template, Object arg0, Object arg1, Object arg2) {
+        log(Level.DEBUG, template, 3, arg0, arg1, arg2, null, null);
+    }
+
+    public static void debug(String template, Object... args) {
+        log(Level.DEBUG, template, -1, null, null, null, args, null);
+    }
+
+    // INFO
+    public static void info(String message) {
+        log(Level.INFO, message, 0, null, null, null, null, null);
+    }
+
+    public static void info(String template, Object arg) {
+        log(Level.INFO, template, 1, arg, null, null, null, null);
+    }
+
+    public static void info(String template, Object arg0, Object arg1) {
+        log(Level.INFO, template, 2, arg0, arg1, null, null, null);
+    }
+
+    public static void info(String template, Object arg0, Object arg1, Object arg2) {
+        log(Level.INFO, template, 3, arg0, arg1, arg2, null, null);
+    }
+
+    public static void info(String template, Object... args) {
+        log(Level.INFO, template, -1, null, null, null, args, null);
+    }
+
+    // WARN
+    public static void warn(String message) {
+        log(Level.WARN, message, 0, null, null, null, null, null);
+    }
+
+    public static void warn(String template, Object arg) {
+        log(Level.WARN, template, 1, arg, null, null, null, null);
+    }
+
+    public static void warn(String template, Object arg0, Object arg1) {
+        log(Level.WARN, template, 2, arg0, arg1, null, null, null);
+    }
+
+    public static void warn(String template, Object... args) {
+        log(Level.WARN, template, -1, null, null, null, args, null);
+    }
+
+    public static void warn(String message, Throwable thrown) {
+        log(Level.WARN, message, 0, null, null, null, null, thrown);
+    }
+
+    public static void warn(String template, Object arg, Throwable thrown) {
+        log(Level.WARN, template, 1, arg, null, null, null, thrown);
+    }
+
+    // ERROR
+    public static void error(String message) {
+        log(Level.ERROR, message, 0, null, null, null, null, null);
+    }
+
+    public static void error(String template, Object arg) {
+        log(Level.ERROR, template, 1, arg, null, null, null, null);
+    }
+
+    public static void error(String template, Object arg0, Object arg1) {
+        log(Level.ERROR, template, 2, arg0, arg1, null, null, null);
+    }
+
+    public static void error(String template, Object... args) {
+        log(Level.ERROR, template, -1, null, null, null, args, null);
+    }
+
+    public static void error(String message, Throwable thrown) {
+        log(Level.ERROR, message, 0, null, null, null, null, thrown);
+    }
+
+    public static void error(String template, Object arg, Throwable thrown) {
+        log(Level.ERROR, template, 1, arg, null, null, null, thrown);
+    }
+
+    private static void log(Level level, String template, int argCount, Object arg0, Object arg1, Object arg2,
+                            Object[] moreArgs, Throwable thrown) {
+        if (level.ordinal() < threshold) {
+            return;
+        }
+        WRITER.publish(level, template, argCount, arg0, arg1, arg2, moreArgs, thrown);
+    }
+}
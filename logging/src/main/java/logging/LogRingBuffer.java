@@ -0,0 +1,115 @@
+package logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LogRingBuffer - Fixed-size queue of log messages, many writers, one reader
+ * Slots are allocated once and reused, so logging a message copies a few
+ * references instead of creating a message object. Each slot carries a
+ * sequence number that says whose turn it is: a logging thread claims a
+ * slot with one CAS, fills it, then publishes it by bumping the sequence.
+ */
+final class LogRingBuffer {
+
+    /**
+     * Slot - One reusable message (fields are only read after sequence is published)
+     */
+    static final class Slot {
+        volatile long sequence;
+        Level level;
+        long timeMillis;
+        String threadName;
+        String template;
+        int argCount;          // 0-3 when the args are in arg0..arg2, -1 when they are in moreArgs
+        Object arg0;
+        Object arg1;
+        Object arg2;
+        Object[] moreArgs;
+        Throwable thrown;
+
+        void clear() {
+            threadName = null;
+            template = null;
+            arg0 = null;
+            arg1 = null;
+            arg2 = null;
+            moreArgs = null;
+            thrown = null;
+        }
+    }
+
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();   // Next position a logging thread will claim
+    private long head = 0;                              // Next position the reader will take (reader only)
+
+    LogRingBuffer(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+        slots = new Slot[capacity];
+        mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot();
+            slots[i].sequence = i;
+        }
+    }
+
+    /**
+     * tryPublish() - Copies one message into a free slot
+     * @return false if the buffer is full
+     */
+    boolean tryPublish(Level level, String template, int argCount, Object arg0, Object arg1, Object arg2,
+                       Object[] moreArgs, Throwable thrown) {
+        long position = tail.get();
+        while (true) {
+            Slot slot = slots[(int) position & mask];
+            long difference = slot.sequence - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slot.level = level;
+                    slot.timeMillis = System.currentTimeMillis();
+                    slot.threadName = Thread.currentThread().getName();
+                    slot.template = template;
+                    slot.argCount = argCount;
+                    slot.arg0 = arg0;
+                    slot.arg1 = arg1;
+                    slot.arg2 = arg2;
+                    slot.moreArgs = moreArgs;
+                    slot.thrown = thrown;
+                    slot.sequence = position + 1;   // Publish: the reader may take it now
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;   // The reader has not freed this slot yet: buffer full
+            } else {
+                position = tail.get();   // Another thread took this position
+            }
+        }
+    }
+
+    /**
+     * peek() - The next published slot, or null if there is none (reader only)
+     */
+    Slot peek() {
+        Slot slot = slots[(int) head & mask];
+        return slot.sequence == head + 1 ? slot : null;
+    }
+
+    /**
+     * release() - Hands the slot returned by peek() back to the logging threads (reader only)
+     */
+    void release(Slot slot) {
+        slot.clear();
+        slot.sequence = head + slots.length;
+        head++;
+    }
+
+    /**
+     * getClaimedCount() - How many messages have been (or are being) published so far
+     */
+    long getClaimedCount() {
+        return tail.get();
+    }
+}
@@ -0,0 +1,9 @@
+package logging;
+
+/**
+ * OverflowPolicy - What a logging thread does when the ring buffer is full
+ */
+public enum OverflowPolicy {
+    BLOCK,   // Wait for the writer to make room (nothing is lost)
+    DROP     // Drop DEBUG/INFO messages and count them; WARN/ERROR still wait
+}